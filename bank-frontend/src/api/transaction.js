@@ -4,6 +4,10 @@ export function getTransactions(page = 1, size = 10) {
   return request.get('/transactions', { params: { page, size } });
 }
 
+export function getTransactionsByCursor(cursor, size = 10) {
+  return request.get('/transactions', { params: { cursor, size } });
+}
+
 export function createTransaction(data) {
   return request.post('/transactions', data);
 }
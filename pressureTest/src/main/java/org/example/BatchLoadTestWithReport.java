@@ -0,0 +1,121 @@
+package org.example;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 对比单条 POST /transactions 与 POST /transactions/batch 写入相同条数时的吞吐。
+ * 服务端按账号和调用方限流，批量中的每条也计入：交易按序轮流分布到 ACCOUNTS 个账号，每个线程使用自己的调用方标识，
+ * 两轮中每个账号、每个调用方的写入条数都在默认桶容量以内，结果只反映写入本身的开销
+ */
+public class BatchLoadTestWithReport {
+
+    private static final int THREADS = 100;              // 并发线程数
+    private static final int ITEMS_PER_THREAD = 200;     // 每线程写入条数
+    private static final int BATCH_SIZE = 100;           // 批量模式每批条数
+    private static final int ACCOUNTS = 1000;            // 账号个数，每轮每个账号 THREADS * ITEMS_PER_THREAD / ACCOUNTS 条
+
+    private static final String BASE_URL = "http://localhost:8080/transactions";
+
+    private static final String JSON_TEMPLATE = """
+            {"userName":"压测用户%1$d","accountNumber":"62220202%1$010d","amount":100.00,"currency":"CNY",\
+            "status":"SUCCESS","type":"DEPOSIT","channel":"COUNTER","description":"批量压力测试"}""";
+
+    public static void main(String[] args) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        long singleMs = run("单条写入", ITEMS_PER_THREAD, (thread, request) -> HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL))
+                .header("Content-Type", "application/json")
+                .header("X-Client-Id", clientId(thread))
+                .POST(HttpRequest.BodyPublishers.ofString(item(thread * ITEMS_PER_THREAD + request)))
+                .build(), 1, client);
+
+        long batchMs = run("批量写入", ITEMS_PER_THREAD / BATCH_SIZE, (thread, request) -> {
+            StringBuilder ndjson = new StringBuilder();
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                ndjson.append(item(thread * ITEMS_PER_THREAD + request * BATCH_SIZE + i)).append('\n');
+            }
+            return HttpRequest.newBuilder()
+                    .uri(URI.create(BASE_URL + "/batch"))
+                    .header("Content-Type", "application/x-ndjson")
+                    .header("X-Client-Id", clientId(thread))
+                    .POST(HttpRequest.BodyPublishers.ofString(ndjson.toString()))
+                    .build();
+        }, BATCH_SIZE, client);
+
+        long totalItems = (long) THREADS * ITEMS_PER_THREAD;
+        System.out.println("=== 对比 ===");
+        System.out.printf("单条写入吞吐(条/秒): %.2f%n", totalItems / (singleMs / 1000.0));
+        System.out.printf("批量写入吞吐(条/秒): %.2f%n", totalItems / (batchMs / 1000.0));
+        System.out.printf("提升倍数: %.2f%n", (double) singleMs / batchMs);
+    }
+
+    /**
+     * 第 n 条交易的请求体
+     */
+    private static String item(int n) {
+        return JSON_TEMPLATE.formatted(n % ACCOUNTS);
+    }
+
+    private static String clientId(int thread) {
+        return "batch-load-" + thread;
+    }
+
+    @FunctionalInterface
+    private interface RequestFactory {
+        HttpRequest create(int thread, int request);
+    }
+
+    private static long run(String name, int requestsPerThread, RequestFactory requestFactory,
+                            int itemsPerRequest, HttpClient client) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger successCount = new AtomicInteger(0);
+        AtomicInteger sentinalCount = new AtomicInteger(0);
+        AtomicInteger failCount = new AtomicInteger(0);
+
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < THREADS; i++) {
+            int thread = i;
+            executor.submit(() -> {
+                for (int j = 0; j < requestsPerThread; j++) {
+                    try {
+                        HttpResponse<String> response = client.send(requestFactory.create(thread, j), HttpResponse.BodyHandlers.ofString());
+                        if (response.body().startsWith("{\"code\":0")) {
+                            successCount.incrementAndGet();
+                        } else if (response.body().contains("\"code\":99999")) {
+                            sentinalCount.incrementAndGet();
+                        } else {
+                            failCount.incrementAndGet();
+                            System.err.println("请求失败: " + response.body());
+                        }
+                    } catch (Exception e) {
+                        failCount.incrementAndGet();
+                        System.err.println("请求异常: " + e.getMessage());
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(15, TimeUnit.MINUTES);
+        long totalDuration = System.currentTimeMillis() - startTime;
+
+        long totalRequests = (long) THREADS * requestsPerThread;
+        System.out.println("=== " + name + " ===");
+        System.out.println("总请求数: " + totalRequests);
+        System.out.println("总条数: " + totalRequests * itemsPerRequest);
+        System.out.println("成功请求数: " + successCount.get());
+        System.out.println("服务降级数：" + sentinalCount.get());
+        System.out.println("失败请求数: " + failCount.get());
+        System.out.println("总耗时(ms): " + totalDuration);
+        System.out.printf("吞吐率(请求/秒): %.2f%n", totalRequests / (totalDuration / 1000.0));
+        return totalDuration;
+    }
+}
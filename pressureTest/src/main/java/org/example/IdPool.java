@@ -0,0 +1,58 @@
+package org.example;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 已创建交易的 id，环形数组保存最近 capacity 个，供修改和删除随机选取。
+ * 删除取走的 id 从池中移除，避免重复删除得到“交易不存在”。
+ */
+public class IdPool {
+
+    // 取 id 时随机探测的次数，都落在空槽时本次跳过
+    private static final int PROBES = 8;
+
+    private final AtomicReferenceArray<String> slots;
+    private final AtomicLong next = new AtomicLong();
+
+    public IdPool(int capacity) {
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    public void add(String id) {
+        slots.set((int) (next.getAndIncrement() % slots.length()), id);
+    }
+
+    /**
+     * 随机取一个 id，不移除
+     */
+    public String any() {
+        int bound = bound();
+        for (int i = 0; bound > 0 && i < PROBES; i++) {
+            String id = slots.get(ThreadLocalRandom.current().nextInt(bound));
+            if (id != null) {
+                return id;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 随机取走一个 id
+     */
+    public String take() {
+        int bound = bound();
+        for (int i = 0; bound > 0 && i < PROBES; i++) {
+            String id = slots.getAndSet(ThreadLocalRandom.current().nextInt(bound), null);
+            if (id != null) {
+                return id;
+            }
+        }
+        return null;
+    }
+
+    private int bound() {
+        return (int) Math.min(next.get(), slots.length());
+    }
+}
@@ -0,0 +1,90 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 压测中的接口操作，负责构造对应的 HTTP 请求
+ */
+public enum Operation {
+
+    CREATE("create"),
+    LIST("list"),
+    DEEP_LIST("deepList"),
+    UPDATE("update"),
+    DELETE("delete");
+
+    private static final String[] CURRENCIES = {"CNY", "USD", "EUR", "JPY"};
+    private static final String[] TYPES = {"DEPOSIT", "WITHDRAWAL", "TRANSFER", "PAYMENT"};
+    private static final String[] CHANNELS = {"COUNTER", "ATM", "ONLINE_BANK", "MOBILE_APP"};
+
+    private final String name;
+
+    Operation(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    static Operation fromName(String name) {
+        for (Operation op : values()) {
+            if (op.name.equalsIgnoreCase(name)) {
+                return op;
+            }
+        }
+        throw new IllegalArgumentException("未知操作: " + name);
+    }
+
+    /**
+     * 构造本次请求；修改、删除时 id 池为空则返回 null，本次跳过
+     */
+    HttpRequest request(WorkloadConfig config, IdPool ids) {
+        return switch (this) {
+            case CREATE -> json(URI.create(config.baseUrl))
+                    .POST(HttpRequest.BodyPublishers.ofString(body(config)))
+                    .build();
+            case LIST -> HttpRequest.newBuilder(URI.create(config.baseUrl + "?page=1&size=" + config.pageSize))
+                    .GET()
+                    .build();
+            case DEEP_LIST -> HttpRequest.newBuilder(URI.create(config.baseUrl + "?page=" + config.deepPage + "&size=" + config.pageSize))
+                    .GET()
+                    .build();
+            case UPDATE -> {
+                String id = ids.any();
+                yield id == null ? null : json(URI.create(config.baseUrl + "/" + id))
+                        .PUT(HttpRequest.BodyPublishers.ofString(body(config)))
+                        .build();
+            }
+            case DELETE -> {
+                String id = ids.take();
+                yield id == null ? null : HttpRequest.newBuilder(URI.create(config.baseUrl + "/" + id))
+                        .DELETE()
+                        .build();
+            }
+        };
+    }
+
+    private static HttpRequest.Builder json(URI uri) {
+        return HttpRequest.newBuilder(uri).header("Content-Type", "application/json");
+    }
+
+    /**
+     * 随机交易，账号、用户在 accounts 个取值中分布，便于覆盖按账号、用户的索引
+     */
+    static String body(WorkloadConfig config) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int account = random.nextInt(config.accounts);
+        return """
+                {"userName":"压测用户%d","accountNumber":"62220202%010d","amount":%s,"currency":"%s",\
+                "status":"SUCCESS","type":"%s","channel":"%s","description":"压力测试"}"""
+                .formatted(account, account,
+                        BigDecimal.valueOf(random.nextLong(1, 10_000_000), 2).toPlainString(),
+                        CURRENCIES[random.nextInt(CURRENCIES.length)],
+                        TYPES[random.nextInt(TYPES.length)],
+                        CHANNELS[random.nextInt(CHANNELS.length)]);
+    }
+}
@@ -0,0 +1,40 @@
+package org.example;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个操作在一个阶段内的统计：延迟直方图（微秒）及各类结果计数，可多线程同时记录
+ */
+public class OperationStats {
+
+    // 直方图精度：3 位有效数字
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Recorder latency = new Recorder(SIGNIFICANT_DIGITS);
+
+    final LongAdder success = new LongAdder();
+    // HTTP 429
+    final LongAdder rateLimited = new LongAdder();
+    // 业务码 99999，限流或熔断后的降级响应
+    final LongAdder degraded = new LongAdder();
+    // 其他业务码或 HTTP 错误
+    final LongAdder failed = new LongAdder();
+    // 连接失败、超时等未拿到响应的请求
+    final LongAdder errors = new LongAdder();
+    // 没有可用 id 而跳过的修改、删除
+    final LongAdder skipped = new LongAdder();
+
+    void record(long nanos) {
+        latency.recordValue(Math.max(1, nanos / 1000));
+    }
+
+    /**
+     * 取出当前累计的直方图，只在阶段结束后调用一次
+     */
+    Histogram histogram() {
+        return latency.getIntervalHistogram();
+    }
+}
@@ -0,0 +1,134 @@
+package org.example;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * 压测报告：控制台表格 + JSON + CSV，延迟单位均为微秒
+ */
+public class Report {
+
+    private static final String[] COLUMNS = {
+            "operation", "count", "success", "rateLimited", "degraded", "failed", "errors", "skipped",
+            "throughput", "meanUs", "p50Us", "p90Us", "p99Us", "p999Us", "maxUs"};
+
+    public record Row(String operation, long count, long success, long rateLimited, long degraded,
+                      long failed, long errors, long skipped, double throughput,
+                      double mean, long p50, long p90, long p99, long p999, long max) {
+
+        Object[] values() {
+            return new Object[]{operation, count, success, rateLimited, degraded, failed, errors, skipped,
+                    round(throughput), round(mean), p50, p90, p99, p999, max};
+        }
+    }
+
+    private final WorkloadConfig config;
+    private final OffsetDateTime startedAt;
+    private final double elapsedSeconds;
+    private final List<Row> rows = new ArrayList<>();
+
+    public Report(WorkloadConfig config, OffsetDateTime startedAt, double elapsedSeconds,
+                  Map<Operation, OperationStats> stats) {
+        this.config = config;
+        this.startedAt = startedAt;
+        this.elapsedSeconds = elapsedSeconds;
+        Histogram all = new Histogram(3);
+        long[] totals = new long[6];
+        for (Map.Entry<Operation, OperationStats> e : stats.entrySet()) {
+            OperationStats s = e.getValue();
+            Histogram h = s.histogram();
+            all.add(h);
+            long[] counts = {s.success.sum(), s.rateLimited.sum(), s.degraded.sum(),
+                    s.failed.sum(), s.errors.sum(), s.skipped.sum()};
+            for (int i = 0; i < counts.length; i++) {
+                totals[i] += counts[i];
+            }
+            rows.add(row(e.getKey().getName(), h, counts));
+        }
+        rows.add(row("total", all, totals));
+    }
+
+    private Row row(String operation, Histogram h, long[] counts) {
+        long count = h.getTotalCount();
+        return new Row(operation, count, counts[0], counts[1], counts[2], counts[3], counts[4], counts[5],
+                elapsedSeconds > 0 ? count / elapsedSeconds : 0,
+                count == 0 ? 0 : h.getMean(),
+                h.getValueAtPercentile(50), h.getValueAtPercentile(90), h.getValueAtPercentile(99),
+                h.getValueAtPercentile(99.9), h.getMaxValue());
+    }
+
+    public List<Row> rows() {
+        return rows;
+    }
+
+    public void print() {
+        System.out.println("=== 压测报告 ===");
+        System.out.printf("模式: %s, 测量时长(s): %.2f, 延迟%s协调遗漏修正%n",
+                config.mode, elapsedSeconds, config.mode == WorkloadConfig.Mode.OPEN ? "已按计划发送时间做" : "未做");
+        System.out.printf("%-10s %9s %9s %8s %8s %8s %8s %8s %10s %9s %9s %9s %9s %9s %9s%n", (Object[]) COLUMNS);
+        for (Row row : rows) {
+            System.out.printf("%-10s %9d %9d %8d %8d %8d %8d %8d %10.2f %9.1f %9d %9d %9d %9d %9d%n",
+                    row.operation, row.count, row.success, row.rateLimited, row.degraded, row.failed,
+                    row.errors, row.skipped, row.throughput, row.mean, row.p50, row.p90, row.p99, row.p999, row.max);
+        }
+    }
+
+    public void writeCsv(Path file) throws IOException {
+        StringBuilder sb = new StringBuilder(String.join(",", COLUMNS)).append('\n');
+        for (Row row : rows) {
+            StringJoiner line = new StringJoiner(",");
+            for (Object value : row.values()) {
+                line.add(String.valueOf(value));
+            }
+            sb.append(line).append('\n');
+        }
+        write(file, sb.toString());
+    }
+
+    public void writeJson(Path file) throws IOException {
+        StringBuilder sb = new StringBuilder("{\n");
+        sb.append("  \"startedAt\": \"").append(startedAt).append("\",\n");
+        sb.append("  \"mode\": \"").append(config.mode).append("\",\n");
+        sb.append("  \"coordinatedOmissionCorrected\": ").append(config.mode == WorkloadConfig.Mode.OPEN).append(",\n");
+        sb.append("  \"elapsedSeconds\": ").append(round(elapsedSeconds)).append(",\n");
+        sb.append("  \"args\": {");
+        StringJoiner args = new StringJoiner(", ");
+        config.raw.forEach((k, v) -> args.add(quote(k) + ": " + quote(v)));
+        sb.append(args).append("},\n");
+        sb.append("  \"operations\": [\n");
+        for (int r = 0; r < rows.size(); r++) {
+            Object[] values = rows.get(r).values();
+            StringJoiner fields = new StringJoiner(", ", "    {", "}");
+            for (int i = 0; i < COLUMNS.length; i++) {
+                fields.add(quote(COLUMNS[i]) + ": " + (values[i] instanceof String s ? quote(s) : values[i]));
+            }
+            sb.append(fields).append(r < rows.size() - 1 ? ",\n" : "\n");
+        }
+        sb.append("  ]\n}\n");
+        write(file, sb.toString());
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+
+    private static String quote(String s) {
+        return '"' + s.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,119 @@
+package org.example;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 压测参数，命令行按 key=value 传入，未指定的取默认值：
+ * <pre>
+ * baseUrl=http://localhost:8080/transactions
+ * mode=open            open：按固定到达率发请求（开放模型），closed：clients 个客户端循环请求（封闭模型）
+ * rate=2000            开放模型每秒请求数
+ * clients=100          封闭模型客户端数
+ * maxInFlight=10000    开放模型最多同时在途的请求数，达到后新请求等待，等待时间计入延迟
+ * warmup=10s           预热时长，结果不计入报告
+ * duration=60s         正式测量时长
+ * requests=0           封闭模型正式测量的总请求数，大于 0 时代替 duration
+ * mix=create:40,list:30,deepList:10,update:15,delete:5   各操作的权重
+ * pageSize=20
+ * deepPage=500         深分页的页码
+ * seed=1000            开始前预先创建的交易数，供修改和删除使用
+ * accounts=1000        账号个数，交易随机分布到这些账号
+ * out=target/report    报告文件前缀，生成 .json 和 .csv
+ * </pre>
+ */
+public class WorkloadConfig {
+
+    public enum Mode {OPEN, CLOSED}
+
+    String baseUrl = "http://localhost:8080/transactions";
+    Mode mode = Mode.OPEN;
+    int rate = 2000;
+    int clients = 100;
+    int maxInFlight = 10_000;
+    Duration warmup = Duration.ofSeconds(10);
+    Duration duration = Duration.ofSeconds(60);
+    long requests = 0;
+    Map<Operation, Integer> mix = parseMix("create:40,list:30,deepList:10,update:15,delete:5");
+    int pageSize = 20;
+    int deepPage = 500;
+    int seed = 1000;
+    int accounts = 1000;
+    String out = "target/report";
+
+    // 原样保留命令行参数，写入报告便于对照
+    final Map<String, String> raw = new LinkedHashMap<>();
+
+    public static WorkloadConfig parse(String... args) {
+        WorkloadConfig config = new WorkloadConfig();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("参数格式应为 key=value: " + arg);
+            }
+            String key = arg.substring(0, eq).trim();
+            String value = arg.substring(eq + 1).trim();
+            config.raw.put(key, value);
+            switch (key) {
+                case "baseUrl" -> config.baseUrl = value;
+                case "mode" -> config.mode = Mode.valueOf(value.toUpperCase());
+                case "rate" -> config.rate = Integer.parseInt(value);
+                case "clients" -> config.clients = Integer.parseInt(value);
+                case "maxInFlight" -> config.maxInFlight = Integer.parseInt(value);
+                case "warmup" -> config.warmup = parseDuration(value);
+                case "duration" -> config.duration = parseDuration(value);
+                case "requests" -> config.requests = Long.parseLong(value);
+                case "mix" -> config.mix = parseMix(value);
+                case "pageSize" -> config.pageSize = Integer.parseInt(value);
+                case "deepPage" -> config.deepPage = Integer.parseInt(value);
+                case "seed" -> config.seed = Integer.parseInt(value);
+                case "accounts" -> config.accounts = Integer.parseInt(value);
+                case "out" -> config.out = value;
+                default -> throw new IllegalArgumentException("未知参数: " + key);
+            }
+        }
+        if (config.rate <= 0 || config.clients <= 0 || config.maxInFlight <= 0) {
+            throw new IllegalArgumentException("rate、clients、maxInFlight 必须大于 0");
+        }
+        if (config.pageSize <= 0 || config.deepPage <= 0 || config.accounts <= 0) {
+            throw new IllegalArgumentException("pageSize、deepPage、accounts 必须大于 0");
+        }
+        return config;
+    }
+
+    /**
+     * 支持 500ms、30s、5m，不带单位按秒
+     */
+    static Duration parseDuration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(value));
+    }
+
+    static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : value.split(",")) {
+            String[] kv = part.split(":");
+            int weight = kv.length > 1 ? Integer.parseInt(kv[1].trim()) : 1;
+            if (weight < 0) {
+                throw new IllegalArgumentException("权重不能为负数: " + part);
+            }
+            if (weight > 0) {
+                mix.put(Operation.fromName(kv[0].trim()), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("mix 至少包含一个权重大于 0 的操作");
+        }
+        return mix;
+    }
+}
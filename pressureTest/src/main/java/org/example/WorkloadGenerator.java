@@ -0,0 +1,259 @@
+package org.example;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 可配置的压测工具，客户端全部跑在虚拟线程上。
+ * <ul>
+ *     <li>开放模型（默认）：按 rate 计划每个请求的发送时间，不受服务端响应快慢影响；
+ *     延迟从计划发送时间算起，服务端变慢时排队的时间也计入，避免协调遗漏。</li>
+ *     <li>封闭模型：clients 个客户端各自收到响应后立即发下一个请求，与原先的压测方式一致，延迟未做修正。</li>
+ * </ul>
+ * 先预置 seed 条交易，再预热 warmup，最后测量 duration，报告写入 out.json / out.csv。参数见 {@link WorkloadConfig}。
+ * mvn -q compile exec:java -Dexec.args="rate=3000 duration=60s mix=create:50,list:30,deepList:5,update:10,delete:5"
+ */
+public class WorkloadGenerator {
+
+    private static final Pattern CODE = Pattern.compile("^\\{\"code\":(-?\\d+)");
+    private static final Pattern ID = Pattern.compile("\"id\":\"([0-9a-fA-F-]{36})\"");
+
+    private static final int DEGRADED_CODE = 99999;
+
+    // 打印到控制台的失败样例条数
+    private static final int MAX_FAILURE_SAMPLES = 10;
+
+    // 阶段结束后等待在途请求完成的最长时间
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final WorkloadConfig config;
+    private final HttpClient client;
+    private final IdPool ids;
+    private final Operation[] weighted;
+    private final AtomicInteger failureSamples = new AtomicInteger();
+
+    public WorkloadGenerator(WorkloadConfig config) {
+        this.config = config;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        this.ids = new IdPool(Math.max(config.seed, 100_000));
+        this.weighted = expand(config.mix);
+    }
+
+    public static void main(String[] args) throws Exception {
+        WorkloadConfig config = WorkloadConfig.parse(args);
+        Report report = new WorkloadGenerator(config).run();
+        report.print();
+        report.writeJson(Path.of(config.out + ".json"));
+        report.writeCsv(Path.of(config.out + ".csv"));
+        System.out.println("报告已写入: " + config.out + ".json, " + config.out + ".csv");
+    }
+
+    public Report run() throws InterruptedException {
+        seed();
+        if (!config.warmup.isZero()) {
+            System.out.println("预热 " + config.warmup.toSeconds() + "s ...");
+            phase(config.warmup, 0);
+        }
+        System.out.println("测量中 ...");
+        OffsetDateTime startedAt = OffsetDateTime.now();
+        long start = System.nanoTime();
+        Map<Operation, OperationStats> stats = phase(config.duration, config.requests);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        return new Report(config, startedAt, elapsed, stats);
+    }
+
+    /**
+     * 预置交易，供修改和删除使用，不计入报告
+     */
+    private void seed() throws InterruptedException {
+        if (config.seed <= 0) {
+            return;
+        }
+        Map<Operation, OperationStats> stats = newStats(List.of(Operation.CREATE));
+        Semaphore inFlight = new Semaphore(config.clients);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < config.seed; i++) {
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        send(Operation.CREATE, System.nanoTime(), stats);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        System.out.println("已预置交易: " + stats.get(Operation.CREATE).success.sum());
+    }
+
+    private Map<Operation, OperationStats> phase(Duration duration, long requests) throws InterruptedException {
+        Map<Operation, OperationStats> stats = newStats(config.mix.keySet());
+        if (config.mode == WorkloadConfig.Mode.OPEN) {
+            openLoop(duration, stats);
+        } else {
+            closedLoop(duration, requests, stats);
+        }
+        return stats;
+    }
+
+    /**
+     * 开放模型：第 i 个请求计划在 start + i / rate 发出，到点即交给新的虚拟线程，
+     * 在途请求达到 maxInFlight 时在虚拟线程内等待，等待时间计入延迟
+     */
+    private void openLoop(Duration duration, Map<Operation, OperationStats> stats) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(config.maxInFlight);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (long i = 0; ; i++) {
+            long intended = start + i * 1_000_000_000L / config.rate;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation op = pick();
+            executor.execute(() -> {
+                inFlight.acquireUninterruptibly();
+                try {
+                    send(op, intended, stats);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+        drain(executor);
+    }
+
+    /**
+     * 封闭模型：每个客户端收到响应后立即发下一个请求；requests 大于 0 时按总请求数结束
+     */
+    private void closedLoop(Duration duration, long requests, Map<Operation, OperationStats> stats) throws InterruptedException {
+        long end = System.nanoTime() + duration.toNanos();
+        AtomicLong remaining = new AtomicLong(requests);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        for (int c = 0; c < config.clients; c++) {
+            executor.execute(() -> {
+                while (requests > 0 ? remaining.getAndDecrement() > 0 : System.nanoTime() < end) {
+                    send(pick(), System.nanoTime(), stats);
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    private void drain(ExecutorService executor) throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(DRAIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+            System.err.println("仍有请求未完成，已放弃等待");
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 发送一次请求并记录结果，延迟从 startNanos 算起
+     */
+    private void send(Operation op, long startNanos, Map<Operation, OperationStats> stats) {
+        OperationStats s = stats.get(op);
+        HttpRequest request = op.request(config, ids);
+        if (request == null) {
+            s.skipped.increment();
+            return;
+        }
+        HttpResponse<String> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (Exception e) {
+            s.record(System.nanoTime() - startNanos);
+            s.errors.increment();
+            sample(op, "请求异常: " + e);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+        s.record(System.nanoTime() - startNanos);
+
+        String body = response.body();
+        if (response.statusCode() == 429) {
+            s.rateLimited.increment();
+            return;
+        }
+        Matcher code = CODE.matcher(body);
+        if (response.statusCode() >= 400 || !code.find()) {
+            s.failed.increment();
+            sample(op, "HTTP " + response.statusCode() + ": " + body);
+        } else if (Integer.parseInt(code.group(1)) == 0) {
+            s.success.increment();
+            if (op == Operation.CREATE) {
+                Matcher id = ID.matcher(body);
+                if (id.find()) {
+                    ids.add(id.group(1));
+                }
+            }
+        } else if (Integer.parseInt(code.group(1)) == DEGRADED_CODE) {
+            s.degraded.increment();
+        } else {
+            s.failed.increment();
+            sample(op, body);
+        }
+    }
+
+    private void sample(Operation op, String message) {
+        if (failureSamples.getAndIncrement() < MAX_FAILURE_SAMPLES) {
+            System.err.println("[" + op.getName() + "] " + message);
+        }
+    }
+
+    private Operation pick() {
+        return weighted[ThreadLocalRandom.current().nextInt(weighted.length)];
+    }
+
+    private static Map<Operation, OperationStats> newStats(Collection<Operation> operations) {
+        Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+        for (Operation op : operations) {
+            stats.put(op, new OperationStats());
+        }
+        return stats;
+    }
+
+    /**
+     * 按权重展开为数组，随机下标即按权重抽样
+     */
+    private static Operation[] expand(Map<Operation, Integer> mix) {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        Operation[] weighted = new Operation[total];
+        int i = 0;
+        for (Map.Entry<Operation, Integer> e : mix.entrySet()) {
+            for (int w = 0; w < e.getValue(); w++) {
+                weighted[i++] = e.getKey();
+            }
+        }
+        return weighted;
+    }
+}
@@ -0,0 +1,126 @@
+package org.bank.benchmark;
+
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+import org.bank.model.Transaction;
+import org.bank.store.StorageEngine;
+import org.bank.store.TransactionStore;
+import org.bank.store.TransactionView;
+import org.bank.store.journal.TransactionJournal;
+import org.bank.store.snapshot.SnapshotManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按账号查询第一页：二级索引 vs 全表扫描过滤，两种存储引擎各测一遍。
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="AccountLookupBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class AccountLookupBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"100000"})
+    public int accounts;
+
+    @Param({"HEAP", "COLUMNAR"})
+    public StorageEngine engine;
+
+    private TransactionStore store;
+
+    private String[] accountNumbers;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        accountNumbers = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            accountNumbers[i] = "6222020200" + String.format("%07d", i);
+        }
+        store = engine.create(TransactionJournal.disabled(), SnapshotManager.disabled());
+        List<Transaction> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < rows; i++) {
+            batch.add(sample(i));
+            if (batch.size() == 10_000) {
+                store.putAll(batch);
+                batch.clear();
+            }
+        }
+        store.putAll(batch);
+    }
+
+    @Benchmark
+    public void secondaryIndex(Blackhole bh) {
+        TransactionView snapshot = store.snapshotByAccount(randomAccount());
+        bh.consume(snapshot.range(0, PAGE_SIZE));
+        bh.consume(snapshot.size());
+    }
+
+    @Benchmark
+    public void fullScan(Blackhole bh) {
+        // 原先的做法：按时间顺序遍历全表，过滤出该账号的交易，同时统计总数
+        String account = randomAccount();
+        List<Transaction> page = new ArrayList<>(PAGE_SIZE);
+        int total = 0;
+        for (Transaction t : store.snapshot()) {
+            if (account.equals(t.getAccountNumber())) {
+                if (page.size() < PAGE_SIZE) {
+                    page.add(t);
+                }
+                total++;
+            }
+        }
+        bh.consume(page);
+        bh.consume(total);
+    }
+
+    private String randomAccount() {
+        return accountNumbers[ThreadLocalRandom.current().nextInt(accounts)];
+    }
+
+    private Transaction sample(int i) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDateTime time = LocalDateTime.now().minusSeconds(random.nextInt(86_400 * 365));
+        Transaction t = new Transaction();
+        t.setId(UUID.randomUUID());
+        t.setUserName("用户" + (i % accounts));
+        t.setAccountNumber(accountNumbers[i % accounts]);
+        t.setAmount(BigDecimal.valueOf(random.nextLong(1, 10_000_000), 2));
+        t.setCurrency(Currency.CNY);
+        t.setStatus(TransactionStatus.SUCCESS);
+        t.setType(TransactionType.DEPOSIT);
+        t.setChannel(TransactionChannel.MOBILE_APP);
+        t.setCreatedAt(time);
+        t.setUpdatedAt(time);
+        t.setDescription("交易" + i);
+        return t;
+    }
+}
@@ -0,0 +1,178 @@
+package org.bank.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.bank.cache.PageCache;
+import org.bank.cache.PageCacheFilter;
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+import org.bank.controller.TransactionController;
+import org.bank.model.Transaction;
+import org.bank.service.impl.TransactionServiceImpl;
+import org.bank.store.StorageEngine;
+import org.bank.store.TransactionStore;
+import org.bank.store.journal.TransactionJournal;
+import org.bank.store.snapshot.SnapshotManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * 轮询列表第一页的开销：每次完整查询和序列化、带 If-None-Match 返回 304、命中序列化后的页缓存。
+ * 直接调用控制器方法和过滤器，不经过 Tomcat 和 MockMvc（MockMvc 的响应流逐字节写入，会掩盖序列化的差别）；
+ * 完整查询时按消息转换器的方式把响应体序列化到丢弃输出的流。
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="ConditionalGetBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class ConditionalGetBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"10", "100"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private TransactionController controller;
+    private PageCacheFilter filter;
+    private MockHttpServletRequest request;
+    private String etag;
+
+    @Setup(Level.Trial)
+    public void prepare() throws Exception {
+        TransactionStore store = StorageEngine.HEAP.create(TransactionJournal.disabled(), SnapshotManager.disabled());
+        TransactionServiceImpl service = ServiceFixture.service(store);
+        List<Transaction> batch = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            batch.add(sample(i));
+        }
+        store.putAll(batch);
+
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        controller = new TransactionController();
+        ReflectionTestUtils.setField(controller, "transactionService", service);
+        ReflectionTestUtils.setField(controller, "objectMapper", objectMapper);
+        filter = new PageCacheFilter(new PageCache(8 << 20, 1 << 20), service);
+
+        // 经过 MockMvc 请求一次，把第一页放入页缓存
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                .addFilter(filter, "/transactions")
+                .build();
+        etag = mockMvc.perform(get("/transactions").param("size", String.valueOf(size)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        request = new MockHttpServletRequest("GET", "/transactions");
+        request.setParameter("size", String.valueOf(size));
+    }
+
+    @Benchmark
+    public void fullRender() throws Exception {
+        ResponseEntity<?> response = controller.getAllTransactions(1, size, null, null, null, null);
+        objectMapper.writeValue(OutputStream.nullOutputStream(), response.getBody());
+    }
+
+    @Benchmark
+    public HttpStatusCode notModified() {
+        return controller.getAllTransactions(1, size, null, null, null, etag).getStatusCode();
+    }
+
+    @Benchmark
+    public int cachedPage() throws Exception {
+        DiscardingResponse response = new DiscardingResponse();
+        filter.doFilter(request, response, (req, res) -> {
+            throw new IllegalStateException("page cache miss");
+        });
+        return response.getStatus();
+    }
+
+    /**
+     * 响应体写入后直接丢弃
+     */
+    private static final class DiscardingResponse extends HttpServletResponseWrapper {
+
+        private final ServletOutputStream out = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+
+        DiscardingResponse() {
+            super(new MockHttpServletResponse());
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return out;
+        }
+    }
+
+    private static Transaction sample(int i) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDateTime time = LocalDateTime.now().minusSeconds(random.nextInt(86_400 * 365));
+        Transaction t = new Transaction();
+        t.setId(UUID.randomUUID());
+        t.setUserName("用户" + i % 1000);
+        t.setAccountNumber("6222020200" + (1_000_000 + i % 5000));
+        t.setAmount(BigDecimal.valueOf(random.nextLong(1, 10_000_000), 2));
+        t.setCurrency(Currency.values()[random.nextInt(Currency.values().length)]);
+        t.setStatus(TransactionStatus.values()[random.nextInt(TransactionStatus.values().length)]);
+        t.setType(TransactionType.values()[random.nextInt(TransactionType.values().length)]);
+        t.setChannel(TransactionChannel.values()[random.nextInt(TransactionChannel.values().length)]);
+        t.setCreatedAt(time);
+        t.setUpdatedAt(time);
+        t.setDescription("交易" + i);
+        return t;
+    }
+}
@@ -0,0 +1,101 @@
+package org.bank.benchmark;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.bank.model.Transaction;
+import org.bank.model.TransactionPage;
+import org.bank.service.impl.TransactionServiceImpl;
+import org.bank.store.StorageEngine;
+import org.bank.store.TransactionStore;
+import org.bank.store.journal.TransactionJournal;
+import org.bank.store.snapshot.SnapshotManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 业务层耗时指标的开销：OFF 为关闭 bank.metrics.enabled，PROMETHEUS 与线上配置一致。
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="MetricsOverheadBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class MetricsOverheadBenchmark {
+
+    public enum Metrics {
+        OFF, PROMETHEUS
+    }
+
+    private static final int ROWS = 100_000;
+
+    @Param({"OFF", "PROMETHEUS"})
+    public Metrics metrics;
+
+    private TransactionStore store;
+    private TransactionServiceImpl service;
+    private UUID[] ids;
+    private final List<UUID> created = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        store = StorageEngine.HEAP.create(TransactionJournal.disabled(), SnapshotManager.disabled());
+        MeterRegistry registry = metrics == Metrics.OFF
+                ? new SimpleMeterRegistry()
+                : new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        service = ServiceFixture.service(store, registry, metrics != Metrics.OFF);
+        ids = new UUID[ROWS];
+        List<Transaction> batch = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Transaction t = TransactionServiceBenchmark.sample(i);
+            t.setId(UUID.randomUUID());
+            ids[i] = t.getId();
+            batch.add(t);
+        }
+        store.putAll(batch);
+    }
+
+    @TearDown(Level.Iteration)
+    public void clean() {
+        store.removeAll(created);
+        created.clear();
+    }
+
+    @Benchmark
+    public Transaction createTransaction() {
+        Transaction t = service.createTransaction(TransactionServiceBenchmark.sample(ThreadLocalRandom.current().nextInt(ROWS)));
+        created.add(t.getId());
+        return t;
+    }
+
+    @Benchmark
+    public Transaction updateTransaction() {
+        int i = ThreadLocalRandom.current().nextInt(ROWS);
+        return service.updateTransaction(ids[i], TransactionServiceBenchmark.sample(i), null);
+    }
+
+    @Benchmark
+    public TransactionPage getTransactions() {
+        return service.getTransactions(1, 20);
+    }
+}
@@ -0,0 +1,131 @@
+package org.bank.benchmark;
+
+import org.bank.common.config.BankProperties;
+import org.bank.limit.KeyedRateLimiter;
+import org.bank.limit.TokenBuckets;
+import org.bank.model.Transaction;
+import org.bank.service.impl.TransactionServiceImpl;
+import org.bank.store.StorageEngine;
+import org.bank.store.TransactionStore;
+import org.bank.store.journal.TransactionJournal;
+import org.bank.store.snapshot.SnapshotManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按账号、调用方限流的开销：OFF 为关闭 bank.rate-limit.enabled，ON 时每次新增都检查调用方和账号两个令牌桶，
+ * 账号分散在 keys 个不同的键上。每秒 1 个令牌、桶容量 10 亿：桶不会补满被清理，表中常驻百万级键，也不会产生拒绝，只测检查本身。
+ * tryAcquire 为 4 个线程直接访问令牌桶表，衡量无锁表在并发下的单次耗时。
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="RateLimitBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class RateLimitBenchmark {
+
+    public enum Limit {
+        OFF, ON
+    }
+
+    @Param({"OFF", "ON"})
+    public Limit limit;
+
+    @Param({"1000000"})
+    public int keys;
+
+    private TransactionStore store;
+    private TransactionServiceImpl service;
+    private TokenBuckets buckets;
+    private String[] accounts;
+    private final List<UUID> created = new ArrayList<>();
+
+    /**
+     * 每个基准线程模拟一次 HTTP 请求，调用方按客户端地址识别
+     */
+    @State(Scope.Thread)
+    public static class Client {
+
+        @Setup(Level.Trial)
+        public void bind() {
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            request.setRemoteAddr("10.0.0." + ThreadLocalRandom.current().nextInt(1, 255));
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        }
+
+        @TearDown(Level.Trial)
+        public void unbind() {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        store = StorageEngine.HEAP.create(TransactionJournal.disabled(), SnapshotManager.disabled());
+        service = ServiceFixture.service(store);
+        BankProperties.RateLimit config = new BankProperties.RateLimit();
+        config.setEnabled(limit == Limit.ON);
+        for (BankProperties.RateLimit.Rule rule : config.getAccount().values()) {
+            rule.setPermitsPerSecond(1);
+            rule.setBurst(1_000_000_000);
+        }
+        for (BankProperties.RateLimit.Rule rule : config.getClient().values()) {
+            rule.setPermitsPerSecond(1);
+            rule.setBurst(1_000_000_000);
+        }
+        ReflectionTestUtils.setField(service, "keyedRateLimiter", new KeyedRateLimiter(config));
+
+        buckets = new TokenBuckets(1, 1_000_000_000);
+        accounts = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            accounts[i] = "62220202" + String.format("%010d", i);
+            buckets.tryAcquire(accounts[i]);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void clean() {
+        store.removeAll(created);
+        created.clear();
+    }
+
+    @Benchmark
+    public Transaction createTransaction(Client client) {
+        int i = ThreadLocalRandom.current().nextInt(keys);
+        Transaction t = TransactionServiceBenchmark.sample(i);
+        t.setAccountNumber(accounts[i]);
+        t = service.createTransaction(t);
+        created.add(t.getId());
+        return t;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean tryAcquire() {
+        return buckets.tryAcquire(accounts[ThreadLocalRandom.current().nextInt(keys)]);
+    }
+}
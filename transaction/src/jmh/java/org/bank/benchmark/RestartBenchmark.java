@@ -0,0 +1,145 @@
+package org.bank.benchmark;
+
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+import org.bank.model.Transaction;
+import org.bank.store.HeapTransactionStore;
+import org.bank.store.TransactionStore;
+import org.bank.store.journal.FsyncPolicy;
+import org.bank.store.journal.TransactionJournal;
+import org.bank.store.snapshot.SnapshotManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 启动恢复耗时：完整重放日志 vs 加载快照。
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="RestartBenchmark -p rows=10000000"，内存不足时用 -jvmArgs 覆盖堆大小
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms16g", "-Xmx16g"})
+public class RestartBenchmark {
+
+    private static final int BATCH = 10_000;
+
+    @Param({"1000000"})
+    public int rows;
+
+    private Path dir;
+    private Path journalDir;
+    private Path snapshotDir;
+    private Path tailDir;
+
+    private TransactionJournal opened;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        dir = Files.createTempDirectory("restart-bench");
+        journalDir = dir.resolve("journal");
+        snapshotDir = dir.resolve("snapshot");
+        tailDir = dir.resolve("tail");
+
+        TransactionJournal journal = journal(journalDir);
+        TransactionStore store = new HeapTransactionStore(journal, SnapshotManager.disabled());
+        store.recover();
+        List<Transaction> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < rows; i++) {
+            batch.add(sample(i));
+            if (batch.size() == BATCH) {
+                store.putAll(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            store.putAll(batch);
+        }
+        new SnapshotManager(snapshotDir).write(journal.lastSeq(), store.size(), store.snapshot());
+        journal.close();
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeJournal() {
+        if (opened != null) {
+            opened.close();
+            opened = null;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    @Benchmark
+    public int journalReplay() {
+        opened = journal(journalDir);
+        TransactionStore store = new HeapTransactionStore(opened, SnapshotManager.disabled());
+        store.recover();
+        return store.size();
+    }
+
+    @Benchmark
+    public int snapshotRestore() {
+        // 快照之后没有新日志，只剩空的日志尾部
+        opened = journal(tailDir);
+        TransactionStore store = new HeapTransactionStore(opened, new SnapshotManager(snapshotDir));
+        store.recover();
+        return store.size();
+    }
+
+    private static TransactionJournal journal(Path dir) {
+        return new TransactionJournal(dir, FsyncPolicy.OS, Duration.ZERO, 64L << 20);
+    }
+
+    private static Transaction sample(int i) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDateTime time = LocalDateTime.now().minusSeconds(random.nextInt(86_400 * 365));
+        Transaction t = new Transaction();
+        t.setId(UUID.randomUUID());
+        t.setUserName("用户" + (i % 50_000));
+        t.setAccountNumber("6222020200" + String.format("%07d", i % 100_000));
+        t.setAmount(BigDecimal.valueOf(random.nextLong(1, 10_000_000), 2));
+        t.setCurrency(Currency.values()[i % Currency.values().length]);
+        t.setStatus(TransactionStatus.values()[i % TransactionStatus.values().length]);
+        t.setType(TransactionType.values()[i % TransactionType.values().length]);
+        t.setChannel(TransactionChannel.values()[i % TransactionChannel.values().length]);
+        t.setCreatedAt(time);
+        t.setUpdatedAt(time);
+        t.setDescription("交易" + i);
+        return t;
+    }
+}
@@ -0,0 +1,92 @@
+package org.bank.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+import org.bank.common.response.ResponseData;
+import org.bank.model.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分页接口响应体 ResponseData<List<Transaction>> 的 JSON 序列化。
+ * ObjectMapper 按 Spring Boot 默认方式构建（JavaTimeModule，日期输出为字符串）。
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="SerializationBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class SerializationBenchmark {
+
+    @Param({"20", "100", "1000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+
+    private ResponseData<List<Transaction>> response;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        List<Transaction> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(sample(i));
+        }
+        response = ResponseData.page(items, 100_000, true, UUID.randomUUID().toString());
+    }
+
+    @Benchmark
+    public byte[] writeValueAsBytes() throws IOException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public void writeToStream() throws IOException {
+        // 与消息转换器直接写响应流的方式一致，不产生中间字节数组
+        objectMapper.writeValue(OutputStream.nullOutputStream(), response);
+    }
+
+    private static Transaction sample(int i) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDateTime time = LocalDateTime.now().minusSeconds(random.nextInt(86_400 * 365));
+        Transaction t = new Transaction();
+        t.setId(UUID.randomUUID());
+        t.setUserName("用户" + i);
+        t.setAccountNumber("6222020200" + (1_000_000 + i));
+        t.setAmount(BigDecimal.valueOf(random.nextLong(1, 10_000_000), 2));
+        t.setCurrency(Currency.values()[random.nextInt(Currency.values().length)]);
+        t.setStatus(TransactionStatus.values()[random.nextInt(TransactionStatus.values().length)]);
+        t.setType(TransactionType.values()[random.nextInt(TransactionType.values().length)]);
+        t.setChannel(TransactionChannel.values()[random.nextInt(TransactionChannel.values().length)]);
+        t.setCreatedAt(time);
+        t.setUpdatedAt(time);
+        t.setDescription("交易" + i);
+        return t;
+    }
+}
@@ -0,0 +1,67 @@
+package org.bank.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bank.common.config.BankProperties;
+import org.bank.common.metrics.TransactionMetrics;
+import org.bank.feed.ChangeFeed;
+import org.bank.limit.KeyedRateLimiter;
+import org.bank.model.Transaction;
+import org.bank.service.impl.TransactionServiceImpl;
+import org.bank.store.TransactionStore;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * 脱离 Spring 容器装配业务层，基准测试只测方法本身：
+ * 没有代理，限流、熔断切面不生效，也不经过 Tomcat 和消息转换。
+ */
+final class ServiceFixture {
+
+    private ServiceFixture() {
+    }
+
+    static TransactionServiceImpl service(TransactionStore store) {
+        return service(store, new SimpleMeterRegistry(), true);
+    }
+
+    static TransactionServiceImpl service(TransactionStore store, MeterRegistry registry, boolean metricsEnabled) {
+        // 没有 logback-spring.xml 时 logback 默认输出 DEBUG，每次调用都会打日志
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+        TransactionServiceImpl service = new TransactionServiceImpl();
+        ReflectionTestUtils.setField(service, "transactionStore", store);
+        ReflectionTestUtils.setField(service, "rateLimiterRegistry", RateLimiterRegistry.ofDefaults());
+        BankProperties properties = new BankProperties();
+        properties.getMetrics().setEnabled(metricsEnabled);
+        ReflectionTestUtils.setField(service, "bankProperties", properties);
+        ReflectionTestUtils.setField(service, "transactionMetrics", new TransactionMetrics(registry, properties));
+        // 不启动分发线程，写入只追加到环形数组
+        ReflectionTestUtils.setField(service, "changeFeed",
+                new ChangeFeed(Jackson2ObjectMapperBuilder.json().build(), properties, registry));
+        // 默认关闭按账号限流，RateLimitBenchmark 自己替换
+        properties.getRateLimit().setEnabled(false);
+        ReflectionTestUtils.setField(service, "keyedRateLimiter", new KeyedRateLimiter(properties.getRateLimit()));
+        return service;
+    }
+
+    /**
+     * validateTransaction 是私有方法，通过方法句柄调用
+     */
+    static MethodHandle validator() {
+        try {
+            return MethodHandles.privateLookupIn(TransactionServiceImpl.class, MethodHandles.lookup())
+                    .findVirtual(TransactionServiceImpl.class, "validateTransaction",
+                            MethodType.methodType(void.class, Transaction.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
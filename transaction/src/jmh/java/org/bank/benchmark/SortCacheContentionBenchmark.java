@@ -0,0 +1,194 @@
+package org.bank.benchmark;
+
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+import org.bank.model.Transaction;
+import org.bank.service.impl.TransactionServiceImpl;
+import org.bank.store.StorageEngine;
+import org.bank.store.journal.TransactionJournal;
+import org.bank.store.snapshot.SnapshotManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 读写混合下的分页查询：LEGACY 复现最初的实现，任何写入都会清空排序缓存，
+ * 之后第一个读请求在 synchronized 中对全表重新排序，其余读请求排队等待；
+ * HEAP / COLUMNAR / SHARDED 为当前业务层，写入时增量维护有序索引，SHARDED 的写入分散到多个分片的索引上。
+ * 默认 3 读 1 写，用 -tg 调整读写比例，例如写多读少：
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="SortCacheContentionBenchmark -tg 1,3"
+ * SHARDED 的读取要在每个分片上定位再归并，单核上比 HEAP 慢；评估它时在多核机器上逐步加大线程数，与 HEAP 对比吞吐：
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="SortCacheContentionBenchmark -p impl=HEAP,SHARDED -tg 6,2 -bm thrpt -tu s"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class SortCacheContentionBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    // 读请求在前若干页中随机
+    private static final int PAGES = 100;
+
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"LEGACY", "HEAP", "COLUMNAR", "SHARDED"})
+    public String impl;
+
+    private Pages pages;
+
+    private UUID[] ids;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        pages = "LEGACY".equals(impl) ? new LegacySortCache() : new ServicePages(StorageEngine.valueOf(impl));
+        ids = new UUID[rows];
+        for (int i = 0; i < rows; i++) {
+            ids[i] = UUID.randomUUID();
+            pages.put(ids[i], sample(i));
+        }
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public Object read() {
+        return pages.page(ThreadLocalRandom.current().nextInt(PAGES) + 1, PAGE_SIZE);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public Object write() {
+        int i = ThreadLocalRandom.current().nextInt(rows);
+        return pages.update(ids[i], sample(i));
+    }
+
+    private interface Pages {
+
+        void put(UUID id, Transaction transaction);
+
+        Object update(UUID id, Transaction transaction);
+
+        Object page(int page, int size);
+    }
+
+    /**
+     * 当前业务层
+     */
+    private static final class ServicePages implements Pages {
+
+        private final TransactionServiceImpl service;
+
+        ServicePages(StorageEngine engine) {
+            this.service = ServiceFixture.service(engine.create(TransactionJournal.disabled(), SnapshotManager.disabled()));
+        }
+
+        @Override
+        public void put(UUID id, Transaction transaction) {
+            transaction.setId(id);
+            service.createTransaction(transaction);
+        }
+
+        @Override
+        public Object update(UUID id, Transaction transaction) {
+            return service.updateTransaction(id, transaction, null);
+        }
+
+        @Override
+        public Object page(int page, int size) {
+            return service.getTransactions(page, size);
+        }
+    }
+
+    /**
+     * 最初实现中的排序缓存，已被有序索引取代，保留在这里作为对照
+     */
+    private static final class LegacySortCache implements Pages {
+
+        private final Map<UUID, Transaction> transactionMap = new ConcurrentHashMap<>();
+
+        private volatile List<Transaction> cachedSortedList = null;
+
+        @Override
+        public void put(UUID id, Transaction transaction) {
+            transaction.setId(id);
+            transactionMap.put(id, transaction);
+            cachedSortedList = null;
+        }
+
+        @Override
+        public Object update(UUID id, Transaction transaction) {
+            transaction.setId(id);
+            transaction.setUpdatedAt(LocalDateTime.now());
+            transactionMap.put(id, transaction);
+            cachedSortedList = null;
+            return transaction;
+        }
+
+        @Override
+        public Object page(int page, int size) {
+            int skip = Math.max((page - 1) * size, 0);
+            List<Transaction> sortedList = cachedSortedList;
+            if (sortedList == null) {
+                synchronized (this) {
+                    if (cachedSortedList == null) {
+                        cachedSortedList = transactionMap.values().stream()
+                                .sorted(Comparator.comparing(Transaction::getUpdatedAt).reversed())
+                                .collect(Collectors.toList());
+                    }
+                    sortedList = cachedSortedList;
+                }
+            }
+            return sortedList.stream()
+                    .skip(skip)
+                    .limit(size)
+                    .toList();
+        }
+    }
+
+    private static Transaction sample(int i) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDateTime time = LocalDateTime.now().minusSeconds(random.nextInt(86_400 * 365));
+        Transaction t = new Transaction();
+        t.setUserName("用户" + (i % 10_000));
+        t.setAccountNumber("6222020200" + (1_000_000 + i % 10_000));
+        t.setAmount(BigDecimal.valueOf(random.nextLong(1, 10_000_000), 2));
+        t.setCurrency(Currency.CNY);
+        t.setStatus(TransactionStatus.SUCCESS);
+        t.setType(TransactionType.DEPOSIT);
+        t.setChannel(TransactionChannel.MOBILE_APP);
+        t.setCreatedAt(time);
+        t.setUpdatedAt(time);
+        t.setDescription("交易" + i);
+        return t;
+    }
+}
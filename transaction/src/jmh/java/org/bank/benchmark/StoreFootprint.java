@@ -0,0 +1,143 @@
+package org.bank.benchmark;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+import org.bank.model.Transaction;
+import org.bank.store.StorageEngine;
+import org.bank.store.TransactionStore;
+import org.bank.store.journal.TransactionJournal;
+import org.bank.store.snapshot.SnapshotManager;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 存储引擎的内存占用与 GC 停顿：先写入 rows 条交易，Full GC 后按堆占用之差计算每行字节数；
+ * 再用多个线程持续随机覆盖写和分页读取 seconds 秒，统计期间每次 GC 停顿的耗时。
+ * 每种引擎单独一个 JVM 运行，堆大小相同：
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=org.bank.benchmark.StoreFootprint -Djmh.jvm="-Xmx4g" -Djmh.args="HEAP 1000000 30"
+ */
+public class StoreFootprint {
+
+    private static final int ACCOUNTS = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        StorageEngine engine = StorageEngine.valueOf(args.length > 0 ? args[0] : "COLUMNAR");
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+
+        // id 以基本类型预先生成，计入基线，压测阶段用来选取要覆盖的交易
+        long[] idHigh = new long[rows];
+        long[] idLow = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            UUID id = UUID.randomUUID();
+            idHigh[i] = id.getMostSignificantBits();
+            idLow[i] = id.getLeastSignificantBits();
+        }
+        long baseline = usedAfterGc();
+        TransactionStore store = engine.create(TransactionJournal.disabled(), SnapshotManager.disabled());
+        List<Transaction> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < rows; i++) {
+            batch.add(sample(new UUID(idHigh[i], idLow[i]), i));
+            if (batch.size() == 10_000) {
+                store.putAll(batch);
+                batch.clear();
+            }
+        }
+        store.putAll(batch);
+        batch = null;
+        long loaded = usedAfterGc() - baseline;
+        System.out.printf("engine=%s rows=%d heapUsed=%d MB bytesPerRow=%d%n",
+                engine, store.size(), loaded >> 20, loaded / rows);
+
+        ConcurrentLinkedQueue<Long> pauses = new ConcurrentLinkedQueue<>();
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) gc).addNotificationListener((notification, handback) -> {
+                GarbageCollectionNotificationInfo info =
+                        GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                // 并发标记周期不停顿业务线程，不计入
+                if (!info.getGcName().contains("Concurrent")) {
+                    pauses.add(info.getGcInfo().getDuration());
+                }
+            }, n -> n.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION), null);
+        }
+
+        LongAdder writes = new LongAdder();
+        LongAdder reads = new LongAdder();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> workers = new ArrayList<>();
+        for (int w = 0; w < threads; w++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    int i = random.nextInt(rows);
+                    if (random.nextInt(4) == 0) {
+                        store.replace(sample(new UUID(idHigh[i], idLow[i]), i));
+                        writes.increment();
+                    } else {
+                        store.snapshotByAccount(account(i)).range(0, 20);
+                        store.get(new UUID(idHigh[i], idLow[i]));
+                        reads.increment();
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        long[] sorted = pauses.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("engine=%s writes/s=%d reads/s=%d gcPauses=%d totalPauseMs=%d p99PauseMs=%d maxPauseMs=%d%n",
+                engine, writes.sum() / seconds, reads.sum() / seconds, sorted.length,
+                Arrays.stream(sorted).sum(),
+                sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, Math.ceil(sorted.length * 0.99) - 1)],
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1]);
+    }
+
+    private static long usedAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static String account(int i) {
+        return "6222020200" + (1_000_000 + i % ACCOUNTS);
+    }
+
+    private static Transaction sample(UUID id, int i) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDateTime time = LocalDateTime.now().minusSeconds(random.nextInt(86_400 * 365));
+        Transaction t = new Transaction();
+        t.setId(id);
+        t.setUserName("用户" + (i % ACCOUNTS));
+        t.setAccountNumber(account(i));
+        t.setAmount(BigDecimal.valueOf(random.nextLong(1, 10_000_000), 2));
+        t.setCurrency(Currency.values()[random.nextInt(Currency.values().length)]);
+        t.setStatus(TransactionStatus.values()[random.nextInt(TransactionStatus.values().length)]);
+        t.setType(TransactionType.values()[random.nextInt(TransactionType.values().length)]);
+        t.setChannel(TransactionChannel.values()[random.nextInt(TransactionChannel.values().length)]);
+        t.setCreatedAt(time);
+        t.setUpdatedAt(time);
+        t.setDescription(random.nextInt(4) == 0 ? "工资" : null);
+        return t;
+    }
+}
@@ -0,0 +1,215 @@
+package org.bank.benchmark;
+
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+import org.bank.common.exception.TransactionException;
+import org.bank.model.Transaction;
+import org.bank.model.TransactionPage;
+import org.bank.service.impl.TransactionServiceImpl;
+import org.bank.store.StorageEngine;
+import org.bank.store.TransactionStore;
+import org.bank.store.journal.FsyncPolicy;
+import org.bank.store.journal.TransactionJournal;
+import org.bank.store.snapshot.SnapshotManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 业务层单线程热点：新增、修改、校验，以及不同深度的分页查询（页码分页 vs 游标分页）。
+ * 每次调用都新建一个交易对象，与接口每次反序列化出新的请求体一致，构造开销计入结果。
+ * journal 为 ALWAYS / INTERVAL 时写入临时目录中的预写日志，写操作包含等待刷盘的时间；
+ * 组提交只在并发写入时生效，对比时用 -t 指定线程数：
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="TransactionServiceBenchmark"
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="TransactionServiceBenchmark.createTransaction -p journal=OFF,ALWAYS -t 16 -bm thrpt -tu s"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class TransactionServiceBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"HEAP", "COLUMNAR"})
+    public StorageEngine engine;
+
+    // OFF 表示不开启预写日志，其余为刷盘策略
+    @Param({"OFF"})
+    public String journal;
+
+    private Path journalDir;
+    private TransactionJournal transactionJournal;
+    private TransactionStore store;
+    private TransactionServiceImpl service;
+    private MethodHandle validator;
+
+    private UUID[] ids;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        if ("OFF".equals(journal)) {
+            transactionJournal = TransactionJournal.disabled();
+        } else {
+            journalDir = Files.createTempDirectory("bench-journal");
+            transactionJournal = new TransactionJournal(journalDir, FsyncPolicy.valueOf(journal),
+                    Duration.ofMillis(10), 64 << 20);
+        }
+        store = engine.create(transactionJournal, SnapshotManager.disabled());
+        store.recover();
+        service = ServiceFixture.service(store);
+        validator = ServiceFixture.validator();
+        ids = new UUID[rows];
+        List<Transaction> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < rows; i++) {
+            Transaction t = sample(i);
+            t.setId(UUID.randomUUID());
+            ids[i] = t.getId();
+            batch.add(t);
+            if (batch.size() == 10_000) {
+                store.putAll(batch);
+                batch.clear();
+            }
+        }
+        store.putAll(batch);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        transactionJournal.close();
+        if (journalDir != null) {
+            try (Stream<Path> files = Files.walk(journalDir)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * 分页深度：page 为页码分页的页码，cursor 为同一页最后一条的游标，游标分页取的是紧接着的下一页
+     */
+    @State(Scope.Benchmark)
+    public static class Depth {
+
+        @Param({"1", "100", "4000"})
+        public int page;
+
+        String cursor;
+
+        @Setup(Level.Trial)
+        public void prepare(TransactionServiceBenchmark benchmark) {
+            cursor = benchmark.service.getTransactions(page, PAGE_SIZE).getNextCursor();
+            if (cursor == null) {
+                throw new IllegalArgumentException("page=" + page + " 之后没有数据，需减小 page 或增大 rows");
+            }
+        }
+    }
+
+    /**
+     * 每个线程本轮新增的交易，轮次结束后删除，保持数据量不随运行时间增长
+     */
+    @State(Scope.Thread)
+    public static class Created {
+
+        final List<UUID> ids = new ArrayList<>();
+
+        @TearDown(Level.Iteration)
+        public void clean(TransactionServiceBenchmark benchmark) {
+            benchmark.store.removeAll(ids);
+            ids.clear();
+        }
+    }
+
+    @Benchmark
+    public Transaction createTransaction(Created created) {
+        Transaction t = service.createTransaction(sample(ThreadLocalRandom.current().nextInt(rows)));
+        created.ids.add(t.getId());
+        return t;
+    }
+
+    @Benchmark
+    public Transaction updateTransaction() {
+        int i = ThreadLocalRandom.current().nextInt(rows);
+        return service.updateTransaction(ids[i], sample(i), null);
+    }
+
+    @Benchmark
+    public Transaction validateTransaction() throws Throwable {
+        Transaction t = sample(ThreadLocalRandom.current().nextInt(rows));
+        validator.invokeExact(service, t);
+        return t;
+    }
+
+    @Benchmark
+    public Object validateInvalidTransaction() throws Throwable {
+        // 校验失败时抛出业务异常，填充异常栈的开销也在热点上
+        Transaction t = sample(ThreadLocalRandom.current().nextInt(rows));
+        t.setChannel(null);
+        try {
+            validator.invokeExact(service, t);
+            return t;
+        } catch (TransactionException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public TransactionPage getTransactions(Depth depth) {
+        return service.getTransactions(depth.page, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public TransactionPage getTransactionsAfter(Depth depth) {
+        return service.getTransactionsAfter(depth.cursor, PAGE_SIZE);
+    }
+
+    static Transaction sample(int i) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDateTime time = LocalDateTime.now().minusSeconds(random.nextInt(86_400 * 365));
+        Transaction t = new Transaction();
+        t.setUserName("用户" + (i % 10_000));
+        t.setAccountNumber("6222020200" + (1_000_000 + i % 10_000));
+        t.setAmount(BigDecimal.valueOf(random.nextLong(1, 10_000_000), 2));
+        t.setCurrency(Currency.CNY);
+        t.setStatus(TransactionStatus.SUCCESS);
+        t.setType(TransactionType.DEPOSIT);
+        t.setChannel(TransactionChannel.MOBILE_APP);
+        t.setCreatedAt(time);
+        t.setUpdatedAt(time);
+        t.setDescription("交易" + i);
+        return t;
+    }
+}
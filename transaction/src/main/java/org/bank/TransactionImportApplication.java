@@ -0,0 +1,50 @@
+package org.bank;
+
+import org.bank.export.ExportFormat;
+import org.bank.importer.TransactionImporter;
+import org.bank.model.ImportResult;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 命令行导入，与服务共用 application.yml，不启动 Web 服务：
+ * java -cp ... org.bank.TransactionImportApplication --file=history.csv.gz --bank.journal.enabled=true
+ * 格式默认按扩展名判断，也可用 --format=csv 指定；.gz 结尾时先解压。
+ * 数据写入 bank.journal.dir 下的预写日志，服务下次启动时重放，导入期间不要同时运行服务。
+ */
+public class TransactionImportApplication {
+
+    public static void main(String[] args) throws IOException {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BankTransactionApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args)) {
+            Environment env = context.getEnvironment();
+            Path file = Path.of(env.getRequiredProperty("file"));
+            String name = file.getFileName().toString().replaceFirst("\\.gz$", "");
+            String param = env.getProperty("format", name.substring(name.lastIndexOf('.') + 1));
+            ExportFormat format = ExportFormat.fromParam(param)
+                    .orElseThrow(() -> new IllegalArgumentException("不支持的导入格式: " + param));
+
+            InputStream raw = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+            ImportResult result;
+            try (InputStream in = file.toString().endsWith(".gz") ? new GZIPInputStream(raw, 1 << 16) : raw) {
+                result = context.getBean(TransactionImporter.class).importFrom(in, format);
+            }
+            System.out.printf("导入完成: 读取 %d 条, 成功 %d 条, 拒绝 %d 条, 耗时 %d ms, %d 条/秒%n",
+                    result.getTotal(), result.getImported(), result.getRejected(),
+                    result.getElapsedMillis(), result.getRowsPerSecond());
+            if (result.getRejectFile() != null) {
+                System.out.println("拒绝记录: " + result.getRejectFile());
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.bank.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 列表页序列化后响应的缓存，按总字节数限制大小，超出时淘汰最久未访问的页。
+ * 每页记录生成时的 ETag，只有与当前列表版本一致时才命中，写入后旧页自然失效，不需要主动清理。
+ */
+public class PageCache {
+
+    /**
+     * @param headers 生成时的响应头，命中时原样写回，例如跨域相关的响应头
+     */
+    public record Page(String etag, String contentType, Map<String, List<String>> headers, byte[] body) {
+    }
+
+    private final long maxBytes;
+
+    private final int maxEntryBytes;
+
+    // 按访问顺序排列，读取也会调整顺序，因此读写都加锁
+    private final LinkedHashMap<String, Page> pages = new LinkedHashMap<>(64, 0.75f, true);
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    public PageCache(long maxBytes, int maxEntryBytes) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    /**
+     * @return 版本一致的缓存页，没有或已过期时为 null；过期的页直接移除
+     */
+    public Page get(String key, String etag) {
+        lock.lock();
+        try {
+            Page page = pages.get(key);
+            if (page != null && !page.etag().equals(etag)) {
+                pages.remove(key);
+                bytes -= page.body().length;
+                page = null;
+            }
+            if (page == null) {
+                misses.increment();
+            } else {
+                hits.increment();
+            }
+            return page;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 超过单页上限的页不缓存
+     */
+    public void put(String key, Page page) {
+        if (page.body().length > maxEntryBytes) {
+            return;
+        }
+        lock.lock();
+        try {
+            Page old = pages.put(key, page);
+            if (old != null) {
+                bytes -= old.body().length;
+            }
+            bytes += page.body().length;
+            Iterator<Page> eldest = pages.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().body().length;
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long bytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return pages.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+}
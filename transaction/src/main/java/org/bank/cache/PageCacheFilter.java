@@ -0,0 +1,110 @@
+package org.bank.cache;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.bank.service.TransactionService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 列表、筛选接口的响应缓存：按请求路径、查询参数和 Origin 缓存序列化后的响应，
+ * 列表版本未变时直接写回字节，不再进入控制器查询和序列化；带 If-None-Match 且一致时返回 304。
+ * 只缓存带 ETag 的 200 响应，控制器仅在查询成功时设置 ETag，业务异常和降级响应不会被缓存。
+ */
+public class PageCacheFilter extends OncePerRequestFilter {
+
+    private final PageCache cache;
+
+    private final TransactionService transactionService;
+
+    public PageCacheFilter(PageCache cache, TransactionService transactionService) {
+        this.cache = cache;
+        this.transactionService = transactionService;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = key(request);
+        // 先取版本再查询，与控制器相同
+        PageCache.Page page = cache.get(key, "\"" + transactionService.listVersion() + "\"");
+        if (page != null) {
+            write(page, request, response);
+            return;
+        }
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(request, wrapper);
+            String etag = wrapper.getHeader(HttpHeaders.ETAG);
+            if (wrapper.getStatus() == HttpServletResponse.SC_OK && etag != null) {
+                cache.put(key, new PageCache.Page(etag, wrapper.getContentType(), headers(wrapper),
+                        wrapper.getContentAsByteArray()));
+            }
+        } finally {
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private static void write(PageCache.Page page, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        page.headers().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+        if (new ServletWebRequest(request, response).checkNotModified(page.etag())) {
+            return;
+        }
+        response.setContentType(page.contentType());
+        response.setContentLength(page.body().length);
+        response.getOutputStream().write(page.body());
+    }
+
+    /**
+     * 生成时的响应头，Content-Type 和 Content-Length 单独处理
+     */
+    static Map<String, List<String>> headers(HttpServletResponse response) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (String name : response.getHeaderNames()) {
+            if (!HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name) && !HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                headers.put(name, new ArrayList<>(response.getHeaders(name)));
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * 按参数名排序拼接参数，参数顺序不同的请求共用同一页；跨域响应头随 Origin 变化，Origin 也作为键的一部分。
+     * 每段前加长度，参数值中含有 & 或 = 时不会与其他参数组合混淆
+     */
+    static String key(HttpServletRequest request) {
+        StringBuilder key = new StringBuilder(request.getRequestURI());
+        for (Map.Entry<String, String[]> param : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            for (String value : param.getValue()) {
+                append(append(key, param.getKey()), value);
+            }
+        }
+        String origin = request.getHeader(HttpHeaders.ORIGIN);
+        if (origin != null) {
+            append(key, origin);
+        }
+        return key.toString();
+    }
+
+    private static StringBuilder append(StringBuilder key, String part) {
+        return key.append('|').append(part.length()).append(':').append(part);
+    }
+}
@@ -0,0 +1,129 @@
+package org.bank.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * 列表页最近一次成功的响应，熔断打开时代替查询返回。
+ * 与 PageCache 不同，写入不会使其失效，同一请求每次成功查询后覆盖旧页；按总字节数限制大小，超出时淘汰最久未访问的页，
+ * 生成超过 ttl 的页不再返回。
+ */
+public class StaleCache {
+
+    /**
+     * @param ageNanos 生成至今的纳秒数
+     */
+    public record Stale(PageCache.Page page, long ageNanos) {
+    }
+
+    private record Entry(PageCache.Page page, long storedAt) {
+    }
+
+    private final long maxBytes;
+
+    private final int maxEntryBytes;
+
+    private final long ttlNanos;
+
+    private final LongSupplier clock;
+
+    // 按访问顺序排列，读取也会调整顺序，因此读写都加锁
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    public StaleCache(long maxBytes, int maxEntryBytes, long ttlNanos) {
+        this(maxBytes, maxEntryBytes, ttlNanos, System::nanoTime);
+    }
+
+    StaleCache(long maxBytes, int maxEntryBytes, long ttlNanos, LongSupplier clock) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+        this.ttlNanos = ttlNanos;
+        this.clock = clock;
+    }
+
+    /**
+     * @return 未超过 ttl 的页，没有或已超过时为 null；超过的页直接移除
+     */
+    public Stale get(String key) {
+        long now = clock.getAsLong();
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null && now - entry.storedAt() > ttlNanos) {
+                entries.remove(key);
+                bytes -= entry.page().body().length;
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return new Stale(entry.page(), now - entry.storedAt());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 超过单页上限的页不保留
+     */
+    public void put(String key, PageCache.Page page) {
+        if (page.body().length > maxEntryBytes) {
+            return;
+        }
+        long now = clock.getAsLong();
+        lock.lock();
+        try {
+            Entry old = entries.put(key, new Entry(page, now));
+            if (old != null) {
+                bytes -= old.page().body().length;
+            }
+            bytes += page.body().length;
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().page().body().length;
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long bytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+}
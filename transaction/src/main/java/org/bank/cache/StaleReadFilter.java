@@ -0,0 +1,107 @@
+package org.bank.cache;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 熔断降级时的列表读取：熔断打开期间，列表、筛选接口直接返回同一请求最近一次成功的响应，不再进入控制器；
+ * 熔断在请求执行中打开导致降级时，同样改为返回最近一次成功的响应。没有可用的响应时照常执行，由熔断降级返回 99999。
+ * 返回的响应体中 stale 为 true，Age 为生成至今的秒数，不带 ETag，不会被列表页缓存当作当前版本保存。
+ * 熔断未打开时保留每个带 ETag 的 200 响应
+ */
+public class StaleReadFilter extends OncePerRequestFilter {
+
+    // 写在响应体开头的 { 之后，其余字节原样写回
+    private static final byte[] STALE = "\"stale\":true,".getBytes(StandardCharsets.UTF_8);
+
+    private final StaleCache cache;
+
+    private final CircuitBreaker circuitBreaker;
+
+    public StaleReadFilter(StaleCache cache, CircuitBreaker circuitBreaker) {
+        this.cache = cache;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = PageCacheFilter.key(request);
+        if (open()) {
+            StaleCache.Stale stale = cache.get(key);
+            if (stale != null) {
+                write(stale, response);
+                return;
+            }
+        }
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(request, wrapper);
+            String etag = wrapper.getHeader(HttpHeaders.ETAG);
+            byte[] body = wrapper.getContentAsByteArray();
+            if (wrapper.getStatus() == HttpServletResponse.SC_OK && etag != null) {
+                // 只保留 JSON 对象，返回时才能在开头插入 stale
+                if (body.length > 1 && body[0] == '{') {
+                    cache.put(key, new PageCache.Page(etag, wrapper.getContentType(),
+                            PageCacheFilter.headers(wrapper), body));
+                }
+            } else if (!closed()) {
+                StaleCache.Stale stale = cache.get(key);
+                if (stale != null) {
+                    wrapper.resetBuffer();
+                    write(stale, wrapper);
+                }
+            }
+        } finally {
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    /**
+     * 半开状态下放行试探请求，不直接返回缓存
+     */
+    private boolean open() {
+        CircuitBreaker.State state = circuitBreaker.getState();
+        return state == CircuitBreaker.State.OPEN || state == CircuitBreaker.State.FORCED_OPEN;
+    }
+
+    private boolean closed() {
+        CircuitBreaker.State state = circuitBreaker.getState();
+        return state == CircuitBreaker.State.CLOSED || state == CircuitBreaker.State.DISABLED
+                || state == CircuitBreaker.State.METRICS_ONLY;
+    }
+
+    private static void write(StaleCache.Stale stale, HttpServletResponse response) throws IOException {
+        PageCache.Page page = stale.page();
+        page.headers().forEach((name, values) -> {
+            if (!HttpHeaders.ETAG.equalsIgnoreCase(name) && !response.containsHeader(name)) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
+        });
+        response.setHeader(HttpHeaders.AGE, Long.toString(TimeUnit.NANOSECONDS.toSeconds(stale.ageNanos())));
+        response.setContentType(page.contentType());
+        byte[] body = page.body();
+        response.setContentLength(body.length + STALE.length);
+        ServletOutputStream out = response.getOutputStream();
+        out.write('{');
+        out.write(STALE);
+        out.write(body, 1, body.length - 1);
+    }
+}
@@ -0,0 +1,266 @@
+package org.bank.common.config;
+
+import lombok.Data;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.replication.ReplicationRole;
+import org.bank.store.StorageEngine;
+import org.bank.store.journal.FsyncPolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * application.yml 中 bank.* 下的业务配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "bank")
+public class BankProperties {
+
+    private Batch batch = new Batch();
+
+    private Store store = new Store();
+
+    private Tier tier = new Tier();
+
+    private Journal journal = new Journal();
+
+    private Snapshot snapshot = new Snapshot();
+
+    private Metrics metrics = new Metrics();
+
+    private Export export = new Export();
+
+    private Import importer = new Import();
+
+    private PageCache pageCache = new PageCache();
+
+    private Feed feed = new Feed();
+
+    private Idempotency idempotency = new Idempotency();
+
+    private Limiter limiter = new Limiter();
+
+    private RateLimit rateLimit = new RateLimit();
+
+    private Degrade degrade = new Degrade();
+
+    private Replication replication = new Replication();
+
+    @Data
+    public static class Batch {
+        // 单个批量请求最多包含的条数
+        private int maxSize = 10000;
+        // 每多少条消耗一个限流许可
+        private int itemsPerPermit = 100;
+        // 达到该条数才并行校验，小批量串行更快
+        private int parallelThreshold = 256;
+    }
+
+    @Data
+    public static class Store {
+        // 存储引擎
+        private StorageEngine engine = StorageEngine.HEAP;
+        // SHARDED 引擎的分片数，该引擎的读放大和多核扩展性尚未压测验证，暂不在配置中推荐
+        private int shards = StorageEngine.DEFAULT_SHARDS;
+    }
+
+    @Data
+    public static class Tier {
+        // 冷段文件目录，启动时清空，冷段由快照和日志重建
+        private String dir = "data/tier";
+        // 已结算交易超过该时长未修改即移入冷段
+        private Duration coldAfter = Duration.ofDays(3);
+        // 堆内最多保留的条数，超出时把最久未修改的交易移入冷段
+        private int hotMaxRows = 1_000_000;
+        // 每个冷段的最多条数
+        private int segmentRows = 65_536;
+        // 后台检查是否需要移入冷段的间隔
+        private Duration interval = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Journal {
+        // 是否开启预写日志，关闭时数据只在内存中
+        private boolean enabled = false;
+        // 日志目录
+        private String dir = "data/journal";
+        // 刷盘策略
+        private FsyncPolicy fsync = FsyncPolicy.ALWAYS;
+        // INTERVAL 策略下的刷盘间隔
+        private Duration fsyncInterval = Duration.ofMillis(10);
+        // 单个段文件大小上限
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+    }
+
+    @Data
+    public static class Snapshot {
+        // 是否开启快照，需同时开启预写日志
+        private boolean enabled = false;
+        // 快照目录
+        private String dir = "data/snapshot";
+        // 检查是否需要生成快照的间隔
+        private Duration interval = Duration.ofMinutes(5);
+        // 距上次快照新增的日志条数达到该值才生成快照
+        private long minJournalRecords = 100_000;
+    }
+
+    @Data
+    public static class Metrics {
+        // 是否记录业务指标，关闭后业务层不再计时
+        private boolean enabled = true;
+    }
+
+    @Data
+    public static class Export {
+        // 同时进行的导出数，超出时直接拒绝
+        private int maxConcurrent = 4;
+        // 每写多少条刷出一次
+        private int flushRows = 1000;
+        // 响应缓冲区大小
+        private DataSize bufferSize = DataSize.ofKilobytes(64);
+    }
+
+    @Data
+    public static class Import {
+        // 每块记录数，整块走一次批量新增，不能超过 batch.max-size
+        private int chunkSize = 5000;
+        // 解析校验的并行度，0 表示按 CPU 核数
+        private int parallelism = 0;
+        // 拒绝记录文件目录
+        private String rejectDir = "data/import";
+        // 进度日志间隔
+        private Duration progressInterval = Duration.ofSeconds(5);
+        // 结果中返回的拒绝记录条数
+        private int maxRejectSamples = 100;
+    }
+
+    @Data
+    public static class PageCache {
+        // 是否缓存列表页序列化后的响应，关闭后仍支持 ETag 和 304
+        private boolean enabled = true;
+        // 缓存总大小上限，超出时淘汰最久未访问的页
+        private DataSize maxBytes = DataSize.ofMegabytes(8);
+        // 超过该大小的页不缓存
+        private DataSize maxEntryBytes = DataSize.ofKilobytes(256);
+    }
+
+    @Data
+    public static class Feed {
+        // 保留的最近事件数，续传只能从这些事件中开始
+        private int history = 16384;
+        // 单个订阅方最多落后的事件数，超出时收到 RESYNC
+        private int maxLag = 4096;
+        // 最大订阅数，超出时拒绝
+        private int maxSubscribers = 10000;
+        // 空闲连接的心跳间隔
+        private Duration heartbeat = Duration.ofSeconds(15);
+    }
+
+    @Data
+    public static class Idempotency {
+        // 是否处理创建交易请求头中的 Idempotency-Key
+        private boolean enabled = true;
+        // 首次响应的保留时间，超过后同一个键会重新执行
+        private Duration ttl = Duration.ofHours(24);
+        // 保留的响应总大小上限，超出时淘汰最早的
+        private DataSize maxBytes = DataSize.ofMegabytes(16);
+        // 键的最大长度
+        private int maxKeyLength = 128;
+        // 重试等待执行中的首个请求的最长时间，超时返回 409
+        private Duration waitTimeout = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Limiter {
+        // 是否按延迟自适应限制并发，关闭后只有 resilience4j 的固定速率限流
+        private boolean enabled = true;
+        // 初始并发上限
+        private int initialLimit = 200;
+        // 并发上限的下限
+        private int minLimit = 16;
+        // 并发上限的上限
+        private int maxLimit = 2000;
+        // 窗口最小耗时超过无排队耗时的倍数，超过即收缩上限
+        private double tolerance = 2.0;
+        // 调整上限的最短间隔
+        private Duration window = Duration.ofMillis(100);
+        // 其他写入可用的上限比例
+        private double writeShare = 0.9;
+        // 读请求可用的上限比例，过载时最先被拒绝
+        private double readShare = 0.7;
+        // 可用满全部上限的写入渠道
+        private List<TransactionChannel> criticalChannels = List.of(TransactionChannel.COUNTER, TransactionChannel.ATM);
+    }
+
+    @Data
+    public static class RateLimit {
+        // 是否按账号和调用方限制写入频率，默认关闭，按实际调用方的流量调整规则后再开启
+        private boolean enabled = false;
+        // 标识调用方的请求头，没有时按客户端地址
+        private String clientHeader = "X-Client-Id";
+        // 每个账号在各渠道的写入限制，未配置的渠道不限制
+        private Map<TransactionChannel, Rule> account = rules(50, 200);
+        // 每个调用方在各渠道的写入限制
+        private Map<TransactionChannel, Rule> client = rules(5000, 10000);
+        // 清理已补满的令牌桶的间隔
+        private Duration sweepInterval = Duration.ofSeconds(10);
+
+        @Data
+        public static class Rule {
+            // 每秒补充的令牌数，0 表示不限制
+            private double permitsPerSecond;
+            // 桶容量，空闲后可连续写入的次数
+            private int burst;
+        }
+
+        private static Map<TransactionChannel, Rule> rules(double permitsPerSecond, int burst) {
+            Map<TransactionChannel, Rule> rules = new EnumMap<>(TransactionChannel.class);
+            for (TransactionChannel channel : TransactionChannel.values()) {
+                Rule rule = new Rule();
+                rule.setPermitsPerSecond(permitsPerSecond);
+                rule.setBurst(burst);
+                rules.put(channel, rule);
+            }
+            return rules;
+        }
+    }
+
+    @Data
+    public static class Degrade {
+        // 熔断打开时列表、筛选接口是否返回最近一次成功的响应
+        private boolean staleReads = true;
+        // 生成超过该时长的响应不再返回
+        private Duration staleTtl = Duration.ofMinutes(5);
+        // 保留的响应总大小上限，超出时淘汰最久未访问的
+        private DataSize staleMaxBytes = DataSize.ofMegabytes(16);
+        // 超过该大小的响应不保留
+        private DataSize staleMaxEntryBytes = DataSize.ofKilobytes(256);
+        // 熔断打开时最多暂存的新增交易数，0 表示不排队，直接降级
+        private int writeQueue = 0;
+    }
+
+    @Data
+    public static class Replication {
+        // 实例角色
+        private ReplicationRole role = ReplicationRole.STANDALONE;
+        // 主库接受副本连接的端口，0 表示随机端口
+        private int port = 7070;
+        // 副本连接的主库地址
+        private String primaryHost = "localhost";
+        private int primaryPort = 7070;
+        // 主库内存中保留的最近记录数，副本续传的位置已不在其中时先接收全量数据
+        private int backlog = 262_144;
+        // 主库最多同时连接的副本数
+        private int maxReplicas = 16;
+        // 没有新记录时的心跳间隔，副本超过 3 个间隔收不到任何消息即断开重连
+        private Duration heartbeat = Duration.ofSeconds(1);
+        // 副本断开后的重连间隔
+        private Duration reconnectDelay = Duration.ofSeconds(1);
+    }
+}
@@ -0,0 +1,87 @@
+package org.bank.common.config;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bank.cache.StaleCache;
+import org.bank.cache.StaleReadFilter;
+import org.bank.degrade.DeferredWrites;
+import org.bank.feed.ChangeFeed;
+import org.bank.store.TransactionStore;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+public class DegradeConfig {
+
+    private static final String CIRCUIT_BREAKER = "transactionService";
+
+    @Bean
+    public StaleCache staleCache(BankProperties bankProperties, MeterRegistry registry) {
+        BankProperties.Degrade config = bankProperties.getDegrade();
+        StaleCache cache = new StaleCache(config.getStaleMaxBytes().toBytes(),
+                (int) config.getStaleMaxEntryBytes().toBytes(), config.getStaleTtl().toNanos());
+        FunctionCounter.builder("bank.stale.requests", cache, StaleCache::hits)
+                .description("熔断打开时的列表请求数，hit 为返回了最近一次成功的响应")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("bank.stale.requests", cache, StaleCache::misses)
+                .description("熔断打开时的列表请求数，hit 为返回了最近一次成功的响应")
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("bank.stale.bytes", cache, StaleCache::bytes)
+                .description("保留的最近一次成功响应占用字节数")
+                .register(registry);
+        return cache;
+    }
+
+    /**
+     * 与列表页缓存拦截相同的接口，排在其后：版本未变时由列表页缓存直接返回，不经过这里
+     */
+    @Bean
+    public FilterRegistrationBean<StaleReadFilter> staleReadFilter(BankProperties bankProperties, StaleCache staleCache,
+                                                                  CircuitBreakerRegistry circuitBreakerRegistry) {
+        FilterRegistrationBean<StaleReadFilter> registration = new FilterRegistrationBean<>(
+                new StaleReadFilter(staleCache, circuitBreakerRegistry.circuitBreaker(CIRCUIT_BREAKER)));
+        registration.addUrlPatterns("/transactions", "/transactions/search");
+        registration.setOrder(Ordered.LOWEST_PRECEDENCE);
+        registration.setEnabled(bankProperties.getDegrade().isStaleReads());
+        return registration;
+    }
+
+    /**
+     * 排队的交易已在降级时完成校验，恢复后直接写入存储并发布变更
+     */
+    @Bean
+    public DeferredWrites deferredWrites(BankProperties bankProperties, TransactionStore transactionStore,
+                                         ChangeFeed changeFeed, CircuitBreakerRegistry circuitBreakerRegistry,
+                                         MeterRegistry registry) {
+        DeferredWrites writes = new DeferredWrites(bankProperties.getDegrade().getWriteQueue(),
+                circuitBreakerRegistry.circuitBreaker(CIRCUIT_BREAKER),
+                transaction -> {
+                    // 与新增接口一致，已存在的 id 不覆盖
+                    if (transactionStore.put(transaction, TransactionStore.ABSENT_VERSION) == null) {
+                        changeFeed.publish(null, transaction);
+                    }
+                });
+        Gauge.builder("bank.deferred.writes.pending", writes, DeferredWrites::size)
+                .description("熔断打开期间排队等待写入的交易数")
+                .register(registry);
+        FunctionCounter.builder("bank.deferred.writes", writes, DeferredWrites::queued)
+                .description("降级时的新增交易数，queued 为排队，rejected 为队列已满直接降级，replayed 为恢复后已写入")
+                .tag("result", "queued")
+                .register(registry);
+        FunctionCounter.builder("bank.deferred.writes", writes, DeferredWrites::rejected)
+                .description("降级时的新增交易数，queued 为排队，rejected 为队列已满直接降级，replayed 为恢复后已写入")
+                .tag("result", "rejected")
+                .register(registry);
+        FunctionCounter.builder("bank.deferred.writes", writes, DeferredWrites::replayed)
+                .description("降级时的新增交易数，queued 为排队，rejected 为队列已满直接降级，replayed 为恢复后已写入")
+                .tag("result", "replayed")
+                .register(registry);
+        return writes;
+    }
+}
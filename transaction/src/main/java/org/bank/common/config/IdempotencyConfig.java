@@ -0,0 +1,56 @@
+package org.bank.common.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bank.idempotency.IdempotencyCache;
+import org.bank.idempotency.IdempotencyFilter;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class IdempotencyConfig {
+
+    @Bean
+    public IdempotencyCache idempotencyCache(BankProperties bankProperties, MeterRegistry registry) {
+        BankProperties.Idempotency config = bankProperties.getIdempotency();
+        IdempotencyCache cache = new IdempotencyCache(config.getMaxBytes().toBytes(), config.getTtl().toNanos());
+        FunctionCounter.builder("bank.idempotency.requests", cache, IdempotencyCache::hits)
+                .description("带幂等键的请求数，hit 为重放首次响应，wait 为等待执行中的首个请求，miss 为首次执行")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("bank.idempotency.requests", cache, IdempotencyCache::joins)
+                .description("带幂等键的请求数，hit 为重放首次响应，wait 为等待执行中的首个请求，miss 为首次执行")
+                .tag("result", "wait")
+                .register(registry);
+        FunctionCounter.builder("bank.idempotency.requests", cache, IdempotencyCache::misses)
+                .description("带幂等键的请求数，hit 为重放首次响应，wait 为等待执行中的首个请求，miss 为首次执行")
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("bank.idempotency.bytes", cache, IdempotencyCache::bytes)
+                .description("保留的首次响应占用字节数（估算）")
+                .register(registry);
+        Gauge.builder("bank.idempotency.in.flight", cache, IdempotencyCache::inFlight)
+                .description("执行中的幂等键数")
+                .register(registry);
+        return cache;
+    }
+
+    /**
+     * 只拦截创建交易接口，键按 bank.rate-limit.client-header 标识的调用方区分
+     */
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(BankProperties bankProperties,
+                                                                      IdempotencyCache idempotencyCache,
+                                                                      ObjectMapper objectMapper) {
+        BankProperties.Idempotency config = bankProperties.getIdempotency();
+        FilterRegistrationBean<IdempotencyFilter> registration = new FilterRegistrationBean<>(
+                new IdempotencyFilter(idempotencyCache, config.getMaxKeyLength(), config.getWaitTimeout(),
+                        bankProperties.getRateLimit().getClientHeader(), objectMapper));
+        registration.addUrlPatterns("/transactions");
+        registration.setEnabled(config.isEnabled());
+        return registration;
+    }
+}
@@ -0,0 +1,61 @@
+package org.bank.common.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bank.limit.AdaptiveLimiter;
+import org.bank.limit.KeyedRateLimiter;
+import org.bank.limit.Priority;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Locale;
+
+@Configuration
+public class LimiterConfig {
+
+    @Bean
+    public AdaptiveLimiter adaptiveLimiter(BankProperties bankProperties, MeterRegistry registry) {
+        BankProperties.Limiter config = bankProperties.getLimiter();
+        AdaptiveLimiter limiter = new AdaptiveLimiter(new AdaptiveLimiter.Options(config.getInitialLimit(),
+                config.getMinLimit(), config.getMaxLimit(), config.getTolerance(), config.getWindow(),
+                config.getWriteShare(), config.getReadShare()));
+        Gauge.builder("bank.limiter.limit", limiter, AdaptiveLimiter::limit)
+                .description("自适应并发上限")
+                .register(registry);
+        Gauge.builder("bank.limiter.in.flight", limiter, AdaptiveLimiter::inFlight)
+                .description("执行中的请求数")
+                .register(registry);
+        for (Priority priority : Priority.values()) {
+            String tag = priority.name().toLowerCase(Locale.ROOT);
+            FunctionCounter.builder("bank.limiter.requests", limiter, l -> l.accepted(priority))
+                    .description("经过并发限制的请求数，rejected 为超出上限直接降级的请求")
+                    .tag("priority", tag)
+                    .tag("result", "accepted")
+                    .register(registry);
+            FunctionCounter.builder("bank.limiter.requests", limiter, l -> l.rejected(priority))
+                    .description("经过并发限制的请求数，rejected 为超出上限直接降级的请求")
+                    .tag("priority", tag)
+                    .tag("result", "rejected")
+                    .register(registry);
+        }
+        return limiter;
+    }
+
+    @Bean
+    public KeyedRateLimiter keyedRateLimiter(BankProperties bankProperties, MeterRegistry registry) {
+        KeyedRateLimiter limiter = new KeyedRateLimiter(bankProperties.getRateLimit());
+        for (KeyedRateLimiter.Scope scope : KeyedRateLimiter.Scope.values()) {
+            String tag = scope.name().toLowerCase(Locale.ROOT);
+            FunctionCounter.builder("bank.ratelimit.rejected", limiter, l -> l.rejected(scope))
+                    .description("按账号、调用方限流拒绝的写入数")
+                    .tag("scope", tag)
+                    .register(registry);
+            Gauge.builder("bank.ratelimit.keys", limiter, l -> l.keys(scope))
+                    .description("令牌桶表中的键数，补满的桶会被清理")
+                    .tag("scope", tag)
+                    .register(registry);
+        }
+        return limiter;
+    }
+}
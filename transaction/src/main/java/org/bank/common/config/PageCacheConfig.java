@@ -0,0 +1,48 @@
+package org.bank.common.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bank.cache.PageCache;
+import org.bank.cache.PageCacheFilter;
+import org.bank.service.TransactionService;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+public class PageCacheConfig {
+
+    @Bean
+    public PageCache pageCache(BankProperties bankProperties, MeterRegistry registry) {
+        BankProperties.PageCache config = bankProperties.getPageCache();
+        PageCache cache = new PageCache(config.getMaxBytes().toBytes(), (int) config.getMaxEntryBytes().toBytes());
+        FunctionCounter.builder("bank.page.cache.requests", cache, PageCache::hits)
+                .description("列表页缓存查找次数")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("bank.page.cache.requests", cache, PageCache::misses)
+                .description("列表页缓存查找次数")
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("bank.page.cache.bytes", cache, PageCache::bytes)
+                .description("列表页缓存占用字节数")
+                .register(registry);
+        return cache;
+    }
+
+    /**
+     * 只拦截查询所有交易和多条件筛选两个列表接口，排在熔断降级读取之前
+     */
+    @Bean
+    public FilterRegistrationBean<PageCacheFilter> pageCacheFilter(BankProperties bankProperties, PageCache pageCache,
+                                                                  TransactionService transactionService) {
+        FilterRegistrationBean<PageCacheFilter> registration =
+                new FilterRegistrationBean<>(new PageCacheFilter(pageCache, transactionService));
+        registration.addUrlPatterns("/transactions", "/transactions/search");
+        registration.setOrder(Ordered.LOWEST_PRECEDENCE - 1);
+        registration.setEnabled(bankProperties.getPageCache().isEnabled());
+        return registration;
+    }
+}
@@ -0,0 +1,28 @@
+package org.bank.common.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bank.replication.ReplicaClient;
+import org.bank.replication.ReplicaFilter;
+import org.bank.replication.ReplicationRole;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+public class ReplicationConfig {
+
+    /**
+     * 副本上拦截全部交易接口，排在其他过滤器之前：写请求不进入幂等处理，同步完成前的读请求不进入列表页缓存
+     */
+    @Bean
+    public FilterRegistrationBean<ReplicaFilter> replicaFilter(BankProperties bankProperties, ReplicaClient replicaClient,
+                                                               ObjectMapper objectMapper) {
+        FilterRegistrationBean<ReplicaFilter> registration =
+                new FilterRegistrationBean<>(new ReplicaFilter(replicaClient, objectMapper));
+        registration.addUrlPatterns("/transactions", "/transactions/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        registration.setEnabled(bankProperties.getReplication().getRole() == ReplicationRole.REPLICA);
+        return registration;
+    }
+}
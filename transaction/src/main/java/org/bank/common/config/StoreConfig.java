@@ -0,0 +1,43 @@
+package org.bank.common.config;
+
+import org.bank.store.TieredTransactionStore;
+import org.bank.store.TransactionStore;
+import org.bank.store.journal.TransactionJournal;
+import org.bank.store.snapshot.SnapshotManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+public class StoreConfig {
+
+    @Bean(destroyMethod = "close")
+    public TransactionJournal transactionJournal(BankProperties bankProperties) {
+        BankProperties.Journal journal = bankProperties.getJournal();
+        if (!journal.isEnabled()) {
+            return TransactionJournal.disabled();
+        }
+        return new TransactionJournal(Path.of(journal.getDir()), journal.getFsync(),
+                journal.getFsyncInterval(), journal.getSegmentSize().toBytes());
+    }
+
+    @Bean
+    public SnapshotManager snapshotManager(BankProperties bankProperties) {
+        BankProperties.Snapshot snapshot = bankProperties.getSnapshot();
+        if (!snapshot.isEnabled() || !bankProperties.getJournal().isEnabled()) {
+            return SnapshotManager.disabled();
+        }
+        return new SnapshotManager(Path.of(snapshot.getDir()));
+    }
+
+    @Bean
+    public TransactionStore transactionStore(BankProperties bankProperties, TransactionJournal transactionJournal,
+                                             SnapshotManager snapshotManager) {
+        BankProperties.Store store = bankProperties.getStore();
+        BankProperties.Tier tier = bankProperties.getTier();
+        return store.getEngine().create(transactionJournal, snapshotManager, store.getShards(),
+                new TieredTransactionStore.Options(Path.of(tier.getDir()), tier.getColdAfter(), tier.getHotMaxRows(),
+                        tier.getSegmentRows()));
+    }
+}
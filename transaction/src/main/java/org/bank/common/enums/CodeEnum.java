@@ -4,6 +4,10 @@ public enum CodeEnum {
     SUCCESS(0,"成功"),
     TRANSACTION_NOT_EXIST(10001, "此交易不存在"),
     ILLEGAL_PARA(10002, "参数校验不通过"),
+    VERSION_CONFLICT(10003, "交易已被修改，请重新获取后再试"),
+    RATE_LIMITED(10004, "请求过于频繁，请稍后重试"),
+    WRITE_QUEUED(10005, "系统繁忙，交易已排队，恢复后写入"),
+    READ_ONLY_REPLICA(10006, "只读副本不接受写入，请发往主库"),
     SERVICE_DEGRADED(99999, "系统繁忙"),
     SYSTEM_EXCEPTION(500, "内部错误");
 
@@ -6,6 +6,8 @@ public class TransactionException extends RuntimeException {
     private int code;
     private String message;
     private Exception exception;
+    // 随错误码一起返回的数据
+    private Object data;
 
     public TransactionException(CodeEnum codeEnum) {
         super(codeEnum.getMessage());
@@ -19,6 +21,11 @@ public class TransactionException extends RuntimeException {
         this.message = message;
     }
 
+    public TransactionException(CodeEnum codeEnum, String message, Object data) {
+        this(codeEnum, message);
+        this.data = data;
+    }
+
     public int getCode() {
         return code;
     }
@@ -43,4 +50,8 @@ public class TransactionException extends RuntimeException {
     public void setException(Exception exception) {
         this.exception = exception;
     }
-}
\ No newline at end of file
+
+    public Object getData() {
+        return data;
+    }
+}
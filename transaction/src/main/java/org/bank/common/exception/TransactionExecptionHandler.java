@@ -1,9 +1,14 @@
 package org.bank.common.exception;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.bank.common.enums.CodeEnum;
+import org.bank.common.metrics.TransactionMetrics;
 import org.bank.common.response.ResponseData;
+import org.bank.limit.LoadShedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -11,19 +16,40 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 @Slf4j
 @RestControllerAdvice({"org.bank"})
 public class TransactionExecptionHandler {
+
+    @Autowired
+    private TransactionMetrics transactionMetrics;
+
     @ResponseBody
     @ExceptionHandler({TransactionException.class, Throwable.class})
-    public ResponseData<Object> process(Throwable cause, HttpServletRequest request){
+    public ResponseData<Object> process(Throwable cause, HttpServletRequest request, HttpServletResponse response){
         ResponseData<Object> responseData = new ResponseData<>();
         if(cause instanceof TransactionException){
-            log.error("TransactionException, Url = {} , stack = {}", request.getRequestURL() ,cause);
             responseData.setCode(((TransactionException) cause).getCode());
             responseData.setMsg(cause.getMessage());
+            responseData.setData(((TransactionException) cause).getData());
+            // 条件写入版本不一致按 HTTP 语义返回 412，按账号、调用方限流返回 429，降级排队返回 202，其余业务异常仍为 200。
+            // 这三种和并发限制拒绝都是预期内的结果，高峰时数量很大，不按错误记录堆栈
+            if (CodeEnum.VERSION_CONFLICT.getCode().equals(responseData.getCode())) {
+                log.debug("Version conflict, Url = {}, msg = {}", request.getRequestURL(), cause.getMessage());
+                response.setStatus(HttpServletResponse.SC_PRECONDITION_FAILED);
+            } else if (CodeEnum.RATE_LIMITED.getCode().equals(responseData.getCode())) {
+                log.debug("Rate limited, Url = {}, msg = {}", request.getRequestURL(), cause.getMessage());
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            } else if (CodeEnum.WRITE_QUEUED.getCode().equals(responseData.getCode())) {
+                log.warn("Write queued while degraded, Url = {}", request.getRequestURL());
+                response.setStatus(HttpServletResponse.SC_ACCEPTED);
+            } else if (cause instanceof LoadShedException shed) {
+                log.debug("Load shed, Url = {}, priority = {}", request.getRequestURL(), shed.getPriority());
+            } else {
+                log.error("TransactionException, Url = {} , stack = {}", request.getRequestURL() ,cause);
+            }
         }else {
             log.error("SystemException ,Url = {}  ,type = {}, stack  = {}", request.getRequestURL(), request.getMethod(), cause);
             responseData.setCode(CodeEnum.SYSTEM_EXCEPTION.getCode());
             responseData.setMsg(CodeEnum.SYSTEM_EXCEPTION.getMessage());
         }
+        transactionMetrics.error(responseData.getCode());
         return responseData;
     }
 }
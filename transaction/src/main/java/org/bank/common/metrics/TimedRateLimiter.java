@@ -0,0 +1,78 @@
+package org.bank.common.metrics;
+
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录获取许可等待时间的限流器，其余行为全部委托给原限流器
+ */
+class TimedRateLimiter implements RateLimiter {
+
+    private final RateLimiter delegate;
+    private final Timer wait;
+
+    TimedRateLimiter(RateLimiter delegate, Timer wait) {
+        this.delegate = delegate;
+        this.wait = wait;
+    }
+
+    @Override
+    public boolean acquirePermission(int permits) {
+        long start = System.nanoTime();
+        try {
+            return delegate.acquirePermission(permits);
+        } finally {
+            wait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public long reservePermission(int permits) {
+        return delegate.reservePermission(permits);
+    }
+
+    @Override
+    public void drainPermissions() {
+        delegate.drainPermissions();
+    }
+
+    @Override
+    public void changeTimeoutDuration(Duration timeoutDuration) {
+        delegate.changeTimeoutDuration(timeoutDuration);
+    }
+
+    @Override
+    public void changeLimitForPeriod(int limitForPeriod) {
+        delegate.changeLimitForPeriod(limitForPeriod);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public RateLimiterConfig getRateLimiterConfig() {
+        return delegate.getRateLimiterConfig();
+    }
+
+    @Override
+    public Map<String, String> getTags() {
+        return delegate.getTags();
+    }
+
+    @Override
+    public Metrics getMetrics() {
+        return delegate.getMetrics();
+    }
+
+    @Override
+    public EventPublisher getEventPublisher() {
+        return delegate.getEventPublisher();
+    }
+}
@@ -0,0 +1,131 @@
+package org.bank.common.metrics;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.bank.common.config.BankProperties;
+import org.bank.common.enums.CodeEnum;
+import org.bank.store.OrderedIndex;
+import org.bank.store.TransactionStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 交易业务指标，通过 /actuator/prometheus 暴露：
+ * <ul>
+ *     <li>bank.transaction.latency：业务层各操作耗时直方图，不含限流等待</li>
+ *     <li>bank.transaction.errors：按 CodeEnum 统计的业务异常次数</li>
+ *     <li>bank.store.size：存储中的交易条数</li>
+ *     <li>bank.index.edit.retries：有序索引写入冲突重放次数</li>
+ *     <li>bank.ratelimiter.wait：transactionService 限流器获取许可的等待时间</li>
+ *     <li>bank.circuitbreaker.transitions：transactionService 熔断器状态切换次数</li>
+ * </ul>
+ * 计时器在构造时创建好，记录时不再按标签查找；直方图只用固定的少量桶，不计算分位数。
+ */
+@Component
+public class TransactionMetrics {
+
+    public static final String INSTANCE = "transactionService";
+
+    public enum Operation {
+        CREATE, GET, UPDATE, DELETE
+    }
+
+    // 直方图桶边界，覆盖内存操作到慢请求
+    private static final Duration[] BUCKETS = {
+            Duration.ofNanos(50_000), Duration.ofNanos(100_000), Duration.ofNanos(250_000),
+            Duration.ofNanos(500_000), Duration.ofMillis(1), Duration.ofMillis(2), Duration.ofMillis(5),
+            Duration.ofMillis(10), Duration.ofMillis(25), Duration.ofMillis(50), Duration.ofMillis(100),
+            Duration.ofMillis(250), Duration.ofMillis(500), Duration.ofSeconds(1)};
+
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final Timer[] latency = new Timer[Operation.values().length];
+    private final Counter[] errors = new Counter[CodeEnum.values().length];
+
+    public TransactionMetrics(MeterRegistry registry, BankProperties bankProperties) {
+        this.registry = registry;
+        this.enabled = bankProperties.getMetrics().isEnabled();
+        for (Operation op : Operation.values()) {
+            latency[op.ordinal()] = histogram("bank.transaction.latency", "业务层操作耗时")
+                    .tag("op", op.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+        for (CodeEnum code : CodeEnum.values()) {
+            errors[code.ordinal()] = Counter.builder("bank.transaction.errors")
+                    .description("业务异常次数")
+                    .tag("code", code.name())
+                    .register(registry);
+        }
+        FunctionCounter.builder("bank.index.edit.retries", this, m -> OrderedIndex.retries())
+                .description("有序索引 CAS 冲突后重放的次数")
+                .register(registry);
+    }
+
+    @Autowired
+    void bindStore(TransactionStore transactionStore) {
+        Gauge.builder("bank.store.size", transactionStore, TransactionStore::size)
+                .description("存储中的交易条数")
+                .register(registry);
+    }
+
+    /**
+     * 用带计时的限流器替换注册表中的实例，限流切面和批量接口之后取到的都是替换后的实例
+     */
+    @Autowired
+    void bindResilience(RateLimiterRegistry rateLimiterRegistry, CircuitBreakerRegistry circuitBreakerRegistry) {
+        RateLimiter rateLimiter = rateLimiterRegistry.rateLimiter(INSTANCE);
+        if (!(rateLimiter instanceof TimedRateLimiter)) {
+            Timer wait = histogram("bank.ratelimiter.wait", "获取限流许可的等待时间")
+                    .tag("name", INSTANCE)
+                    .register(registry);
+            rateLimiterRegistry.replace(INSTANCE, new TimedRateLimiter(rateLimiter, wait));
+        }
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(INSTANCE);
+        circuitBreaker.getEventPublisher().onStateTransition(event -> Counter.builder("bank.circuitbreaker.transitions")
+                .description("熔断器状态切换次数")
+                .tag("name", INSTANCE)
+                .tag("from", event.getStateTransition().getFromState().name())
+                .tag("to", event.getStateTransition().getToState().name())
+                .register(registry)
+                .increment());
+    }
+
+    /**
+     * 开始计时，关闭指标时返回 0 且不读时钟
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public void record(Operation op, long start) {
+        if (enabled) {
+            latency[op.ordinal()].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void error(int code) {
+        for (CodeEnum value : CodeEnum.values()) {
+            if (value.getCode() == code) {
+                errors[value.ordinal()].increment();
+                return;
+            }
+        }
+    }
+
+    private static Timer.Builder histogram(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .serviceLevelObjectives(BUCKETS);
+    }
+}
@@ -1,8 +1,11 @@
 package org.bank.common.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import org.bank.common.enums.CodeEnum;
 
+import java.util.List;
+
 @Data
 public class ResponseData<T> {
     private Integer code;
@@ -11,6 +14,18 @@ public class ResponseData<T> {
 
     private T data;
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long total;       // 分页查询时的总条数
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean hasNext;  // 分页查询时是否还有下一页
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor; // 分页查询时下一页的游标
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean stale;     // 熔断降级时返回的是最近一次成功的查询结果
+
     public ResponseData(T data) {
         this.code = CodeEnum.SUCCESS.getCode();
         this.msg = CodeEnum.SUCCESS.getMessage();
@@ -25,4 +40,12 @@ public class ResponseData<T> {
     public static ResponseData data(Object data){
         return new ResponseData(data);
     }
+
+    public static <E> ResponseData<List<E>> page(List<E> data, long total, boolean hasNext, String nextCursor){
+        ResponseData<List<E>> responseData = new ResponseData<>(data);
+        responseData.setTotal(total);
+        responseData.setHasNext(hasNext);
+        responseData.setNextCursor(nextCursor);
+        return responseData;
+    }
 }
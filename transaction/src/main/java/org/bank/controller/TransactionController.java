@@ -1,17 +1,45 @@
 package org.bank.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.models.security.SecurityScheme;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.bank.common.config.BankProperties;
+import org.bank.common.enums.CodeEnum;
+import org.bank.common.exception.TransactionException;
 import org.bank.common.response.ResponseData;
+import org.bank.export.ExportFormat;
+import org.bank.export.TransactionExporter;
+import org.bank.feed.ChangeFeed;
+import org.bank.feed.ChangeType;
+import org.bank.feed.FeedFilter;
+import org.bank.feed.FeedFormat;
+import org.bank.importer.TransactionImporter;
+import org.bank.model.ImportResult;
+import org.bank.model.BatchItemResult;
 import org.bank.model.Transaction;
+import org.bank.model.TransactionFilter;
+import org.bank.model.TransactionPage;
+import org.bank.model.TransactionPatch;
+import org.bank.model.TransactionStats;
 import org.bank.service.TransactionService;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -24,38 +52,281 @@ import io.swagger.v3.oas.annotations.Parameter;
 @RequestMapping("/transactions")
 public class TransactionController {
 
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+
     @Autowired
     TransactionService transactionService;
 
-    @Operation(summary = "创建交易", description = "创建一条新的交易记录")
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    TransactionExporter transactionExporter;
+
+    @Autowired
+    TransactionImporter transactionImporter;
+
+    @Autowired
+    ChangeFeed changeFeed;
+
+    @Autowired
+    BankProperties bankProperties;
+
+    @Operation(summary = "创建交易", description = "创建一条新的交易记录，id 已存在时返回 412 且不做修改，版本号由服务端分配；请求头带 Idempotency-Key 时同一调用方（X-Client-Id，没有时按客户端地址）的同一个键只创建一次，"
+            + "重试直接返回首次的响应并带 Idempotent-Replayed 响应头，同一个键换了请求体时返回参数错误；"
+            + "同一账号或调用方（X-Client-Id）超出所在渠道的写入频率时返回 429；"
+            + "熔断打开且开启 bank.degrade.write-queue 时，校验通过的交易排队并返回 202，恢复后写入")
     @PostMapping
-    public ResponseData<Transaction> createTransaction(@Valid @RequestBody Transaction transaction) {
+    public ResponseEntity<ResponseData<Transaction>> createTransaction(@Valid @RequestBody Transaction transaction) {
         Transaction created = transactionService.createTransaction(transaction);
-        return ResponseData.data(created);
+        return ResponseEntity.ok().eTag(etag(created)).body(ResponseData.data(created));
     }
 
-    @Operation(summary = "查询所有交易", description = "分页查询交易列表")
+    @Operation(summary = "查询所有交易", description = "分页查询交易列表，传入 cursor 时按游标翻页并忽略 page；"
+            + "传入 accountNumber 或 userName 时只查该账号/用户的交易。"
+            + "响应头 ETag 为列表版本，请求头 If-None-Match 与当前版本一致时返回 304；"
+            + "熔断打开时返回同一请求最近一次成功的结果，响应中 stale 为 true")
     @GetMapping
-    public ResponseData<List<Transaction>> getAllTransactions(
+    public ResponseEntity<ResponseData<List<Transaction>>> getAllTransactions(
+            @Parameter(description = "页码，从1开始", example = "1") @RequestParam(value = "page", defaultValue = "1") Integer page,
+            @Parameter(description = "每页条数", example = "10") @RequestParam(value = "size", defaultValue = "10") Integer size,
+            @Parameter(description = "上一页返回的 nextCursor") @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "按账号查询") @RequestParam(value = "accountNumber", required = false) String accountNumber,
+            @Parameter(description = "按用户名查询") @RequestParam(value = "userName", required = false) String userName,
+            @Parameter(description = "上次响应的 ETag") @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // 先取版本再查询，查询结果至少包含该版本之前的全部写入
+        String etag = "\"" + transactionService.listVersion() + "\"";
+        if (notModified(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        TransactionPage result;
+        if (accountNumber != null && userName != null) {
+            throw new TransactionException(CodeEnum.ILLEGAL_PARA, "accountNumber 与 userName 只能指定一个");
+        } else if (accountNumber != null) {
+            result = transactionService.getTransactionsByAccount(accountNumber, page, size, cursor);
+        } else if (userName != null) {
+            result = transactionService.getTransactionsByUser(userName, page, size, cursor);
+        } else {
+            result = cursor == null || cursor.isBlank()
+                    ? transactionService.getTransactions(page, size)
+                    : transactionService.getTransactionsAfter(cursor, size);
+        }
+        return ResponseEntity.ok().eTag(etag)
+                .body(ResponseData.page(result.getItems(), result.getTotal(), result.isHasNext(), result.getNextCursor()));
+    }
+
+    @Operation(summary = "多条件筛选交易", description = "按类型、状态、币种、渠道及创建/修改时间范围筛选，同一条件可传多个值；"
+            + "结果按修改时间倒序，传入 cursor 时按游标翻页并忽略 page；ETag、If-None-Match 和熔断时的 stale 同查询所有交易")
+    @GetMapping("/search")
+    public ResponseEntity<ResponseData<List<Transaction>>> searchTransactions(
+            @ParameterObject TransactionFilter filter,
             @Parameter(description = "页码，从1开始", example = "1") @RequestParam(value = "page", defaultValue = "1") Integer page,
-            @Parameter(description = "每页条数", example = "10") @RequestParam(value = "size", defaultValue = "10") Integer size) {
-        return ResponseData.data(transactionService.getTransactions(page, size));
+            @Parameter(description = "每页条数", example = "10") @RequestParam(value = "size", defaultValue = "10") Integer size,
+            @Parameter(description = "上一页返回的 nextCursor") @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "上次响应的 ETag") @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = "\"" + transactionService.listVersion() + "\"";
+        if (notModified(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        TransactionPage result = transactionService.searchTransactions(filter, page, size, cursor);
+        return ResponseEntity.ok().eTag(etag)
+                .body(ResponseData.page(result.getItems(), result.getTotal(), result.isHasNext(), result.getNextCursor()));
+    }
+
+    @Operation(summary = "导出交易", description = "按修改时间倒序逐条写出，format 为 ndjson 或 csv；筛选条件与多条件筛选相同，"
+            + "可再按 accountNumber 限定账号。导出的是请求时刻的快照，不阻塞写入；请求头 Accept-Encoding 含 gzip 时压缩响应")
+    @GetMapping("/export")
+    public void exportTransactions(
+            @ParameterObject TransactionFilter filter,
+            @Parameter(description = "导出格式 ndjson/csv", example = "ndjson") @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @Parameter(description = "只导出该账号") @RequestParam(value = "accountNumber", required = false) String accountNumber,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) {
+        ExportFormat exportFormat = ExportFormat.fromParam(format)
+                .orElseThrow(() -> new TransactionException(CodeEnum.ILLEGAL_PARA, "不支持的导出格式: " + format));
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        transactionExporter.export(writer -> transactionService.exportTransactions(filter, accountNumber, writer),
+                exportFormat, gzip, response);
+    }
+
+    @Operation(summary = "订阅交易变更", description = "长连接推送新增、修改、删除事件，format 为 sse 或 ndjson；"
+            + "筛选条件与多条件筛选相同，可再按 accountNumber、userName 和事件类型限定。"
+            + "断线后以 fromSeq 或请求头 Last-Event-ID 续传；落后过多或序号已失效时收到 resync 事件，应重新拉取列表后继续")
+    @GetMapping("/stream")
+    public void streamChanges(
+            @ParameterObject TransactionFilter filter,
+            @Parameter(description = "推送格式 sse/ndjson", example = "sse") @RequestParam(value = "format", defaultValue = "sse") String format,
+            @Parameter(description = "只推送该账号") @RequestParam(value = "accountNumber", required = false) String accountNumber,
+            @Parameter(description = "只推送该用户") @RequestParam(value = "userName", required = false) String userName,
+            @Parameter(description = "事件类型 CREATED/UPDATED/DELETED，可传多个") @RequestParam(value = "events", required = false) Set<ChangeType> events,
+            @Parameter(description = "已收到的最后一个事件序号") @RequestParam(value = "fromSeq", required = false) Long fromSeq,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        FeedFormat feedFormat = FeedFormat.fromParam(format)
+                .orElseThrow(() -> new TransactionException(CodeEnum.ILLEGAL_PARA, "不支持的推送格式: " + format));
+        if (fromSeq == null && lastEventId != null && !lastEventId.isBlank()) {
+            try {
+                fromSeq = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                throw new TransactionException(CodeEnum.ILLEGAL_PARA, "Last-Event-ID 格式错误: " + lastEventId);
+            }
+        }
+        changeFeed.subscribe(request, response, feedFormat, new FeedFilter(filter, accountNumber, userName, events), fromSeq);
+    }
+
+    @Operation(summary = "导入交易", description = "请求体为 NDJSON 或带表头的 CSV（与导出格式相同），边读边分块并行解析、校验后批量写入；"
+            + "不通过的记录连同行号写入拒绝文件，结果中返回前若干条。Content-Encoding 为 gzip 时先解压")
+    @PostMapping("/import")
+    public ResponseData<ImportResult> importTransactions(
+            @Parameter(description = "导入格式 ndjson/csv", example = "ndjson") @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            HttpServletRequest request) throws IOException {
+        ExportFormat importFormat = ExportFormat.fromParam(format)
+                .orElseThrow(() -> new TransactionException(CodeEnum.ILLEGAL_PARA, "不支持的导入格式: " + format));
+        InputStream in = request.getInputStream();
+        if (contentEncoding != null && contentEncoding.toLowerCase().contains("gzip")) {
+            in = new GZIPInputStream(in, 1 << 16);
+        }
+        return ResponseData.data(transactionImporter.importFrom(in, importFormat));
+    }
+
+    @Operation(summary = "交易统计", description = "按 accountNumber/currency/type/status/channel 任意组合分组返回条数、金额合计和存款减取款净额；"
+            + "verify=true 时同时全量重算并校验")
+    @GetMapping("/stats")
+    public ResponseData<TransactionStats> getStats(
+            @Parameter(description = "分组字段，可传多个", example = "currency") @RequestParam(value = "groupBy", required = false) List<String> groupBy,
+            @Parameter(description = "只统计该账号") @RequestParam(value = "accountNumber", required = false) String accountNumber,
+            @Parameter(description = "是否与全量重算结果校验") @RequestParam(value = "verify", defaultValue = "false") boolean verify) {
+        return ResponseData.data(transactionService.getStats(groupBy, accountNumber, verify));
+    }
+
+    @Operation(summary = "查询单条交易", description = "响应头 ETag 为交易的版本号，可用于修改、删除时的 If-Match")
+    @GetMapping("/{id}")
+    public ResponseEntity<ResponseData<Transaction>> getTransaction(
+            @Parameter(description = "交易ID", required = true) @PathVariable("id") UUID id) {
+        Transaction transaction = transactionService.getTransaction(id);
+        return ResponseEntity.ok().eTag(etag(transaction)).body(ResponseData.data(transaction));
     }
 
-    @Operation(summary = "更新交易", description = "根据 ID 修改已有交易记录")
+    @Operation(summary = "更新交易", description = "根据 ID 整体替换已有交易记录，创建时间保持不变；"
+            + "带 If-Match 时仅当版本号一致才修改，否则返回 412")
     @PutMapping("/{id}")
-    public ResponseData<Transaction> updateTransaction(
+    public ResponseEntity<ResponseData<Transaction>> updateTransaction(
             @Parameter(description = "交易ID", required = true) @PathVariable("id") UUID id,
+            @Parameter(description = "期望的版本号，取自 ETag") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody Transaction transaction) {
-        Transaction updated = transactionService.updateTransaction(id, transaction);
-        return ResponseData.data(updated);
+        Transaction updated = transactionService.updateTransaction(id, transaction, parseIfMatch(ifMatch));
+        return ResponseEntity.ok().eTag(etag(updated)).body(ResponseData.data(updated));
+    }
+
+    @Operation(summary = "部分更新交易", description = "只修改请求体中传入的字段，例如只改 status；"
+            + "带 If-Match 时仅当版本号一致才修改，否则返回 412")
+    @PatchMapping("/{id}")
+    public ResponseEntity<ResponseData<Transaction>> patchTransaction(
+            @Parameter(description = "交易ID", required = true) @PathVariable("id") UUID id,
+            @Parameter(description = "期望的版本号，取自 ETag") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody TransactionPatch patch) {
+        Transaction updated = transactionService.patchTransaction(id, patch, parseIfMatch(ifMatch));
+        return ResponseEntity.ok().eTag(etag(updated)).body(ResponseData.data(updated));
     }
 
-    @Operation(summary = "删除交易", description = "根据 ID 删除指定交易")
+    @Operation(summary = "删除交易", description = "根据 ID 删除指定交易，带 If-Match 时仅当版本号一致才删除，否则返回 412")
     @DeleteMapping("/{id}")
     public ResponseData<Boolean> deleteTransaction(
-            @Parameter(description = "交易ID", required = true) @PathVariable("id") UUID id) {
-        transactionService.deleteTransaction(id);
+            @Parameter(description = "交易ID", required = true) @PathVariable("id") UUID id,
+            @Parameter(description = "期望的版本号，取自 ETag") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        transactionService.deleteTransaction(id, parseIfMatch(ifMatch));
         return ResponseData.data(Boolean.TRUE);
     }
+
+    @Operation(summary = "批量创建交易", description = "请求体为交易数组，逐条返回处理结果")
+    @PostMapping(value = "/batch", consumes = "application/json")
+    public ResponseData<List<BatchItemResult>> createTransactions(@RequestBody List<Transaction> transactions) {
+        return ResponseData.data(transactionService.createTransactions(transactions));
+    }
+
+    @Operation(summary = "批量创建交易(NDJSON)", description = "请求体每行一条交易 JSON，逐条返回处理结果")
+    @PostMapping(value = "/batch", consumes = APPLICATION_NDJSON)
+    public ResponseData<List<BatchItemResult>> createTransactionsNdjson(HttpServletRequest request) throws IOException {
+        return ResponseData.data(transactionService.createTransactions(readNdjson(request)));
+    }
+
+    @Operation(summary = "批量更新交易", description = "请求体为带 id 的交易数组，version 大于 0 时与当前版本比较，不一致的条目返回版本冲突；逐条返回处理结果")
+    @PutMapping(value = "/batch", consumes = "application/json")
+    public ResponseData<List<BatchItemResult>> updateTransactions(@RequestBody List<Transaction> transactions) {
+        return ResponseData.data(transactionService.updateTransactions(transactions));
+    }
+
+    @Operation(summary = "批量更新交易(NDJSON)", description = "请求体每行一条带 id 的交易 JSON，version 的含义同上，逐条返回处理结果")
+    @PutMapping(value = "/batch", consumes = APPLICATION_NDJSON)
+    public ResponseData<List<BatchItemResult>> updateTransactionsNdjson(HttpServletRequest request) throws IOException {
+        return ResponseData.data(transactionService.updateTransactions(readNdjson(request)));
+    }
+
+    @Operation(summary = "批量删除交易", description = "请求体为交易 ID 数组，逐条返回处理结果")
+    @DeleteMapping("/batch")
+    public ResponseData<List<BatchItemResult>> deleteTransactions(@RequestBody List<UUID> ids) {
+        return ResponseData.data(transactionService.deleteTransactions(ids));
+    }
+
+    private static String etag(Transaction transaction) {
+        return "\"" + transaction.getVersion() + "\"";
+    }
+
+    /**
+     * If-None-Match 可以是逗号分隔的多个 ETag，任一与当前一致或为 * 时未修改；按弱比较，忽略 W/ 前缀
+     */
+    private static boolean notModified(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if ("*".equals(tag) || etag.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * If-Match 取值为 ETag（带引号的版本号），* 或未传时不校验版本；弱校验值不能用于条件写入，按不一致处理
+     */
+    private static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            throw new TransactionException(CodeEnum.VERSION_CONFLICT, "If-Match 不支持弱校验值");
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new TransactionException(CodeEnum.ILLEGAL_PARA, "If-Match 格式错误: " + ifMatch);
+        }
+    }
+
+    /**
+     * 逐行读取，条数超过批量上限时立即拒绝，不把超大的请求体整个读入内存
+     */
+    private List<Transaction> readNdjson(HttpServletRequest request) throws IOException {
+        int maxSize = bankProperties.getBatch().getMaxSize();
+        List<Transaction> transactions = new ArrayList<>();
+        try (MappingIterator<Transaction> it = objectMapper.readerFor(Transaction.class).readValues(request.getInputStream())) {
+            while (it.hasNextValue()) {
+                if (transactions.size() == maxSize) {
+                    throw new TransactionException(CodeEnum.ILLEGAL_PARA, "单次批量不能超过 " + maxSize + " 条");
+                }
+                transactions.add(it.nextValue());
+            }
+        }
+        return transactions;
+    }
 }
@@ -0,0 +1,135 @@
+package org.bank.degrade;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import lombok.extern.slf4j.Slf4j;
+import org.bank.model.Transaction;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 熔断打开期间暂存的新增交易，容量为 0 时不排队。
+ * 降级时校验通过的交易按到达顺序排入有界队列，队列满时仍按降级处理；熔断转为半开或关闭时由单独的线程按顺序写入。
+ * 每条写入前向熔断器申请许可并记录结果，半开状态下只写入允许的试探条数，试探成功熔断关闭后再继续写入剩余的交易。
+ * 写入失败的交易留在队首，稍后或下次状态转换时重试，不会丢弃已返回排队结果的交易
+ */
+@Slf4j
+public class DeferredWrites implements AutoCloseable {
+
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final BlockingQueue<Transaction> queue;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final Consumer<Transaction> writer;
+
+    private final ScheduledExecutorService executor;
+
+    private final LongAdder queued = new LongAdder();
+
+    private final LongAdder replayed = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param writer 不经过熔断直接写入存储，由本类记录到熔断器
+     */
+    public DeferredWrites(int capacity, CircuitBreaker circuitBreaker, Consumer<Transaction> writer) {
+        this.queue = capacity > 0 ? new LinkedBlockingQueue<>(capacity) : null;
+        this.circuitBreaker = circuitBreaker;
+        this.writer = writer;
+        if (queue == null) {
+            this.executor = null;
+            return;
+        }
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "deferred-writes");
+            thread.setDaemon(true);
+            return thread;
+        });
+        circuitBreaker.getEventPublisher().onStateTransition(event -> {
+            CircuitBreaker.State to = event.getStateTransition().getToState();
+            if (to == CircuitBreaker.State.HALF_OPEN || to == CircuitBreaker.State.CLOSED) {
+                executor.execute(this::drain);
+            }
+        });
+    }
+
+    public boolean enabled() {
+        return queue != null;
+    }
+
+    /**
+     * @return 队列已满或未开启时为 false
+     */
+    public boolean offer(Transaction transaction) {
+        if (queue == null) {
+            return false;
+        }
+        if (!queue.offer(transaction)) {
+            rejected.increment();
+            return false;
+        }
+        queued.increment();
+        // 排队期间熔断已恢复，不会再有状态转换触发写入
+        if (circuitBreaker.getState() == CircuitBreaker.State.CLOSED) {
+            executor.execute(this::drain);
+        }
+        return true;
+    }
+
+    public int size() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    public long queued() {
+        return queued.sum();
+    }
+
+    public long replayed() {
+        return replayed.sum();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * 只在单个写入线程上执行，队首取出前不会被其他线程移除
+     */
+    private void drain() {
+        Transaction transaction;
+        while ((transaction = queue.peek()) != null) {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                writer.accept(transaction);
+            } catch (RuntimeException e) {
+                circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, e);
+                log.warn("replay queued transaction {} failed, retry later: {}", transaction.getId(), e.toString());
+                executor.schedule(this::drain, RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                return;
+            }
+            circuitBreaker.onSuccess(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            queue.poll();
+            replayed.increment();
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+}
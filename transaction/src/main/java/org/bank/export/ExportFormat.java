@@ -0,0 +1,32 @@
+package org.bank.export;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * 导出格式
+ */
+public enum ExportFormat {
+    NDJSON("ndjson", "application/x-ndjson"),
+    CSV("csv", "text/csv");
+
+    private final String param;
+    private final String contentType;
+
+    ExportFormat(String param, String contentType) {
+        this.param = param;
+        this.contentType = contentType;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public static Optional<ExportFormat> fromParam(String param) {
+        return Arrays.stream(values()).filter(f -> f.param.equalsIgnoreCase(param)).findFirst();
+    }
+}
@@ -0,0 +1,182 @@
+package org.bank.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.bank.common.config.BankProperties;
+import org.bank.common.enums.CodeEnum;
+import org.bank.common.exception.TransactionException;
+import org.bank.model.Transaction;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 把交易逐条写到响应输出流，不在内存中组装结果列表：
+ * 每写 flushRows 条刷一次，数据以分块传输编码陆续发出；客户端读得慢时写操作阻塞在 socket 上，
+ * 内存占用只有缓冲区大小。同时进行的导出数受 maxConcurrent 限制，超出时直接拒绝。
+ * 写出在 {@link Source} 内完成，服务层的并发许可、限流和熔断一直持有到最后一条写出。
+ */
+@Slf4j
+@Component
+public class TransactionExporter {
+
+    private static final String[] CSV_HEADER = {"id", "type", "status", "amount", "currency", "accountNumber", "userName",
+            "channel", "createdAt", "updatedAt", "version", "description"};
+
+    private final ObjectWriter jsonWriter;
+    private final Semaphore permits;
+    private final int flushRows;
+    private final int bufferSize;
+
+    public TransactionExporter(ObjectMapper objectMapper, BankProperties bankProperties) {
+        BankProperties.Export export = bankProperties.getExport();
+        // 默认每条写完都会 flush，逐条导出时改为按批刷出
+        this.jsonWriter = objectMapper.writerFor(Transaction.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.permits = new Semaphore(export.getMaxConcurrent());
+        this.flushRows = export.getFlushRows();
+        this.bufferSize = (int) export.getBufferSize().toBytes();
+    }
+
+    /**
+     * 取得许可后调用 {@link Source#open}，在此时获取快照；许可在数据全部写出后才释放
+     */
+    @FunctionalInterface
+    public interface Source {
+
+        void open(Consumer<Iterator<Transaction>> writer);
+    }
+
+    /**
+     * @param gzip 是否以 gzip 压缩响应体
+     */
+    public void export(Source source, ExportFormat format, boolean gzip, HttpServletResponse response) {
+        if (!permits.tryAcquire()) {
+            throw new TransactionException(CodeEnum.SERVICE_DEGRADED, "导出任务过多，请稍后重试");
+        }
+        try {
+            source.open(it -> write(it, format, gzip, response));
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void write(Iterator<Transaction> it, ExportFormat format, boolean gzip, HttpServletResponse response) {
+        try {
+            response.setContentType(format.getContentType());
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"transactions." + format.getParam() + (gzip ? ".gz\"" : "\""));
+            response.setBufferSize(bufferSize);
+            long count;
+            OutputStream out = response.getOutputStream();
+            if (gzip) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                // syncFlush：每次刷出时把已压缩的数据一并发出
+                try (GZIPOutputStream zipped = new GZIPOutputStream(out, bufferSize, true)) {
+                    count = write(it, format, zipped);
+                }
+            } else {
+                count = write(it, format, out);
+                out.flush();
+            }
+            log.info("Exported {} transactions as {}, gzip={}", count, format, gzip);
+        } catch (IOException e) {
+            // 响应已经开始发送，无法再返回错误码，客户端断开或超时时直接结束，不计为服务失败
+            log.warn("Export aborted: {}", e.toString());
+        }
+    }
+
+    private long write(Iterator<Transaction> it, ExportFormat format, OutputStream out) throws IOException {
+        return format == ExportFormat.CSV ? writeCsv(it, out) : writeNdjson(it, out);
+    }
+
+    private long writeNdjson(Iterator<Transaction> it, OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = jsonWriter.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            while (it.hasNext()) {
+                jsonWriter.writeValue(generator, it.next());
+                generator.writeRaw('\n');
+                if (++count % flushRows == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        return count;
+    }
+
+    private long writeCsv(Iterator<Transaction> it, OutputStream out) throws IOException {
+        long count = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), bufferSize);
+        writer.write(String.join(",", CSV_HEADER));
+        writer.write('\n');
+        while (it.hasNext()) {
+            Transaction t = it.next();
+            writer.write(String.valueOf(t.getId()));
+            writer.write(',');
+            writer.write(t.getType().name());
+            writer.write(',');
+            writer.write(t.getStatus().name());
+            writer.write(',');
+            writer.write(t.getAmount().toPlainString());
+            writer.write(',');
+            writer.write(t.getCurrency().name());
+            writer.write(',');
+            writeCsvField(writer, t.getAccountNumber());
+            writer.write(',');
+            writeCsvField(writer, t.getUserName());
+            writer.write(',');
+            writer.write(t.getChannel().name());
+            writer.write(',');
+            writer.write(String.valueOf(t.getCreatedAt()));
+            writer.write(',');
+            writer.write(String.valueOf(t.getUpdatedAt()));
+            writer.write(',');
+            writer.write(Long.toString(t.getVersion()));
+            writer.write(',');
+            writeCsvField(writer, t.getDescription());
+            writer.write('\n');
+            if (++count % flushRows == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * RFC 4180：含逗号、引号或换行的字段加引号，引号写两次；null 写为空
+     */
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
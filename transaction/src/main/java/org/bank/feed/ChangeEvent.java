@@ -0,0 +1,79 @@
+package org.bank.feed;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.bank.model.Transaction;
+
+import java.io.UncheckedIOException;
+import java.util.UUID;
+
+/**
+ * 一条变更事件。transaction 为变更后的交易，删除时为删除前的值；同一交易的事件以 version 为准，
+ * 并发修改同一交易时事件序号的先后不一定与版本号一致。
+ * 事件发布后不再修改，序列化结果在第一次发送时生成，由所有订阅方共用。
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class ChangeEvent {
+
+    private final long seq;
+    private final ChangeType type;
+    private final Transaction transaction;
+    // 修改前的值，只用于筛选：交易修改后不再满足条件时，订阅方仍能收到这次修改
+    private final Transaction previous;
+
+    private volatile byte[] json;
+
+    ChangeEvent(long seq, ChangeType type, Transaction transaction, Transaction previous) {
+        this.seq = seq;
+        this.type = type;
+        this.transaction = transaction;
+        this.previous = previous;
+    }
+
+    static ChangeEvent resync(long seq) {
+        return new ChangeEvent(seq, ChangeType.RESYNC, null, null);
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    public UUID getId() {
+        return transaction == null ? null : transaction.getId();
+    }
+
+    public Long getVersion() {
+        return transaction == null ? null : transaction.getVersion();
+    }
+
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    @JsonIgnore
+    public Transaction getPrevious() {
+        return previous;
+    }
+
+    /**
+     * 并发首次调用时可能各自序列化一次，结果相同
+     */
+    byte[] json(ObjectWriter writer) {
+        byte[] bytes = json;
+        if (bytes == null) {
+            try {
+                bytes = writer.writeValueAsBytes(this);
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+            json = bytes;
+        }
+        return bytes;
+    }
+}
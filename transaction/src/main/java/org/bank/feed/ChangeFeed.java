@@ -0,0 +1,269 @@
+package org.bank.feed;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.bank.common.config.BankProperties;
+import org.bank.common.enums.CodeEnum;
+import org.bank.common.exception.TransactionException;
+import org.bank.model.Transaction;
+import org.bank.model.TransactionFilter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 交易变更流：写入成功后发布事件，订阅方通过 GET /transactions/stream 以 SSE 或 NDJSON 接收。
+ * <p>
+ * 最近的事件保存在一个环形数组中，所有订阅方共用，每个订阅方只记录自己发送到的序号：
+ * 写线程只在数组末尾追加并唤醒分发线程，不接触订阅方，订阅方再慢也不会阻塞写入。
+ * 分发线程被唤醒后通知各订阅方，订阅方以非阻塞输出（WriteListener）把新事件写到连接上，
+ * socket 写不进去时直接返回，等容器回调 onWritePossible 再继续，空闲的订阅只占一个异步请求，不占线程。
+ * <p>
+ * 订阅方落后超过 maxLag 条、或续传的序号已不在环形数组中时，收到一条 RESYNC 事件，
+ * 应重新拉取列表后从事件中的序号继续；连接一直写不进去且落后超过 maxLag 时直接断开。
+ * 序号从启动时的微秒时间戳开始，重启后的序号大于重启前发出的任何序号，用旧序号续传时一律按 RESYNC 处理。
+ */
+@Slf4j
+@Component
+public class ChangeFeed {
+
+    private final AtomicReferenceArray<ChangeEvent> ring;
+    private final int mask;
+    private final long startSeq;
+    private volatile long head;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+
+    private final Set<FeedSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final ObjectWriter writer;
+    private final int maxLag;
+    private final int maxSubscribers;
+    private final long heartbeatNanos;
+    private final Counter resyncs;
+
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    public ChangeFeed(ObjectMapper objectMapper, BankProperties bankProperties, MeterRegistry registry) {
+        BankProperties.Feed feed = bankProperties.getFeed();
+        int capacity = Integer.highestOneBit(Math.max(2, feed.getHistory()) * 2 - 1);
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.startSeq = ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+        this.head = startSeq;
+        this.writer = objectMapper.writerFor(ChangeEvent.class);
+        this.maxLag = Math.min(feed.getMaxLag(), capacity);
+        this.maxSubscribers = feed.getMaxSubscribers();
+        this.heartbeatNanos = feed.getHeartbeat().toNanos();
+        Gauge.builder("bank.feed.subscribers", subscribers, Set::size)
+                .description("变更流当前订阅数")
+                .register(registry);
+        FunctionCounter.builder("bank.feed.events", this, f -> f.head - f.startSeq)
+                .description("发布的变更事件数")
+                .register(registry);
+        this.resyncs = Counter.builder("bank.feed.resyncs")
+                .description("订阅方落后或续传序号失效而收到 RESYNC 的次数")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        dispatcher = new Thread(this::dispatch, "change-feed-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        lock.lock();
+        try {
+            published.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (dispatcher != null) {
+            dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        for (FeedSubscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+    }
+
+    /**
+     * 发布一次已经生效的写入：previous 为 null 是新增，current 为 null 是删除
+     */
+    public void publish(Transaction previous, Transaction current) {
+        lock.lock();
+        try {
+            append(previous, current);
+            published.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 批量发布，整批只加一次锁；previous[i] 与 current[i] 同为 null 的位置表示该条没有生效，跳过
+     */
+    public void publishAll(Transaction[] previous, Transaction[] current) {
+        lock.lock();
+        try {
+            for (int i = 0; i < previous.length; i++) {
+                append(previous[i], current[i]);
+            }
+            published.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 开始异步订阅，当前请求线程随即返回
+     *
+     * @param fromSeq 已收到的最后一个事件序号，从其后继续；为 null 时只接收订阅之后的事件
+     */
+    public void subscribe(HttpServletRequest request, HttpServletResponse response, FeedFormat format,
+                          FeedFilter filter, Long fromSeq) throws IOException {
+        TransactionFilter range = filter.filter();
+        if (range != null && (isAfter(range.getCreatedFrom(), range.getCreatedTo())
+                || isAfter(range.getUpdatedFrom(), range.getUpdatedTo()))) {
+            throw new TransactionException(CodeEnum.ILLEGAL_PARA, "开始时间不能晚于结束时间");
+        }
+        if (subscribers.size() >= maxSubscribers) {
+            throw new TransactionException(CodeEnum.SERVICE_DEGRADED, "订阅数过多，请稍后重试");
+        }
+        long cursor = fromSeq == null ? head : fromSeq;
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        // 经过 nginx 时关闭代理缓冲，事件到达即发出
+        response.setHeader("X-Accel-Buffering", "no");
+        AsyncContext async = request.startAsync();
+        async.setTimeout(0);
+        FeedSubscriber subscriber = new FeedSubscriber(this, async, response.getOutputStream(), format, filter, cursor);
+        async.addListener(subscriber);
+        // 设置 WriteListener 之后才是非阻塞模式，此前分发线程不能写
+        response.getOutputStream().setWriteListener(subscriber);
+        subscribers.add(subscriber);
+        if (subscriber.isClosed()) {
+            // 加入之前连接已经结束
+            subscribers.remove(subscriber);
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * 最后一个已发布事件的序号
+     */
+    public long head() {
+        return head;
+    }
+
+    long startSeq() {
+        return startSeq;
+    }
+
+    int maxLag() {
+        return maxLag;
+    }
+
+    /**
+     * @return 序号为 seq 的事件，尚未发布或已被覆盖时为 null
+     */
+    ChangeEvent event(long seq) {
+        ChangeEvent event = ring.get((int) seq & mask);
+        return event != null && event.getSeq() == seq ? event : null;
+    }
+
+    byte[] json(ChangeEvent event) {
+        return event.json(writer);
+    }
+
+    void resynced() {
+        resyncs.increment();
+    }
+
+    void remove(FeedSubscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    private static boolean isAfter(LocalDateTime from, LocalDateTime to) {
+        return from != null && to != null && from.isAfter(to);
+    }
+
+    /**
+     * 持锁调用：先写入数组再推进 head，订阅方读到 head 时其之前的事件都已可见
+     */
+    private void append(Transaction previous, Transaction current) {
+        if (previous == null && current == null) {
+            return;
+        }
+        ChangeType type = previous == null ? ChangeType.CREATED : current == null ? ChangeType.DELETED : ChangeType.UPDATED;
+        long seq = head + 1;
+        ring.set((int) seq & mask, new ChangeEvent(seq, type, current == null ? previous : current, current == null ? null : previous));
+        head = seq;
+    }
+
+    /**
+     * 有新事件时逐个通知订阅方；没有新事件时按心跳间隔通知一次，空闲的连接发送心跳，断开的连接在写入时被发现
+     */
+    private void dispatch() {
+        long seen = head;
+        long nextBeat = System.nanoTime() + heartbeatNanos;
+        while (running) {
+            lock.lock();
+            try {
+                long wait = nextBeat - System.nanoTime();
+                while (running && head == seen && wait > 0) {
+                    wait = published.awaitNanos(wait);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            seen = head;
+            boolean beat = System.nanoTime() - nextBeat >= 0;
+            if (beat) {
+                nextBeat = System.nanoTime() + heartbeatNanos;
+            }
+            for (FeedSubscriber subscriber : subscribers) {
+                try {
+                    subscriber.signal(beat);
+                } catch (RuntimeException e) {
+                    log.warn("Change feed subscriber failed: {}", e.toString());
+                    subscriber.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package org.bank.feed;
+
+/**
+ * 变更事件类型；RESYNC 不对应某条交易，表示订阅方错过了事件，需要重新拉取列表后从事件中的序号继续
+ */
+public enum ChangeType {
+    CREATED, UPDATED, DELETED, RESYNC
+}
@@ -0,0 +1,32 @@
+package org.bank.feed;
+
+import org.bank.model.Transaction;
+import org.bank.model.TransactionFilter;
+
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * 订阅条件：多条件筛选与查询接口相同，另可限定账号、用户和事件类型。
+ * 修改事件在修改前或修改后满足条件即发送，交易改到条件之外时订阅方也能收到
+ *
+ * @param types 为空时接收全部类型
+ */
+public record FeedFilter(TransactionFilter filter, String accountNumber, String userName,
+                         Set<ChangeType> types) implements Predicate<ChangeEvent> {
+
+    @Override
+    public boolean test(ChangeEvent event) {
+        if (types != null && !types.isEmpty() && !types.contains(event.getType())) {
+            return false;
+        }
+        return matches(event.getTransaction()) || matches(event.getPrevious());
+    }
+
+    private boolean matches(Transaction t) {
+        return t != null
+                && (filter == null || filter.matches(t))
+                && (accountNumber == null || accountNumber.equals(t.getAccountNumber()))
+                && (userName == null || userName.equals(t.getUserName()));
+    }
+}
@@ -0,0 +1,32 @@
+package org.bank.feed;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * 变更流格式：SSE 每个事件带 id 和 event 字段，断线重连时浏览器自动带上 Last-Event-ID；NDJSON 每行一个事件
+ */
+public enum FeedFormat {
+    SSE("sse", "text/event-stream"),
+    NDJSON("ndjson", "application/x-ndjson");
+
+    private final String param;
+    private final String contentType;
+
+    FeedFormat(String param, String contentType) {
+        this.param = param;
+        this.contentType = contentType;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public static Optional<FeedFormat> fromParam(String param) {
+        return Arrays.stream(values()).filter(f -> f.param.equalsIgnoreCase(param)).findFirst();
+    }
+}
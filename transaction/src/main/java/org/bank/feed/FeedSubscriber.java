@@ -0,0 +1,198 @@
+package org.bank.feed;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一个订阅连接。分发线程和容器的 onWritePossible 回调都可能触发写出，wip 计数保证同一时刻只有一个线程在写，
+ * 其间到来的触发由正在写的线程补做，cursor 等状态只在写出时访问。
+ */
+final class FeedSubscriber implements WriteListener, AsyncListener {
+
+    // 每次最多合并的事件数，合并后一次写出
+    private static final int BATCH_EVENTS = 256;
+
+    private static final byte[] SSE_HEARTBEAT = ":\n\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NDJSON_HEARTBEAT = "\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final ChangeFeed feed;
+    private final AsyncContext async;
+    private final ServletOutputStream out;
+    private final FeedFormat format;
+    private final FeedFilter filter;
+
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile boolean heartbeat;
+    private volatile boolean closed;
+
+    // 已发送到的序号
+    private long cursor;
+    private boolean flushed;
+
+    FeedSubscriber(ChangeFeed feed, AsyncContext async, ServletOutputStream out, FeedFormat format,
+                   FeedFilter filter, long cursor) {
+        this.feed = feed;
+        this.async = async;
+        this.out = out;
+        this.format = format;
+        this.filter = filter;
+        this.cursor = cursor;
+    }
+
+    void signal(boolean beat) {
+        if (beat) {
+            heartbeat = true;
+        }
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            pump();
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        feed.remove(this);
+        try {
+            async.complete();
+        } catch (IllegalStateException e) {
+            // 连接已结束
+        }
+    }
+
+    /**
+     * 能写时一直写到没有新事件再刷出；写不进去时返回，等 onWritePossible。
+     * 一直写不进去且落后超过 maxLag 时断开，客户端重连续传时收到 RESYNC
+     */
+    private void pump() {
+        if (closed) {
+            return;
+        }
+        try {
+            while (out.isReady()) {
+                byte[] chunk = nextChunk();
+                if (chunk == null) {
+                    if (flushed) {
+                        return;
+                    }
+                    out.flush();
+                    flushed = true;
+                    continue;
+                }
+                out.write(chunk);
+                flushed = false;
+            }
+            if (feed.head() - cursor > feed.maxLag()) {
+                close();
+            }
+        } catch (IOException | IllegalStateException e) {
+            close();
+        }
+    }
+
+    /**
+     * @return 下一批要发送的字节，没有时为 null
+     */
+    private byte[] nextChunk() {
+        long head = feed.head();
+        if (cursor > head || cursor < feed.startSeq()) {
+            return resync(head);
+        }
+        ByteArrayOutputStream buf = null;
+        int events = 0;
+        while (cursor < head && events < BATCH_EVENTS) {
+            ChangeEvent event = head - cursor > feed.maxLag() ? null : feed.event(cursor + 1);
+            if (event == null) {
+                return resync(head);
+            }
+            cursor++;
+            if (filter.test(event)) {
+                if (buf == null) {
+                    buf = new ByteArrayOutputStream(1024);
+                }
+                frame(buf, event);
+                events++;
+            }
+        }
+        if (buf != null) {
+            heartbeat = false;
+            return buf.toByteArray();
+        }
+        if (heartbeat) {
+            heartbeat = false;
+            return format == FeedFormat.SSE ? SSE_HEARTBEAT : NDJSON_HEARTBEAT;
+        }
+        return null;
+    }
+
+    private byte[] resync(long head) {
+        cursor = head;
+        feed.resynced();
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(64);
+        frame(buf, ChangeEvent.resync(head));
+        return buf.toByteArray();
+    }
+
+    private void frame(ByteArrayOutputStream buf, ChangeEvent event) {
+        byte[] json = feed.json(event);
+        if (format == FeedFormat.SSE) {
+            String header = "id: " + event.getSeq() + "\nevent: " + event.getType().name().toLowerCase(Locale.ROOT) + "\ndata: ";
+            buf.writeBytes(header.getBytes(StandardCharsets.US_ASCII));
+            buf.writeBytes(json);
+            buf.write('\n');
+            buf.write('\n');
+        } else {
+            buf.writeBytes(json);
+            buf.write('\n');
+        }
+    }
+
+    @Override
+    public void onWritePossible() {
+        signal(false);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        close();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        closed = true;
+        feed.remove(this);
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+}
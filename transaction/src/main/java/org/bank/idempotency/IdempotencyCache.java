@@ -0,0 +1,201 @@
+package org.bank.idempotency;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * 幂等键对应的首次响应。按写入顺序保存，超过有效期或总字节数超出上限时从最早的开始淘汰。
+ * <p>
+ * 同一个键的首个请求执行期间，后到的请求通过 {@link #begin} 拿到同一个 future 等待结果，不重复执行；
+ * 首个请求先把结果放入缓存再结束执行中状态，之后到达的请求一定能在缓存中找到。
+ */
+public class IdempotencyCache {
+
+    /**
+     * @param fingerprint 首次请求体的摘要，同一个键换了请求体时拒绝
+     * @param headers     生成时的响应头，重放时原样写回
+     */
+    public record Response(String fingerprint, int status, String contentType, Map<String, List<String>> headers,
+                           byte[] body) {
+
+        // 键、摘要、响应头和对象本身的估算开销
+        private static final int OVERHEAD = 256;
+
+        long bytes(String key) {
+            return OVERHEAD + 2L * key.length() + body.length;
+        }
+    }
+
+    private record Entry(Response response, long bytes, long expiresAt) {
+    }
+
+    private final long maxBytes;
+
+    private final long ttlNanos;
+
+    private final LongSupplier clock;
+
+    // 按写入顺序排列，最早写入的最先过期
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64);
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long bytes;
+
+    private final ConcurrentHashMap<String, CompletableFuture<Response>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder joins = new LongAdder();
+
+    public IdempotencyCache(long maxBytes, long ttlNanos) {
+        this(maxBytes, ttlNanos, System::nanoTime);
+    }
+
+    IdempotencyCache(long maxBytes, long ttlNanos, LongSupplier clock) {
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttlNanos;
+        this.clock = clock;
+    }
+
+    /**
+     * @return 未过期的首次响应，没有时为 null
+     */
+    public Response get(String key) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null && clock.getAsLong() - entry.expiresAt() >= 0) {
+                entries.remove(key);
+                bytes -= entry.bytes();
+                entry = null;
+            }
+            if (entry == null) {
+                return null;
+            }
+            hits.increment();
+            return entry.response();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 缓存中没有时登记为执行中。
+     *
+     * @param execution 本次请求的 future
+     * @return 为 null 时由调用方执行，完成后调用 {@link #complete}；否则是先到请求的 future，等待其结果
+     */
+    public CompletableFuture<Response> begin(String key, CompletableFuture<Response> execution) {
+        CompletableFuture<Response> running = inFlight.putIfAbsent(key, execution);
+        if (running != null) {
+            joins.increment();
+            return running;
+        }
+        // 登记成功前首个请求可能刚好完成，再查一次缓存
+        Response cached = get(key);
+        if (cached != null) {
+            inFlight.remove(key, execution);
+            execution.complete(cached);
+            return execution;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * 结束执行：response 不为 null 时放入缓存，随后唤醒等待的请求；执行失败时 response 为 null、failure 不为 null，
+     * 等待的请求收到异常后重新尝试
+     *
+     * @param cacheable 是否保留给之后的重试，失败的响应只交给正在等待的请求
+     */
+    public void complete(String key, CompletableFuture<Response> execution, Response response, boolean cacheable,
+                         Throwable failure) {
+        if (response != null && cacheable) {
+            put(key, response);
+        }
+        inFlight.remove(key, execution);
+        if (failure != null) {
+            execution.completeExceptionally(failure);
+        } else {
+            execution.complete(response);
+        }
+    }
+
+    /**
+     * 单条超过总上限的响应不缓存
+     */
+    void put(String key, Response response) {
+        long size = response.bytes(key);
+        if (size > maxBytes) {
+            return;
+        }
+        lock.lock();
+        try {
+            Entry old = entries.remove(key);
+            if (old != null) {
+                bytes -= old.bytes();
+            }
+            long now = clock.getAsLong();
+            entries.put(key, new Entry(response, size, now + ttlNanos));
+            bytes += size;
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (eldest.hasNext()) {
+                Entry entry = eldest.next();
+                if (bytes <= maxBytes && now - entry.expiresAt() < 0) {
+                    break;
+                }
+                bytes -= entry.bytes();
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long bytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * 等待先到请求结果的次数
+     */
+    public long joins() {
+        return joins.sum();
+    }
+}
@@ -0,0 +1,243 @@
+package org.bank.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.bank.common.enums.CodeEnum;
+import org.bank.common.response.ResponseData;
+import org.bank.limit.KeyedRateLimiter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 创建交易的幂等处理：请求头带 Idempotency-Key 时，同一个键只执行一次，之后的重试直接写回首次的响应，
+ * 不再经过参数校验和存储；首次请求尚未完成时到达的重试等待它的结果。
+ * <p>
+ * 只保留成功（带 ETag 的 200）和降级排队（202）的响应，业务异常和降级响应只交给同时在等待的请求，之后的重试会重新执行。
+ * 同一个键换了请求体时按参数错误拒绝。键按请求路径和调用方（与按调用方限流相同的标识）区分，
+ * 不同调用方用了相同的键互不影响；等待首次请求超过 waitTimeout 时返回 409，由调用方稍后重试。
+ */
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    // 重放的响应带上该响应头，便于调用方区分
+    public static final String REPLAYED = "Idempotent-Replayed";
+
+    private final IdempotencyCache cache;
+
+    private final int maxKeyLength;
+
+    private final long waitTimeoutNanos;
+
+    private final String clientHeader;
+
+    private final ObjectMapper objectMapper;
+
+    public IdempotencyFilter(IdempotencyCache cache, int maxKeyLength, Duration waitTimeout, String clientHeader,
+                             ObjectMapper objectMapper) {
+        this.cache = cache;
+        this.maxKeyLength = maxKeyLength;
+        this.waitTimeoutNanos = waitTimeout.toNanos();
+        this.clientHeader = clientHeader;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod()) || request.getHeader(IDEMPOTENCY_KEY) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = request.getHeader(IDEMPOTENCY_KEY).trim();
+        if (key.isEmpty() || key.length() > maxKeyLength) {
+            reject(response, "Idempotency-Key 不能为空且不能超过 " + maxKeyLength + " 个字符");
+            return;
+        }
+        // 请求头中不能有换行，用作分隔符不会混淆
+        key = request.getRequestURI() + "\n" + KeyedRateLimiter.clientId(request, clientHeader) + "\n" + key;
+        BufferedRequest buffered = new BufferedRequest(request);
+        String fingerprint = fingerprint(buffered.body);
+        while (true) {
+            IdempotencyCache.Response cached = cache.get(key);
+            if (cached == null) {
+                CompletableFuture<IdempotencyCache.Response> execution = new CompletableFuture<>();
+                CompletableFuture<IdempotencyCache.Response> running = cache.begin(key, execution);
+                if (running == null) {
+                    execute(key, fingerprint, execution, buffered, response, chain);
+                    return;
+                }
+                try {
+                    cached = running.get(waitTimeoutNanos, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ServletException(e);
+                } catch (ExecutionException e) {
+                    // 先到的请求执行失败，重新尝试，由其中一个请求再执行
+                    continue;
+                } catch (TimeoutException e) {
+                    // 首次请求迟迟不完成时不占住重试的线程
+                    response.setStatus(HttpServletResponse.SC_CONFLICT);
+                    reject(response, CodeEnum.SERVICE_DEGRADED, "相同 Idempotency-Key 的请求仍在处理中，请稍后重试");
+                    return;
+                }
+            }
+            replay(cached, fingerprint, response);
+            return;
+        }
+    }
+
+    private void execute(String key, String fingerprint, CompletableFuture<IdempotencyCache.Response> execution,
+                         HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        IdempotencyCache.Response result = null;
+        Throwable failure = null;
+        try {
+            chain.doFilter(request, wrapper);
+            result = new IdempotencyCache.Response(fingerprint, wrapper.getStatus(), wrapper.getContentType(),
+                    headers(wrapper), wrapper.getContentAsByteArray());
+        } catch (ServletException | IOException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            // 降级排队的交易已确定会写入，重试同样返回排队结果，不再重复排队
+            boolean cacheable = result != null && (result.status() == HttpServletResponse.SC_OK
+                    && wrapper.getHeader(HttpHeaders.ETAG) != null || result.status() == HttpServletResponse.SC_ACCEPTED);
+            cache.complete(key, execution, result, cacheable,
+                    result == null && failure == null ? new IllegalStateException("request aborted") : failure);
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private void replay(IdempotencyCache.Response cached, String fingerprint, HttpServletResponse response)
+            throws IOException {
+        if (!cached.fingerprint().equals(fingerprint)) {
+            reject(response, "Idempotency-Key 已用于其他请求");
+            return;
+        }
+        cached.headers().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+        response.setHeader(REPLAYED, "true");
+        response.setStatus(cached.status());
+        response.setContentType(cached.contentType());
+        response.setContentLength(cached.body().length);
+        response.getOutputStream().write(cached.body());
+    }
+
+    /**
+     * 过滤器中的错误不经过全局异常处理，按同样的格式写出
+     */
+    private void reject(HttpServletResponse response, String message) throws IOException {
+        reject(response, CodeEnum.ILLEGAL_PARA, message);
+    }
+
+    private void reject(HttpServletResponse response, CodeEnum code, String message) throws IOException {
+        ResponseData<Object> body = new ResponseData<>();
+        body.setCode(code.getCode());
+        body.setMsg(message);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+    /**
+     * 生成时的响应头，Content-Type 和 Content-Length 单独处理
+     */
+    private static Map<String, List<String>> headers(HttpServletResponse response) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (String name : response.getHeaderNames()) {
+            if (!HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name) && !HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                headers.put(name, new ArrayList<>(response.getHeaders(name)));
+            }
+        }
+        return headers;
+    }
+
+    private static String fingerprint(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 预先读出请求体用于计算摘要，之后交给控制器的是读出的副本
+     */
+    private static final class BufferedRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        BufferedRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding)));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.bank.importer;
+
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+import org.bank.model.Transaction;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * CSV 中可识别的列，列名与导出的表头相同，顺序不限
+ */
+enum CsvColumn {
+    ID("id", (t, v) -> t.setId(UUID.fromString(v))),
+    TYPE("type", (t, v) -> t.setType(TransactionType.valueOf(v))),
+    STATUS("status", (t, v) -> t.setStatus(TransactionStatus.valueOf(v))),
+    AMOUNT("amount", (t, v) -> t.setAmount(new BigDecimal(v))),
+    CURRENCY("currency", (t, v) -> t.setCurrency(Currency.valueOf(v))),
+    ACCOUNT_NUMBER("accountNumber", Transaction::setAccountNumber),
+    USER_NAME("userName", Transaction::setUserName),
+    CHANNEL("channel", (t, v) -> t.setChannel(TransactionChannel.valueOf(v))),
+    CREATED_AT("createdAt", (t, v) -> t.setCreatedAt(LocalDateTime.parse(v))),
+    UPDATED_AT("updatedAt", (t, v) -> t.setUpdatedAt(LocalDateTime.parse(v))),
+    // 版本号由存储分配，导入时只校验格式
+    VERSION("version", (t, v) -> t.setVersion(Long.parseLong(v))),
+    DESCRIPTION("description", Transaction::setDescription);
+
+    private final String header;
+    private final BiConsumer<Transaction, String> setter;
+
+    CsvColumn(String header, BiConsumer<Transaction, String> setter) {
+        this.header = header;
+        this.setter = setter;
+    }
+
+    String getHeader() {
+        return header;
+    }
+
+    /**
+     * @throws RuntimeException 取值格式不合法
+     */
+    void set(Transaction transaction, String value) {
+        setter.accept(transaction, value);
+    }
+
+    static Optional<CsvColumn> fromHeader(String header) {
+        return Arrays.stream(values()).filter(c -> c.header.equalsIgnoreCase(header.trim())).findFirst();
+    }
+}
@@ -0,0 +1,62 @@
+package org.bank.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * 按行读取记录并记下起始行号，跳过空行；CSV 引号内的换行属于同一条记录
+ */
+final class RecordReader {
+
+    record Record(long line, String text) {
+    }
+
+    private final BufferedReader reader;
+    private final boolean csv;
+    private long lineNumber;
+
+    RecordReader(BufferedReader reader, boolean csv) {
+        this.reader = reader;
+        this.csv = csv;
+    }
+
+    /**
+     * @return 读完时返回 null
+     */
+    Record next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            lineNumber++;
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+        long start = lineNumber;
+        if (csv && quotes(line) % 2 != 0) {
+            StringBuilder sb = new StringBuilder(line);
+            int quotes = quotes(line);
+            while (quotes % 2 != 0) {
+                String more = reader.readLine();
+                if (more == null) {
+                    break;
+                }
+                lineNumber++;
+                sb.append('\n').append(more);
+                quotes += quotes(more);
+            }
+            line = sb.toString();
+        }
+        return new Record(start, line);
+    }
+
+    private static int quotes(String s) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == '"') {
+                n++;
+            }
+        }
+        return n;
+    }
+}
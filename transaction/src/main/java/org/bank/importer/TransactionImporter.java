@@ -0,0 +1,338 @@
+package org.bank.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.bank.common.config.BankProperties;
+import org.bank.common.enums.CodeEnum;
+import org.bank.common.exception.TransactionException;
+import org.bank.export.ExportFormat;
+import org.bank.model.BatchItemResult;
+import org.bank.model.ImportResult;
+import org.bank.model.Transaction;
+import org.bank.service.TransactionService;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 流式批量导入，输入为 NDJSON 或带表头的 CSV（与导出格式相同）：
+ * <ol>
+ *     <li>调用线程顺序读取，每 chunkSize 条切成一块；</li>
+ *     <li>块交给 ForkJoin 线程池并行解析，再走一次批量新增，校验规则与单条新增相同；</li>
+ *     <li>校验通过的记录在同一次批量中写入存储和索引。</li>
+ * </ol>
+ * 在途块数有上限，读取速度超过处理速度时调用线程等待，内存占用与文件大小无关。
+ * 解析、校验失败或 id 已存在的记录连同行号写入拒绝文件，不影响其他记录；整体限流、熔断等系统错误则中止导入。
+ * 历史数据不按账号和调用方限流。
+ */
+@Slf4j
+@Component
+public class TransactionImporter {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final TransactionService transactionService;
+    private final ObjectReader jsonReader;
+    private final BankProperties.Import config;
+    private final int parallelism;
+
+    // 同一时间只允许一个导入任务
+    private final Semaphore running = new Semaphore(1);
+
+    public TransactionImporter(TransactionService transactionService, ObjectMapper objectMapper, BankProperties bankProperties) {
+        this.transactionService = transactionService;
+        this.jsonReader = objectMapper.readerFor(Transaction.class);
+        this.config = bankProperties.getImporter();
+        if (config.getChunkSize() > bankProperties.getBatch().getMaxSize()) {
+            throw new IllegalStateException("bank.importer.chunk-size 不能超过 bank.batch.max-size");
+        }
+        this.parallelism = config.getParallelism() > 0 ? config.getParallelism() : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * 拒绝文件写到 rejectDir 下，按时间命名
+     */
+    public ImportResult importFrom(InputStream in, ExportFormat format) throws IOException {
+        String name = "import-" + LocalDateTime.now().format(FILE_TIME) + "-"
+                + UUID.randomUUID().toString().substring(0, 8) + ".rejects.tsv";
+        return importFrom(in, format, Path.of(config.getRejectDir(), name));
+    }
+
+    /**
+     * @param rejectFile 有拒绝记录时才创建
+     */
+    public ImportResult importFrom(InputStream in, ExportFormat format, Path rejectFile) throws IOException {
+        if (!running.tryAcquire()) {
+            throw new TransactionException(CodeEnum.SERVICE_DEGRADED, "已有导入任务在进行，请稍后重试");
+        }
+        try (Job job = new Job(format, rejectFile)) {
+            return job.run(in);
+        } finally {
+            running.release();
+        }
+    }
+
+    /**
+     * 一块记录：原始文本及各自的起始行号
+     */
+    private static final class Chunk {
+
+        final long[] lines;
+        final String[] texts;
+        int size;
+
+        Chunk(int capacity) {
+            lines = new long[capacity];
+            texts = new String[capacity];
+        }
+
+        boolean add(RecordReader.Record record) {
+            lines[size] = record.line();
+            texts[size] = record.text();
+            return ++size == texts.length;
+        }
+    }
+
+    private final class Job implements Closeable {
+
+        private final ExportFormat format;
+        private final Path rejectFile;
+        private final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        private final int maxInFlight = parallelism * 2;
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        private final LongAdder imported = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        private final ReentrantLock rejectLock = new ReentrantLock();
+        private final List<BatchItemResult> samples = new ArrayList<>();
+        private BufferedWriter rejects;
+
+        private CsvColumn[] columns;
+        private long total;
+
+        Job(ExportFormat format, Path rejectFile) {
+            this.format = format;
+            this.rejectFile = rejectFile;
+        }
+
+        ImportResult run(InputStream in) throws IOException {
+            long start = System.nanoTime();
+            long progressNanos = config.getProgressInterval().toNanos();
+            long nextProgress = start + progressNanos;
+            RecordReader reader = new RecordReader(
+                    new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16), format == ExportFormat.CSV);
+            if (format == ExportFormat.CSV) {
+                RecordReader.Record header = reader.next();
+                columns = header == null ? new CsvColumn[0] : header(header.text());
+            }
+            Chunk chunk = new Chunk(config.getChunkSize());
+            RecordReader.Record record;
+            try {
+                while (failure.get() == null && (record = reader.next()) != null) {
+                    total++;
+                    if (chunk.add(record)) {
+                        submit(chunk);
+                        chunk = new Chunk(config.getChunkSize());
+                        long now = System.nanoTime();
+                        if (now >= nextProgress) {
+                            log.info("Import progress: read={}, imported={}, rejected={}, {} rows/s",
+                                    total, imported.sum(), rejected.sum(), rate(imported.sum(), now - start));
+                            nextProgress = now + progressNanos;
+                        }
+                    }
+                }
+                if (chunk.size > 0 && failure.get() == null) {
+                    submit(chunk);
+                }
+            } finally {
+                // 等待在途的块全部处理完
+                inFlight.acquireUninterruptibly(maxInFlight);
+                inFlight.release(maxInFlight);
+            }
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+
+            long elapsed = System.nanoTime() - start;
+            ImportResult result = new ImportResult();
+            result.setTotal(total);
+            result.setImported(imported.sum());
+            result.setRejected(rejected.sum());
+            result.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsed));
+            result.setRowsPerSecond(rate(imported.sum(), elapsed));
+            result.setRejectFile(rejects == null ? null : rejectFile.toString());
+            result.setRejects(samples);
+            log.info("Import finished: read={}, imported={}, rejected={}, {} ms, {} rows/s",
+                    total, result.getImported(), result.getRejected(), result.getElapsedMillis(), result.getRowsPerSecond());
+            return result;
+        }
+
+        private CsvColumn[] header(String text) {
+            List<String> names = split(text);
+            CsvColumn[] mapped = new CsvColumn[names.size()];
+            for (int i = 0; i < names.size(); i++) {
+                String name = names.get(i);
+                mapped[i] = CsvColumn.fromHeader(name)
+                        .orElseThrow(() -> new TransactionException(CodeEnum.ILLEGAL_PARA, "CSV 表头中有不支持的列: " + name));
+            }
+            return mapped;
+        }
+
+        private void submit(Chunk chunk) {
+            inFlight.acquireUninterruptibly();
+            pool.execute(() -> {
+                try {
+                    process(chunk);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+
+        private void process(Chunk chunk) {
+            List<Transaction> parsed = new ArrayList<>(chunk.size);
+            int[] positions = new int[chunk.size];
+            for (int i = 0; i < chunk.size; i++) {
+                try {
+                    Transaction transaction = parse(chunk.texts[i]);
+                    positions[parsed.size()] = i;
+                    parsed.add(transaction);
+                } catch (TransactionException e) {
+                    reject(chunk.lines[i], null, e.getCode(), e.getMessage(), chunk.texts[i]);
+                }
+            }
+            if (parsed.isEmpty()) {
+                return;
+            }
+            for (BatchItemResult result : transactionService.importTransactions(parsed)) {
+                if (CodeEnum.SUCCESS.getCode().equals(result.getCode())) {
+                    imported.increment();
+                } else {
+                    int i = positions[result.getIndex()];
+                    reject(chunk.lines[i], result.getId(), result.getCode(), result.getMsg(), chunk.texts[i]);
+                }
+            }
+        }
+
+        private Transaction parse(String text) {
+            if (format == ExportFormat.NDJSON) {
+                try {
+                    return jsonReader.readValue(text);
+                } catch (JsonProcessingException e) {
+                    throw new TransactionException(CodeEnum.ILLEGAL_PARA, "JSON 格式错误: " + e.getOriginalMessage());
+                }
+            }
+            List<String> fields = split(text);
+            if (fields.size() != columns.length) {
+                throw new TransactionException(CodeEnum.ILLEGAL_PARA, "列数与表头不一致");
+            }
+            Transaction transaction = new Transaction();
+            for (int i = 0; i < columns.length; i++) {
+                String value = fields.get(i);
+                if (value.isEmpty()) {
+                    continue;
+                }
+                try {
+                    columns[i].set(transaction, value);
+                } catch (RuntimeException e) {
+                    throw new TransactionException(CodeEnum.ILLEGAL_PARA, columns[i].getHeader() + " 格式错误: " + value);
+                }
+            }
+            return transaction;
+        }
+
+        private void reject(long line, UUID id, int code, String msg, String text) {
+            rejected.increment();
+            rejectLock.lock();
+            try {
+                if (samples.size() < config.getMaxRejectSamples()) {
+                    samples.add(new BatchItemResult((int) Math.min(line, Integer.MAX_VALUE), id, code, msg));
+                }
+                if (rejects == null) {
+                    if (rejectFile.getParent() != null) {
+                        Files.createDirectories(rejectFile.getParent());
+                    }
+                    rejects = Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8);
+                    rejects.write("line\tcode\tmsg\trecord\n");
+                }
+                rejects.write(line + "\t" + code + "\t" + oneLine(msg) + "\t" + oneLine(text) + "\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                rejectLock.unlock();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            pool.shutdownNow();
+            if (rejects != null) {
+                rejects.close();
+            }
+        }
+    }
+
+    /**
+     * RFC 4180：逗号分隔，引号内的逗号、换行属于字段内容，两个引号表示一个引号
+     */
+    private static List<String> split(String record) {
+        List<String> fields = new ArrayList<>(16);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String oneLine(String s) {
+        return s == null ? "" : s.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private static long rate(long rows, long nanos) {
+        return nanos <= 0 ? 0 : rows * 1_000_000_000L / nanos;
+    }
+}
@@ -0,0 +1,167 @@
+package org.bank.limit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * 按延迟自适应的并发上限。每个窗口取已完成请求的最小耗时，与历史最小耗时（无排队时的耗时）比较：
+ * 超出 tolerance 倍说明请求开始排队，上限按比例缩小（最多减半）；未超出且并发用到上限的一半以上时，上限增加 √limit。
+ * 窗口内有请求降级（熔断、下游失败）时上限乘以 0.9。
+ * <p>
+ * 获取许可不等待：当前并发达到本优先级可用的份额（上限 × share）即拒绝，上限收缩时先拒绝读请求，写请求、柜面写入依次保留。
+ * 取最小耗时而不是平均耗时，混合了快慢不同的操作时也不会把慢操作误判为排队。
+ */
+public class AdaptiveLimiter {
+
+    /**
+     * @param initialLimit 初始并发上限
+     * @param tolerance    窗口最小耗时超过历史最小耗时的倍数，超过即收缩
+     * @param window       调整上限的最短间隔
+     * @param writeShare   WRITE 可用的上限比例，CRITICAL 为 1
+     * @param readShare    READ 可用的上限比例
+     */
+    public record Options(int initialLimit, int minLimit, int maxLimit, double tolerance, Duration window,
+                          double writeShare, double readShare) {
+    }
+
+    // 窗口内至少完成的请求数，样本太少时最小值不可靠
+    private static final int MIN_SAMPLES = 10;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double BACKOFF = 0.9;
+    // 历史最小耗时每个窗口向窗口最小值靠拢的比例，负载特征长期变化后仍能跟上
+    private static final double DRIFT = 1.0 / 256;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final long windowNanos;
+    private final double[] shares = new double[Priority.values().length];
+    private final LongSupplier clock;
+
+    private volatile double limit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final LongAdder[] accepted = adders();
+    private final LongAdder[] rejected = adders();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // 以下字段只在 lock 内访问
+    private double baselineNanos;
+    private long windowStart;
+    private long windowMin = Long.MAX_VALUE;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private boolean windowDropped;
+
+    public AdaptiveLimiter(Options options) {
+        this(options, System::nanoTime);
+    }
+
+    AdaptiveLimiter(Options options, LongSupplier clock) {
+        this.minLimit = Math.max(1, options.minLimit());
+        this.maxLimit = Math.max(minLimit, options.maxLimit());
+        this.tolerance = options.tolerance();
+        this.windowNanos = options.window().toNanos();
+        this.shares[Priority.CRITICAL.ordinal()] = 1;
+        this.shares[Priority.WRITE.ordinal()] = options.writeShare();
+        this.shares[Priority.READ.ordinal()] = options.readShare();
+        this.clock = clock;
+        this.limit = Math.clamp(options.initialLimit(), minLimit, maxLimit);
+        this.windowStart = clock.getAsLong();
+    }
+
+    /**
+     * @return 开始时间，传给 {@link #release}；未获得许可时为 -1
+     */
+    public long acquire(Priority priority) {
+        int allowed = Math.max(1, (int) (limit * shares[priority.ordinal()]));
+        for (;;) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                rejected[priority.ordinal()].increment();
+                return -1;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                accepted[priority.ordinal()].increment();
+                return clock.getAsLong();
+            }
+        }
+    }
+
+    /**
+     * @param dropped 请求被降级，不计入耗时样本，窗口结束时上限按 0.9 收缩
+     */
+    public void release(long start, boolean dropped) {
+        int concurrent = inFlight.getAndDecrement();
+        long now = clock.getAsLong();
+        lock.lock();
+        try {
+            windowMaxInFlight = Math.max(windowMaxInFlight, concurrent);
+            if (dropped) {
+                windowDropped = true;
+            } else {
+                windowMin = Math.min(windowMin, now - start);
+                windowSamples++;
+            }
+            if (now - windowStart >= windowNanos && (windowSamples >= MIN_SAMPLES || windowDropped)) {
+                adjust();
+                windowStart = now;
+                windowMin = Long.MAX_VALUE;
+                windowSamples = 0;
+                windowMaxInFlight = 0;
+                windowDropped = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adjust() {
+        double current = limit;
+        double next = current;
+        if (windowDropped) {
+            next = current * BACKOFF;
+        } else if (baselineNanos > 0) {
+            double gradient = Math.clamp(tolerance * baselineNanos / Math.max(1, windowMin), MIN_GRADIENT, 1.0);
+            if (gradient < 1.0) {
+                next = current * gradient;
+            } else if (windowMaxInFlight * 2 >= current) {
+                next = current + Math.sqrt(current);
+            }
+        }
+        if (windowSamples > 0) {
+            baselineNanos = baselineNanos == 0 || windowMin < baselineNanos
+                    ? windowMin : baselineNanos + (windowMin - baselineNanos) * DRIFT;
+        }
+        limit = Math.clamp(next, minLimit, maxLimit);
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public long accepted(Priority priority) {
+        return accepted[priority.ordinal()].sum();
+    }
+
+    public long rejected(Priority priority) {
+        return rejected[priority.ordinal()].sum();
+    }
+
+    private static LongAdder[] adders() {
+        LongAdder[] adders = new LongAdder[Priority.values().length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
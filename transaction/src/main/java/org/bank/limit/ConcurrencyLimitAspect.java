@@ -0,0 +1,78 @@
+package org.bank.limit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.bank.common.config.BankProperties;
+import org.bank.common.enums.CodeEnum;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.exception.TransactionException;
+import org.bank.model.Transaction;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 在熔断、限流切面之外执行：超出并发上限的请求不进入限流等待和熔断统计，直接降级返回。
+ * 内层熔断降级（SERVICE_DEGRADED）作为过载信号交给限流器收缩上限，其余业务异常按正常完成计入耗时
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ConcurrencyLimitAspect {
+
+    private final AdaptiveLimiter limiter;
+
+    private final boolean enabled;
+
+    private final Set<TransactionChannel> criticalChannels;
+
+    public ConcurrencyLimitAspect(AdaptiveLimiter limiter, BankProperties bankProperties) {
+        BankProperties.Limiter config = bankProperties.getLimiter();
+        this.limiter = limiter;
+        this.enabled = config.isEnabled();
+        this.criticalChannels = config.getCriticalChannels().isEmpty()
+                ? EnumSet.noneOf(TransactionChannel.class) : EnumSet.copyOf(config.getCriticalChannels());
+    }
+
+    @Around("@annotation(org.bank.limit.Limited)")
+    public Object limit(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!enabled) {
+            return joinPoint.proceed();
+        }
+        Limited limited = ((MethodSignature) joinPoint.getSignature()).getMethod().getAnnotation(Limited.class);
+        Priority priority = priority(limited.value(), joinPoint.getArgs());
+        long start = limiter.acquire(priority);
+        if (start < 0) {
+            throw new LoadShedException(priority);
+        }
+        boolean dropped = false;
+        try {
+            return joinPoint.proceed();
+        } catch (TransactionException e) {
+            dropped = e.getCode() == CodeEnum.SERVICE_DEGRADED.getCode();
+            throw e;
+        } catch (Throwable t) {
+            dropped = true;
+            throw t;
+        } finally {
+            limiter.release(start, dropped);
+        }
+    }
+
+    private Priority priority(Priority declared, Object[] args) {
+        if (declared != Priority.WRITE) {
+            return declared;
+        }
+        for (Object arg : args) {
+            if (arg instanceof Transaction transaction && criticalChannels.contains(transaction.getChannel())) {
+                return Priority.CRITICAL;
+            }
+        }
+        return declared;
+    }
+}
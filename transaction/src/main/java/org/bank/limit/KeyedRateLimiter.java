@@ -0,0 +1,127 @@
+package org.bank.limit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.bank.common.config.BankProperties;
+import org.bank.common.enums.CodeEnum;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.exception.TransactionException;
+import org.bank.model.Transaction;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按账号和调用方的写入限流，速率和桶容量按交易渠道分别配置，未配置的渠道不限制。
+ * 调用方取请求头 bank.rate-limit.client-header，没有时取客户端地址；不在 HTTP 请求中（如导入任务）时只按账号限制。
+ * 先检查调用方再检查账号，被调用方限制拒绝的请求不消耗账号的令牌，被账号限制拒绝时退还调用方的令牌。
+ * 补满的桶由 {@link RateLimitSweeper} 在后台清理
+ */
+public class KeyedRateLimiter {
+
+    public enum Scope {
+        ACCOUNT, CLIENT
+    }
+
+    private final boolean enabled;
+
+    private final String clientHeader;
+
+    // 按渠道序号，未配置的渠道为 null
+    private final TokenBuckets[] accounts;
+    private final TokenBuckets[] clients;
+
+    private final LongAdder[] rejected = {new LongAdder(), new LongAdder()};
+
+    public KeyedRateLimiter(BankProperties.RateLimit config) {
+        this.enabled = config.isEnabled();
+        this.clientHeader = config.getClientHeader();
+        this.accounts = buckets(config.getAccount());
+        this.clients = buckets(config.getClient());
+    }
+
+    /**
+     * 超出限制时抛出 RATE_LIMITED
+     */
+    public void check(Transaction transaction) {
+        if (!enabled || transaction.getChannel() == null) {
+            return;
+        }
+        int channel = transaction.getChannel().ordinal();
+        String client = clients[channel] == null ? null : clientId();
+        if (client != null && !clients[channel].tryAcquire(client)) {
+            rejected[Scope.CLIENT.ordinal()].increment();
+            throw new TransactionException(CodeEnum.RATE_LIMITED, "调用方请求过于频繁，请稍后重试");
+        }
+        String account = transaction.getAccountNumber();
+        if (accounts[channel] != null && account != null && !accounts[channel].tryAcquire(account)) {
+            if (client != null) {
+                clients[channel].refund(client);
+            }
+            rejected[Scope.ACCOUNT.ordinal()].increment();
+            throw new TransactionException(CodeEnum.RATE_LIMITED, "该账号请求过于频繁，请稍后重试");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 清理全部渠道中已补满的桶
+     *
+     * @return 删除的键数
+     */
+    public int evictIdle() {
+        int evicted = 0;
+        for (TokenBuckets[] scope : new TokenBuckets[][]{accounts, clients}) {
+            for (TokenBuckets buckets : scope) {
+                evicted += buckets == null ? 0 : buckets.evictIdle();
+            }
+        }
+        return evicted;
+    }
+
+    public long rejected(Scope scope) {
+        return rejected[scope.ordinal()].sum();
+    }
+
+    /**
+     * 各渠道表中的键数之和
+     */
+    public int keys(Scope scope) {
+        int keys = 0;
+        for (TokenBuckets buckets : scope == Scope.ACCOUNT ? accounts : clients) {
+            keys += buckets == null ? 0 : buckets.size();
+        }
+        return keys;
+    }
+
+    private String clientId() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servlet)) {
+            return null;
+        }
+        return clientId(servlet.getRequest(), clientHeader);
+    }
+
+    /**
+     * 调用方标识：取 clientHeader 请求头，没有时按客户端地址。幂等键也按它区分调用方
+     */
+    public static String clientId(HttpServletRequest request, String clientHeader) {
+        String client = request.getHeader(clientHeader);
+        return client == null || client.isBlank() ? request.getRemoteAddr() : client;
+    }
+
+    private static TokenBuckets[] buckets(Map<TransactionChannel, BankProperties.RateLimit.Rule> rules) {
+        TokenBuckets[] buckets = new TokenBuckets[TransactionChannel.values().length];
+        rules.forEach((channel, rule) -> {
+            if (rule.getPermitsPerSecond() > 0) {
+                buckets[channel.ordinal()] = new TokenBuckets(rule.getPermitsPerSecond(), rule.getBurst());
+            }
+        });
+        return buckets;
+    }
+}
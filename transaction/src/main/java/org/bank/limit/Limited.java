@@ -0,0 +1,17 @@
+package org.bank.limit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 方法执行前从 {@link AdaptiveLimiter} 获取并发许可，获取不到时直接按 SERVICE_DEGRADED 拒绝。
+ * WRITE 方法的参数中有交易且渠道属于 bank.limiter.critical-channels 时按 CRITICAL 处理
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Limited {
+
+    Priority value();
+}
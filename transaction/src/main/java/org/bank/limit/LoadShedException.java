@@ -0,0 +1,22 @@
+package org.bank.limit;
+
+import org.bank.common.enums.CodeEnum;
+import org.bank.common.exception.TransactionException;
+
+/**
+ * 超出自适应并发上限被直接拒绝的请求，按 SERVICE_DEGRADED 返回。
+ * 过载时每个多出的请求都会抛出，全局异常处理只按 debug 记录，不打印堆栈
+ */
+public class LoadShedException extends TransactionException {
+
+    private final Priority priority;
+
+    public LoadShedException(Priority priority) {
+        super(CodeEnum.SERVICE_DEGRADED);
+        this.priority = priority;
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+}
@@ -0,0 +1,10 @@
+package org.bank.limit;
+
+/**
+ * 请求优先级，并发接近上限时低优先级先被拒绝
+ */
+public enum Priority {
+    CRITICAL, // 柜面、ATM 等渠道的单笔写入，可用满全部并发
+    WRITE,    // 其他写入和批量写入
+    READ      // 查询、筛选、统计、导出
+}
@@ -0,0 +1,60 @@
+package org.bank.limit;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bank.common.config.BankProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 后台清理线程：按间隔删除按账号、调用方限流中已补满的令牌桶，清理不占用请求线程
+ */
+@Slf4j
+@Component
+public class RateLimitSweeper {
+
+    private final KeyedRateLimiter keyedRateLimiter;
+
+    private final BankProperties.RateLimit properties;
+
+    private ScheduledExecutorService executor;
+
+    public RateLimitSweeper(KeyedRateLimiter keyedRateLimiter, BankProperties bankProperties) {
+        this.keyedRateLimiter = keyedRateLimiter;
+        this.properties = bankProperties.getRateLimit();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!keyedRateLimiter.isEnabled()) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rate-limit-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getSweepInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::sweep, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void sweep() {
+        long start = System.nanoTime();
+        int evicted = keyedRateLimiter.evictIdle();
+        log.debug("Evicted {} idle rate limit buckets in {} ms", evicted,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+}
@@ -0,0 +1,127 @@
+package org.bank.limit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 按键的令牌桶表，每个键只保存一个 long：理论到达时间（GCRA，与令牌桶等价）。
+ * 获取时按当前时间惰性补充，不需要后台补充线程；一次 CAS 完成扣减，不加锁。
+ * <p>
+ * 桶补满即与新建的桶等价，可以直接删除：由后台线程按间隔调用 {@link #evictIdle()} 清理，空闲的键不会无限累积，
+ * 获取路径上只有一次查表和 CAS，百万级键时也不会在某次请求上集中停顿。
+ * 清理时先把桶置为失效再从表中删除，同时在获取的线程看到失效后重新取桶，不会多发放令牌。
+ */
+public class TokenBuckets {
+
+    private static final int STRIPES = 64;
+    private static final long EVICTED = Long.MIN_VALUE;
+
+    private final long intervalNanos;
+    // 理论到达时间最多领先当前时间的量，即桶容量
+    private final long capacityNanos;
+    private final LongSupplier clock;
+
+    @SuppressWarnings("unchecked")
+    private final ConcurrentHashMap<String, AtomicLong>[] stripes = new ConcurrentHashMap[STRIPES];
+
+    /**
+     * @param permitsPerSecond 每秒补充的令牌数
+     * @param burst            桶容量，空闲后可连续获取的次数
+     */
+    public TokenBuckets(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    TokenBuckets(double permitsPerSecond, int burst, LongSupplier clock) {
+        if (permitsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond and burst must be positive");
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.capacityNanos = Math.multiplyExact(intervalNanos, burst);
+        this.clock = clock;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    public boolean tryAcquire(String key) {
+        ConcurrentHashMap<String, AtomicLong> stripe = stripes[stripe(key)];
+        long now = clock.getAsLong();
+        for (;;) {
+            AtomicLong bucket = stripe.get(key);
+            if (bucket == null) {
+                AtomicLong created = new AtomicLong(now);
+                bucket = stripe.putIfAbsent(key, created);
+                if (bucket == null) {
+                    bucket = created;
+                }
+            }
+            long tat = bucket.get();
+            while (tat != EVICTED) {
+                long next = Math.max(tat, now) + intervalNanos;
+                if (next - now > capacityNanos) {
+                    return false;
+                }
+                if (bucket.compareAndSet(tat, next)) {
+                    return true;
+                }
+                tat = bucket.get();
+            }
+            // 清理线程已置为失效，帮它删除后重新取桶
+            stripe.remove(key, bucket);
+        }
+    }
+
+    /**
+     * 退还一个已获取的令牌，用于获取后又因其他限制被拒绝的请求。桶已被清理时不需要退还
+     */
+    public void refund(String key) {
+        AtomicLong bucket = stripes[stripe(key)].get(key);
+        if (bucket != null) {
+            bucket.getAndUpdate(tat -> tat == EVICTED ? tat : tat - intervalNanos);
+        }
+    }
+
+    /**
+     * 删除全部已补满的桶
+     *
+     * @return 删除的键数
+     */
+    public int evictIdle() {
+        long now = clock.getAsLong();
+        int evicted = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            evicted += sweep(i, now);
+        }
+        return evicted;
+    }
+
+    public int size() {
+        int size = 0;
+        for (ConcurrentHashMap<String, AtomicLong> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private int sweep(int index, long now) {
+        ConcurrentHashMap<String, AtomicLong> stripe = stripes[index];
+        int evicted = 0;
+        for (Map.Entry<String, AtomicLong> entry : stripe.entrySet()) {
+            AtomicLong bucket = entry.getValue();
+            long tat = bucket.get();
+            if (tat != EVICTED && tat - now <= 0 && bucket.compareAndSet(tat, EVICTED)) {
+                stripe.remove(entry.getKey(), bucket);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    private static int stripe(String key) {
+        // 取乘法散列的高位，与 ConcurrentHashMap 内部按低位分桶互不相关
+        return (key.hashCode() * 0x9E3779B9) >>> (Integer.SIZE - Integer.numberOfTrailingZeros(STRIPES));
+    }
+}
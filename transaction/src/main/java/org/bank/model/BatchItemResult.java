@@ -0,0 +1,38 @@
+package org.bank.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bank.common.enums.CodeEnum;
+import org.bank.common.exception.TransactionException;
+
+import java.util.UUID;
+
+/**
+ * 批量操作中单条记录的处理结果，index 对应请求中的下标
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResult {
+
+    private int index;
+
+    private UUID id;
+
+    private Integer code;
+
+    private String msg;
+
+    public static BatchItemResult success(int index, UUID id) {
+        return new BatchItemResult(index, id, CodeEnum.SUCCESS.getCode(), CodeEnum.SUCCESS.getMessage());
+    }
+
+    public static BatchItemResult failure(int index, UUID id, TransactionException e) {
+        return new BatchItemResult(index, id, e.getCode(), e.getMessage());
+    }
+
+    public static BatchItemResult failure(int index, UUID id, CodeEnum codeEnum) {
+        return new BatchItemResult(index, id, codeEnum.getCode(), codeEnum.getMessage());
+    }
+}
@@ -0,0 +1,30 @@
+package org.bank.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 导入结果：rejects 只保留前若干条，完整的拒绝记录见 rejectFile
+ */
+@Data
+public class ImportResult {
+
+    // 读到的记录数，不含表头和空行
+    private long total;
+
+    private long imported;
+
+    private long rejected;
+
+    private long elapsedMillis;
+
+    private long rowsPerSecond;
+
+    // 没有拒绝记录时为 null
+    private String rejectFile;
+
+    // index 为记录在输入中的起始行号
+    private List<BatchItemResult> rejects = new ArrayList<>();
+}
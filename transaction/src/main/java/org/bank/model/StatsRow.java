@@ -0,0 +1,38 @@
+package org.bank.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+
+import java.math.BigDecimal;
+
+/**
+ * 一个分组的统计值，未参与分组的字段为空
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StatsRow {
+
+    private String accountNumber;
+
+    private Currency currency;
+
+    private TransactionType type;
+
+    private TransactionStatus status;
+
+    private TransactionChannel channel;
+
+    private long count;
+
+    private BigDecimal amount;       // 金额合计
+
+    private BigDecimal netAmount;    // 存款减取款
+}
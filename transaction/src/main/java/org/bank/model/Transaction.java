@@ -1,5 +1,6 @@
 package org.bank.model;
 
+import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -46,4 +47,8 @@ public class Transaction {
 
     private String description;
 
+    // 版本号，新增时为 1，每次修改加一，由存储在写锁内分配；单条修改按 If-Match 校验，批量修改时请求中大于 0 的值作为期望版本
+    @Schema(accessMode = Schema.AccessMode.READ_ONLY)
+    private long version;
+
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package org.bank.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * 多条件筛选：同一字段多个取值为或，不同字段之间为与，时间范围两端都包含
+ */
+@Data
+public class TransactionFilter {
+
+    @Schema(description = "交易类型，可传多个")
+    private Set<TransactionType> type;
+
+    @Schema(description = "交易状态，可传多个")
+    private Set<TransactionStatus> status;
+
+    @Schema(description = "币种，可传多个")
+    private Set<Currency> currency;
+
+    @Schema(description = "交易渠道，可传多个")
+    private Set<TransactionChannel> channel;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdTo;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime updatedFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime updatedTo;
+
+    public boolean matches(Transaction t) {
+        return accepts(type, t.getType())
+                && accepts(status, t.getStatus())
+                && accepts(currency, t.getCurrency())
+                && accepts(channel, t.getChannel())
+                && within(t.getCreatedAt(), createdFrom, createdTo)
+                && within(t.getUpdatedAt(), updatedFrom, updatedTo);
+    }
+
+    public boolean hasCreatedRange() {
+        return createdFrom != null || createdTo != null;
+    }
+
+    private static <E> boolean accepts(Collection<E> values, E value) {
+        return values == null || values.isEmpty() || values.contains(value);
+    }
+
+    private static boolean within(LocalDateTime time, LocalDateTime from, LocalDateTime to) {
+        if (from == null && to == null) {
+            return true;
+        }
+        return time != null && (from == null || !time.isBefore(from)) && (to == null || !time.isAfter(to));
+    }
+}
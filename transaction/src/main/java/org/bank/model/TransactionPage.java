@@ -0,0 +1,22 @@
+package org.bank.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionPage {
+
+    private List<Transaction> items;
+
+    private long total;     // 总条数
+
+    private boolean hasNext; // 是否还有下一页
+
+    private String nextCursor; // 下一页游标，没有下一页时为空
+
+}
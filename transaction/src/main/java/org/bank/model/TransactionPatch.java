@@ -0,0 +1,58 @@
+package org.bank.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+
+import java.math.BigDecimal;
+
+/**
+ * 部分更新：只修改传入的字段，未传或为 null 的字段保持不变；id、创建时间和版本号不可修改
+ */
+@Data
+public class TransactionPatch {
+
+    private TransactionType type;
+
+    private TransactionStatus status;
+
+    private BigDecimal amount;
+
+    private Currency currency;
+
+    private String accountNumber;
+
+    private String userName;
+
+    private TransactionChannel channel;
+
+    private String description;
+
+    @Schema(hidden = true)
+    public boolean isEmpty() {
+        return type == null && status == null && amount == null && currency == null
+                && accountNumber == null && userName == null && channel == null && description == null;
+    }
+
+    /**
+     * 在 current 的副本上应用修改，current 本身不变
+     */
+    public Transaction applyTo(Transaction current) {
+        Transaction t = new Transaction();
+        t.setId(current.getId());
+        t.setType(type != null ? type : current.getType());
+        t.setStatus(status != null ? status : current.getStatus());
+        t.setAmount(amount != null ? amount : current.getAmount());
+        t.setCurrency(currency != null ? currency : current.getCurrency());
+        t.setAccountNumber(accountNumber != null ? accountNumber : current.getAccountNumber());
+        t.setUserName(userName != null ? userName : current.getUserName());
+        t.setChannel(channel != null ? channel : current.getChannel());
+        t.setDescription(description != null ? description : current.getDescription());
+        t.setCreatedAt(current.getCreatedAt());
+        t.setUpdatedAt(current.getUpdatedAt());
+        return t;
+    }
+}
@@ -0,0 +1,20 @@
+package org.bank.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransactionStats {
+
+    private List<StatsRow> groups;
+
+    // 校验模式下与全量重算的结果是否一致，非校验模式为空
+    private Boolean verified;
+}
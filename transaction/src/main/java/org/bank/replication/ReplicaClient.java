@@ -0,0 +1,248 @@
+package org.bank.replication;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bank.common.config.BankProperties;
+import org.bank.feed.ChangeFeed;
+import org.bank.model.Transaction;
+import org.bank.store.TransactionCodec;
+import org.bank.store.TransactionStore;
+import org.bank.store.journal.JournalRecord;
+import org.bank.store.journal.TransactionJournal;
+import org.bank.store.snapshot.SnapshotSource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 副本一侧的复制：连接主库，按序应用主库发来的全量数据和日志记录，断开后按间隔重连并从已应用的序号续传。
+ * 记录只由本线程应用，与主库相同整行覆盖，列表版本、统计和变更流随之更新；全量数据替换不发布变更事件。
+ * <p>
+ * 落后条数为最近一次心跳中主库的最后序号减去已应用的序号；落后时长为距最近一次追平主库的时间，断开期间持续增长。
+ * 副本的数据只来自主库，不能同时开启预写日志。
+ */
+@Slf4j
+@Component
+public class ReplicaClient {
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    // 全量数据边接收边应用，每次解码的行数
+    private static final int SNAPSHOT_CHUNK = 4096;
+
+    private final TransactionStore transactionStore;
+    private final ChangeFeed changeFeed;
+    private final BankProperties.Replication properties;
+    private final boolean enabled;
+    private final int readTimeoutMillis;
+
+    // 以下字段只由复制线程写入
+    private volatile long primaryId;
+    private volatile long appliedSeq;
+    private volatile long primarySeq;
+    private volatile long caughtUpAt = System.nanoTime();
+    private volatile boolean connected;
+    private volatile boolean synced;
+
+    private volatile boolean running;
+    private volatile Socket socket;
+    private Thread worker;
+
+    public ReplicaClient(TransactionStore transactionStore, TransactionJournal transactionJournal,
+                         ChangeFeed changeFeed, BankProperties bankProperties, MeterRegistry registry) {
+        this.transactionStore = transactionStore;
+        this.changeFeed = changeFeed;
+        this.properties = bankProperties.getReplication();
+        this.enabled = properties.getRole() == ReplicationRole.REPLICA;
+        this.readTimeoutMillis = (int) properties.getHeartbeat().multipliedBy(3).toMillis();
+        if (!enabled) {
+            return;
+        }
+        if (transactionJournal.isEnabled()) {
+            throw new IllegalStateException("replica state comes from the primary, bank.journal.enabled must be false");
+        }
+        Gauge.builder("bank.replication.lag.records", this, ReplicaClient::lagRecords)
+                .description("副本落后主库的记录数")
+                .register(registry);
+        Gauge.builder("bank.replication.lag.seconds", this, c -> c.lagNanos() / 1e9)
+                .description("副本距最近一次追平主库的时长")
+                .register(registry);
+        Gauge.builder("bank.replication.applied", this, ReplicaClient::appliedSeq)
+                .description("副本已应用的序号")
+                .register(registry);
+        Gauge.builder("bank.replication.connected", this, c -> c.connected ? 1 : 0)
+                .description("副本是否连接着主库")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        worker = Thread.ofPlatform().name("replica-client").daemon().start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        closeSocket();
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * 是否已应用过一次全量数据，此前的数据不完整
+     */
+    public boolean isSynced() {
+        return synced;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public long appliedSeq() {
+        return appliedSeq;
+    }
+
+    public long lagRecords() {
+        return Math.max(0, primarySeq - appliedSeq);
+    }
+
+    public long lagNanos() {
+        return connected && appliedSeq >= primarySeq ? 0 : System.nanoTime() - caughtUpAt;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                replicate();
+            } catch (IOException | RuntimeException e) {
+                if (running) {
+                    log.warn("Replication from {}:{} interrupted at seq {}: {}", properties.getPrimaryHost(),
+                            properties.getPrimaryPort(), appliedSeq, e.toString());
+                }
+            } finally {
+                connected = false;
+                closeSocket();
+            }
+            try {
+                Thread.sleep(properties.getReconnectDelay().toMillis());
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void replicate() throws IOException {
+        Socket s = new Socket();
+        socket = s;
+        s.connect(new InetSocketAddress(properties.getPrimaryHost(), properties.getPrimaryPort()), readTimeoutMillis);
+        s.setSoTimeout(readTimeoutMillis);
+        s.setTcpNoDelay(true);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+        out.writeInt(ReplicationProtocol.MAGIC);
+        out.writeLong(primaryId);
+        out.writeLong(appliedSeq);
+        out.flush();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream(), BUFFER_BYTES));
+        if (in.readInt() != ReplicationProtocol.MAGIC) {
+            throw new IOException("unexpected handshake");
+        }
+        long id = in.readLong();
+        connected = true;
+        log.info("Connected to primary {}:{} at seq {}", properties.getPrimaryHost(), properties.getPrimaryPort(),
+                appliedSeq);
+        while (running) {
+            byte type = in.readByte();
+            switch (type) {
+                case ReplicationProtocol.SNAPSHOT -> {
+                    loadSnapshot(in);
+                    primaryId = id;
+                }
+                case ReplicationProtocol.RECORD -> {
+                    byte[] frame = new byte[in.readInt()];
+                    in.readFully(frame);
+                    apply(TransactionJournal.decodeFrame(frame));
+                }
+                case ReplicationProtocol.HEARTBEAT -> primarySeq = in.readLong();
+                default -> throw new IOException("unexpected message type " + type);
+            }
+            if (appliedSeq >= primarySeq) {
+                caughtUpAt = System.nanoTime();
+            }
+        }
+    }
+
+    private void loadSnapshot(DataInputStream in) throws IOException {
+        long start = System.currentTimeMillis();
+        long seq = in.readLong();
+        int rowCount = in.readInt();
+        transactionStore.resetTo(new SnapshotSource() {
+            @Override
+            public long seq() {
+                return seq;
+            }
+
+            @Override
+            public int rowCount() {
+                return rowCount;
+            }
+
+            @Override
+            public void forEachChunk(Consumer<Transaction[]> action) throws IOException {
+                for (int read = 0; read < rowCount; ) {
+                    Transaction[] chunk = new Transaction[Math.min(SNAPSHOT_CHUNK, rowCount - read)];
+                    for (int i = 0; i < chunk.length; i++) {
+                        byte[] encoded = new byte[in.readInt()];
+                        in.readFully(encoded);
+                        chunk[i] = TransactionCodec.decode(ByteBuffer.wrap(encoded));
+                    }
+                    action.accept(chunk);
+                    read += chunk.length;
+                }
+            }
+        });
+        appliedSeq = seq;
+        synced = true;
+        log.info("Loaded snapshot from primary: rows={}, seq={}, cost={} ms",
+                rowCount, seq, System.currentTimeMillis() - start);
+    }
+
+    private void apply(JournalRecord record) throws IOException {
+        if (record.seq() != appliedSeq + 1) {
+            throw new IOException("replication gap: expected seq " + (appliedSeq + 1) + " but got " + record.seq());
+        }
+        Transaction previous = transactionStore.get(record.id());
+        transactionStore.applyReplicated(record);
+        appliedSeq = record.seq();
+        changeFeed.publish(previous, record.transaction());
+    }
+
+    private void closeSocket() {
+        Socket s = socket;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (IOException ignored) {
+                // 连接已断开
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.bank.replication;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.bank.common.enums.CodeEnum;
+import org.bank.common.response.ResponseData;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 副本只读：写请求直接返回 421 和 READ_ONLY_REPLICA，调用方应改发主库；
+ * 首次从主库接收全量数据之前，读请求按降级返回 503，不返回空的或不完整的列表
+ */
+public class ReplicaFilter extends OncePerRequestFilter {
+
+    // Misdirected Request：请求发到了不能处理它的实例
+    static final int SC_MISDIRECTED_REQUEST = 421;
+
+    private final ReplicaClient replicaClient;
+
+    private final ObjectMapper objectMapper;
+
+    public ReplicaFilter(ReplicaClient replicaClient, ObjectMapper objectMapper) {
+        this.replicaClient = replicaClient;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String method = request.getMethod();
+        if (!HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method) && !HttpMethod.OPTIONS.matches(method)) {
+            reject(response, SC_MISDIRECTED_REQUEST, CodeEnum.READ_ONLY_REPLICA, CodeEnum.READ_ONLY_REPLICA.getMessage());
+            return;
+        }
+        if (!replicaClient.isSynced()) {
+            reject(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, CodeEnum.SERVICE_DEGRADED, "副本尚未完成同步");
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * 过滤器中的错误不经过全局异常处理，按同样的格式写出
+     */
+    private void reject(HttpServletResponse response, int status, CodeEnum code, String message) throws IOException {
+        ResponseData<Object> body = new ResponseData<>();
+        body.setCode(code.getCode());
+        body.setMsg(message);
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
@@ -0,0 +1,128 @@
+package org.bank.replication;
+
+import org.bank.store.journal.TransactionJournal;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 主库的复制日志：预写日志的每条记录按序号放入环形数组，各副本的发送线程从自己发送到的序号之后读取。
+ * <p>
+ * 写线程在日志锁内追加，只写数组并推进 head，副本再慢也不会阻塞写入。
+ * 发送线程只发送到 durable 为止：记录满足主库的刷盘策略后才交给副本，主库 fsync 失败的写入不会出现在副本上。
+ * durable 推进时有发送线程在等待才加锁唤醒。
+ * 发送线程落后超过数组容量时要读的记录已被覆盖，由发送方断开，副本重连后先接收全量数据。
+ */
+public class ReplicationLog implements TransactionJournal.Listener {
+
+    // 记录中 seq 的位置，在 length 和 crc 之后
+    private static final int SEQ_OFFSET = 8;
+
+    private final AtomicReferenceArray<byte[]> ring;
+    private final int mask;
+
+    // 挂上日志时的最后序号，之前的记录不在数组中
+    private volatile long startSeq;
+    private volatile long head;
+    private volatile long durable;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition advanced = lock.newCondition();
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    public ReplicationLog(int backlog) {
+        int capacity = Integer.highestOneBit(Math.max(2, backlog) * 2 - 1);
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    @Override
+    public void attached(long lastSeq) {
+        startSeq = lastSeq;
+        head = lastSeq;
+        durable = lastSeq;
+    }
+
+    /**
+     * 先写入数组再推进 head，读到 head 时其之前的记录都已可见
+     */
+    @Override
+    public void appended(long seq, byte[] frame) {
+        ring.set((int) seq & mask, frame);
+        head = seq;
+    }
+
+    @Override
+    public void durable(long seq) {
+        durable = seq;
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                advanced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 最后一条记录的序号
+     */
+    public long head() {
+        return head;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return afterSeq 之后的记录是否都还在数组中，可以从 afterSeq 之后续传
+     */
+    public boolean canResume(long afterSeq) {
+        long h = head;
+        return afterSeq <= h && afterSeq >= Math.max(startSeq, h - capacity());
+    }
+
+    /**
+     * @return 序号为 seq 的记录，尚未追加或已被覆盖时为 null
+     */
+    public byte[] frame(long seq) {
+        byte[] frame = ring.get((int) seq & mask);
+        return frame != null && ByteBuffer.wrap(frame).getLong(SEQ_OFFSET) == seq ? frame : null;
+    }
+
+    /**
+     * 已满足刷盘策略、可以发送给副本的最后序号
+     */
+    public long durable() {
+        return durable;
+    }
+
+    /**
+     * 等待 afterSeq 之后的记录满足刷盘策略，最多等待 timeoutNanos
+     *
+     * @return 当前 durable，超时时可能仍等于 afterSeq
+     */
+    public long await(long afterSeq, long timeoutNanos) throws InterruptedException {
+        if (durable > afterSeq) {
+            return durable;
+        }
+        lock.lock();
+        waiters.incrementAndGet();
+        try {
+            long wait = timeoutNanos;
+            // 先登记再检查 durable：刷盘方推进 durable 后一定能看到登记，不会漏掉唤醒
+            while (durable <= afterSeq && wait > 0) {
+                wait = advanced.awaitNanos(wait);
+            }
+            return durable;
+        } finally {
+            waiters.decrementAndGet();
+            lock.unlock();
+        }
+    }
+}
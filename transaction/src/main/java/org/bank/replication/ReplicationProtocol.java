@@ -0,0 +1,26 @@
+package org.bank.replication;
+
+/**
+ * 主库与副本之间的 TCP 协议，整数均为大端。
+ * <p>
+ * 握手：副本发送 magic(4) | 上次连接的主库标识(8) | 已应用的序号(8)，主库回复 magic(4) | 本次运行的主库标识(8)。
+ * 主库标识一致且该序号之后的记录都还在复制日志中时直接续传，否则先发送一次全量数据。
+ * <p>
+ * 之后主库单向发送消息，每条以类型(1) 开头：
+ * <ul>
+ *   <li>SNAPSHOT：seq(8) | rows(4) | 每行 length(4) + 交易编码，副本用这些行替换当前数据，之后从 seq 之后接收记录</li>
+ *   <li>RECORD：length(4) | 一条日志记录，格式与预写日志段文件相同，副本按序号逐条应用</li>
+ *   <li>HEARTBEAT：主库当前的最后序号(8)，在每批记录之前和空闲时发送，副本据此计算落后的条数</li>
+ * </ul>
+ */
+final class ReplicationProtocol {
+
+    static final int MAGIC = 0x54585231; // "TXR1"
+
+    static final byte SNAPSHOT = 1;
+    static final byte RECORD = 2;
+    static final byte HEARTBEAT = 3;
+
+    private ReplicationProtocol() {
+    }
+}
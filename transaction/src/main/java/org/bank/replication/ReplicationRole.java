@@ -0,0 +1,10 @@
+package org.bank.replication;
+
+/**
+ * 实例在复制中的角色
+ */
+public enum ReplicationRole {
+    STANDALONE, // 单实例，不复制
+    PRIMARY,    // 接受读写，把日志记录按序发送给连接上来的副本
+    REPLICA     // 从主库接收全量数据和之后的日志记录，只接受读请求
+}
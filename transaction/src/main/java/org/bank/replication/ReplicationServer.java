@@ -0,0 +1,243 @@
+package org.bank.replication;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bank.common.config.BankProperties;
+import org.bank.model.Transaction;
+import org.bank.store.TransactionCodec;
+import org.bank.store.TransactionStore;
+import org.bank.store.journal.TransactionJournal;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 主库一侧的复制：挂在预写日志上收集每条记录，监听端口接受副本连接，每个副本一个发送线程。
+ * 副本续传的位置仍在复制日志中时直接从该位置之后发送，否则先取得与序号一致的全量数据发送，再从该序号之后发送记录。
+ * 写入只追加到复制日志，发送在各自的线程中进行，副本的数量和快慢不影响写入。
+ * <p>
+ * 主库标识取启动时的微秒时间戳，重启后的标识与之前不同，副本重连时一律重新接收全量数据。
+ */
+@Slf4j
+@Component
+public class ReplicationServer {
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final TransactionStore transactionStore;
+    private final TransactionJournal journal;
+    private final BankProperties.Replication properties;
+    private final boolean enabled;
+    private final long primaryId;
+    private final long heartbeatNanos;
+    private final ReplicationLog replicationLog;
+
+    private final Set<Sender> senders = ConcurrentHashMap.newKeySet();
+    private final Counter snapshots;
+
+    private volatile boolean running;
+    private ServerSocket serverSocket;
+    private Thread acceptor;
+
+    public ReplicationServer(TransactionStore transactionStore, TransactionJournal transactionJournal,
+                             BankProperties bankProperties, MeterRegistry registry) {
+        this.transactionStore = transactionStore;
+        this.journal = transactionJournal;
+        this.properties = bankProperties.getReplication();
+        this.enabled = properties.getRole() == ReplicationRole.PRIMARY;
+        this.primaryId = ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+        this.heartbeatNanos = properties.getHeartbeat().toNanos();
+        this.replicationLog = new ReplicationLog(properties.getBacklog());
+        this.snapshots = Counter.builder("bank.replication.snapshots")
+                .description("向副本发送全量数据的次数")
+                .register(registry);
+        if (enabled) {
+            Gauge.builder("bank.replication.replicas", senders, Set::size)
+                    .description("已连接的副本数")
+                    .register(registry);
+            Gauge.builder("bank.replication.head", replicationLog, ReplicationLog::head)
+                    .description("主库复制日志的最后序号")
+                    .register(registry);
+        }
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        // 存储已完成恢复，此后的每条写入都进入复制日志
+        journal.attach(replicationLog);
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(properties.getPort()));
+        running = true;
+        acceptor = Thread.ofPlatform().name("replication-acceptor").daemon().start(this::accept);
+        log.info("Replication primary listening on port {}, id={}, backlog={}",
+                serverSocket.getLocalPort(), primaryId, replicationLog.capacity());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            log.warn("Failed to close replication socket: {}", e.toString());
+        }
+        acceptor.join(TimeUnit.SECONDS.toMillis(5));
+        for (Sender sender : senders) {
+            sender.close();
+        }
+    }
+
+    /**
+     * 实际监听的端口，配置为 0 时由系统分配
+     */
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int replicaCount() {
+        return senders.size();
+    }
+
+    public long head() {
+        return replicationLog.head();
+    }
+
+    private void accept() {
+        while (running) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (running) {
+                    log.error("Replication accept failed", e);
+                }
+                return;
+            }
+            if (senders.size() >= properties.getMaxReplicas()) {
+                log.warn("Rejecting replica {}: max-replicas {} reached", socket.getRemoteSocketAddress(),
+                        properties.getMaxReplicas());
+                close(socket);
+                continue;
+            }
+            Sender sender = new Sender(socket);
+            senders.add(sender);
+            Thread.ofPlatform().name("replication-sender-" + socket.getRemoteSocketAddress()).daemon().start(sender);
+        }
+    }
+
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // 连接已断开
+        }
+    }
+
+    private final class Sender implements Runnable {
+
+        private final Socket socket;
+
+        Sender(Socket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public void run() {
+            try {
+                socket.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_BYTES));
+                if (in.readInt() != ReplicationProtocol.MAGIC) {
+                    throw new IOException("unexpected handshake");
+                }
+                long replicaPrimaryId = in.readLong();
+                long appliedSeq = in.readLong();
+                out.writeInt(ReplicationProtocol.MAGIC);
+                out.writeLong(primaryId);
+                boolean resume = replicaPrimaryId == primaryId && replicationLog.canResume(appliedSeq);
+                log.info("Replica {} connected at seq {}, {}", socket.getRemoteSocketAddress(), appliedSeq,
+                        resume ? "resuming" : "sending snapshot");
+                stream(out, resume ? appliedSeq : snapshot(out));
+            } catch (IOException e) {
+                if (running) {
+                    log.info("Replica {} disconnected: {}", socket.getRemoteSocketAddress(), e.toString());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                senders.remove(this);
+                ReplicationServer.close(socket);
+            }
+        }
+
+        /**
+         * @return 全量数据对应的序号
+         */
+        private long snapshot(DataOutputStream out) throws IOException {
+            long start = System.currentTimeMillis();
+            TransactionStore.Captured snapshot = transactionStore.capture();
+            out.writeByte(ReplicationProtocol.SNAPSHOT);
+            out.writeLong(snapshot.seq());
+            out.writeInt(snapshot.rows().size());
+            for (Transaction row : snapshot.rows()) {
+                byte[] encoded = TransactionCodec.encode(row);
+                out.writeInt(encoded.length);
+                out.write(encoded);
+            }
+            out.flush();
+            snapshots.increment();
+            log.info("Sent snapshot to replica {}: rows={}, seq={}, cost={} ms", socket.getRemoteSocketAddress(),
+                    snapshot.rows().size(), snapshot.seq(), System.currentTimeMillis() - start);
+            return snapshot.seq();
+        }
+
+        /**
+         * 每批先发送当前的最后序号，再发送到该序号为止的记录；没有新记录时按心跳间隔只发送序号
+         */
+        private void stream(DataOutputStream out, long sent) throws IOException, InterruptedException {
+            while (running) {
+                long head = replicationLog.await(sent, heartbeatNanos);
+                out.writeByte(ReplicationProtocol.HEARTBEAT);
+                out.writeLong(head);
+                for (; sent < head; sent++) {
+                    byte[] frame = replicationLog.frame(sent + 1);
+                    if (frame == null) {
+                        throw new IOException("replica fell behind the replication backlog at seq " + (sent + 1)
+                                + ", consider raising bank.replication.backlog");
+                    }
+                    out.writeByte(ReplicationProtocol.RECORD);
+                    out.writeInt(frame.length);
+                    out.write(frame);
+                }
+                out.flush();
+            }
+        }
+
+        void close() {
+            ReplicationServer.close(socket);
+        }
+    }
+}
@@ -1,16 +1,74 @@
 package org.bank.service;
 
+import org.bank.model.BatchItemResult;
 import org.bank.model.Transaction;
+import org.bank.model.TransactionFilter;
+import org.bank.model.TransactionPage;
+import org.bank.model.TransactionPatch;
+import org.bank.model.TransactionStats;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface TransactionService {
     Transaction createTransaction(Transaction transaction);
 
-    List<Transaction> getTransactions(int page, int size);
+    TransactionPage getTransactions(int page, int size);
 
-    Transaction updateTransaction(UUID id, Transaction transaction);
+    TransactionPage getTransactionsAfter(String cursor, int size);
 
-    Boolean deleteTransaction(UUID id);
+    TransactionPage getTransactionsByAccount(String accountNumber, int page, int size, String cursor);
+
+    TransactionPage getTransactionsByUser(String userName, int page, int size, String cursor);
+
+    TransactionPage searchTransactions(TransactionFilter filter, int page, int size, String cursor);
+
+    /**
+     * 列表数据的版本，任意写入完成后改变，带进程启动时生成的随机前缀，重启后不会与之前的取值重复。
+     * 用作列表、筛选接口的 ETag：先取版本再查询，版本未变时无需再查询和序列化
+     */
+    String listVersion();
+
+    /**
+     * 在调用时刻的快照上按条件逐条遍历，按修改时间倒序，不在内存中组装结果。
+     * 由 writer 在方法返回前写完，并发许可和熔断统计覆盖整个写出过程
+     */
+    void exportTransactions(TransactionFilter filter, String accountNumber, Consumer<Iterator<Transaction>> writer);
+
+    TransactionStats getStats(List<String> groupBy, String accountNumber, boolean verify);
+
+    Transaction getTransaction(UUID id);
+
+    /**
+     * 整体替换，创建时间保持不变
+     *
+     * @param expectedVersion 期望的当前版本号（If-Match），为 null 时不校验，期间被其他请求修改则基于最新版本重试
+     */
+    Transaction updateTransaction(UUID id, Transaction transaction, Long expectedVersion);
+
+    /**
+     * 部分更新，只修改 patch 中传入的字段
+     *
+     * @param expectedVersion 同 updateTransaction
+     */
+    Transaction patchTransaction(UUID id, TransactionPatch patch, Long expectedVersion);
+
+    /**
+     * @param expectedVersion 期望的当前版本号（If-Match），为 null 时不校验
+     */
+    Boolean deleteTransaction(UUID id, Long expectedVersion);
+
+    List<BatchItemResult> createTransactions(List<Transaction> transactions);
+
+    /**
+     * 批量导入历史数据，与批量新增相同，只是不按账号和调用方限流：
+     * 同一账号的历史记录可能远多于限流的桶容量，整体写入速度仍受整体限流和并发限制
+     */
+    List<BatchItemResult> importTransactions(List<Transaction> transactions);
+
+    List<BatchItemResult> updateTransactions(List<Transaction> transactions);
+
+    List<BatchItemResult> deleteTransactions(List<UUID> ids);
 }
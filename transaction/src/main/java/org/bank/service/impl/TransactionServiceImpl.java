@@ -1,112 +1,655 @@
 package org.bank.service.impl;
 
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.github.resilience4j.ratelimiter.RequestNotPermitted;
 import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
 import lombok.extern.slf4j.Slf4j;
+import org.bank.common.config.BankProperties;
 import org.bank.common.enums.CodeEnum;
 import org.bank.common.enums.TransactionChannel;
 import org.bank.common.enums.TransactionStatus;
 import org.bank.common.enums.TransactionType;
 import org.bank.common.enums.Currency;
 import org.bank.common.exception.TransactionException;
+import org.bank.common.metrics.TransactionMetrics;
+import org.bank.degrade.DeferredWrites;
+import org.bank.feed.ChangeFeed;
+import org.bank.limit.KeyedRateLimiter;
+import org.bank.limit.Limited;
+import org.bank.limit.Priority;
+import org.bank.model.BatchItemResult;
 import org.bank.model.Transaction;
+import org.bank.model.TransactionFilter;
+import org.bank.model.StatsRow;
+import org.bank.model.TransactionPage;
+import org.bank.model.TransactionPatch;
+import org.bank.model.TransactionStats;
 import org.bank.service.TransactionService;
+import org.bank.store.TransactionKey;
+import org.bank.store.TransactionStore;
+import org.bank.store.TransactionView;
+import org.bank.store.filter.FilterIndex;
+import org.bank.store.stats.Aggregates;
+import org.bank.store.stats.Dimension;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.DateTimeException;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Service
 public class TransactionServiceImpl implements TransactionService {
 
-    private final Map<UUID, Transaction> transactionMap = new ConcurrentHashMap<>();
+    @Autowired
+    private TransactionStore transactionStore;
 
-    // 缓存排序列表
-    private volatile List<Transaction> cachedSortedList = null;
+    @Autowired
+    private RateLimiterRegistry rateLimiterRegistry;
 
+    @Autowired
+    private BankProperties bankProperties;
+
+    @Autowired
+    private TransactionMetrics transactionMetrics;
+
+    @Autowired
+    private ChangeFeed changeFeed;
+
+    @Autowired
+    private KeyedRateLimiter keyedRateLimiter;
+
+    @Autowired
+    private DeferredWrites deferredWrites;
+
+    private static final int VERIFY_ATTEMPTS = 3;
+
+    // 4 位小数下 long 可表示的范围内留出累加余量
+    private static final BigDecimal MAX_AMOUNT = new BigDecimal("100000000000");
+
+    // 同一时间戳下排在最后的 id，用于定位时间上界
+    private static final UUID MAX_ID = new UUID(Long.MAX_VALUE, Long.MAX_VALUE);
+
+    // 列表版本的前缀，写入计数在重启后从 0 开始，加上前缀区分不同进程
+    private final String instanceTag = Long.toString(new Random().nextLong() >>> 1, 36);
+
+    @Limited(Priority.WRITE)
     @RateLimiter(name = "transactionService")
     @CircuitBreaker(name = "transactionService", fallbackMethod = "fallback")
     @Override
     public Transaction createTransaction(Transaction transaction) {
+        long start = transactionMetrics.start();
+        try {
+            validateTransaction(transaction);
+            keyedRateLimiter.check(transaction);
+            fillDefaults(transaction);
+            // 新增不覆盖已存在的 id，修改需走带版本校验的 PUT/PATCH
+            if (transactionStore.put(transaction, TransactionStore.ABSENT_VERSION) != null) {
+                throw new TransactionException(CodeEnum.VERSION_CONFLICT, "交易已存在: " + transaction.getId());
+            }
+            changeFeed.publish(null, transaction);
+            log.debug("Created txn: id={}, amount={}", transaction.getId(), transaction.getAmount());
+            return transaction;
+        } finally {
+            transactionMetrics.record(TransactionMetrics.Operation.CREATE, start);
+        }
+    }
 
-        validateTransaction(transaction);
+    @Limited(Priority.READ)
+    @RateLimiter(name = "transactionService")
+    @CircuitBreaker(name = "transactionService", fallbackMethod = "fallback")
+    @Override
+    public TransactionPage getTransactions(int page, int size) {
+        log.debug("Fetch transactions page={}, size={}", page, size);
+        long start = transactionMetrics.start();
+        try {
+            // 同一个快照上取总数和分页数据，保证两者一致
+            return pageAt(transactionStore.snapshot(), page, size);
+        } finally {
+            transactionMetrics.record(TransactionMetrics.Operation.GET, start);
+        }
+    }
 
-        if (transaction.getId() == null) {
-            transaction.setId(UUID.randomUUID());
+    @Limited(Priority.READ)
+    @RateLimiter(name = "transactionService")
+    @CircuitBreaker(name = "transactionService", fallbackMethod = "fallback")
+    @Override
+    public TransactionPage getTransactionsAfter(String cursor, int size) {
+        log.debug("Fetch transactions after cursor={}, size={}", cursor, size);
+        long start = transactionMetrics.start();
+        try {
+            return pageAfter(transactionStore.snapshot(), cursor, size);
+        } finally {
+            transactionMetrics.record(TransactionMetrics.Operation.GET, start);
         }
-        if (transaction.getCreatedAt() == null) {
-            transaction.setCreatedAt(java.time.LocalDateTime.now());
+    }
+
+    @Limited(Priority.READ)
+    @RateLimiter(name = "transactionService")
+    @CircuitBreaker(name = "transactionService", fallbackMethod = "lookupFallback")
+    @Override
+    public TransactionPage getTransactionsByAccount(String accountNumber, int page, int size, String cursor) {
+        log.debug("Fetch transactions by account={}, page={}, size={}, cursor={}", accountNumber, page, size, cursor);
+        long start = transactionMetrics.start();
+        try {
+            return lookup(transactionStore.snapshotByAccount(accountNumber), page, size, cursor);
+        } finally {
+            transactionMetrics.record(TransactionMetrics.Operation.GET, start);
         }
-        if (transaction.getUpdatedAt() == null) {
-            transaction.setUpdatedAt(java.time.LocalDateTime.now());
+    }
+
+    @Limited(Priority.READ)
+    @RateLimiter(name = "transactionService")
+    @CircuitBreaker(name = "transactionService", fallbackMethod = "lookupFallback")
+    @Override
+    public TransactionPage getTransactionsByUser(String userName, int page, int size, String cursor) {
+        log.debug("Fetch transactions by user={}, page={}, size={}, cursor={}", userName, page, size, cursor);
+        long start = transactionMetrics.start();
+        try {
+            return lookup(transactionStore.snapshotByUser(userName), page, size, cursor);
+        } finally {
+            transactionMetrics.record(TransactionMetrics.Operation.GET, start);
         }
-        transactionMap.put(transaction.getId(), transaction);
-        cachedSortedList = null; // 写操作后清空缓存
-        log.debug("Created txn: id={}, amount={}", transaction.getId(), transaction.getAmount());
-        return transaction;
     }
 
+    @Limited(Priority.READ)
     @RateLimiter(name = "transactionService")
-    @CircuitBreaker(name = "transactionService", fallbackMethod = "fallback")
+    @CircuitBreaker(name = "transactionService", fallbackMethod = "searchFallback")
     @Override
-    public List<Transaction> getTransactions(int page, int size) {
-        log.debug("Fetch transactions page={}, size={}", page, size);
+    public TransactionPage searchTransactions(TransactionFilter filter, int page, int size, String cursor) {
+        log.debug("Search transactions filter={}, page={}, size={}, cursor={}", filter, page, size, cursor);
+        if (page <= 0 || size <= 0) {
+            throw new TransactionException(CodeEnum.ILLEGAL_PARA, "分页参数错误");
+        }
+        if (isAfter(filter.getCreatedFrom(), filter.getCreatedTo()) || isAfter(filter.getUpdatedFrom(), filter.getUpdatedTo())) {
+            throw new TransactionException(CodeEnum.ILLEGAL_PARA, "开始时间不能晚于结束时间");
+        }
+        TransactionKey after = cursor == null || cursor.isBlank() ? null : parseCursor(cursor);
+        long skip = (long) (page - 1) * size;
+        if (skip > Integer.MAX_VALUE) {
+            return new TransactionPage(List.of(), 0, false, null);
+        }
+        FilterIndex.Result result = transactionStore.query(filter, after, (int) skip, size);
+        List<Transaction> items = result.items();
+        String nextCursor = result.hasNext() ? TransactionKey.of(items.get(items.size() - 1)).toCursor() : null;
+        return new TransactionPage(items, result.total(), result.hasNext(), nextCursor);
+    }
+
+    /**
+     * 只读取写入计数，不经过限流和熔断，轮询请求在版本未变时几乎没有开销
+     */
+    @Override
+    public String listVersion() {
+        return instanceTag + "-" + transactionStore.changeCount();
+    }
+
+    @Limited(Priority.READ)
+    @RateLimiter(name = "transactionService")
+    @CircuitBreaker(name = "transactionService", fallbackMethod = "exportFallback")
+    @Override
+    public void exportTransactions(TransactionFilter filter, String accountNumber, Consumer<Iterator<Transaction>> writer) {
+        log.debug("Export transactions filter={}, account={}", filter, accountNumber);
+        if (isAfter(filter.getCreatedFrom(), filter.getCreatedTo()) || isAfter(filter.getUpdatedFrom(), filter.getUpdatedTo())) {
+            throw new TransactionException(CodeEnum.ILLEGAL_PARA, "开始时间不能晚于结束时间");
+        }
+        TransactionView snapshot = accountNumber == null
+                ? transactionStore.snapshot() : transactionStore.snapshotByAccount(accountNumber);
+        // 视图按修改时间倒序：有上界时直接定位，越过下界后停止
+        Iterator<Transaction> it = filter.getUpdatedTo() == null
+                ? snapshot.iterator()
+                : snapshot.iteratorAfter(new TransactionKey(filter.getUpdatedTo().plusNanos(1), MAX_ID));
+        LocalDateTime updatedFrom = filter.getUpdatedFrom();
+        writer.accept(new Iterator<>() {
+            private Transaction next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Transaction next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Transaction current = next;
+                next = advance();
+                return current;
+            }
+
+            private Transaction advance() {
+                while (it.hasNext()) {
+                    Transaction t = it.next();
+                    if (updatedFrom != null && t.getUpdatedAt().isBefore(updatedFrom)) {
+                        return null;
+                    }
+                    if (filter.matches(t)) {
+                        return t;
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
+    @Limited(Priority.READ)
+    @RateLimiter(name = "transactionService")
+    @CircuitBreaker(name = "transactionService", fallbackMethod = "statsFallback")
+    @Override
+    public TransactionStats getStats(List<String> groupBy, String accountNumber, boolean verify) {
+        log.debug("Fetch stats groupBy={}, account={}, verify={}", groupBy, accountNumber, verify);
+        Set<Dimension> dimensions = EnumSet.noneOf(Dimension.class);
+        if (groupBy != null) {
+            for (String param : groupBy) {
+                dimensions.add(Dimension.fromParam(param.trim())
+                        .orElseThrow(() -> new TransactionException(CodeEnum.ILLEGAL_PARA, "不支持的分组字段: " + param)));
+            }
+        }
+        try {
+            List<StatsRow> groups = transactionStore.stats(dimensions, accountNumber);
+            if (!verify) {
+                return new TransactionStats(groups, null);
+            }
+            // 并发写入时两次读取之间可能有变化，重试几次取得同一时刻的结果
+            for (int attempt = 0; attempt < VERIFY_ATTEMPTS; attempt++) {
+                List<StatsRow> recomputed = transactionStore.recomputeStats(dimensions, accountNumber);
+                if (recomputed.equals(groups)) {
+                    return new TransactionStats(groups, true);
+                }
+                groups = transactionStore.stats(dimensions, accountNumber);
+            }
+            log.warn("Stats verification mismatch: groupBy={}, account={}", dimensions, accountNumber);
+            return new TransactionStats(groups, false);
+        } catch (IllegalArgumentException e) {
+            throw new TransactionException(CodeEnum.ILLEGAL_PARA, e.getMessage());
+        }
+    }
+
+    private static boolean isAfter(LocalDateTime from, LocalDateTime to) {
+        return from != null && to != null && from.isAfter(to);
+    }
+
+    private TransactionPage lookup(TransactionView snapshot, int page, int size, String cursor) {
+        return cursor == null || cursor.isBlank() ? pageAt(snapshot, page, size) : pageAfter(snapshot, cursor, size);
+    }
+
+    private TransactionPage pageAt(TransactionView snapshot, int page, int size) {
         if(page <= 0 || size <= 0){
             throw new TransactionException(CodeEnum.ILLEGAL_PARA,"分页参数错误");
         }
-        int skip = Math.max((page - 1) * size, 0);
+        long skip = (long) (page - 1) * size;
+        if (skip >= snapshot.size()) {
+            return new TransactionPage(List.of(), snapshot.size(), false, null);
+        }
+        return toPage(snapshot.iterator((int) skip), size, snapshot.size());
+    }
 
-        // 缓存排序结果避免每次都排序
-        List<Transaction> sortedList = cachedSortedList;
-        if (sortedList == null) {
-            synchronized (this) {
-                if (cachedSortedList == null) {
-                    cachedSortedList = transactionMap.values().stream()
-                            .sorted(Comparator.comparing(Transaction::getUpdatedAt).reversed())
-                            .collect(Collectors.toList());
-                }
-                sortedList = cachedSortedList;
+    private TransactionPage pageAfter(TransactionView snapshot, String cursor, int size) {
+        if (size <= 0) {
+            throw new TransactionException(CodeEnum.ILLEGAL_PARA, "分页参数错误");
+        }
+        TransactionKey after = parseCursor(cursor);
+        // 直接定位到游标位置，深翻页与首页代价相同，且不受期间写入造成的偏移影响
+        return toPage(snapshot.iteratorAfter(after), size, snapshot.size());
+    }
+
+    private static TransactionKey parseCursor(String cursor) {
+        try {
+            return TransactionKey.fromCursor(cursor);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new TransactionException(CodeEnum.ILLEGAL_PARA, "游标格式错误");
+        }
+    }
+
+    private TransactionPage toPage(Iterator<Transaction> it, int size, int total) {
+        List<Transaction> items = new ArrayList<>(Math.min(size, 64));
+        while (items.size() < size && it.hasNext()) {
+            items.add(it.next());
+        }
+        boolean hasNext = it.hasNext();
+        String nextCursor = hasNext ? TransactionKey.of(items.get(items.size() - 1)).toCursor() : null;
+        return new TransactionPage(items, total, hasNext, nextCursor);
+    }
+
+    @Limited(Priority.READ)
+    @RateLimiter(name = "transactionService")
+    @CircuitBreaker(name = "transactionService", fallbackMethod = "fallback")
+    @Override
+    public Transaction getTransaction(UUID id) {
+        long start = transactionMetrics.start();
+        try {
+            Transaction transaction = transactionStore.get(id);
+            if (transaction == null) {
+                throw new TransactionException(CodeEnum.TRANSACTION_NOT_EXIST);
             }
+            return transaction;
+        } finally {
+            transactionMetrics.record(TransactionMetrics.Operation.GET, start);
         }
+    }
 
-        return sortedList.stream()
-                .skip(skip)
-                .limit(size)
-                .toList();
+    @Limited(Priority.WRITE)
+    @RateLimiter(name = "transactionService")
+    @CircuitBreaker(name = "transactionService", fallbackMethod = "fallback")
+    @Override
+    public Transaction updateTransaction(UUID id, Transaction transaction, Long expectedVersion) {
+        long start = transactionMetrics.start();
+        try {
+            validateTransaction(transaction);
+            keyedRateLimiter.check(transaction);
+            Transaction updated = compareAndReplace(id, expectedVersion, current -> {
+                transaction.setId(id);
+                transaction.setCreatedAt(current.getCreatedAt());
+                return transaction;
+            });
+            log.debug("Updated txn: id={}, amount={}, version={}", id, updated.getAmount(), updated.getVersion());
+            return updated;
+        } finally {
+            transactionMetrics.record(TransactionMetrics.Operation.UPDATE, start);
+        }
     }
 
+    @Limited(Priority.WRITE)
     @RateLimiter(name = "transactionService")
     @CircuitBreaker(name = "transactionService", fallbackMethod = "fallback")
     @Override
-    public Transaction updateTransaction(UUID id, Transaction transaction) {
-        validateTransaction(transaction);
-        Transaction old = transactionMap.get(id);
-        if (old == null) {
-            throw new TransactionException(CodeEnum.TRANSACTION_NOT_EXIST);
+    public Transaction patchTransaction(UUID id, TransactionPatch patch, Long expectedVersion) {
+        long start = transactionMetrics.start();
+        try {
+            if (patch == null || patch.isEmpty()) {
+                throw new TransactionException(CodeEnum.ILLEGAL_PARA, "没有要修改的字段");
+            }
+            // 限流在比较并覆盖的重试之前检查一次，重试不重复消耗令牌
+            Transaction existing = transactionStore.get(id);
+            if (existing == null) {
+                throw new TransactionException(CodeEnum.TRANSACTION_NOT_EXIST);
+            }
+            Transaction candidate = patch.applyTo(existing);
+            validateTransaction(candidate);
+            keyedRateLimiter.check(candidate);
+            Transaction updated = compareAndReplace(id, expectedVersion, current -> {
+                Transaction next = patch.applyTo(current);
+                validateTransaction(next);
+                return next;
+            });
+            log.debug("Patched txn: id={}, version={}", id, updated.getVersion());
+            return updated;
+        } finally {
+            transactionMetrics.record(TransactionMetrics.Operation.UPDATE, start);
+        }
+    }
+
+    /**
+     * 乐观并发控制：读出当前值，由 change 生成新值后按读到的版本比较并覆盖，不在读和写之间持锁。
+     * 期间被其他请求修改时，指定了 expectedVersion 则按版本冲突返回，否则基于最新值重试。
+     */
+    private Transaction compareAndReplace(UUID id, Long expectedVersion, UnaryOperator<Transaction> change) {
+        for (;;) {
+            Transaction current = transactionStore.get(id);
+            if (current == null) {
+                throw new TransactionException(CodeEnum.TRANSACTION_NOT_EXIST);
+            }
+            if (expectedVersion != null && current.getVersion() != expectedVersion) {
+                throw new TransactionException(CodeEnum.VERSION_CONFLICT);
+            }
+            Transaction next = change.apply(current);
+            next.setUpdatedAt(LocalDateTime.now());
+            Transaction previous = transactionStore.replace(next, current.getVersion());
+            if (previous == null) {
+                throw new TransactionException(CodeEnum.TRANSACTION_NOT_EXIST);
+            }
+            if (previous.getVersion() == current.getVersion()) {
+                changeFeed.publish(previous, next);
+                return next;
+            }
+            if (expectedVersion != null) {
+                throw new TransactionException(CodeEnum.VERSION_CONFLICT);
+            }
         }
-        transaction.setId(id);
-        transaction.setUpdatedAt(java.time.LocalDateTime.now());
-        transactionMap.put(id, transaction);
-        cachedSortedList = null; // 修改也清除缓存
-        log.debug("Updated txn: id={}, amount={}", id, transaction.getAmount());
-        return transaction;
     }
 
+    @Limited(Priority.WRITE)
     @RateLimiter(name = "transactionService")
     @CircuitBreaker(name = "transactionService", fallbackMethod = "fallback")
     @Override
-    public Boolean deleteTransaction(UUID id) {
-        Transaction removed = transactionMap.remove(id);
-        if (removed == null) {
-            throw new TransactionException(CodeEnum.TRANSACTION_NOT_EXIST);
+    public Boolean deleteTransaction(UUID id, Long expectedVersion) {
+        long start = transactionMetrics.start();
+        try {
+            Transaction previous = expectedVersion == null
+                    ? transactionStore.remove(id) : transactionStore.remove(id, expectedVersion);
+            if (previous == null) {
+                throw new TransactionException(CodeEnum.TRANSACTION_NOT_EXIST);
+            }
+            if (expectedVersion != null && previous.getVersion() != expectedVersion) {
+                throw new TransactionException(CodeEnum.VERSION_CONFLICT);
+            }
+            changeFeed.publish(previous, null);
+            log.debug("Deleted txn: id={}", id);
+            return true;
+        } finally {
+            transactionMetrics.record(TransactionMetrics.Operation.DELETE, start);
         }
-        cachedSortedList = null; // 删除也清除缓存
-        log.debug("Deleted txn: id={}", id);
-        return true;
+    }
+
+    @Limited(Priority.WRITE)
+    @CircuitBreaker(name = "transactionService", fallbackMethod = "batchFallback")
+    @Override
+    public List<BatchItemResult> createTransactions(List<Transaction> transactions) {
+        return createAll(transactions, true);
+    }
+
+    @Limited(Priority.WRITE)
+    @CircuitBreaker(name = "transactionService", fallbackMethod = "batchFallback")
+    @Override
+    public List<BatchItemResult> importTransactions(List<Transaction> transactions) {
+        return createAll(transactions, false);
+    }
+
+    private List<BatchItemResult> createAll(List<Transaction> transactions, boolean keyedLimit) {
+        acquireBatchPermits(transactions);
+        BatchItemResult[] results = validateAll(transactions, keyedLimit);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Transaction> accepted = new ArrayList<>(Collections.nCopies(transactions.size(), null));
+        for (int i = 0; i < transactions.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            Transaction transaction = transactions.get(i);
+            if (transaction.getId() == null) {
+                transaction.setId(UUID.randomUUID());
+            }
+            if (transaction.getCreatedAt() == null) {
+                transaction.setCreatedAt(now);
+            }
+            if (transaction.getUpdatedAt() == null) {
+                transaction.setUpdatedAt(now);
+            }
+            transaction.setVersion(0);
+            accepted.set(i, transaction);
+        }
+        // 与单条新增相同，已存在的 id 不覆盖，按条返回冲突
+        Transaction[] existing = transactionStore.putAll(accepted, TransactionStore.ABSENT_VERSION);
+        Transaction[] created = new Transaction[accepted.size()];
+        for (int i = 0; i < accepted.size(); i++) {
+            Transaction transaction = accepted.get(i);
+            if (transaction == null) {
+                continue;
+            }
+            if (existing[i] != null) {
+                results[i] = BatchItemResult.failure(i, transaction.getId(), CodeEnum.VERSION_CONFLICT);
+            } else {
+                results[i] = BatchItemResult.success(i, transaction.getId());
+                created[i] = transaction;
+            }
+        }
+        changeFeed.publishAll(new Transaction[accepted.size()], created);
+        log.debug("Created txn batch: size={}", transactions.size());
+        return Arrays.asList(results);
+    }
+
+    @Limited(Priority.WRITE)
+    @CircuitBreaker(name = "transactionService", fallbackMethod = "batchFallback")
+    @Override
+    public List<BatchItemResult> updateTransactions(List<Transaction> transactions) {
+        acquireBatchPermits(transactions);
+        BatchItemResult[] results = validateAll(transactions, true);
+
+        // 请求中大于 0 的版本号为期望版本，写入时会被存储改写，先取出
+        long[] requested = new long[transactions.size()];
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < transactions.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            Transaction transaction = transactions.get(i);
+            if (transaction.getId() == null) {
+                results[i] = BatchItemResult.failure(i, null, CodeEnum.TRANSACTION_NOT_EXIST);
+                continue;
+            }
+            requested[i] = transaction.getVersion();
+            pending.add(i);
+        }
+
+        // 与单条修改相同的乐观并发控制：按读到的版本比较并覆盖，创建时间取读到的值。
+        // 带期望版本的条目版本不一致时返回冲突，其余条目被并发修改时基于最新值重试
+        Transaction[] previous = new Transaction[transactions.size()];
+        Transaction[] replaced = new Transaction[transactions.size()];
+        LocalDateTime now = LocalDateTime.now();
+        while (!pending.isEmpty()) {
+            List<Transaction> round = new ArrayList<>(Collections.nCopies(transactions.size(), null));
+            long[] expected = new long[transactions.size()];
+            for (int i : pending) {
+                Transaction transaction = transactions.get(i);
+                Transaction current = transactionStore.get(transaction.getId());
+                if (current == null) {
+                    results[i] = BatchItemResult.failure(i, transaction.getId(), CodeEnum.TRANSACTION_NOT_EXIST);
+                } else if (requested[i] > 0 && current.getVersion() != requested[i]) {
+                    results[i] = BatchItemResult.failure(i, transaction.getId(), CodeEnum.VERSION_CONFLICT);
+                } else {
+                    transaction.setCreatedAt(current.getCreatedAt());
+                    transaction.setUpdatedAt(now);
+                    round.set(i, transaction);
+                    expected[i] = current.getVersion();
+                }
+            }
+            Transaction[] written = transactionStore.replaceAll(round, expected);
+            List<Integer> retry = new ArrayList<>();
+            for (int i : pending) {
+                Transaction transaction = round.get(i);
+                if (transaction == null) {
+                    continue;
+                }
+                if (written[i] == null) {
+                    results[i] = BatchItemResult.failure(i, transaction.getId(), CodeEnum.TRANSACTION_NOT_EXIST);
+                } else if (written[i].getVersion() == expected[i]) {
+                    results[i] = BatchItemResult.success(i, transaction.getId());
+                    previous[i] = written[i];
+                    replaced[i] = transaction;
+                } else if (requested[i] > 0) {
+                    results[i] = BatchItemResult.failure(i, transaction.getId(), CodeEnum.VERSION_CONFLICT);
+                } else {
+                    retry.add(i);
+                }
+            }
+            pending = retry;
+        }
+        // 未写入的条目不发布事件
+        changeFeed.publishAll(previous, replaced);
+        log.debug("Updated txn batch: size={}", transactions.size());
+        return Arrays.asList(results);
+    }
+
+    @Limited(Priority.WRITE)
+    @CircuitBreaker(name = "transactionService", fallbackMethod = "batchFallback")
+    @Override
+    public List<BatchItemResult> deleteTransactions(List<UUID> ids) {
+        acquireBatchPermits(ids);
+
+        Transaction[] previous = transactionStore.removeAll(ids);
+        changeFeed.publishAll(previous, new Transaction[previous.length]);
+        BatchItemResult[] results = new BatchItemResult[ids.size()];
+        for (int i = 0; i < ids.size(); i++) {
+            results[i] = previous[i] == null
+                    ? BatchItemResult.failure(i, ids.get(i), CodeEnum.TRANSACTION_NOT_EXIST)
+                    : BatchItemResult.success(i, ids.get(i));
+        }
+        log.debug("Deleted txn batch: size={}", ids.size());
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 按批次大小一次性申请限流许可，每 itemsPerPermit 条消耗一个
+     */
+    private void acquireBatchPermits(List<?> items) {
+        if (items == null || items.isEmpty()) {
+            throw new TransactionException(CodeEnum.ILLEGAL_PARA, "批量数据不能为空");
+        }
+        BankProperties.Batch batch = bankProperties.getBatch();
+        if (items.size() > batch.getMaxSize()) {
+            throw new TransactionException(CodeEnum.ILLEGAL_PARA, "单次批量不能超过 " + batch.getMaxSize() + " 条");
+        }
+        int permits = (items.size() + batch.getItemsPerPermit() - 1) / batch.getItemsPerPermit();
+        io.github.resilience4j.ratelimiter.RateLimiter rateLimiter = rateLimiterRegistry.rateLimiter("transactionService");
+        if (!rateLimiter.acquirePermission(permits)) {
+            throw RequestNotPermitted.createRequestNotPermitted(rateLimiter);
+        }
+    }
+
+    /**
+     * 逐条校验并按账号和调用方限流，返回数组中失败的位置填入失败结果，通过的位置为 null；批量较大时并行校验。
+     * 限流在调用线程上按顺序检查：调用方取自当前请求，并行线程中取不到
+     */
+    /**
+     * @param keyedLimit 是否逐条按账号和调用方限流
+     */
+    private BatchItemResult[] validateAll(List<Transaction> transactions, boolean keyedLimit) {
+        BatchItemResult[] results = new BatchItemResult[transactions.size()];
+        IntStream indexes = IntStream.range(0, transactions.size());
+        if (transactions.size() >= bankProperties.getBatch().getParallelThreshold()) {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(i -> {
+            Transaction transaction = transactions.get(i);
+            try {
+                validateTransaction(transaction);
+            } catch (TransactionException e) {
+                results[i] = BatchItemResult.failure(i, transaction == null ? null : transaction.getId(), e);
+            }
+        });
+        for (int i = 0; keyedLimit && i < results.length; i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            Transaction transaction = transactions.get(i);
+            try {
+                keyedRateLimiter.check(transaction);
+            } catch (TransactionException e) {
+                results[i] = BatchItemResult.failure(i, transaction.getId(), e);
+            }
+        }
+        return results;
+    }
+
+    private static void fillDefaults(Transaction transaction) {
+        if (transaction.getId() == null) {
+            transaction.setId(UUID.randomUUID());
+        }
+        if (transaction.getCreatedAt() == null) {
+            transaction.setCreatedAt(java.time.LocalDateTime.now());
+        }
+        if (transaction.getUpdatedAt() == null) {
+            transaction.setUpdatedAt(java.time.LocalDateTime.now());
+        }
+        // 版本号由存储分配，请求中的值不生效
+        transaction.setVersion(0);
     }
 
     private void validateTransaction(Transaction transaction) {
@@ -116,6 +659,13 @@ public class TransactionServiceImpl implements TransactionService {
         if (transaction.getAmount() == null || transaction.getAmount().compareTo(BigDecimal.valueOf(0.01)) < 0) {
             throw new TransactionException(CodeEnum.ILLEGAL_PARA,"交易金额必须大于或等于 0.01");
         }
+        // 统计按 4 位小数的 long 累加，金额需能无损换算
+        if (transaction.getAmount().stripTrailingZeros().scale() > Aggregates.SCALE) {
+            throw new TransactionException(CodeEnum.ILLEGAL_PARA, "交易金额最多 " + Aggregates.SCALE + " 位小数");
+        }
+        if (transaction.getAmount().compareTo(MAX_AMOUNT) > 0) {
+            throw new TransactionException(CodeEnum.ILLEGAL_PARA, "交易金额超出上限");
+        }
         if (transaction.getUserName() == null || transaction.getUserName().trim().isEmpty()) {
             throw new TransactionException(CodeEnum.ILLEGAL_PARA,"用户名不能为空");
         }
@@ -167,11 +717,21 @@ public class TransactionServiceImpl implements TransactionService {
             // 业务异常，直接向上传递，不执行降级逻辑
             throw (TransactionException) t;
         }
+        if (t instanceof CallNotPermittedException && deferredWrites.enabled()) {
+            // 熔断打开时先完成校验和限流，排队的交易恢复后直接写入
+            validateTransaction(transaction);
+            keyedRateLimiter.check(transaction);
+            fillDefaults(transaction);
+            if (deferredWrites.offer(transaction)) {
+                log.info("create queued while circuit open: id={}", transaction.getId());
+                throw new TransactionException(CodeEnum.WRITE_QUEUED, CodeEnum.WRITE_QUEUED.getMessage(), transaction);
+            }
+        }
         log.warn("create fallback triggered: {}", t.toString());
         throw new TransactionException(CodeEnum.SERVICE_DEGRADED);
     }
 
-    public Transaction fallback(UUID id, Transaction transaction, Throwable t) {
+    public Transaction fallback(UUID id, Transaction transaction, Long expectedVersion, Throwable t) {
         if (t instanceof TransactionException) {
             // 业务异常，直接向上传递，不执行降级逻辑
             throw (TransactionException) t;
@@ -180,7 +740,25 @@ public class TransactionServiceImpl implements TransactionService {
         throw new TransactionException(CodeEnum.SERVICE_DEGRADED);
     }
 
-    public Boolean fallback(UUID id, Throwable t) {
+    public Transaction fallback(UUID id, TransactionPatch patch, Long expectedVersion, Throwable t) {
+        if (t instanceof TransactionException) {
+            // 业务异常，直接向上传递，不执行降级逻辑
+            throw (TransactionException) t;
+        }
+        log.warn("patch fallback triggered: {}", t.toString());
+        throw new TransactionException(CodeEnum.SERVICE_DEGRADED);
+    }
+
+    public Transaction fallback(UUID id, Throwable t) {
+        if (t instanceof TransactionException) {
+            // 业务异常，直接向上传递，不执行降级逻辑
+            throw (TransactionException) t;
+        }
+        log.warn("get by id fallback triggered: {}", t.toString());
+        throw new TransactionException(CodeEnum.SERVICE_DEGRADED);
+    }
+
+    public Boolean fallback(UUID id, Long expectedVersion, Throwable t) {
         if (t instanceof TransactionException) {
             // 业务异常，直接向上传递，不执行降级逻辑
             throw (TransactionException) t;
@@ -189,7 +767,7 @@ public class TransactionServiceImpl implements TransactionService {
         throw new TransactionException(CodeEnum.SERVICE_DEGRADED);
     }
 
-    public List<Transaction> fallback(int page, int size, Throwable t) {
+    public TransactionPage fallback(int page, int size, Throwable t) {
         if (t instanceof TransactionException) {
             // 业务异常，直接向上传递，不执行降级逻辑
             throw (TransactionException) t;
@@ -197,4 +775,59 @@ public class TransactionServiceImpl implements TransactionService {
         log.warn("get fallback triggered: {}", t.toString());
         throw  new TransactionException(CodeEnum.SERVICE_DEGRADED);
     }
-}
\ No newline at end of file
+
+    public List<BatchItemResult> batchFallback(List<?> items, Throwable t) {
+        if (t instanceof TransactionException) {
+            // 业务异常，直接向上传递，不执行降级逻辑
+            throw (TransactionException) t;
+        }
+        log.warn("batch fallback triggered: {}", t.toString());
+        throw new TransactionException(CodeEnum.SERVICE_DEGRADED);
+    }
+
+    public TransactionPage fallback(String cursor, int size, Throwable t) {
+        if (t instanceof TransactionException) {
+            // 业务异常，直接向上传递，不执行降级逻辑
+            throw (TransactionException) t;
+        }
+        log.warn("get after cursor fallback triggered: {}", t.toString());
+        throw new TransactionException(CodeEnum.SERVICE_DEGRADED);
+    }
+
+    public TransactionPage lookupFallback(String key, int page, int size, String cursor, Throwable t) {
+        if (t instanceof TransactionException) {
+            // 业务异常，直接向上传递，不执行降级逻辑
+            throw (TransactionException) t;
+        }
+        log.warn("lookup fallback triggered: {}", t.toString());
+        throw new TransactionException(CodeEnum.SERVICE_DEGRADED);
+    }
+
+    public TransactionPage searchFallback(TransactionFilter filter, int page, int size, String cursor, Throwable t) {
+        if (t instanceof TransactionException) {
+            // 业务异常，直接向上传递，不执行降级逻辑
+            throw (TransactionException) t;
+        }
+        log.warn("search fallback triggered: {}", t.toString());
+        throw new TransactionException(CodeEnum.SERVICE_DEGRADED);
+    }
+
+    public void exportFallback(TransactionFilter filter, String accountNumber, Consumer<Iterator<Transaction>> writer,
+                               Throwable t) {
+        if (t instanceof TransactionException) {
+            // 业务异常，直接向上传递，不执行降级逻辑
+            throw (TransactionException) t;
+        }
+        log.warn("export fallback triggered: {}", t.toString());
+        throw new TransactionException(CodeEnum.SERVICE_DEGRADED);
+    }
+
+    public TransactionStats statsFallback(List<String> groupBy, String accountNumber, boolean verify, Throwable t) {
+        if (t instanceof TransactionException) {
+            // 业务异常，直接向上传递，不执行降级逻辑
+            throw (TransactionException) t;
+        }
+        log.warn("stats fallback triggered: {}", t.toString());
+        throw new TransactionException(CodeEnum.SERVICE_DEGRADED);
+    }
+}
@@ -0,0 +1,410 @@
+package org.bank.store;
+
+import org.bank.model.Transaction;
+import org.bank.model.TransactionFilter;
+import org.bank.store.filter.FilterIndex;
+import org.bank.store.journal.JournalRecord;
+import org.bank.store.journal.TransactionJournal;
+import org.bank.store.snapshot.SnapshotManager;
+import org.bank.store.stats.Aggregates;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 堆内存储引擎：主表 + 按时间排序的有序索引 + 二级索引 + 筛选索引，索引直接引用交易对象。
+ * 同一 id 的写操作持有按 id 分段的写锁串行执行，索引和日志的顺序与主表一致；
+ * 开启日志时写操作在返回前按刷盘策略等待落盘。
+ * 写锁用 ReentrantLock 而不是 ConcurrentHashMap.compute：持锁期间追加日志可能等待刷盘，
+ * 虚拟线程在 synchronized 桶锁里等待会占住载体线程，载体线程耗尽时整个服务卡死。
+ */
+public class HeapTransactionStore extends TransactionStore {
+
+    private static final int LOCK_STRIPES = 1024;
+
+    private final Map<UUID, Transaction> transactionMap = new ConcurrentHashMap<>();
+
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    // 按 updatedAt 倒序的有序索引，写入时增量维护，替代整表排序缓存
+    private final OrderedIndex<TransactionKey, Transaction> timeIndex = new OrderedIndex<>();
+
+    // 按账号、用户名的二级索引，与主表在同一写锁内维护
+    private final SecondaryIndex accountIndex = new SecondaryIndex(Transaction::getAccountNumber);
+    private final SecondaryIndex userIndex = new SecondaryIndex(Transaction::getUserName);
+
+    // 枚举字段位图 + createdAt 有序索引，用于多条件筛选
+    private final FilterIndex filterIndex = new FilterIndex();
+
+    public HeapTransactionStore(TransactionJournal journal, SnapshotManager snapshots) {
+        this(journal, snapshots, new Aggregates());
+    }
+
+    HeapTransactionStore(TransactionJournal journal, SnapshotManager snapshots, Aggregates aggregates) {
+        super(journal, snapshots, aggregates);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public Transaction get(UUID id) {
+        return transactionMap.get(id);
+    }
+
+    @Override
+    public int size() {
+        return transactionMap.size();
+    }
+
+    @Override
+    public TransactionView snapshot() {
+        return TransactionView.of(timeIndex.snapshot());
+    }
+
+    @Override
+    public TransactionView snapshotByAccount(String accountNumber) {
+        return TransactionView.of(accountIndex.snapshot(accountNumber));
+    }
+
+    @Override
+    public TransactionView snapshotByUser(String userName) {
+        return TransactionView.of(userIndex.snapshot(userName));
+    }
+
+    OrderedIndex.Snapshot<TransactionKey, Transaction> timeSnapshot() {
+        return timeIndex.snapshot();
+    }
+
+    OrderedIndex.Snapshot<TransactionKey, Transaction> accountSnapshot(String accountNumber) {
+        return accountIndex.snapshot(accountNumber);
+    }
+
+    OrderedIndex.Snapshot<TransactionKey, Transaction> userSnapshot(String userName) {
+        return userIndex.snapshot(userName);
+    }
+
+    @Override
+    public FilterIndex.Result query(TransactionFilter filter, TransactionKey after, int skip, int size) {
+        return filterIndex.query(filter, timeIndex.snapshot(), after, skip, size);
+    }
+
+    @Override
+    public Transaction put(Transaction transaction, long expectedVersion) {
+        Write write = new Write();
+        int epoch = enterWrite();
+        try {
+            apply(transaction.getId(), transaction, false, false, expectedVersion, write);
+        } finally {
+            exitWrite(epoch);
+        }
+        journal.awaitDurable(write.seq);
+        return write.previous;
+    }
+
+    @Override
+    public Transaction replace(Transaction transaction, long expectedVersion) {
+        Write write = new Write();
+        int epoch = enterWrite();
+        try {
+            apply(transaction.getId(), transaction, true, false, expectedVersion, write);
+        } finally {
+            exitWrite(epoch);
+        }
+        journal.awaitDurable(write.seq);
+        return write.previous;
+    }
+
+    @Override
+    public Transaction remove(UUID id, long expectedVersion) {
+        Write write = new Write();
+        int epoch = enterWrite();
+        try {
+            apply(id, null, true, false, expectedVersion, write);
+        } finally {
+            exitWrite(epoch);
+        }
+        journal.awaitDurable(write.seq);
+        return write.previous;
+    }
+
+    @Override
+    public Transaction[] putAll(List<Transaction> transactions, long expectedVersion) {
+        Transaction[] result = new Transaction[transactions.size()];
+        Transaction[] previous = new Transaction[transactions.size()];
+        Transaction[] current = new Transaction[transactions.size()];
+        long lastSeq = 0;
+        int epoch = enterWrite();
+        try {
+            for (int i = 0; i < transactions.size(); i++) {
+                Transaction transaction = transactions.get(i);
+                if (transaction == null) {
+                    continue;
+                }
+                Write write = new Write();
+                apply(transaction.getId(), transaction, false, true, expectedVersion, write);
+                result[i] = write.previous;
+                if (write.applied) {
+                    previous[i] = write.previous;
+                    current[i] = transaction;
+                }
+                lastSeq = Math.max(lastSeq, write.seq);
+            }
+        } finally {
+            // 中途追加日志失败时，之前已生效的写入仍要更新索引
+            reindexAll(previous, current);
+            exitWrite(epoch);
+        }
+        journal.awaitDurable(lastSeq);
+        return result;
+    }
+
+    @Override
+    public Transaction[] replaceAll(List<Transaction> transactions, long[] expectedVersions) {
+        Transaction[] result = new Transaction[transactions.size()];
+        Transaction[] previous = new Transaction[transactions.size()];
+        Transaction[] current = new Transaction[transactions.size()];
+        long lastSeq = 0;
+        int epoch = enterWrite();
+        try {
+            for (int i = 0; i < transactions.size(); i++) {
+                Transaction transaction = transactions.get(i);
+                if (transaction == null) {
+                    continue;
+                }
+                Write write = new Write();
+                apply(transaction.getId(), transaction, true, true,
+                        expectedVersions == null ? ANY_VERSION : expectedVersions[i], write);
+                result[i] = write.previous;
+                if (write.applied) {
+                    previous[i] = write.previous;
+                    current[i] = transaction;
+                    lastSeq = Math.max(lastSeq, write.seq);
+                }
+            }
+        } finally {
+            // 中途追加日志失败时，之前已生效的写入仍要更新索引
+            reindexAll(previous, current);
+            exitWrite(epoch);
+        }
+        journal.awaitDurable(lastSeq);
+        return result;
+    }
+
+    @Override
+    public Transaction[] removeAll(List<UUID> ids) {
+        Transaction[] previous = new Transaction[ids.size()];
+        long lastSeq = 0;
+        int epoch = enterWrite();
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                UUID id = ids.get(i);
+                if (id == null) {
+                    continue;
+                }
+                Write write = new Write();
+                apply(id, null, true, true, ANY_VERSION, write);
+                previous[i] = write.previous;
+                lastSeq = Math.max(lastSeq, write.seq);
+            }
+        } finally {
+            // 中途追加日志失败时，之前已生效的写入仍要更新索引
+            reindexAll(previous, new Transaction[ids.size()]);
+            exitWrite(epoch);
+        }
+        journal.awaitDurable(lastSeq);
+        return previous;
+    }
+
+    /**
+     * 持有该 id 的写锁，追加日志后更新主表和索引。current 为空表示删除；onlyIfPresent 时 id 不存在则什么都不做；
+     * 当前版本与 expectedVersion 不一致时只返回当前值。批量写入时有序索引和二级索引由 reindexAll 统一更新
+     */
+    private void apply(UUID id, Transaction current, boolean onlyIfPresent, boolean batch, long expectedVersion,
+                       Write write) {
+        ReentrantLock lock = lock(id);
+        try {
+            Transaction old = transactionMap.get(id);
+            if (old == null && onlyIfPresent) {
+                return;
+            }
+            if (!versionMatches(old, expectedVersion)) {
+                write.previous = old;
+                return;
+            }
+            assignVersion(old, current);
+            // 先追加日志，追加失败时内存中的主表、索引和统计都未改动
+            write.seq = current == null ? journal.appendDelete(id) : journal.appendPut(current);
+            write.previous = old;
+            write.applied = true;
+            if (current == null) {
+                transactionMap.remove(id);
+            } else {
+                transactionMap.put(id, current);
+            }
+            if (!batch) {
+                reindex(old, current);
+            }
+            filterIndex.update(old, current);
+            aggregates.update(old, current);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 分层存储把冷段中的行调回堆内：id 不在主表时放入主表和索引，不写日志、不改统计
+     *
+     * @return 是否放入
+     */
+    boolean adopt(Transaction row) {
+        ReentrantLock lock = lock(row.getId());
+        try {
+            if (transactionMap.putIfAbsent(row.getId(), row) != null) {
+                return false;
+            }
+            reindex(null, row);
+            filterIndex.update(null, row);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 分层存储把已写入冷段的行移出堆内：主表中仍是同一对象时才移除，不写日志、不改统计；有序索引整批更新一次
+     *
+     * @return 与 rows 一一对应，是否已移除
+     */
+    boolean[] evictAll(List<Transaction> rows) {
+        boolean[] evicted = new boolean[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            Transaction row = rows.get(i);
+            ReentrantLock lock = lock(row.getId());
+            try {
+                if (transactionMap.get(row.getId()) == row) {
+                    accountIndex.update(row, null);
+                    userIndex.update(row, null);
+                    filterIndex.update(row, null);
+                    transactionMap.remove(row.getId());
+                    evicted[i] = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        timeIndex.edit(editor -> {
+            for (int i = 0; i < evicted.length; i++) {
+                if (evicted[i]) {
+                    editor.remove(TransactionKey.of(rows.get(i)));
+                }
+            }
+        });
+        return evicted;
+    }
+
+    private ReentrantLock lock(UUID id) {
+        int h = id.hashCode();
+        ReentrantLock lock = locks[(h ^ (h >>> 16)) & (LOCK_STRIPES - 1)];
+        lock.lock();
+        return lock;
+    }
+
+    @Override
+    protected TransactionView checkpointView() {
+        return snapshot();
+    }
+
+    /**
+     * 快照中的行已按索引顺序排列，主表并行写入，索引直接构建
+     */
+    @Override
+    protected void load(Transaction[] rows) {
+        Arrays.stream(rows).parallel().forEach(t -> transactionMap.put(t.getId(), t));
+        timeIndex.loadSorted(rows.length, i -> TransactionKey.of(rows[i]), i -> rows[i]);
+        accountIndex.load(rows);
+        userIndex.load(rows);
+        filterIndex.load(rows);
+        Arrays.stream(rows).parallel().forEach(t -> aggregates.update(null, t));
+    }
+
+    @Override
+    protected void replay(JournalRecord record) {
+        switch (record.op()) {
+            case PUT -> transactionMap.compute(record.id(), (key, old) -> {
+                reindex(old, record.transaction());
+                filterIndex.update(old, record.transaction());
+                aggregates.update(old, record.transaction());
+                return record.transaction();
+            });
+            case DELETE -> transactionMap.computeIfPresent(record.id(), (key, old) -> {
+                reindex(old, null);
+                filterIndex.update(old, null);
+                aggregates.update(old, null);
+                return null;
+            });
+        }
+    }
+
+    private void reindex(Transaction previous, Transaction current) {
+        timeIndex.edit(editor -> {
+            if (previous != null) {
+                editor.remove(TransactionKey.of(previous));
+            }
+            if (current != null) {
+                editor.put(TransactionKey.of(current), current);
+            }
+        });
+        accountIndex.update(previous, current);
+        userIndex.update(previous, current);
+    }
+
+    /**
+     * 批量写入主表后一次性更新有序索引。
+     * 主表写入与索引更新之间同一 id 可能被单条写覆盖，因此只有主表中仍是本批次的对象才放入索引，
+     * 被覆盖的对象由覆盖方负责索引，避免残留旧键。
+     * 二级索引按条更新，持有该 id 的写锁判断是否仍是本批次的对象，与单条写互斥。
+     */
+    private void reindexAll(Transaction[] previous, Transaction[] current) {
+        timeIndex.edit(editor -> {
+            for (int i = 0; i < current.length; i++) {
+                if (previous[i] != null) {
+                    editor.remove(TransactionKey.of(previous[i]));
+                }
+                Transaction transaction = current[i];
+                if (transaction != null && transactionMap.get(transaction.getId()) == transaction) {
+                    editor.put(TransactionKey.of(transaction), transaction);
+                }
+            }
+        });
+        for (int i = 0; i < current.length; i++) {
+            Transaction old = previous[i];
+            Transaction transaction = current[i];
+            if (transaction == null) {
+                if (old != null) {
+                    accountIndex.update(old, null);
+                    userIndex.update(old, null);
+                }
+                continue;
+            }
+            ReentrantLock lock = lock(transaction.getId());
+            try {
+                Transaction indexed = transactionMap.get(transaction.getId()) == transaction ? transaction : null;
+                accountIndex.update(old, indexed);
+                userIndex.update(old, indexed);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Write {
+        Transaction previous;
+        long seq;
+        boolean applied;
+    }
+}
@@ -0,0 +1,205 @@
+package org.bank.store;
+
+import org.bank.model.Transaction;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * 多个分片有序索引快照的归并视图，按 TransactionKey 多路归并。
+ * 按偏移量定位时不从头逐条跳过，而是先用各分片的 rank 估出偏移量对应的切分位置，只在最后少量条数上逐条跳过。
+ * <p>
+ * 传入 splits 时，上次定位到某个偏移量后记下归并起点那一行的键，同一偏移量再次定位时先用它的 rank 作为各分片的起点：
+ * 期间的写入只会让起点前的条数略有增减，不超过 offset 时直接沿用，只需一轮 rank，否则按没有记录处理。
+ */
+final class MergedView implements TransactionView {
+
+    // 剩余条数不超过该值时直接在归并中逐条跳过
+    private static final int LINEAR_SKIP = 64;
+
+    // splits 中最多记录的偏移量个数，超过后清空重新记录
+    static final int MAX_SPLITS = 4096;
+
+    private final List<OrderedIndex.Snapshot<TransactionKey, Transaction>> parts;
+    private final int size;
+    private final Map<Integer, TransactionKey> splits;
+
+    MergedView(List<OrderedIndex.Snapshot<TransactionKey, Transaction>> parts) {
+        this(parts, null);
+    }
+
+    /**
+     * @param splits 偏移量到分界键的记录，由同一组分片的各个视图共用，可以为 null
+     */
+    MergedView(List<OrderedIndex.Snapshot<TransactionKey, Transaction>> parts, Map<Integer, TransactionKey> splits) {
+        this.parts = parts;
+        this.splits = splits;
+        int total = 0;
+        for (OrderedIndex.Snapshot<TransactionKey, Transaction> part : parts) {
+            total += part.size();
+        }
+        this.size = total;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Transaction> iterator(int offset) {
+        if (offset >= size) {
+            return Collections.emptyIterator();
+        }
+        int[] positions = new int[parts.size()];
+        int remaining = offset <= 0 ? 0 : select(offset, positions, seed(offset, positions));
+        Iterator<Transaction>[] iterators = iterators();
+        for (int i = 0; i < iterators.length; i++) {
+            iterators[i] = parts.get(i).iterator(positions[i]);
+        }
+        Iterator<Transaction> merged = merge(iterators);
+        for (int i = 0; i < remaining; i++) {
+            Transaction skipped = merged.next();
+            if (i == 0 && splits != null) {
+                if (splits.size() >= MAX_SPLITS) {
+                    splits.clear();
+                }
+                splits.put(offset, TransactionKey.of(skipped));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 用上次记录的分界键求各分片的起点，写入 positions
+     *
+     * @return 还需跳过的条数，没有可用的记录时为 offset
+     */
+    private int seed(int offset, int[] positions) {
+        TransactionKey key = splits == null ? null : splits.get(offset);
+        if (key == null) {
+            return offset;
+        }
+        int[] ranks = new int[parts.size()];
+        long below = 0;
+        for (int i = 0; i < ranks.length; i++) {
+            ranks[i] = parts.get(i).rank(key);
+            below += ranks[i];
+        }
+        if (below > offset) {
+            return offset;
+        }
+        System.arraycopy(ranks, 0, positions, 0, ranks.length);
+        return (int) (offset - below);
+    }
+
+    @Override
+    public Iterator<Transaction> iteratorAfter(TransactionKey key) {
+        Iterator<Transaction>[] iterators = iterators();
+        for (int i = 0; i < iterators.length; i++) {
+            iterators[i] = parts.get(i).iteratorAfter(key);
+        }
+        return merge(iterators);
+    }
+
+    /**
+     * 从 positions 开始求各分片的起始位置，使各分片前 positions[i] 条都在归并结果的前 offset 条之内，返回还需在归并中逐条跳过的条数。
+     * 按 id 分片时各分片的数据分布相近，剩余的条数大致平均落在各分片：每轮在剩余最多的分片上取
+     * 剩余条数 / 分片数 处的元素作为分界，用各分片的 rank 求出比它小的条数，不超过 offset 则整体前移，
+     * 超过则把步长减半重试。几轮后剩余条数降到 LINEAR_SKIP 以内，由归并逐条跳过。
+     */
+    private int select(int offset, int[] positions, int remaining) {
+        int n = parts.size();
+        int[] ranks = new int[n];
+        int step = Math.max(1, remaining / n);
+        while (remaining > LINEAR_SKIP && step > 0) {
+            int s = 0;
+            for (int i = 1; i < n; i++) {
+                if (parts.get(i).size() - positions[i] > parts.get(s).size() - positions[s]) {
+                    s = i;
+                }
+            }
+            int index = Math.min(positions[s] + step, parts.get(s).size() - 1);
+            if (index <= positions[s]) {
+                break;
+            }
+            // 分界不小于上一轮的分界和记录的分界键，各分片的 rank 不会小于当前位置
+            TransactionKey key = TransactionKey.of(parts.get(s).iterator(index).next());
+            long below = 0;
+            for (int i = 0; i < n; i++) {
+                ranks[i] = i == s ? index : parts.get(i).rank(key);
+                below += ranks[i];
+            }
+            if (below <= offset) {
+                System.arraycopy(ranks, 0, positions, 0, n);
+                remaining = (int) (offset - below);
+                step = Math.max(1, remaining / n);
+            } else {
+                step >>= 1;
+            }
+        }
+        return remaining;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Iterator<Transaction>[] iterators() {
+        return new Iterator[parts.size()];
+    }
+
+    static Iterator<Transaction> merge(Iterator<Transaction>[] iterators) {
+        if (iterators.length == 1) {
+            return iterators[0];
+        }
+        PriorityQueue<Head> heads = new PriorityQueue<>(iterators.length);
+        for (Iterator<Transaction> it : iterators) {
+            if (it.hasNext()) {
+                heads.add(new Head(it.next(), it));
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Transaction next() {
+                Head head = heads.poll();
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+                Transaction current = head.transaction;
+                if (head.rest.hasNext()) {
+                    // 复用队首对象，归并过程中不再分配
+                    head.transaction = head.rest.next();
+                    heads.add(head);
+                }
+                return current;
+            }
+        };
+    }
+
+    private static final class Head implements Comparable<Head> {
+
+        Transaction transaction;
+        final Iterator<Transaction> rest;
+
+        Head(Transaction transaction, Iterator<Transaction> rest) {
+            this.transaction = transaction;
+            this.rest = rest;
+        }
+
+        /**
+         * 与 TransactionKey 的顺序一致，直接比较字段，不为每条交易创建键
+         */
+        @Override
+        public int compareTo(Head o) {
+            int c = o.transaction.getUpdatedAt().compareTo(transaction.getUpdatedAt());
+            return c != 0 ? c : transaction.getId().compareTo(o.transaction.getId());
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package org.bank.store;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * 并发有序索引：带子树大小的持久化 AVL 树。
+ * 写操作路径复制 O(log n) 个节点后 CAS 替换根节点，读操作拿到根节点快照后完全无锁，
+ * 按偏移量定位为 O(log n)，读取一页为 O(log n + size)。
+ */
+public final class OrderedIndex<K extends Comparable<? super K>, V> {
+
+    // 进程内所有有序索引 CAS 失败后整体重放的次数，反映写入竞争
+    private static final LongAdder RETRIES = new LongAdder();
+
+    private final AtomicReference<Node<K, V>> root = new AtomicReference<>();
+
+    public void put(K key, V value) {
+        edit(editor -> editor.put(key, value));
+    }
+
+    public void remove(K key) {
+        edit(editor -> editor.remove(key));
+    }
+
+    /**
+     * 在同一个根节点上应用一组修改并一次性发布，CAS 失败时整体重放，因此 edits 不能有副作用
+     */
+    public void edit(Consumer<Editor<K, V>> edits) {
+        for (;;) {
+            Node<K, V> current = root.get();
+            Editor<K, V> editor = new Editor<>(current);
+            edits.accept(editor);
+            if (editor.root == current || root.compareAndSet(current, editor.root)) {
+                return;
+            }
+            RETRIES.increment();
+        }
+    }
+
+    public static long retries() {
+        return RETRIES.sum();
+    }
+
+    public int size() {
+        return size(root.get());
+    }
+
+    /**
+     * 用已按键排好序的数据直接构建平衡树并替换当前内容，O(n)，用于启动时从快照恢复
+     */
+    public void loadSorted(int size, IntFunction<K> keyAt, IntFunction<V> valueAt) {
+        root.set(build(0, size, keyAt, valueAt));
+    }
+
+    public Snapshot<K, V> snapshot() {
+        return new Snapshot<>(root.get());
+    }
+
+    /**
+     * 某一时刻索引的只读视图，后续写入不会影响已获取的快照
+     */
+    public static final class Snapshot<K extends Comparable<? super K>, V> implements Iterable<V> {
+
+        private final Node<K, V> root;
+
+        private Snapshot(Node<K, V> root) {
+            this.root = root;
+        }
+
+        public int size() {
+            return OrderedIndex.size(root);
+        }
+
+        public V get(K key) {
+            Node<K, V> n = root;
+            while (n != null) {
+                int c = key.compareTo(n.key);
+                if (c == 0) {
+                    return n.value;
+                }
+                n = c < 0 ? n.left : n.right;
+            }
+            return null;
+        }
+
+        /**
+         * 严格小于 key 的条目数
+         */
+        public int rank(K key) {
+            int rank = 0;
+            Node<K, V> n = root;
+            while (n != null) {
+                if (key.compareTo(n.key) <= 0) {
+                    n = n.left;
+                } else {
+                    rank += OrderedIndex.size(n.left) + 1;
+                    n = n.right;
+                }
+            }
+            return rank;
+        }
+
+        /**
+         * 从第 offset 条开始取最多 limit 条
+         */
+        public List<V> range(int offset, int limit) {
+            return take(iterator(offset), limit);
+        }
+
+        /**
+         * 取严格排在 key 之后的最多 limit 条，用于游标翻页
+         */
+        public List<V> after(K key, int limit) {
+            return take(iteratorAfter(key), limit);
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return iterator(0);
+        }
+
+        public Iterator<V> iterator(int offset) {
+            Deque<Node<K, V>> path = new ArrayDeque<>();
+            Node<K, V> n = root;
+            int remaining = offset;
+            while (n != null) {
+                int leftSize = OrderedIndex.size(n.left);
+                if (remaining < leftSize) {
+                    path.push(n);
+                    n = n.left;
+                } else if (remaining == leftSize) {
+                    path.push(n);
+                    break;
+                } else {
+                    remaining -= leftSize + 1;
+                    n = n.right;
+                }
+            }
+            return new NodeIterator<>(path);
+        }
+
+        public Iterator<V> iteratorAfter(K key) {
+            Deque<Node<K, V>> path = new ArrayDeque<>();
+            Node<K, V> n = root;
+            while (n != null) {
+                if (key.compareTo(n.key) < 0) {
+                    path.push(n);
+                    n = n.left;
+                } else {
+                    n = n.right;
+                }
+            }
+            return new NodeIterator<>(path);
+        }
+
+        private static <V> List<V> take(Iterator<V> it, int limit) {
+            List<V> result = new ArrayList<>(Math.min(limit, 64));
+            while (result.size() < limit && it.hasNext()) {
+                result.add(it.next());
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 基于某个根节点的批量修改器，修改结果只有在 {@link #edit} 成功 CAS 后才对读者可见
+     */
+    public static final class Editor<K extends Comparable<? super K>, V> {
+
+        private Node<K, V> root;
+
+        private Editor(Node<K, V> root) {
+            this.root = root;
+        }
+
+        public void put(K key, V value) {
+            root = insert(root, key, value);
+        }
+
+        public void remove(K key) {
+            root = delete(root, key);
+        }
+    }
+
+    private static final class NodeIterator<K, V> implements Iterator<V> {
+
+        private final Deque<Node<K, V>> path;
+
+        private NodeIterator(Deque<Node<K, V>> path) {
+            this.path = path;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !path.isEmpty();
+        }
+
+        @Override
+        public V next() {
+            if (path.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> n = path.pop();
+            for (Node<K, V> c = n.right; c != null; c = c.left) {
+                path.push(c);
+            }
+            return n.value;
+        }
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final Node<K, V> left;
+        final Node<K, V> right;
+        final int height;
+        final int size;
+
+        Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = OrderedIndex.size(left) + OrderedIndex.size(right) + 1;
+        }
+    }
+
+    private static int size(Node<?, ?> n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static int height(Node<?, ?> n) {
+        return n == null ? 0 : n.height;
+    }
+
+    private static <K, V> Node<K, V> build(int from, int to, IntFunction<K> keyAt, IntFunction<V> valueAt) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        return new Node<>(keyAt.apply(mid), valueAt.apply(mid),
+                build(from, mid, keyAt, valueAt), build(mid + 1, to, keyAt, valueAt));
+    }
+
+    private static <K extends Comparable<? super K>, V> Node<K, V> insert(Node<K, V> n, K key, V value) {
+        if (n == null) {
+            return new Node<>(key, value, null, null);
+        }
+        int c = key.compareTo(n.key);
+        if (c < 0) {
+            return balance(n.key, n.value, insert(n.left, key, value), n.right);
+        }
+        if (c > 0) {
+            return balance(n.key, n.value, n.left, insert(n.right, key, value));
+        }
+        return new Node<>(key, value, n.left, n.right);
+    }
+
+    private static <K extends Comparable<? super K>, V> Node<K, V> delete(Node<K, V> n, K key) {
+        if (n == null) {
+            return null;
+        }
+        int c = key.compareTo(n.key);
+        if (c < 0) {
+            Node<K, V> left = delete(n.left, key);
+            return left == n.left ? n : balance(n.key, n.value, left, n.right);
+        }
+        if (c > 0) {
+            Node<K, V> right = delete(n.right, key);
+            return right == n.right ? n : balance(n.key, n.value, n.left, right);
+        }
+        if (n.left == null) {
+            return n.right;
+        }
+        if (n.right == null) {
+            return n.left;
+        }
+        Node<K, V> min = n.right;
+        while (min.left != null) {
+            min = min.left;
+        }
+        return balance(min.key, min.value, n.left, deleteMin(n.right));
+    }
+
+    private static <K, V> Node<K, V> deleteMin(Node<K, V> n) {
+        if (n.left == null) {
+            return n.right;
+        }
+        return balance(n.key, n.value, deleteMin(n.left), n.right);
+    }
+
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        int hl = height(left);
+        int hr = height(right);
+        if (hl > hr + 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node<>(left.key, left.value, left.left, new Node<>(key, value, left.right, right));
+            }
+            Node<K, V> lr = left.right;
+            return new Node<>(lr.key, lr.value,
+                    new Node<>(left.key, left.value, left.left, lr.left),
+                    new Node<>(key, value, lr.right, right));
+        }
+        if (hr > hl + 1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node<>(right.key, right.value, new Node<>(key, value, left, right.left), right.right);
+            }
+            Node<K, V> rl = right.left;
+            return new Node<>(rl.key, rl.value,
+                    new Node<>(key, value, left, rl.left),
+                    new Node<>(right.key, right.value, rl.right, right.right));
+        }
+        return new Node<>(key, value, left, right);
+    }
+}
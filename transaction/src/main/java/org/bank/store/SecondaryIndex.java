@@ -0,0 +1,93 @@
+package org.bank.store;
+
+import org.bank.model.Transaction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 二级索引：字段值 -> 按 updatedAt 倒序的倒排列表。
+ * 同一字段值的修改在 ConcurrentHashMap.compute 内串行执行，列表为空时移除该字段值；
+ * 读取时拿到列表快照后无锁遍历。
+ */
+public final class SecondaryIndex {
+
+    private static final OrderedIndex.Snapshot<TransactionKey, Transaction> EMPTY =
+            new OrderedIndex<TransactionKey, Transaction>().snapshot();
+
+    private final Map<String, OrderedIndex<TransactionKey, Transaction>> postings = new ConcurrentHashMap<>();
+
+    private final Function<Transaction, String> field;
+
+    public SecondaryIndex(Function<Transaction, String> field) {
+        this.field = field;
+    }
+
+    public OrderedIndex.Snapshot<TransactionKey, Transaction> snapshot(String value) {
+        OrderedIndex<TransactionKey, Transaction> index = postings.get(value);
+        return index == null ? EMPTY : index.snapshot();
+    }
+
+    /**
+     * 不同字段值的个数
+     */
+    public int keyCount() {
+        return postings.size();
+    }
+
+    /**
+     * 用旧值、新值更新索引，任一为 null 表示新增或删除
+     */
+    public void update(Transaction previous, Transaction current) {
+        String from = previous == null ? null : field.apply(previous);
+        String to = current == null ? null : field.apply(current);
+        if (from != null && from.equals(to)) {
+            edit(from, editor -> {
+                editor.remove(TransactionKey.of(previous));
+                editor.put(TransactionKey.of(current), current);
+            });
+            return;
+        }
+        if (from != null) {
+            edit(from, editor -> editor.remove(TransactionKey.of(previous)));
+        }
+        if (to != null) {
+            edit(to, editor -> editor.put(TransactionKey.of(current), current));
+        }
+    }
+
+    /**
+     * 用已按 TransactionKey 排好序的数据重建索引，用于启动时从快照恢复
+     */
+    public void load(Transaction[] sorted) {
+        Map<String, List<Transaction>> groups = new HashMap<>();
+        for (Transaction t : sorted) {
+            String value = field.apply(t);
+            if (value != null) {
+                groups.computeIfAbsent(value, k -> new ArrayList<>()).add(t);
+            }
+        }
+        postings.clear();
+        groups.entrySet().parallelStream().forEach(e -> {
+            List<Transaction> rows = e.getValue();
+            OrderedIndex<TransactionKey, Transaction> index = new OrderedIndex<>();
+            index.loadSorted(rows.size(), i -> TransactionKey.of(rows.get(i)), rows::get);
+            postings.put(e.getKey(), index);
+        });
+    }
+
+    private void edit(String value, Consumer<OrderedIndex.Editor<TransactionKey, Transaction>> edits) {
+        postings.compute(value, (key, index) -> {
+            if (index == null) {
+                index = new OrderedIndex<>();
+            }
+            index.edit(edits);
+            return index.size() == 0 ? null : index;
+        });
+    }
+}
@@ -0,0 +1,309 @@
+package org.bank.store;
+
+import org.bank.model.Transaction;
+import org.bank.model.TransactionFilter;
+import org.bank.store.filter.FilterIndex;
+import org.bank.store.journal.JournalRecord;
+import org.bank.store.journal.TransactionJournal;
+import org.bank.store.snapshot.SnapshotManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * 分片存储引擎：按 id 哈希分成多个堆内分片，每个分片有自己的主表、写锁、有序索引、二级索引和筛选索引。
+ * 单个堆内存储的有序索引只有一个根节点，并发写入都在同一个根节点上 CAS，写入越多冲突重放越多；
+ * 分片后不同分片的写入互不冲突。全局按时间倒序的列表、按账号/用户的列表和筛选结果由各分片多路归并得到。
+ * 预写日志、快照和统计为各分片共用：分片写入同一份日志，快照写入的是归并后的视图，恢复时按 id 分回各分片。
+ * 因此写入仍在日志锁和共用的统计上串行，多核下能否扩展需要压测确认。
+ * 读取的代价随分片数增长：每次全局列表都要在每个分片上定位并多路归并。
+ * 各分片的快照依次获取，归并视图中每条交易都是某一时刻的完整版本，但不同分片的获取时刻略有先后。
+ * 全局列表按页码翻页时记下各偏移量的分界键（见 {@link MergedView}），同一页再次查询时只需一轮 rank 即可定位。
+ */
+public class ShardedTransactionStore extends TransactionStore {
+
+    private final HeapTransactionStore[] shards;
+
+    // 全局列表各偏移量的分界键，由每次 snapshot() 得到的归并视图共用
+    private final Map<Integer, TransactionKey> timeSplits = new ConcurrentHashMap<>();
+
+    public ShardedTransactionStore(TransactionJournal journal, SnapshotManager snapshots, int shardCount) {
+        super(journal, snapshots);
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shard count must be positive: " + shardCount);
+        }
+        shards = new HeapTransactionStore[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new HeapTransactionStore(journal, SnapshotManager.disabled(), aggregates);
+        }
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public Transaction get(UUID id) {
+        return shard(id).get(id);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (HeapTransactionStore shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @Override
+    public TransactionView snapshot() {
+        return merged(HeapTransactionStore::timeSnapshot, timeSplits);
+    }
+
+    @Override
+    public TransactionView snapshotByAccount(String accountNumber) {
+        return merged(shard -> shard.accountSnapshot(accountNumber), null);
+    }
+
+    @Override
+    public TransactionView snapshotByUser(String userName) {
+        return merged(shard -> shard.userSnapshot(userName), null);
+    }
+
+    /**
+     * 归并各分片的结果，带游标时各分片从游标之后开始。前 skip + size 条大致平均落在各分片，
+     * 每个分片先取其中的一份再加几个标准差的余量，某个分片取完仍不够时从它的最后一条之后续取，
+     * 不必每个分片都取 skip + size 条
+     */
+    @Override
+    public FilterIndex.Result query(TransactionFilter filter, TransactionKey after, int skip, int size) {
+        long limit = (long) skip + size;
+        double share = (double) limit / shards.length;
+        int chunk = (int) Math.min(limit, (long) (share + 3 * Math.sqrt(share)) + size);
+        @SuppressWarnings("unchecked")
+        Iterator<Transaction>[] parts = new Iterator[shards.length];
+        int total = 0;
+        for (int i = 0; i < shards.length; i++) {
+            ShardResults results = new ShardResults(shards[i], filter, after, chunk);
+            parts[i] = results;
+            total += results.total;
+        }
+        Iterator<Transaction> merged = MergedView.merge(parts);
+        for (int i = 0; i < skip && merged.hasNext(); i++) {
+            merged.next();
+        }
+        List<Transaction> items = new ArrayList<>(Math.min(size, 64));
+        while (items.size() < size && merged.hasNext()) {
+            items.add(merged.next());
+        }
+        return new FilterIndex.Result(items, total, merged.hasNext());
+    }
+
+    /**
+     * 一个分片的筛选结果，按 chunk 条一批从上一批的最后一条之后续取
+     */
+    private static final class ShardResults implements Iterator<Transaction> {
+
+        private final HeapTransactionStore shard;
+        private final TransactionFilter filter;
+        private final int chunk;
+        final int total;
+
+        private Iterator<Transaction> items;
+        private Transaction last;
+        private boolean more;
+
+        ShardResults(HeapTransactionStore shard, TransactionFilter filter, TransactionKey after, int chunk) {
+            this.shard = shard;
+            this.filter = filter;
+            this.chunk = chunk;
+            FilterIndex.Result result = shard.query(filter, after, 0, chunk);
+            this.total = result.total();
+            fill(result);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!items.hasNext() && more) {
+                fill(shard.query(filter, TransactionKey.of(last), 0, chunk));
+            }
+            return items.hasNext();
+        }
+
+        @Override
+        public Transaction next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = items.next();
+            return last;
+        }
+
+        private void fill(FilterIndex.Result result) {
+            items = result.items().iterator();
+            more = result.hasNext();
+        }
+    }
+
+    @Override
+    public Transaction put(Transaction transaction, long expectedVersion) {
+        int epoch = enterWrite();
+        try {
+            return shard(transaction.getId()).put(transaction, expectedVersion);
+        } finally {
+            exitWrite(epoch);
+        }
+    }
+
+    @Override
+    public Transaction replace(Transaction transaction, long expectedVersion) {
+        int epoch = enterWrite();
+        try {
+            return shard(transaction.getId()).replace(transaction, expectedVersion);
+        } finally {
+            exitWrite(epoch);
+        }
+    }
+
+    @Override
+    public Transaction remove(UUID id, long expectedVersion) {
+        int epoch = enterWrite();
+        try {
+            return shard(id).remove(id, expectedVersion);
+        } finally {
+            exitWrite(epoch);
+        }
+    }
+
+    @Override
+    public Transaction[] putAll(List<Transaction> transactions, long expectedVersion) {
+        return batch(transactions, Transaction::getId, (shard, part, positions) -> shard.putAll(part, expectedVersion));
+    }
+
+    @Override
+    public Transaction[] replaceAll(List<Transaction> transactions, long[] expectedVersions) {
+        return batch(transactions, Transaction::getId, (shard, part, positions) -> {
+            if (expectedVersions == null) {
+                return shard.replaceAll(part, null);
+            }
+            long[] expected = new long[positions.length];
+            for (int j = 0; j < positions.length; j++) {
+                expected[j] = expectedVersions[positions[j]];
+            }
+            return shard.replaceAll(part, expected);
+        });
+    }
+
+    @Override
+    public Transaction[] removeAll(List<UUID> ids) {
+        return batch(ids, id -> id, (shard, part, positions) -> shard.removeAll(part));
+    }
+
+    /**
+     * 一个分片上的批量写入，positions 为 part 中各元素在原批次中的下标
+     */
+    @FunctionalInterface
+    private interface ShardWrite<T> {
+        Transaction[] apply(HeapTransactionStore shard, List<T> part, int[] positions);
+    }
+
+    /**
+     * 按分片拆开批量写入，结果按原下标放回；空元素不属于任何分片，结果为 null
+     */
+    private <T> Transaction[] batch(List<T> items, Function<T, UUID> idOf, ShardWrite<T> write) {
+        int[] shardOf = new int[items.size()];
+        int[] counts = new int[shards.length];
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            shardOf[i] = item == null ? -1 : index(idOf.apply(item));
+            if (shardOf[i] >= 0) {
+                counts[shardOf[i]]++;
+            }
+        }
+        Transaction[] previous = new Transaction[items.size()];
+        int epoch = enterWrite();
+        try {
+            for (int s = 0; s < shards.length; s++) {
+                if (counts[s] == 0) {
+                    continue;
+                }
+                List<T> part = new ArrayList<>(counts[s]);
+                int[] positions = new int[counts[s]];
+                for (int i = 0; i < items.size(); i++) {
+                    if (shardOf[i] == s) {
+                        positions[part.size()] = i;
+                        part.add(items.get(i));
+                    }
+                }
+                Transaction[] result = write.apply(shards[s], part, positions);
+                for (int j = 0; j < positions.length; j++) {
+                    previous[positions[j]] = result[j];
+                }
+            }
+        } finally {
+            exitWrite(epoch);
+        }
+        return previous;
+    }
+
+    @Override
+    protected TransactionView checkpointView() {
+        return snapshot();
+    }
+
+    /**
+     * 快照中的行按键有序，按 id 分到各分片后仍然有序，各分片直接构建索引
+     */
+    @Override
+    protected void load(Transaction[] rows) {
+        int[] counts = new int[shards.length];
+        for (Transaction row : rows) {
+            counts[index(row.getId())]++;
+        }
+        Transaction[][] parts = new Transaction[shards.length][];
+        for (int s = 0; s < shards.length; s++) {
+            parts[s] = new Transaction[counts[s]];
+        }
+        Arrays.fill(counts, 0);
+        for (Transaction row : rows) {
+            int i = index(row.getId());
+            parts[i][counts[i]++] = row;
+        }
+        IntStream.range(0, shards.length).parallel().forEach(s -> shards[s].load(parts[s]));
+    }
+
+    @Override
+    protected void replay(JournalRecord record) {
+        shard(record.id()).replay(record);
+    }
+
+    private TransactionView merged(Function<HeapTransactionStore, OrderedIndex.Snapshot<TransactionKey, Transaction>> view,
+                                   Map<Integer, TransactionKey> splits) {
+        List<OrderedIndex.Snapshot<TransactionKey, Transaction>> parts = new ArrayList<>(shards.length);
+        for (HeapTransactionStore shard : shards) {
+            parts.add(view.apply(shard));
+        }
+        return new MergedView(parts, splits);
+    }
+
+    private HeapTransactionStore shard(UUID id) {
+        return shards[index(id)];
+    }
+
+    /**
+     * 用 id 高位乘黄金比例取高 32 位，与分片内写锁所用的 hashCode 低位错开
+     */
+    private int index(UUID id) {
+        int h = (int) ((id.getMostSignificantBits() * 0x9E3779B97F4A7C15L) >>> 32);
+        return Math.floorMod(h, shards.length);
+    }
+}
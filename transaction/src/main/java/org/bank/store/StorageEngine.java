@@ -0,0 +1,42 @@
+package org.bank.store;
+
+import org.bank.store.columnar.ColumnarTransactionStore;
+import org.bank.store.journal.TransactionJournal;
+import org.bank.store.snapshot.SnapshotManager;
+
+/**
+ * 交易存储引擎
+ */
+public enum StorageEngine {
+    HEAP,     // 主表和索引直接保存交易对象，读取无需还原
+    COLUMNAR, // 按列保存基本类型，每行占用内存和 GC 需要扫描的对象数大幅减少，读取时还原为交易对象
+    SHARDED,  // 按 id 分成多个堆内分片，并发写入分散到各分片的索引上，列表查询时多路归并
+    TIERED;   // 近期交易在堆内，已结算的旧交易和超出堆内条数上限的交易移入内存映射的冷段文件
+
+    public static final int DEFAULT_SHARDS = 16;
+
+    public TransactionStore create(TransactionJournal journal, SnapshotManager snapshots) {
+        return create(journal, snapshots, DEFAULT_SHARDS);
+    }
+
+    /**
+     * @param shards 分片数，只对 SHARDED 有效
+     */
+    public TransactionStore create(TransactionJournal journal, SnapshotManager snapshots, int shards) {
+        return create(journal, snapshots, shards, TieredTransactionStore.Options.defaults());
+    }
+
+    /**
+     * @param shards 分片数，只对 SHARDED 有效
+     * @param tier   冷热分层参数，只对 TIERED 有效
+     */
+    public TransactionStore create(TransactionJournal journal, SnapshotManager snapshots, int shards,
+                                   TieredTransactionStore.Options tier) {
+        return switch (this) {
+            case HEAP -> new HeapTransactionStore(journal, snapshots);
+            case COLUMNAR -> new ColumnarTransactionStore(journal, snapshots);
+            case SHARDED -> new ShardedTransactionStore(journal, snapshots, shards);
+            case TIERED -> new TieredTransactionStore(journal, snapshots, tier);
+        };
+    }
+}
@@ -0,0 +1,722 @@
+package org.bank.store;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.model.Transaction;
+import org.bank.model.TransactionFilter;
+import org.bank.store.filter.FilterIndex;
+import org.bank.store.journal.JournalRecord;
+import org.bank.store.journal.TransactionJournal;
+import org.bank.store.snapshot.SnapshotManager;
+import org.bank.store.snapshot.SnapshotSource;
+import org.bank.store.tiered.ColdSegment;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * 冷热分层存储引擎：近期的交易在堆内（{@link HeapTransactionStore}），已结算（SUCCESS/FAILED）且超过 coldAfter 未修改的交易、
+ * 以及堆内条数超过 hotMaxRows 时最久未修改的交易，由 {@link #tier()} 写入按 TransactionKey 排序的只读冷段文件
+ * （{@link ColdSegment}），内存映射读取，堆内只保留每段的布隆过滤器和删除标记。
+ * <p>
+ * 读取：按 id 先查堆内，再按布隆过滤器和段内 id 索引查冷段；列表、按账号/用户的列表和筛选把堆内与各冷段多路归并。
+ * 修改、删除冷段中的交易时先把该行调回堆内并在冷段中标记失效，之后与堆内交易相同，版本号、日志和统计不受影响。
+ * <p>
+ * 并发：写操作持有分层读锁，调回冷行和分层移出时持有写锁；获取视图时持有读锁，同时取得堆内快照、冷段列表和失效版本，
+ * 冷段中在该版本之后失效的行对该视图仍可见，视图与其他引擎一样不受后续写入影响。
+ * <p>
+ * 冷段不单独持久化：日志和快照仍覆盖全部交易，启动时删除残留的冷段，加载快照时把符合条件的行直接写入新冷段。
+ */
+@Slf4j
+public class TieredTransactionStore extends TransactionStore {
+
+    /**
+     * @param dir         冷段文件目录
+     * @param coldAfter   已结算交易超过该时长未修改即移入冷段
+     * @param hotMaxRows  堆内最多保留的条数，超出时把最久未修改的交易移入冷段，直到降到该值的 90%
+     * @param segmentRows 每个冷段的最多条数
+     */
+    public record Options(Path dir, Duration coldAfter, int hotMaxRows, int segmentRows) {
+
+        public static Options defaults() {
+            return new Options(Path.of("data/tier"), Duration.ofDays(3), 1_000_000, 65_536);
+        }
+    }
+
+    private static final String SUFFIX = ".seg";
+    private static final UUID MIN_ID = new UUID(Long.MIN_VALUE, Long.MIN_VALUE);
+    private static final Set<TransactionStatus> SETTLED = EnumSet.of(TransactionStatus.SUCCESS, TransactionStatus.FAILED);
+    private static final ColdSegment[] NO_SEGMENTS = new ColdSegment[0];
+
+    private final HeapTransactionStore hot;
+
+    private final Options options;
+
+    private final ReentrantReadWriteLock tierLock = new ReentrantReadWriteLock();
+
+    // 同一时刻只有一个分层过程
+    private final ReentrantLock tieringLock = new ReentrantLock();
+
+    // 新段在前，写锁内整体替换
+    private volatile ColdSegment[] segments = NO_SEGMENTS;
+
+    // 冷段中行失效的版本，写锁内递增
+    private volatile long version;
+
+    private final AtomicLong segmentSeq = new AtomicLong();
+
+    public TieredTransactionStore(TransactionJournal journal, SnapshotManager snapshots, Options options) {
+        super(journal, snapshots);
+        this.options = options;
+        this.hot = new HeapTransactionStore(journal, SnapshotManager.disabled(), aggregates);
+        deleteSegmentFiles();
+    }
+
+    @Override
+    public Transaction get(UUID id) {
+        Transaction transaction = hot.get(id);
+        if (transaction != null) {
+            return transaction;
+        }
+        for (ColdSegment segment : segments) {
+            int row = segment.find(id);
+            if (row >= 0) {
+                if (!segment.isDead(row)) {
+                    return segment.row(row);
+                }
+                // 查找期间被调回堆内
+                return hot.get(id);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return hot.size() + coldSize();
+    }
+
+    public int hotSize() {
+        return hot.size();
+    }
+
+    public int coldSize() {
+        int size = 0;
+        for (ColdSegment segment : segments) {
+            size += segment.live();
+        }
+        return size;
+    }
+
+    public int segmentCount() {
+        return segments.length;
+    }
+
+    public long coldBytes() {
+        long bytes = 0;
+        for (ColdSegment segment : segments) {
+            bytes += segment.bytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * 冷段在堆内的占用：布隆过滤器和删除标记
+     */
+    public long coldHeapBytes() {
+        long bytes = 0;
+        for (ColdSegment segment : segments) {
+            bytes += segment.heapBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public TransactionView snapshot() {
+        return view(HeapTransactionStore::timeSnapshot, segment -> null);
+    }
+
+    @Override
+    public TransactionView snapshotByAccount(String accountNumber) {
+        return view(h -> h.accountSnapshot(accountNumber), segment -> segment.accountRows(accountNumber));
+    }
+
+    @Override
+    public TransactionView snapshotByUser(String userName) {
+        return view(h -> h.userSnapshot(userName), segment -> segment.userRows(userName));
+    }
+
+    /**
+     * 堆内取前 skip + size 条，各冷段按行顺序扫描筛选节计数并取前 skip + size 条，归并后取一页。
+     * 冷段只读取筛选用的定长字段，只有进入候选的行才解码；条件带 updatedAt 范围时只扫描范围内的行
+     */
+    @Override
+    public FilterIndex.Result query(TransactionFilter filter, TransactionKey after, int skip, int size) {
+        int from = after != null ? 0 : skip;
+        int limit = (int) Math.min(Integer.MAX_VALUE, (long) from + size);
+        Lock read = tierLock.readLock();
+        read.lock();
+        FilterIndex.Result hotResult;
+        ColdSegment[] current;
+        long at;
+        try {
+            hotResult = hot.query(filter, after, 0, limit);
+            current = segments;
+            at = version;
+        } finally {
+            read.unlock();
+        }
+        @SuppressWarnings("unchecked")
+        Iterator<Transaction>[] parts = new Iterator[current.length + 1];
+        parts[0] = hotResult.items().iterator();
+        int total = hotResult.total();
+        boolean more = hotResult.hasNext();
+        for (int i = 0; i < current.length; i++) {
+            ColdSegment segment = current[i];
+            int start = filter.getUpdatedTo() == null ? 0 : segment.after(new TransactionKey(filter.getUpdatedTo(), MIN_ID));
+            int end = filter.getUpdatedFrom() == null
+                    ? segment.rows() : segment.after(new TransactionKey(filter.getUpdatedFrom().minusNanos(1), MIN_ID));
+            List<Transaction> items = new ArrayList<>(Math.min(limit, 64));
+            for (int row = start; row < end; row++) {
+                if (!segment.visible(row, at) || !segment.matches(row, filter)) {
+                    continue;
+                }
+                total++;
+                if (after != null && segment.key(row).compareTo(after) <= 0) {
+                    continue;
+                }
+                if (items.size() < limit) {
+                    items.add(segment.row(row));
+                } else {
+                    more = true;
+                }
+            }
+            parts[i + 1] = items.iterator();
+        }
+        Iterator<Transaction> merged = MergedView.merge(parts);
+        for (int i = 0; i < from && merged.hasNext(); i++) {
+            merged.next();
+        }
+        List<Transaction> items = new ArrayList<>(Math.min(size, 64));
+        while (items.size() < size && merged.hasNext()) {
+            items.add(merged.next());
+        }
+        return new FilterIndex.Result(items, total, more || merged.hasNext());
+    }
+
+    @Override
+    public Transaction put(Transaction transaction, long expectedVersion) {
+        return write(List.of(transaction.getId()), () -> hot.put(transaction, expectedVersion));
+    }
+
+    @Override
+    public Transaction replace(Transaction transaction, long expectedVersion) {
+        return write(List.of(transaction.getId()), () -> hot.replace(transaction, expectedVersion));
+    }
+
+    @Override
+    public Transaction remove(UUID id, long expectedVersion) {
+        return write(List.of(id), () -> hot.remove(id, expectedVersion));
+    }
+
+    @Override
+    public Transaction[] putAll(List<Transaction> transactions, long expectedVersion) {
+        return write(ids(transactions, Transaction::getId), () -> hot.putAll(transactions, expectedVersion));
+    }
+
+    @Override
+    public Transaction[] replaceAll(List<Transaction> transactions, long[] expectedVersions) {
+        return write(ids(transactions, Transaction::getId), () -> hot.replaceAll(transactions, expectedVersions));
+    }
+
+    @Override
+    public Transaction[] removeAll(List<UUID> ids) {
+        return write(ids(ids, id -> id), () -> hot.removeAll(ids));
+    }
+
+    /**
+     * 把符合条件的堆内交易移入新的冷段，由后台线程定期调用
+     *
+     * @return 移入冷段的条数
+     */
+    public int tier() {
+        tieringLock.lock();
+        try {
+            OrderedIndex.Snapshot<TransactionKey, Transaction> snapshot = hot.timeSnapshot();
+            int n = snapshot.size();
+            int budgetStart = budgetStart(n);
+            int ageStart = snapshot.rank(new TransactionKey(cutoff(), MIN_ID));
+            int start = Math.min(ageStart, budgetStart);
+            int moved = 0;
+            List<Transaction> chunk = new ArrayList<>();
+            Iterator<Transaction> it = snapshot.iterator(start);
+            for (int i = start; i < n && it.hasNext(); i++) {
+                Transaction t = it.next();
+                if (i >= budgetStart || SETTLED.contains(t.getStatus())) {
+                    chunk.add(t);
+                }
+                if (chunk.size() >= options.segmentRows()) {
+                    moved += spill(chunk);
+                    chunk = new ArrayList<>();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                moved += spill(chunk);
+            }
+            if (moved > 0) {
+                log.info("Tiered {} transactions to cold segments: hot={}, cold={}, segments={}",
+                        moved, hot.size(), coldSize(), segments.length);
+            }
+            return moved;
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to write cold segment", e);
+        } finally {
+            tieringLock.unlock();
+        }
+    }
+
+    @Override
+    protected TransactionView checkpointView() {
+        return snapshot();
+    }
+
+    @Override
+    protected void load(Transaction[] rows) {
+        try {
+            loadSnapshot(SnapshotSource.of(0, rows));
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to write cold segment", e);
+        }
+    }
+
+    /**
+     * 快照中的行按键有序，按块读取时按分层规则直接分成堆内部分和冷段部分：冷段部分攒够一段即写出，不进入堆内索引，
+     * 堆内部分不超过堆内行数上限，加载期间堆内只多出一块快照行和一段待写出的冷行
+     */
+    @Override
+    protected void loadSnapshot(SnapshotSource source) throws IOException {
+        int budgetStart = budgetStart(source.rowCount());
+        LocalDateTime cutoff = cutoff();
+        List<Transaction> hotRows = new ArrayList<>();
+        List<Transaction> cold = new ArrayList<>();
+        int[] index = {0};
+        source.forEachChunk(rows -> {
+            for (Transaction t : rows) {
+                int i = index[0]++;
+                if (i < budgetStart && !(SETTLED.contains(t.getStatus()) && t.getUpdatedAt().isBefore(cutoff))) {
+                    hotRows.add(t);
+                    continue;
+                }
+                aggregates.update(null, t);
+                cold.add(t);
+                if (cold.size() >= options.segmentRows()) {
+                    writeLoaded(cold);
+                }
+            }
+        });
+        if (!cold.isEmpty()) {
+            writeLoaded(cold);
+        }
+        hot.load(hotRows.toArray(new Transaction[0]));
+    }
+
+    private void writeLoaded(List<Transaction> cold) {
+        try {
+            publish(ColdSegment.write(nextSegmentFile(), segmentSeq.get(), cold));
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to write cold segment", e);
+        }
+        cold.clear();
+    }
+
+    @Override
+    protected void replay(JournalRecord record) {
+        if (segments.length > 0) {
+            promote(List.of(record.id()));
+        }
+        hot.replay(record);
+    }
+
+    /**
+     * 与其他写操作相同持有分层读锁，涉及的行在冷段中时先调回堆内
+     */
+    @Override
+    public void applyReplicated(JournalRecord record) {
+        write(List.of(record.id()), () -> {
+            hot.replay(record);
+            return null;
+        });
+    }
+
+    /**
+     * 期间不做后台分层，直接加载时写入的冷段不会与后台移出的冷段交错；
+     * 逐行覆盖时冷段中被覆盖的行会调回堆内，每应用一块就分层一次，堆内行数不会随全量数据增长
+     */
+    @Override
+    public void resetTo(SnapshotSource source) throws IOException {
+        tieringLock.lock();
+        try {
+            if (size() == 0) {
+                super.resetTo(source);
+                return;
+            }
+            super.resetTo(new SnapshotSource() {
+                @Override
+                public long seq() {
+                    return source.seq();
+                }
+
+                @Override
+                public int rowCount() {
+                    return source.rowCount();
+                }
+
+                @Override
+                public void forEachChunk(Consumer<Transaction[]> action) throws IOException {
+                    source.forEachChunk(chunk -> {
+                        action.accept(chunk);
+                        tier();
+                    });
+                }
+            });
+        } finally {
+            tieringLock.unlock();
+        }
+    }
+
+    /**
+     * 持有分层读锁执行写操作；涉及的 id 在冷段中时先换成写锁把这些行调回堆内，再降级为读锁执行
+     */
+    private <R> R write(List<UUID> ids, Supplier<R> op) {
+        int epoch = enterWrite();
+        Lock read = tierLock.readLock();
+        read.lock();
+        try {
+            if (segments.length > 0 && anyCold(ids)) {
+                read.unlock();
+                tierLock.writeLock().lock();
+                try {
+                    promote(ids);
+                } finally {
+                    read.lock();
+                    tierLock.writeLock().unlock();
+                }
+            }
+            return op.get();
+        } finally {
+            read.unlock();
+            exitWrite(epoch);
+        }
+    }
+
+    private boolean anyCold(List<UUID> ids) {
+        for (UUID id : ids) {
+            if (hot.get(id) == null && locate(id) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 把仍在冷段中的行调回堆内并在冷段中标记失效，持有分层写锁或在恢复时调用
+     */
+    private void promote(List<UUID> ids) {
+        long next = version + 1;
+        boolean changed = false;
+        for (UUID id : ids) {
+            if (hot.get(id) != null) {
+                continue;
+            }
+            Located located = locate(id);
+            if (located != null && hot.adopt(located.segment.row(located.row))) {
+                located.segment.kill(located.row, next);
+                changed = true;
+            }
+        }
+        if (changed) {
+            version = next;
+            dropEmptySegments();
+        }
+    }
+
+    /**
+     * 写入冷段并移出堆内：先发布新段再移除堆内的行，按 id 读取时任一时刻至少在一处能找到。
+     * 快照之后被修改或删除的行不会被移除，在新段中标记为对所有视图都不可见
+     */
+    private int spill(List<Transaction> chunk) throws IOException {
+        ColdSegment segment = ColdSegment.write(nextSegmentFile(), segmentSeq.get(), chunk);
+        tierLock.writeLock().lock();
+        try {
+            publish(segment);
+            boolean[] evicted = hot.evictAll(chunk);
+            int moved = 0;
+            for (int i = 0; i < evicted.length; i++) {
+                if (evicted[i]) {
+                    moved++;
+                } else {
+                    segment.kill(i, Long.MIN_VALUE);
+                }
+            }
+            dropEmptySegments();
+            return moved;
+        } finally {
+            tierLock.writeLock().unlock();
+        }
+    }
+
+    private void publish(ColdSegment segment) {
+        ColdSegment[] current = segments;
+        ColdSegment[] next = new ColdSegment[current.length + 1];
+        next[0] = segment;
+        System.arraycopy(current, 0, next, 1, current.length);
+        segments = next;
+    }
+
+    /**
+     * 全部失效的段从列表中移除并删除文件；已获取的视图仍持有映射，删除文件不影响其读取
+     */
+    private void dropEmptySegments() {
+        ColdSegment[] current = segments;
+        if (Arrays.stream(current).allMatch(segment -> segment.live() > 0)) {
+            return;
+        }
+        segments = Arrays.stream(current).filter(segment -> segment.live() > 0).toArray(ColdSegment[]::new);
+        for (ColdSegment segment : current) {
+            if (segment.live() == 0) {
+                try {
+                    Files.deleteIfExists(segment.file());
+                } catch (IOException e) {
+                    log.warn("Failed to delete cold segment {}: {}", segment.file(), e.toString());
+                }
+            }
+        }
+    }
+
+    /**
+     * 新段在前，同一 id 最多在一个段中有效；找到已失效的行说明该行已调回堆内，更早的段中也都已失效
+     */
+    private Located locate(UUID id) {
+        for (ColdSegment segment : segments) {
+            int row = segment.find(id);
+            if (row >= 0) {
+                return segment.isDead(row) ? null : new Located(segment, row);
+            }
+        }
+        return null;
+    }
+
+    private record Located(ColdSegment segment, int row) {
+    }
+
+    private TransactionView view(Function<HeapTransactionStore, OrderedIndex.Snapshot<TransactionKey, Transaction>> hotView,
+                                 Function<ColdSegment, int[]> coldRows) {
+        Lock read = tierLock.readLock();
+        read.lock();
+        try {
+            OrderedIndex.Snapshot<TransactionKey, Transaction> hotSnapshot = hotView.apply(hot);
+            ColdSegment[] current = segments;
+            if (current.length == 0) {
+                return TransactionView.of(hotSnapshot);
+            }
+            int[][] rows = new int[current.length][];
+            for (int i = 0; i < current.length; i++) {
+                rows[i] = coldRows.apply(current[i]);
+            }
+            return new TieredView(hotSnapshot, current, rows, version);
+        } finally {
+            read.unlock();
+        }
+    }
+
+    /**
+     * 堆内快照与各冷段在获取时的内容归并。按偏移量定位时逐条跳过，深翻页应使用游标
+     */
+    private static final class TieredView implements TransactionView {
+
+        private final OrderedIndex.Snapshot<TransactionKey, Transaction> hot;
+        private final ColdSegment[] segments;
+        // 每段参与的行号，为 null 时为全部行
+        private final int[][] rows;
+        private final long version;
+        private final int size;
+
+        TieredView(OrderedIndex.Snapshot<TransactionKey, Transaction> hot, ColdSegment[] segments, int[][] rows,
+                   long version) {
+            this.hot = hot;
+            this.segments = segments;
+            this.rows = rows;
+            this.version = version;
+            int total = hot.size();
+            for (int i = 0; i < segments.length; i++) {
+                if (rows[i] == null) {
+                    // 获取视图时持有读锁，live 与 version 一致
+                    total += segments[i].live();
+                } else {
+                    for (int row : rows[i]) {
+                        if (segments[i].visible(row, version)) {
+                            total++;
+                        }
+                    }
+                }
+            }
+            this.size = total;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<Transaction> iterator(int offset) {
+            if (offset >= size) {
+                return Collections.emptyIterator();
+            }
+            Iterator<Transaction>[] parts = parts();
+            parts[0] = hot.iterator();
+            for (int i = 0; i < segments.length; i++) {
+                parts[i + 1] = new ColdIterator(segments[i], rows[i], 0, version);
+            }
+            Iterator<Transaction> merged = MergedView.merge(parts);
+            for (int i = 0; i < offset && merged.hasNext(); i++) {
+                merged.next();
+            }
+            return merged;
+        }
+
+        @Override
+        public Iterator<Transaction> iteratorAfter(TransactionKey key) {
+            Iterator<Transaction>[] parts = parts();
+            parts[0] = hot.iteratorAfter(key);
+            for (int i = 0; i < segments.length; i++) {
+                ColdSegment segment = segments[i];
+                int[] selected = rows[i];
+                int from;
+                if (selected == null) {
+                    from = segment.after(key);
+                } else {
+                    int lo = 0;
+                    int hi = selected.length;
+                    while (lo < hi) {
+                        int mid = (lo + hi) >>> 1;
+                        if (segment.key(selected[mid]).compareTo(key) <= 0) {
+                            lo = mid + 1;
+                        } else {
+                            hi = mid;
+                        }
+                    }
+                    from = lo;
+                }
+                parts[i + 1] = new ColdIterator(segment, selected, from, version);
+            }
+            return MergedView.merge(parts);
+        }
+
+        @SuppressWarnings("unchecked")
+        private Iterator<Transaction>[] parts() {
+            return new Iterator[segments.length + 1];
+        }
+    }
+
+    /**
+     * 按行顺序遍历冷段中在 version 时有效的行，逐行解码
+     */
+    private static final class ColdIterator implements Iterator<Transaction> {
+
+        private final ColdSegment segment;
+        private final int[] rows;
+        private final int end;
+        private final long version;
+        private int index;
+
+        ColdIterator(ColdSegment segment, int[] rows, int from, long version) {
+            this.segment = segment;
+            this.rows = rows;
+            this.end = rows == null ? segment.rows() : rows.length;
+            this.version = version;
+            this.index = from;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < end;
+        }
+
+        @Override
+        public Transaction next() {
+            if (index >= end) {
+                throw new NoSuchElementException();
+            }
+            Transaction t = segment.row(row(index++));
+            advance();
+            return t;
+        }
+
+        private void advance() {
+            while (index < end && !segment.visible(row(index), version)) {
+                index++;
+            }
+        }
+
+        private int row(int i) {
+            return rows == null ? i : rows[i];
+        }
+    }
+
+    private int budgetStart(int rows) {
+        return rows > options.hotMaxRows() ? (int) (options.hotMaxRows() * 0.9) : rows;
+    }
+
+    private LocalDateTime cutoff() {
+        return LocalDateTime.now().minus(options.coldAfter());
+    }
+
+    private Path nextSegmentFile() throws IOException {
+        Files.createDirectories(options.dir());
+        return options.dir().resolve(String.format("%020d", segmentSeq.incrementAndGet()) + SUFFIX);
+    }
+
+    private static <T> List<UUID> ids(List<T> items, Function<T, UUID> idOf) {
+        return items.stream().filter(Objects::nonNull).map(idOf).toList();
+    }
+
+    private void deleteSegmentFiles() {
+        if (!Files.isDirectory(options.dir())) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(options.dir())) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SUFFIX) || name.endsWith(SUFFIX + ".tmp")) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to clean cold segment dir " + options.dir(), e);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.bank.store;
+
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+import org.bank.model.Transaction;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * 交易的紧凑二进制编码，日志、快照等落盘格式共用。
+ * 布局：id(16) | type/status/currency/channel(各1，-1 表示空) | amount(scale 4 + 长度 2 + 补码)
+ * | createdAt/updatedAt(标志 1 + 秒 8 + 纳秒 4) | accountNumber/userName/description(长度 4 + UTF-8，-1 表示空) | version(8)
+ * version 在最后，早期没有版本号的记录解码时版本为 0，此时 decode 的缓冲区需恰好截止于记录末尾。
+ */
+public final class TransactionCodec {
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+    private static final Currency[] CURRENCIES = Currency.values();
+    private static final TransactionChannel[] CHANNELS = TransactionChannel.values();
+
+    private TransactionCodec() {
+    }
+
+    public static byte[] encode(Transaction t) {
+        byte[] unscaled = t.getAmount() == null ? null : t.getAmount().unscaledValue().toByteArray();
+        byte[] accountNumber = utf8(t.getAccountNumber());
+        byte[] userName = utf8(t.getUserName());
+        byte[] description = utf8(t.getDescription());
+
+        int size = 16 + 4
+                + 4 + 2 + (unscaled == null ? 0 : unscaled.length)
+                + 2 * 13
+                + 3 * 4 + length(accountNumber) + length(userName) + length(description)
+                + 8;
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.putLong(t.getId().getMostSignificantBits());
+        buf.putLong(t.getId().getLeastSignificantBits());
+        buf.put(ordinal(t.getType()));
+        buf.put(ordinal(t.getStatus()));
+        buf.put(ordinal(t.getCurrency()));
+        buf.put(ordinal(t.getChannel()));
+        if (unscaled == null) {
+            buf.putInt(0).putShort((short) -1);
+        } else {
+            buf.putInt(t.getAmount().scale()).putShort((short) unscaled.length).put(unscaled);
+        }
+        putTime(buf, t.getCreatedAt());
+        putTime(buf, t.getUpdatedAt());
+        putBytes(buf, accountNumber);
+        putBytes(buf, userName);
+        putBytes(buf, description);
+        buf.putLong(t.getVersion());
+        return buf.array();
+    }
+
+    public static Transaction decode(ByteBuffer buf) {
+        Transaction t = new Transaction();
+        t.setId(new UUID(buf.getLong(), buf.getLong()));
+        byte type = buf.get();
+        byte status = buf.get();
+        byte currency = buf.get();
+        byte channel = buf.get();
+        t.setType(type < 0 ? null : TYPES[type]);
+        t.setStatus(status < 0 ? null : STATUSES[status]);
+        t.setCurrency(currency < 0 ? null : CURRENCIES[currency]);
+        t.setChannel(channel < 0 ? null : CHANNELS[channel]);
+        int scale = buf.getInt();
+        short length = buf.getShort();
+        if (length >= 0) {
+            byte[] unscaled = new byte[length];
+            buf.get(unscaled);
+            t.setAmount(new BigDecimal(new BigInteger(unscaled), scale));
+        }
+        t.setCreatedAt(getTime(buf));
+        t.setUpdatedAt(getTime(buf));
+        t.setAccountNumber(getString(buf));
+        t.setUserName(getString(buf));
+        t.setDescription(getString(buf));
+        if (buf.remaining() >= Long.BYTES) {
+            t.setVersion(buf.getLong());
+        }
+        return t;
+    }
+
+    private static byte ordinal(Enum<?> e) {
+        return e == null ? -1 : (byte) e.ordinal();
+    }
+
+    private static void putTime(ByteBuffer buf, LocalDateTime time) {
+        if (time == null) {
+            buf.put((byte) 0).putLong(0).putInt(0);
+        } else {
+            buf.put((byte) 1).putLong(time.toEpochSecond(ZoneOffset.UTC)).putInt(time.getNano());
+        }
+    }
+
+    private static LocalDateTime getTime(ByteBuffer buf) {
+        boolean present = buf.get() != 0;
+        long seconds = buf.getLong();
+        int nanos = buf.getInt();
+        return present ? LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC) : null;
+    }
+
+    private static byte[] utf8(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void putBytes(ByteBuffer buf, byte[] bytes) {
+        if (bytes == null) {
+            buf.putInt(-1);
+        } else {
+            buf.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (buf.hasArray()) {
+            String s = new String(buf.array(), buf.arrayOffset() + buf.position(), length, StandardCharsets.UTF_8);
+            buf.position(buf.position() + length);
+            return s;
+        }
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,53 @@
+package org.bank.store;
+
+import org.bank.model.Transaction;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * 时间序索引键：按 updatedAt 倒序，时间相同按 id 排序，保证全序且唯一
+ */
+public record TransactionKey(LocalDateTime updatedAt, UUID id) implements Comparable<TransactionKey> {
+
+    private static final int CURSOR_BYTES = Long.BYTES + Integer.BYTES + 2 * Long.BYTES;
+
+    public static TransactionKey of(Transaction transaction) {
+        return new TransactionKey(transaction.getUpdatedAt(), transaction.getId());
+    }
+
+    /**
+     * 编码为不透明游标：base64url(epochSecond, nano, id)
+     */
+    public String toCursor() {
+        ByteBuffer buf = ByteBuffer.allocate(CURSOR_BYTES);
+        buf.putLong(updatedAt.toEpochSecond(ZoneOffset.UTC));
+        buf.putInt(updatedAt.getNano());
+        buf.putLong(id.getMostSignificantBits());
+        buf.putLong(id.getLeastSignificantBits());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buf.array());
+    }
+
+    /**
+     * @throws IllegalArgumentException 游标格式非法
+     * @throws java.time.DateTimeException 游标中的时间非法
+     */
+    public static TransactionKey fromCursor(String cursor) {
+        byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+        if (bytes.length != CURSOR_BYTES) {
+            throw new IllegalArgumentException("invalid cursor length: " + bytes.length);
+        }
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        LocalDateTime updatedAt = LocalDateTime.ofEpochSecond(buf.getLong(), buf.getInt(), ZoneOffset.UTC);
+        return new TransactionKey(updatedAt, new UUID(buf.getLong(), buf.getLong()));
+    }
+
+    @Override
+    public int compareTo(TransactionKey o) {
+        int c = o.updatedAt.compareTo(updatedAt);
+        return c != 0 ? c : id.compareTo(o.id);
+    }
+}
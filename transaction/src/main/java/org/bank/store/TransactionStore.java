@@ -0,0 +1,412 @@
+package org.bank.store;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.bank.model.StatsRow;
+import org.bank.model.Transaction;
+import org.bank.model.TransactionFilter;
+import org.bank.store.filter.FilterIndex;
+import org.bank.store.journal.JournalRecord;
+import org.bank.store.journal.TransactionJournal;
+import org.bank.store.snapshot.ColumnarSnapshot;
+import org.bank.store.snapshot.SnapshotManager;
+import org.bank.store.snapshot.SnapshotSource;
+import org.bank.store.stats.Aggregates;
+import org.bank.store.stats.Dimension;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 交易存储引擎的公共部分：预写日志、快照、写屏障和增量统计。
+ * 行的存放方式与索引由子类实现：{@link HeapTransactionStore} 直接保存交易对象，
+ * {@link org.bank.store.columnar.ColumnarTransactionStore} 按列保存基本类型，读取时再还原为交易对象，
+ * {@link ShardedTransactionStore} 按 id 分成多个堆内分片。
+ * 启动时先加载最新快照，再重放快照之后的日志。
+ * 每次写入在该 id 的写锁内给交易分配版本号：新增为 1，覆盖时为旧版本加一，重放日志和加载快照时保留原版本号。
+ * <p>
+ * 写入先追加日志并更新索引，此时已对读可见，之后才按刷盘策略等待落盘，所以读可能看到尚未 fsync 的行。
+ * 落盘失败时写操作抛出异常，日志从此拒绝所有写入，存储变为只读；失败批次中的行仍留在内存中可读，
+ * 但不会复制给副本（只发送已落盘的记录），也不会进入快照（生成快照和全量数据前等待其中的行全部落盘，失败则放弃），
+ * 重启后以磁盘上的日志为准。
+ */
+@Slf4j
+public abstract class TransactionStore {
+
+    protected final TransactionJournal journal;
+
+    protected final SnapshotManager snapshots;
+
+    // 按币种、类型、状态、渠道及账号增量维护的统计
+    protected final Aggregates aggregates;
+
+    // 写屏障：写日志到更新索引期间登记在当前纪元，生成快照时切换纪元并等待旧纪元的写操作全部完成
+    private final AtomicLong[] inflight = {new AtomicLong(), new AtomicLong()};
+    private volatile int epoch;
+
+    // 写入计数，每次写操作完成、结果对读可见之后加一
+    private final AtomicLong changes = new AtomicLong();
+
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+    private volatile long checkpointSeq;
+
+    protected TransactionStore(TransactionJournal journal, SnapshotManager snapshots) {
+        this(journal, snapshots, new Aggregates());
+    }
+
+    /**
+     * @param aggregates 多个存储实例共用同一份统计时传入，例如分片存储的各分片
+     */
+    protected TransactionStore(TransactionJournal journal, SnapshotManager snapshots, Aggregates aggregates) {
+        this.journal = journal;
+        this.snapshots = snapshots;
+        this.aggregates = aggregates;
+    }
+
+    @PostConstruct
+    public void recover() {
+        long start = System.currentTimeMillis();
+        try {
+            Optional<ColumnarSnapshot.Reader> snapshot = snapshots.openLatest();
+            if (snapshot.isPresent()) {
+                try (ColumnarSnapshot.Reader reader = snapshot.get()) {
+                    loadSnapshot(reader);
+                    checkpointSeq = reader.seq();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to load snapshot", e);
+        }
+        long records = journal.open(checkpointSeq, this::replay);
+        if (checkpointSeq > 0 || records > 0) {
+            log.info("Recovered {} transactions from snapshot seq {} and {} journal records in {} ms",
+                    size(), checkpointSeq, records, System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * 生成一致性快照并删除已被快照覆盖的日志段，期间写操作不停顿
+     *
+     * @return 快照对应的日志序号，未开启日志或快照时返回 -1
+     */
+    public long checkpoint() {
+        if (!journal.isEnabled() || !snapshots.isEnabled()) {
+            return -1;
+        }
+        checkpointLock.lock();
+        try {
+            long seq = drainWrites();
+            // 快照中可能包含 seq 之后的写入，重放时整行覆盖是幂等的
+            TransactionView snapshot = checkpointView();
+            // 快照中的行都在写入时的最后序号之前追加，改名生效前确认它们已落盘
+            snapshots.write(seq, snapshot.size(), snapshot, () -> journal.awaitFlushed(journal.lastSeq()));
+            checkpointSeq = seq;
+            journal.compactUpTo(seq);
+            return seq;
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to write snapshot", e);
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    /**
+     * 取得与日志序号一致的全量数据，供副本从此处开始接收之后的记录。写屏障与生成快照相同，期间写操作不停顿；
+     * 返回的行可能包含序号之后的写入，副本按序应用之后的记录后与本库一致。
+     * 返回的是生成快照所用的一致性视图，不复制行，调用方边遍历边发送
+     */
+    public Captured capture() {
+        checkpointLock.lock();
+        try {
+            long seq = drainWrites();
+            TransactionView view = checkpointView();
+            // 视图中的行都在此时的最后序号之前追加，交出前确认它们已落盘
+            journal.awaitFlushed(journal.lastSeq());
+            return new Captured(seq, view);
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    /**
+     * @param rows 按 TransactionKey 排好序的全部行，可多次遍历且结果不变
+     */
+    public record Captured(long seq, TransactionView rows) {
+    }
+
+    /**
+     * 持有 checkpointLock 调用：先取序号再切换纪元，序号不超过 seq 的写操作都登记在旧纪元，旧纪元排空后它们一定已进入索引
+     *
+     * @return 切换前日志的最后序号
+     */
+    private long drainWrites() {
+        long seq = journal.lastSeq();
+        int old = epoch;
+        epoch = 1 - old;
+        while (inflight[old].get() != 0) {
+            LockSupport.parkNanos(10_000);
+        }
+        return seq;
+    }
+
+    /**
+     * 副本应用主库发来的一条记录：与重放日志相同整行覆盖，不写日志，计入写屏障和写入计数，列表版本随之变化。
+     * 只由复制线程调用
+     */
+    public void applyReplicated(JournalRecord record) {
+        int epoch = enterWrite();
+        try {
+            replay(record);
+        } finally {
+            exitWrite(epoch);
+        }
+    }
+
+    /**
+     * 副本用主库的全量数据替换当前数据，边接收边应用，不整体留在内存中。当前为空时与恢复相同按块构建主表和索引，
+     * 否则逐行覆盖（与当前值相同的行跳过），只记下收到的 id，最后删除主库中已不存在的交易，
+     * 期间读到的是新旧数据的混合。只由复制线程调用
+     */
+    public void resetTo(SnapshotSource source) throws IOException {
+        if (size() == 0) {
+            int epoch = enterWrite();
+            try {
+                loadSnapshot(source);
+            } finally {
+                exitWrite(epoch);
+            }
+            return;
+        }
+        Set<UUID> ids = new HashSet<>(source.rowCount() * 2);
+        source.forEachChunk(chunk -> {
+            for (Transaction row : chunk) {
+                ids.add(row.getId());
+                if (!row.equals(get(row.getId()))) {
+                    applyReplicated(JournalRecord.put(0, row));
+                }
+            }
+        });
+        List<UUID> removed = new ArrayList<>();
+        for (Transaction transaction : snapshot()) {
+            if (!ids.contains(transaction.getId())) {
+                removed.add(transaction.getId());
+            }
+        }
+        for (UUID id : removed) {
+            applyReplicated(JournalRecord.delete(0, id));
+        }
+    }
+
+    public long checkpointSeq() {
+        return checkpointSeq;
+    }
+
+    public long journalSeq() {
+        return journal.lastSeq();
+    }
+
+    /**
+     * 本进程启动以来完成的写操作次数，单调递增，恢复时的加载和重放不计入。
+     * 先读取计数再读取数据时，数据至少包含计数所覆盖的全部写入，计数不变说明读到的数据也不变
+     */
+    public long changeCount() {
+        return changes.get();
+    }
+
+    // 不校验版本
+    public static final long ANY_VERSION = -1;
+
+    // 期望 id 不存在：已有交易的版本从 1 开始，只在不存在时新增
+    public static final long ABSENT_VERSION = 0;
+
+    public abstract Transaction get(UUID id);
+
+    public abstract int size();
+
+    /**
+     * 全部交易，按 updatedAt 倒序
+     */
+    public abstract TransactionView snapshot();
+
+    public abstract TransactionView snapshotByAccount(String accountNumber);
+
+    public abstract TransactionView snapshotByUser(String userName);
+
+    /**
+     * 多条件筛选，按 updatedAt 倒序返回一页
+     *
+     * @param after 游标位置，非空时忽略 skip
+     */
+    public abstract FilterIndex.Result query(TransactionFilter filter, TransactionKey after, int skip, int size);
+
+    /**
+     * 读取增量维护的统计
+     */
+    public List<StatsRow> stats(Set<Dimension> groupBy, String accountNumber) {
+        return aggregates.query(groupBy, accountNumber);
+    }
+
+    /**
+     * 扫描当前全部交易重新计算统计，用于校验增量结果
+     */
+    public List<StatsRow> recomputeStats(Set<Dimension> groupBy, String accountNumber) {
+        Aggregates recomputed = new Aggregates();
+        for (Transaction transaction : snapshot()) {
+            recomputed.update(null, transaction);
+        }
+        return recomputed.query(groupBy, accountNumber);
+    }
+
+    /**
+     * 新增或整行覆盖
+     *
+     * @return 被覆盖的旧值，不存在时为 null
+     */
+    public Transaction put(Transaction transaction) {
+        return put(transaction, ANY_VERSION);
+    }
+
+    /**
+     * 比较并写入，expectedVersion 为 ABSENT_VERSION 时仅在 id 不存在时新增，用于新增接口拒绝已存在的 id
+     *
+     * @return 写入前的当前值，不存在时为 null；返回值的版本与 expectedVersion 不同表示版本不一致，未做修改
+     */
+    public abstract Transaction put(Transaction transaction, long expectedVersion);
+
+    /**
+     * 仅当 id 已存在时整行覆盖
+     *
+     * @return 被覆盖的旧值，不存在时为 null 且不做任何修改
+     */
+    public Transaction replace(Transaction transaction) {
+        return replace(transaction, ANY_VERSION);
+    }
+
+    /**
+     * 比较并覆盖：仅当 id 已存在且当前版本等于 expectedVersion 时整行覆盖，比较和写入在同一写锁内完成
+     *
+     * @return 写入前的当前值，不存在时为 null；返回值的版本与 expectedVersion 不同表示版本不一致，未做修改
+     */
+    public abstract Transaction replace(Transaction transaction, long expectedVersion);
+
+    /**
+     * @return 被删除的值，不存在时为 null
+     */
+    public Transaction remove(UUID id) {
+        return remove(id, ANY_VERSION);
+    }
+
+    /**
+     * 比较并删除，版本一致时才删除
+     *
+     * @return 删除前的当前值，不存在时为 null；返回值的版本与 expectedVersion 不同表示版本不一致，未做修改
+     */
+    public abstract Transaction remove(UUID id, long expectedVersion);
+
+    /**
+     * 批量新增或覆盖，整批只等待一次落盘
+     *
+     * @return 与入参一一对应的旧值
+     */
+    public Transaction[] putAll(List<Transaction> transactions) {
+        return putAll(transactions, ANY_VERSION);
+    }
+
+    /**
+     * 批量比较并写入，整批使用同一个期望版本，含义同 {@link #put(Transaction, long)}
+     *
+     * @return 与入参一一对应的写入前的当前值
+     */
+    public abstract Transaction[] putAll(List<Transaction> transactions, long expectedVersion);
+
+    /**
+     * 批量覆盖已存在的交易，不存在的位置返回 null 且不做修改
+     *
+     * @return 与入参一一对应的旧值
+     */
+    public Transaction[] replaceAll(List<Transaction> transactions) {
+        return replaceAll(transactions, null);
+    }
+
+    /**
+     * 批量比较并覆盖，每条的比较和写入在该 id 的写锁内完成，整批只等待一次落盘
+     *
+     * @param expectedVersions 与入参一一对应的期望版本，为 null 时不校验版本
+     * @return 与入参一一对应的写入前的当前值，不存在的位置为 null；返回值的版本与期望不同表示版本不一致，该条未做修改
+     */
+    public abstract Transaction[] replaceAll(List<Transaction> transactions, long[] expectedVersions);
+
+    /**
+     * @return 与入参一一对应的被删除值，不存在的位置为 null
+     */
+    public abstract Transaction[] removeAll(List<UUID> ids);
+
+    /**
+     * 写入快照的视图，在旧纪元排空后调用，需能被完整遍历多次且每次结果相同
+     */
+    protected abstract TransactionView checkpointView();
+
+    /**
+     * 用快照中已按 TransactionKey 排好序的行重建主表和索引
+     */
+    protected abstract void load(Transaction[] rows);
+
+    /**
+     * 从按块读取的快照重建主表和索引，默认读出全部行后调用 {@link #load(Transaction[])}；
+     * 行不全部留在堆内的引擎覆盖为按块处理
+     */
+    protected void loadSnapshot(SnapshotSource source) throws IOException {
+        load(source.readAll());
+    }
+
+    /**
+     * 重放一条日志，不再写日志
+     */
+    protected abstract void replay(JournalRecord record);
+
+    /**
+     * 当前值存在且版本与期望不一致时返回 false
+     */
+    protected static boolean versionMatches(Transaction current, long expectedVersion) {
+        return current == null || expectedVersion == ANY_VERSION || current.getVersion() == expectedVersion;
+    }
+
+    /**
+     * 写入新值前在写锁内调用，分配新值的版本号
+     */
+    protected static void assignVersion(Transaction previous, Transaction current) {
+        if (current != null) {
+            current.setVersion(previous == null ? 1 : previous.getVersion() + 1);
+        }
+    }
+
+    /**
+     * @throws UncheckedIOException 日志写入已失败，存储只读
+     */
+    protected final int enterWrite() {
+        journal.checkFailure();
+        for (;;) {
+            int e = epoch;
+            inflight[e].incrementAndGet();
+            if (e == epoch) {
+                return e;
+            }
+            // 登记期间纪元已切换，改为登记到新纪元，保证旧纪元排空后不会再有新的写入
+            inflight[e].decrementAndGet();
+        }
+    }
+
+    protected final void exitWrite(int epoch) {
+        changes.incrementAndGet();
+        inflight[epoch].decrementAndGet();
+    }
+}
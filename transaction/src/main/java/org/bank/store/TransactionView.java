@@ -0,0 +1,61 @@
+package org.bank.store;
+
+import org.bank.model.Transaction;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 按 updatedAt 倒序的只读交易视图，获取后不受后续写入影响的程度由存储引擎决定
+ */
+public interface TransactionView extends Iterable<Transaction> {
+
+    int size();
+
+    /**
+     * 从第 offset 条开始遍历
+     */
+    Iterator<Transaction> iterator(int offset);
+
+    /**
+     * 从严格排在 key 之后的第一条开始遍历，用于游标翻页
+     */
+    Iterator<Transaction> iteratorAfter(TransactionKey key);
+
+    @Override
+    default Iterator<Transaction> iterator() {
+        return iterator(0);
+    }
+
+    /**
+     * 从第 offset 条开始取最多 limit 条
+     */
+    default List<Transaction> range(int offset, int limit) {
+        Iterator<Transaction> it = iterator(offset);
+        List<Transaction> result = new ArrayList<>(Math.min(limit, 64));
+        while (result.size() < limit && it.hasNext()) {
+            result.add(it.next());
+        }
+        return result;
+    }
+
+    static TransactionView of(OrderedIndex.Snapshot<TransactionKey, Transaction> snapshot) {
+        return new TransactionView() {
+            @Override
+            public int size() {
+                return snapshot.size();
+            }
+
+            @Override
+            public Iterator<Transaction> iterator(int offset) {
+                return snapshot.iterator(offset);
+            }
+
+            @Override
+            public Iterator<Transaction> iteratorAfter(TransactionKey key) {
+                return snapshot.iteratorAfter(key);
+            }
+        };
+    }
+}
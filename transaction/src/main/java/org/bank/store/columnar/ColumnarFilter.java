@@ -0,0 +1,87 @@
+package org.bank.store.columnar;
+
+import org.bank.model.TransactionFilter;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * 编译为按列判断的筛选条件：枚举条件转为按序号的位掩码，时间条件转为 epoch 秒 + 纳秒，
+ * 判断时只读基本类型列，不还原交易对象。语义与 {@link TransactionFilter#matches} 一致。
+ */
+final class ColumnarFilter {
+
+    // 未指定条件时的掩码，所有序号都命中
+    private static final long ANY = -1L;
+
+    private final long types;
+    private final long statuses;
+    private final long currencies;
+    private final long channels;
+
+    private final Range created;
+    private final Range updated;
+
+    private ColumnarFilter(TransactionFilter filter) {
+        this.types = mask(filter.getType());
+        this.statuses = mask(filter.getStatus());
+        this.currencies = mask(filter.getCurrency());
+        this.channels = mask(filter.getChannel());
+        this.created = Range.of(filter.getCreatedFrom(), filter.getCreatedTo());
+        this.updated = Range.of(filter.getUpdatedFrom(), filter.getUpdatedTo());
+    }
+
+    static ColumnarFilter of(TransactionFilter filter) {
+        return new ColumnarFilter(filter);
+    }
+
+    /**
+     * 在顺序锁的读区间内调用，读到的可能是写了一半的值，由调用方校验版本后采用结果
+     */
+    boolean test(ColumnarRows.Chunk c, int i) {
+        return in(types, c.type[i]) && in(statuses, c.status[i])
+                && in(currencies, c.currency[i]) && in(channels, c.channel[i])
+                && (created == null || created.contains(c.createdSecond[i], c.createdNano[i]))
+                && (updated == null || updated.contains(c.updatedSecond[i], c.updatedNano[i]));
+    }
+
+    private static boolean in(long mask, byte ordinal) {
+        if (mask == ANY) {
+            return true;
+        }
+        return ordinal >= 0 && (mask & (1L << ordinal)) != 0;
+    }
+
+    private static long mask(Collection<? extends Enum<?>> values) {
+        if (values == null || values.isEmpty()) {
+            return ANY;
+        }
+        long mask = 0;
+        for (Enum<?> value : values) {
+            mask |= 1L << value.ordinal();
+        }
+        return mask;
+    }
+
+    /**
+     * 闭区间，任一端为空表示不限
+     */
+    private record Range(LocalDateTime from, LocalDateTime to,
+                         long fromSecond, int fromNano, long toSecond, int toNano) {
+
+        static Range of(LocalDateTime from, LocalDateTime to) {
+            if (from == null && to == null) {
+                return null;
+            }
+            return new Range(from, to, RowKey.second(from), RowKey.nano(from), RowKey.second(to), RowKey.nano(to));
+        }
+
+        boolean contains(long second, int nano) {
+            if (second == RowKey.NULL_SECOND) {
+                return false;
+            }
+            return (from == null || RowKey.compareTime(second, nano, fromSecond, fromNano) >= 0)
+                    && (to == null || RowKey.compareTime(second, nano, toSecond, toNano) <= 0);
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package org.bank.store.columnar;
+
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+import org.bank.model.Transaction;
+import org.bank.store.stats.Aggregates;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按列存放的交易行，每列按 65536 行分块，块在首次写入时分配。
+ * id 拆成两个 long，金额存为 4 位小数的 long 加原始小数位数，时间存为 epoch 秒 + 纳秒，
+ * 枚举存序号，accountNumber/userName 存字典编码，只有 description 仍是对象引用。
+ * 每行一个顺序锁计数（version 列，与交易自身的版本号 txVersion 无关）：写入前后各加一，读取方在版本为偶数且读前读后一致时才采用读到的值，
+ * 因此同一行的写入由调用方串行，读取无锁。行号在删除后回收复用，读取方按 id 复核。
+ */
+final class ColumnarRows {
+
+    static final int CHUNK_SHIFT = 16;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final byte NULL_ORDINAL = -1;
+    // 金额列的小数位数取值：0..4 为原始小数位数，以下两个为特殊值
+    private static final byte NULL_AMOUNT = -1;
+    private static final byte WIDE_AMOUNT = -2;
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+    private static final Currency[] CURRENCIES = Currency.values();
+    private static final TransactionChannel[] CHANNELS = TransactionChannel.values();
+
+    private static final VarHandle VERSION = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private volatile Chunk[] chunks = new Chunk[0];
+
+    private final Dictionary accounts;
+    private final Dictionary users;
+
+    // 无法用 4 位小数 long 表示的历史金额（小数位超过 4 位或超出范围），按行号另存
+    private final Map<Integer, BigDecimal> wideAmounts = new ConcurrentHashMap<>();
+
+    private final AtomicInteger next = new AtomicInteger();
+    private final ReentrantLock freeLock = new ReentrantLock();
+    // 扩容用锁
+    private final ReentrantLock growLock = new ReentrantLock();
+    private int[] free = new int[64];
+    private volatile int freeCount;
+
+    ColumnarRows() {
+        this(new Dictionary(), new Dictionary());
+    }
+
+    /**
+     * 与另一组列共用字典，用于生成快照时的冻结副本
+     */
+    ColumnarRows(Dictionary accounts, Dictionary users) {
+        this.accounts = accounts;
+        this.users = users;
+    }
+
+    static final class Chunk {
+        final int[] version = new int[CHUNK_SIZE];
+        final boolean[] live = new boolean[CHUNK_SIZE];
+        final long[] idHigh = new long[CHUNK_SIZE];
+        final long[] idLow = new long[CHUNK_SIZE];
+        final long[] amount = new long[CHUNK_SIZE];
+        final byte[] amountScale = new byte[CHUNK_SIZE];
+        final long[] createdSecond = new long[CHUNK_SIZE];
+        final int[] createdNano = new int[CHUNK_SIZE];
+        final long[] updatedSecond = new long[CHUNK_SIZE];
+        final int[] updatedNano = new int[CHUNK_SIZE];
+        final byte[] type = new byte[CHUNK_SIZE];
+        final byte[] status = new byte[CHUNK_SIZE];
+        final byte[] currency = new byte[CHUNK_SIZE];
+        final byte[] channel = new byte[CHUNK_SIZE];
+        final int[] account = new int[CHUNK_SIZE];
+        final int[] user = new int[CHUNK_SIZE];
+        final String[] description = new String[CHUNK_SIZE];
+        final long[] txVersion = new long[CHUNK_SIZE];
+    }
+
+    Dictionary accounts() {
+        return accounts;
+    }
+
+    Dictionary users() {
+        return users;
+    }
+
+    int allocate() {
+        if (freeCount > 0) {
+            freeLock.lock();
+            try {
+                if (freeCount > 0) {
+                    return free[--freeCount];
+                }
+            } finally {
+                freeLock.unlock();
+            }
+        }
+        return next.getAndIncrement();
+    }
+
+    /**
+     * 清空该行并放回空闲列表，调用方需保证该行不再被写入
+     */
+    void release(int row) {
+        Chunk c = chunks[row >>> CHUNK_SHIFT];
+        int i = row & CHUNK_MASK;
+        int version = beginWrite(c, i);
+        c.live[i] = false;
+        c.description[i] = null;
+        if (c.amountScale[i] == WIDE_AMOUNT) {
+            wideAmounts.remove(row);
+        }
+        endWrite(c, i, version);
+        freeLock.lock();
+        try {
+            if (freeCount == free.length) {
+                free = Arrays.copyOf(free, free.length * 2);
+            }
+            free[freeCount++] = row;
+        } finally {
+            freeLock.unlock();
+        }
+    }
+
+    /**
+     * 已分配过的最大行号 + 1
+     */
+    int capacity() {
+        return next.get();
+    }
+
+    /**
+     * 用连续行号 0..rows-1 重置分配状态，用于启动时从快照恢复
+     */
+    void reset(int rows) {
+        freeLock.lock();
+        try {
+            freeCount = 0;
+            next.set(rows);
+        } finally {
+            freeLock.unlock();
+        }
+    }
+
+    /**
+     * 整行写入，同一行的写入由调用方串行
+     */
+    void write(int row, Transaction t) {
+        // 字典编码先于行数据发布
+        int account = accounts.encode(t.getAccountNumber());
+        int user = users.encode(t.getUserName());
+        Chunk c = chunkForWrite(row >>> CHUNK_SHIFT);
+        int i = row & CHUNK_MASK;
+        int version = beginWrite(c, i);
+        c.live[i] = true;
+        c.idHigh[i] = t.getId().getMostSignificantBits();
+        c.idLow[i] = t.getId().getLeastSignificantBits();
+        writeAmount(c, i, row, t.getAmount());
+        c.createdSecond[i] = RowKey.second(t.getCreatedAt());
+        c.createdNano[i] = RowKey.nano(t.getCreatedAt());
+        c.updatedSecond[i] = RowKey.second(t.getUpdatedAt());
+        c.updatedNano[i] = RowKey.nano(t.getUpdatedAt());
+        c.type[i] = ordinal(t.getType());
+        c.status[i] = ordinal(t.getStatus());
+        c.currency[i] = ordinal(t.getCurrency());
+        c.channel[i] = ordinal(t.getChannel());
+        c.account[i] = account;
+        c.user[i] = user;
+        c.description[i] = t.getDescription();
+        c.txVersion[i] = t.getVersion();
+        endWrite(c, i, version);
+    }
+
+    /**
+     * 读取一行并还原为交易对象，空行返回 null
+     */
+    Transaction read(int row) {
+        Chunk c = chunk(row);
+        if (c == null) {
+            return null;
+        }
+        int i = row & CHUNK_MASK;
+        for (;;) {
+            int version = beginRead(c, i);
+            boolean live = c.live[i];
+            long idHigh = c.idHigh[i];
+            long idLow = c.idLow[i];
+            long amount = c.amount[i];
+            byte amountScale = c.amountScale[i];
+            long createdSecond = c.createdSecond[i];
+            int createdNano = c.createdNano[i];
+            long updatedSecond = c.updatedSecond[i];
+            int updatedNano = c.updatedNano[i];
+            byte type = c.type[i];
+            byte status = c.status[i];
+            byte currency = c.currency[i];
+            byte channel = c.channel[i];
+            int account = c.account[i];
+            int user = c.user[i];
+            String description = c.description[i];
+            long txVersion = c.txVersion[i];
+            // 另存的金额在写入期间更新，同样放在校验之前读取
+            BigDecimal wide = amountScale == WIDE_AMOUNT ? wideAmounts.get(row) : null;
+            if (!validate(c, i, version)) {
+                continue;
+            }
+            if (!live) {
+                return null;
+            }
+            Transaction t = new Transaction();
+            t.setId(new UUID(idHigh, idLow));
+            t.setAmount(amountScale == WIDE_AMOUNT ? wide : amount(amount, amountScale));
+            t.setCreatedAt(time(createdSecond, createdNano));
+            t.setUpdatedAt(time(updatedSecond, updatedNano));
+            t.setType(type == NULL_ORDINAL ? null : TYPES[type]);
+            t.setStatus(status == NULL_ORDINAL ? null : STATUSES[status]);
+            t.setCurrency(currency == NULL_ORDINAL ? null : CURRENCIES[currency]);
+            t.setChannel(channel == NULL_ORDINAL ? null : CHANNELS[channel]);
+            t.setAccountNumber(accounts.decode(account));
+            t.setUserName(users.decode(user));
+            t.setDescription(description);
+            t.setVersion(txVersion);
+            return t;
+        }
+    }
+
+    /**
+     * 读取一行并复核 id，行已删除或被其他 id 复用时返回 null
+     */
+    Transaction read(int row, long idHigh, long idLow) {
+        Transaction t = read(row);
+        if (t == null || t.getId().getMostSignificantBits() != idHigh
+                || t.getId().getLeastSignificantBits() != idLow) {
+            return null;
+        }
+        return t;
+    }
+
+    /**
+     * 在一致的行版本上按列判断筛选条件，命中时返回该行的时间序键，未命中或空行返回 null
+     */
+    RowKey match(int row, ColumnarFilter filter) {
+        Chunk c = chunk(row);
+        if (c == null) {
+            return null;
+        }
+        int i = row & CHUNK_MASK;
+        for (;;) {
+            int version = beginRead(c, i);
+            boolean matched = c.live[i] && filter.test(c, i);
+            long second = c.updatedSecond[i];
+            int nano = c.updatedNano[i];
+            long idHigh = c.idHigh[i];
+            long idLow = c.idLow[i];
+            if (validate(c, i, version)) {
+                return matched ? new RowKey(second, nano, idHigh, idLow, row) : null;
+            }
+        }
+    }
+
+    /**
+     * 复核 id 后按列判断筛选条件
+     */
+    boolean matches(RowKey key, ColumnarFilter filter) {
+        Chunk c = chunk(key.row);
+        if (c == null) {
+            return false;
+        }
+        int i = key.row & CHUNK_MASK;
+        for (;;) {
+            int version = beginRead(c, i);
+            boolean matched = c.live[i] && c.idHigh[i] == key.idHigh && c.idLow[i] == key.idLow && filter.test(c, i);
+            if (validate(c, i, version)) {
+                return matched;
+            }
+        }
+    }
+
+    private Chunk chunk(int row) {
+        Chunk[] current = chunks;
+        int c = row >>> CHUNK_SHIFT;
+        return c < current.length ? current[c] : null;
+    }
+
+    private Chunk chunkForWrite(int c) {
+        Chunk[] current = chunks;
+        if (c < current.length) {
+            return current[c];
+        }
+        growLock.lock();
+        try {
+            current = chunks;
+            if (c >= current.length) {
+                Chunk[] grown = Arrays.copyOf(current, c + 1);
+                for (int i = current.length; i < grown.length; i++) {
+                    grown[i] = new Chunk();
+                }
+                chunks = grown;
+                current = grown;
+            }
+            return current[c];
+        } finally {
+            growLock.unlock();
+        }
+    }
+
+    /**
+     * 版本号改为奇数，之后的数据写入不会重排到它之前
+     */
+    private static int beginWrite(Chunk c, int i) {
+        int version = c.version[i];
+        VERSION.setOpaque(c.version, i, version + 1);
+        VarHandle.storeStoreFence();
+        return version;
+    }
+
+    private static void endWrite(Chunk c, int i, int version) {
+        VERSION.setRelease(c.version, i, version + 2);
+    }
+
+    private static int beginRead(Chunk c, int i) {
+        for (;;) {
+            int version = (int) VERSION.getAcquire(c.version, i);
+            if ((version & 1) == 0) {
+                return version;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static boolean validate(Chunk c, int i, int version) {
+        VarHandle.acquireFence();
+        return (int) VERSION.getVolatile(c.version, i) == version;
+    }
+
+    private void writeAmount(Chunk c, int i, int row, BigDecimal amount) {
+        if (c.amountScale[i] == WIDE_AMOUNT) {
+            wideAmounts.remove(row);
+        }
+        if (amount == null) {
+            c.amountScale[i] = NULL_AMOUNT;
+            return;
+        }
+        if (amount.scale() >= 0 && amount.scale() <= Aggregates.SCALE) {
+            try {
+                c.amount[i] = amount.movePointRight(Aggregates.SCALE).longValueExact();
+                c.amountScale[i] = (byte) amount.scale();
+                return;
+            } catch (ArithmeticException e) {
+                // 超出 long 范围，按历史金额另存
+            }
+        }
+        wideAmounts.put(row, amount);
+        c.amountScale[i] = WIDE_AMOUNT;
+    }
+
+    private static BigDecimal amount(long amount, byte scale) {
+        return scale == NULL_AMOUNT ? null : BigDecimal.valueOf(amount, Aggregates.SCALE).setScale(scale);
+    }
+
+    private static LocalDateTime time(long second, int nano) {
+        return second == RowKey.NULL_SECOND ? null : LocalDateTime.ofEpochSecond(second, nano, ZoneOffset.UTC);
+    }
+
+    private static byte ordinal(Enum<?> value) {
+        return value == null ? NULL_ORDINAL : (byte) value.ordinal();
+    }
+}
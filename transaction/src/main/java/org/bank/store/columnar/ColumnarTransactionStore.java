@@ -0,0 +1,601 @@
+package org.bank.store.columnar;
+
+import org.bank.model.Transaction;
+import org.bank.model.TransactionFilter;
+import org.bank.store.OrderedIndex;
+import org.bank.store.TransactionKey;
+import org.bank.store.TransactionStore;
+import org.bank.store.TransactionView;
+import org.bank.store.filter.FilterIndex;
+import org.bank.store.journal.JournalRecord;
+import org.bank.store.journal.TransactionJournal;
+import org.bank.store.snapshot.SnapshotManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * 列式存储引擎：交易按列存放在基本类型数组中（见 {@link ColumnarRows}），id -> 行号为基本类型哈希表，
+ * 时间序索引和二级索引的键只含基本类型和行号，只有返回给调用方时才还原为交易对象。
+ * 同一 id 的写操作在该 id 所在分段的写锁内串行执行，索引、统计和日志的顺序与行数据一致。
+ * <p>
+ * 与堆内引擎的差异：视图只冻结了行的顺序，遍历时读到的是每行的最新内容，期间删除的行会被跳过；
+ * 多条件筛选直接按列扫描（指定了较窄的 updatedAt 范围时只扫描索引中的该范围），不维护位图。
+ */
+public class ColumnarTransactionStore extends TransactionStore {
+
+    private static final OrderedIndex.Snapshot<RowKey, RowKey> EMPTY = new OrderedIndex<RowKey, RowKey>().snapshot();
+
+    private final ColumnarRows rows = new ColumnarRows();
+
+    private final RowIdMap ids = new RowIdMap();
+
+    // 按 updatedAt 倒序的有序索引，键与值为同一个 RowKey
+    private final OrderedIndex<RowKey, RowKey> timeIndex = new OrderedIndex<>();
+
+    // 按账号、用户名的二级索引，字段值取字典中的实例，与行数据在同一分段写锁内维护
+    private final Map<String, OrderedIndex<RowKey, RowKey>> accountIndex = new ConcurrentHashMap<>();
+    private final Map<String, OrderedIndex<RowKey, RowKey>> userIndex = new ConcurrentHashMap<>();
+
+    public ColumnarTransactionStore(TransactionJournal journal, SnapshotManager snapshots) {
+        super(journal, snapshots);
+    }
+
+    @Override
+    public Transaction get(UUID id) {
+        long idHigh = id.getMostSignificantBits();
+        long idLow = id.getLeastSignificantBits();
+        int row = ids.get(idHigh, idLow);
+        return row == RowIdMap.ABSENT ? null : rows.read(row, idHigh, idLow);
+    }
+
+    @Override
+    public int size() {
+        return ids.size();
+    }
+
+    @Override
+    public TransactionView snapshot() {
+        return new View(timeIndex.snapshot());
+    }
+
+    @Override
+    public TransactionView snapshotByAccount(String accountNumber) {
+        return new View(postings(accountIndex, accountNumber));
+    }
+
+    @Override
+    public TransactionView snapshotByUser(String userName) {
+        return new View(postings(userIndex, userName));
+    }
+
+    @Override
+    public FilterIndex.Result query(TransactionFilter filter, TransactionKey after, int skip, int size) {
+        ColumnarFilter compiled = ColumnarFilter.of(filter);
+        RowKey cursor = after == null ? null : RowKey.of(after);
+        if (filter.getUpdatedFrom() != null || filter.getUpdatedTo() != null) {
+            OrderedIndex.Snapshot<RowKey, RowKey> byUpdated = timeIndex.snapshot();
+            int start = filter.getUpdatedTo() == null ? 0 : byUpdated.rank(lowerBound(filter.getUpdatedTo()));
+            int end = filter.getUpdatedFrom() == null
+                    ? byUpdated.size() : byUpdated.rank(lowerBound(filter.getUpdatedFrom().minusNanos(1)));
+            int rangeSize = Math.max(0, end - start);
+            // 范围只占全表一小部分时按索引顺序逐行判断，否则整列扫描更快
+            if (rangeSize < rows.capacity() / 2) {
+                return scan(compiled, byUpdated.iterator(start), rangeSize, cursor, skip, size);
+            }
+        }
+        return select(compiled, cursor, skip, size);
+    }
+
+    @Override
+    public Transaction put(Transaction transaction, long expectedVersion) {
+        return single(transaction.getId(), transaction, false, expectedVersion);
+    }
+
+    @Override
+    public Transaction replace(Transaction transaction, long expectedVersion) {
+        return single(transaction.getId(), transaction, true, expectedVersion);
+    }
+
+    @Override
+    public Transaction remove(UUID id, long expectedVersion) {
+        return single(id, null, true, expectedVersion);
+    }
+
+    @Override
+    public Transaction[] putAll(List<Transaction> transactions, long expectedVersion) {
+        long[] expected = new long[transactions.size()];
+        Arrays.fill(expected, expectedVersion);
+        return batch(transactions, Transaction::getId, t -> t, false, expected);
+    }
+
+    @Override
+    public Transaction[] replaceAll(List<Transaction> transactions, long[] expectedVersions) {
+        return batch(transactions, Transaction::getId, t -> t, true, expectedVersions);
+    }
+
+    @Override
+    public Transaction[] removeAll(List<UUID> ids) {
+        return batch(ids, id -> id, id -> null, true, null);
+    }
+
+    /**
+     * 快照写入会逐列多次遍历，而列中的行可能在遍历期间被改写，因此先按索引顺序复制一份冻结的列。
+     * 取得索引快照后又被改写的行（时间序键已变化）单独排序后归并，保证输出仍按键有序；已删除的行跳过。
+     */
+    @Override
+    protected TransactionView checkpointView() {
+        ColumnarRows frozen = new ColumnarRows(rows.accounts(), rows.users());
+        List<Transaction> moved = new ArrayList<>();
+        int count = 0;
+        for (RowKey key : timeIndex.snapshot()) {
+            Transaction t = rows.read(key.row, key.idHigh, key.idLow);
+            if (t == null) {
+                continue;
+            }
+            if (key.compareTo(key(t, key.row)) == 0) {
+                frozen.write(count++, t);
+            } else {
+                moved.add(t);
+            }
+        }
+        moved.sort(Comparator.comparing(t -> key(t, -1)));
+        return new FrozenView(frozen, count, moved);
+    }
+
+    /**
+     * 快照中的行已按索引顺序排列，行号直接取 0..n-1，索引直接构建
+     */
+    @Override
+    protected void load(Transaction[] sorted) {
+        rows.reset(sorted.length);
+        RowKey[] keys = new RowKey[sorted.length];
+        IntStream.range(0, sorted.length).parallel().forEach(i -> {
+            Transaction t = sorted[i];
+            rows.write(i, t);
+            keys[i] = key(t, i);
+            RowIdMap.Stripe stripe = ids.stripe(keys[i].idHigh, keys[i].idLow);
+            stripe.lock();
+            try {
+                stripe.put(keys[i].idHigh, keys[i].idLow, i);
+            } finally {
+                stripe.unlock();
+            }
+        });
+        timeIndex.loadSorted(keys.length, i -> keys[i], i -> keys[i]);
+        loadPostings(accountIndex, rows.accounts(), sorted, keys, Transaction::getAccountNumber);
+        loadPostings(userIndex, rows.users(), sorted, keys, Transaction::getUserName);
+        Arrays.stream(sorted).parallel().forEach(t -> aggregates.update(null, t));
+    }
+
+    @Override
+    protected void replay(JournalRecord record) {
+        switch (record.op()) {
+            case PUT -> apply(record.id(), record.transaction(), false, ANY_VERSION, false);
+            case DELETE -> apply(record.id(), null, true, ANY_VERSION, false);
+        }
+    }
+
+    private Transaction single(UUID id, Transaction current, boolean onlyIfPresent, long expectedVersion) {
+        Write write;
+        int epoch = enterWrite();
+        try {
+            write = apply(id, current, onlyIfPresent, expectedVersion, true);
+        } finally {
+            exitWrite(epoch);
+        }
+        journal.awaitDurable(write.seq);
+        return write.previous;
+    }
+
+    /**
+     * 批量写入逐条加分段写锁，整批只等待一次落盘
+     *
+     * @param expectedVersions 与 items 一一对应的期望版本，为 null 时不校验版本
+     */
+    private <T> Transaction[] batch(List<T> items, Function<T, UUID> id, Function<T, Transaction> current,
+                                    boolean onlyIfPresent, long[] expectedVersions) {
+        Transaction[] previous = new Transaction[items.size()];
+        long lastSeq = 0;
+        int epoch = enterWrite();
+        try {
+            for (int i = 0; i < items.size(); i++) {
+                T item = items.get(i);
+                if (item == null) {
+                    continue;
+                }
+                Write write = apply(id.apply(item), current.apply(item), onlyIfPresent,
+                        expectedVersions == null ? ANY_VERSION : expectedVersions[i], true);
+                previous[i] = write.previous;
+                lastSeq = Math.max(lastSeq, write.seq);
+            }
+        } finally {
+            exitWrite(epoch);
+        }
+        journal.awaitDurable(lastSeq);
+        return previous;
+    }
+
+    /**
+     * 在该 id 所在分段的写锁内写日志，再写行、更新索引与统计
+     *
+     * @param current       新值，null 表示删除
+     * @param onlyIfPresent   仅当 id 已存在时执行
+     * @param expectedVersion 当前版本与之不一致时不做修改，只返回当前值
+     * @param journaled       是否写日志，重放时为 false，此时保留日志中的版本号
+     */
+    private Write apply(UUID id, Transaction current, boolean onlyIfPresent, long expectedVersion, boolean journaled) {
+        long idHigh = id.getMostSignificantBits();
+        long idLow = id.getLeastSignificantBits();
+        Write write = new Write();
+        RowIdMap.Stripe stripe = ids.stripe(idHigh, idLow);
+        stripe.lock();
+        try {
+            int row = stripe.find(idHigh, idLow);
+            if (row == RowIdMap.ABSENT && (onlyIfPresent || current == null)) {
+                return write;
+            }
+            Transaction previous = row == RowIdMap.ABSENT ? null : rows.read(row);
+            if (!versionMatches(previous, expectedVersion)) {
+                write.previous = previous;
+                return write;
+            }
+            if (journaled) {
+                assignVersion(previous, current);
+                // 先追加日志，追加失败时行、索引和统计都未改动
+                write.seq = current == null ? journal.appendDelete(id) : journal.appendPut(current);
+            }
+            if (current != null) {
+                boolean added = row == RowIdMap.ABSENT;
+                if (added) {
+                    row = rows.allocate();
+                }
+                // 先写行再登记行号：查到行号的读取方一定能读到完整的行
+                rows.write(row, current);
+                if (added) {
+                    stripe.put(idHigh, idLow, row);
+                }
+                reindex(row, previous, current);
+            } else {
+                stripe.remove(idHigh, idLow);
+                reindex(row, previous, null);
+                rows.release(row);
+            }
+            aggregates.update(previous, current);
+            write.previous = previous;
+            return write;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    private void reindex(int row, Transaction previous, Transaction current) {
+        RowKey from = previous == null ? null : key(previous, row);
+        RowKey to = current == null ? null : key(current, row);
+        timeIndex.edit(editor -> {
+            if (from != null) {
+                editor.remove(from);
+            }
+            if (to != null) {
+                editor.put(to, to);
+            }
+        });
+        updatePostings(accountIndex, rows.accounts(),
+                previous == null ? null : previous.getAccountNumber(), from,
+                current == null ? null : current.getAccountNumber(), to);
+        updatePostings(userIndex, rows.users(),
+                previous == null ? null : previous.getUserName(), from,
+                current == null ? null : current.getUserName(), to);
+    }
+
+    private static void updatePostings(Map<String, OrderedIndex<RowKey, RowKey>> index, Dictionary dictionary,
+                                       String from, RowKey fromKey, String to, RowKey toKey) {
+        if (from != null && from.equals(to)) {
+            editPostings(index, dictionary, from, editor -> {
+                editor.remove(fromKey);
+                editor.put(toKey, toKey);
+            });
+            return;
+        }
+        if (from != null) {
+            editPostings(index, dictionary, from, editor -> editor.remove(fromKey));
+        }
+        if (to != null) {
+            editPostings(index, dictionary, to, editor -> editor.put(toKey, toKey));
+        }
+    }
+
+    /**
+     * 同一字段值的修改在 ConcurrentHashMap.compute 内串行执行，列表为空时移除该字段值
+     */
+    private static void editPostings(Map<String, OrderedIndex<RowKey, RowKey>> index, Dictionary dictionary,
+                                     String value, Consumer<OrderedIndex.Editor<RowKey, RowKey>> edits) {
+        index.compute(dictionary.canonical(value), (key, postings) -> {
+            if (postings == null) {
+                postings = new OrderedIndex<>();
+            }
+            postings.edit(edits);
+            return postings.size() == 0 ? null : postings;
+        });
+    }
+
+    private static OrderedIndex.Snapshot<RowKey, RowKey> postings(Map<String, OrderedIndex<RowKey, RowKey>> index,
+                                                                  String value) {
+        OrderedIndex<RowKey, RowKey> postings = value == null ? null : index.get(value);
+        return postings == null ? EMPTY : postings.snapshot();
+    }
+
+    private static void loadPostings(Map<String, OrderedIndex<RowKey, RowKey>> index, Dictionary dictionary,
+                                     Transaction[] sorted, RowKey[] keys, Function<Transaction, String> field) {
+        Map<String, List<RowKey>> groups = new HashMap<>();
+        for (int i = 0; i < sorted.length; i++) {
+            String value = field.apply(sorted[i]);
+            if (value != null) {
+                groups.computeIfAbsent(dictionary.canonical(value), k -> new ArrayList<>()).add(keys[i]);
+            }
+        }
+        index.clear();
+        groups.entrySet().parallelStream().forEach(e -> {
+            List<RowKey> group = e.getValue();
+            OrderedIndex<RowKey, RowKey> postings = new OrderedIndex<>();
+            postings.loadSorted(group.size(), group::get, group::get);
+            index.put(e.getKey(), postings);
+        });
+    }
+
+    /**
+     * 按索引顺序逐行判断 updatedAt 范围内的行
+     */
+    private FilterIndex.Result scan(ColumnarFilter filter, Iterator<RowKey> it, int count,
+                                    RowKey cursor, int skip, int size) {
+        List<RowKey> page = new ArrayList<>(Math.min(size, 64));
+        boolean hasNext = false;
+        int total = 0;
+        for (int i = 0; i < count && it.hasNext(); i++) {
+            RowKey key = it.next();
+            if (!rows.matches(key, filter)) {
+                continue;
+            }
+            boolean inPage = cursor != null ? key.compareTo(cursor) > 0 : total >= skip;
+            total++;
+            if (inPage) {
+                if (page.size() < size) {
+                    page.add(key);
+                } else {
+                    hasNext = true;
+                }
+            }
+        }
+        return result(page, total, hasNext);
+    }
+
+    /**
+     * 整列扫描，用大小为 skip + size + 1 的堆选出排在最前的一页
+     */
+    private FilterIndex.Result select(ColumnarFilter filter, RowKey cursor, int skip, int size) {
+        int from = cursor != null ? 0 : skip;
+        int limit = from + size + 1;
+        PriorityQueue<RowKey> top = new PriorityQueue<>(Math.min(limit, 1024), Comparator.reverseOrder());
+        int total = 0;
+        int capacity = rows.capacity();
+        for (int row = 0; row < capacity; row++) {
+            RowKey key = rows.match(row, filter);
+            if (key == null) {
+                continue;
+            }
+            total++;
+            if (cursor != null && key.compareTo(cursor) <= 0) {
+                continue;
+            }
+            if (top.size() < limit) {
+                top.add(key);
+            } else if (key.compareTo(top.peek()) < 0) {
+                top.poll();
+                top.add(key);
+            }
+        }
+        List<RowKey> sorted = new ArrayList<>(top);
+        sorted.sort(null);
+        List<RowKey> page = sorted.subList(Math.min(from, sorted.size()), Math.min(from + size, sorted.size()));
+        return result(page, total, sorted.size() > from + size);
+    }
+
+    private FilterIndex.Result result(List<RowKey> page, int total, boolean hasNext) {
+        List<Transaction> items = new ArrayList<>(page.size());
+        for (RowKey key : page) {
+            Transaction t = rows.read(key.row, key.idHigh, key.idLow);
+            if (t != null) {
+                items.add(t);
+            }
+        }
+        return new FilterIndex.Result(items, total, hasNext);
+    }
+
+    /**
+     * 倒序索引中时间等于 time 的第一个位置对应的键
+     */
+    private static RowKey lowerBound(LocalDateTime time) {
+        return new RowKey(RowKey.second(time), RowKey.nano(time), Long.MIN_VALUE, Long.MIN_VALUE, -1);
+    }
+
+    private static RowKey key(Transaction t, int row) {
+        return new RowKey(RowKey.second(t.getUpdatedAt()), RowKey.nano(t.getUpdatedAt()),
+                t.getId().getMostSignificantBits(), t.getId().getLeastSignificantBits(), row);
+    }
+
+    /**
+     * 索引快照上的视图，遍历时逐行还原，已删除或被复用的行跳过
+     */
+    private final class View implements TransactionView {
+
+        private final OrderedIndex.Snapshot<RowKey, RowKey> keys;
+
+        View(OrderedIndex.Snapshot<RowKey, RowKey> keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public int size() {
+            return keys.size();
+        }
+
+        @Override
+        public Iterator<Transaction> iterator(int offset) {
+            return new RowIterator(keys.iterator(offset));
+        }
+
+        @Override
+        public Iterator<Transaction> iteratorAfter(TransactionKey key) {
+            return new RowIterator(keys.iteratorAfter(RowKey.of(key)));
+        }
+    }
+
+    /**
+     * 预读一行，hasNext 为 true 时 next 一定有值
+     */
+    private final class RowIterator implements Iterator<Transaction> {
+
+        private final Iterator<RowKey> keys;
+        private Transaction next;
+
+        RowIterator(Iterator<RowKey> keys) {
+            this.keys = keys;
+            this.next = advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Transaction next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Transaction current = next;
+            next = advance();
+            return current;
+        }
+
+        private Transaction advance() {
+            while (keys.hasNext()) {
+                RowKey key = keys.next();
+                Transaction t = rows.read(key.row, key.idHigh, key.idLow);
+                if (t != null) {
+                    return t;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 冻结副本（行号 0..count-1 已按键有序）与被改写行的归并视图，可重复遍历
+     */
+    private static final class FrozenView implements TransactionView {
+
+        private final ColumnarRows frozen;
+        private final int count;
+        private final List<Transaction> moved;
+
+        FrozenView(ColumnarRows frozen, int count, List<Transaction> moved) {
+            this.frozen = frozen;
+            this.count = count;
+            this.moved = moved;
+        }
+
+        @Override
+        public int size() {
+            return count + moved.size();
+        }
+
+        @Override
+        public Iterator<Transaction> iterator(int offset) {
+            Iterator<Transaction> it = merge(0, 0);
+            for (int skipped = 0; skipped < offset && it.hasNext(); skipped++) {
+                it.next();
+            }
+            return it;
+        }
+
+        /**
+         * 冻结副本和被改写行各自有序，分别二分查找第一条排在 key 之后的位置再归并
+         */
+        @Override
+        public Iterator<Transaction> iteratorAfter(TransactionKey key) {
+            RowKey after = RowKey.of(key);
+            int lo = 0;
+            int hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (key(frozen.read(mid), -1).compareTo(after) <= 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            int i = lo;
+            lo = 0;
+            hi = moved.size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (key(moved.get(mid), -1).compareTo(after) <= 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return merge(i, lo);
+        }
+
+        private Iterator<Transaction> merge(int fromFrozen, int fromMoved) {
+            return new Iterator<>() {
+                private int i = fromFrozen;
+                private int j = fromMoved;
+
+                @Override
+                public boolean hasNext() {
+                    return i < count || j < moved.size();
+                }
+
+                @Override
+                public Transaction next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    if (j == moved.size()) {
+                        return frozen.read(i++);
+                    }
+                    if (i == count) {
+                        return moved.get(j++);
+                    }
+                    Transaction row = frozen.read(i);
+                    if (key(row, -1).compareTo(key(moved.get(j), -1)) < 0) {
+                        i++;
+                        return row;
+                    }
+                    return moved.get(j++);
+                }
+            };
+        }
+    }
+
+    private static final class Write {
+        Transaction previous;
+        long seq;
+    }
+}
@@ -0,0 +1,72 @@
+package org.bank.store.columnar;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 字符串字典：取值 -> 从 0 开始的编码，只增不删。
+ * 编码先于使用它的行发布，读取方在行版本校验通过后再解码，一定能取到对应的取值。
+ */
+final class Dictionary {
+
+    static final int NULL_CODE = -1;
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+
+    // 新取值的编码分配，新账号、新用户写入时都会经过，用 ReentrantLock 避免虚拟线程等锁时占住载体线程
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile String[] values = new String[64];
+    private int size;
+
+    int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        lock.lock();
+        try {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = value;
+            values = current;
+            codes.put(value, size);
+            return size++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 只查不增，不存在时返回 NULL_CODE
+     */
+    int find(String value) {
+        Integer code = value == null ? null : codes.get(value);
+        return code == null ? NULL_CODE : code;
+    }
+
+    /**
+     * 字典中保存的同值实例，索引等处用它作键，避免同一取值保留多份字符串
+     */
+    String canonical(String value) {
+        return decode(encode(value));
+    }
+
+    String decode(int code) {
+        return code == NULL_CODE ? null : values[code];
+    }
+
+    int size() {
+        return codes.size();
+    }
+}
@@ -0,0 +1,205 @@
+package org.bank.store.columnar;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * id -> 行号，id 拆成两个 long 存放在开放寻址（线性探测）的基本类型数组中，不为每条交易分配节点对象。
+ * 按 id 哈希分为 256 段：每段一把写锁串行化该段内 id 的整个写操作（调用方持有），
+ * 表结构的修改另由 StampedLock 保护，读取先乐观读，校验失败再加读锁。
+ */
+final class RowIdMap {
+
+    static final int ABSENT = -1;
+
+    private static final int STRIPE_BITS = 8;
+
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+
+    RowIdMap() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    Stripe stripe(long idHigh, long idLow) {
+        return stripes[hash(idHigh, idLow) >>> (Integer.SIZE - STRIPE_BITS)];
+    }
+
+    int get(long idHigh, long idLow) {
+        return stripe(idHigh, idLow).get(idHigh, idLow);
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    private static int hash(long idHigh, long idLow) {
+        long h = (idHigh ^ Long.rotateLeft(idLow, 32)) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    static final class Stripe {
+
+        private static final int MIN_CAPACITY = 16;
+
+        private final ReentrantLock writer = new ReentrantLock();
+        private final StampedLock table = new StampedLock();
+
+        private long[] keys = new long[MIN_CAPACITY * 2];
+        private int[] rows = emptyRows(MIN_CAPACITY);
+        private volatile int size;
+
+        void lock() {
+            writer.lock();
+        }
+
+        void unlock() {
+            writer.unlock();
+        }
+
+        int get(long idHigh, long idLow) {
+            long stamp = table.tryOptimisticRead();
+            if (stamp != 0) {
+                int row = find(keys, rows, idHigh, idLow);
+                if (table.validate(stamp)) {
+                    return row;
+                }
+            }
+            stamp = table.readLock();
+            try {
+                return find(keys, rows, idHigh, idLow);
+            } finally {
+                table.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * 持有写锁时查找，不需要再校验
+         */
+        int find(long idHigh, long idLow) {
+            return find(keys, rows, idHigh, idLow);
+        }
+
+        /**
+         * 新增或修改，调用方需持有写锁
+         */
+        void put(long idHigh, long idLow, int row) {
+            long stamp = table.writeLock();
+            try {
+                if ((size + 1) * 4L > rows.length * 3L) {
+                    resize(rows.length * 2);
+                }
+                int mask = rows.length - 1;
+                int slot = hash(idHigh, idLow) & mask;
+                while (rows[slot] != ABSENT) {
+                    if (keys[slot * 2] == idHigh && keys[slot * 2 + 1] == idLow) {
+                        rows[slot] = row;
+                        return;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot * 2] = idHigh;
+                keys[slot * 2 + 1] = idLow;
+                rows[slot] = row;
+                size++;
+            } finally {
+                table.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * 删除，调用方需持有写锁。后续槽位向前回填，保持探测链连续
+         */
+        void remove(long idHigh, long idLow) {
+            long stamp = table.writeLock();
+            try {
+                int mask = rows.length - 1;
+                int slot = hash(idHigh, idLow) & mask;
+                while (rows[slot] != ABSENT) {
+                    if (keys[slot * 2] == idHigh && keys[slot * 2 + 1] == idLow) {
+                        shiftBack(slot, mask);
+                        size--;
+                        return;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+            } finally {
+                table.unlockWrite(stamp);
+            }
+        }
+
+        private void shiftBack(int hole, int mask) {
+            int next = hole;
+            for (;;) {
+                next = (next + 1) & mask;
+                if (rows[next] == ABSENT) {
+                    break;
+                }
+                int home = hash(keys[next * 2], keys[next * 2 + 1]) & mask;
+                // home 不在 (hole, next] 区间内时，该条目可以前移到空位
+                boolean stays = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+                if (!stays) {
+                    keys[hole * 2] = keys[next * 2];
+                    keys[hole * 2 + 1] = keys[next * 2 + 1];
+                    rows[hole] = rows[next];
+                    hole = next;
+                }
+            }
+            rows[hole] = ABSENT;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldRows = rows;
+            long[] newKeys = new long[capacity * 2];
+            int[] newRows = emptyRows(capacity);
+            int mask = capacity - 1;
+            for (int i = 0; i < oldRows.length; i++) {
+                if (oldRows[i] == ABSENT) {
+                    continue;
+                }
+                int slot = hash(oldKeys[i * 2], oldKeys[i * 2 + 1]) & mask;
+                while (newRows[slot] != ABSENT) {
+                    slot = (slot + 1) & mask;
+                }
+                newKeys[slot * 2] = oldKeys[i * 2];
+                newKeys[slot * 2 + 1] = oldKeys[i * 2 + 1];
+                newRows[slot] = oldRows[i];
+            }
+            keys = newKeys;
+            rows = newRows;
+        }
+
+        /**
+         * 乐观读时数组可能正被修改，最多探测一整圈，结果由调用方校验
+         */
+        private static int find(long[] keys, int[] rows, long idHigh, long idLow) {
+            int capacity = Math.min(rows.length, keys.length / 2);
+            int mask = capacity - 1;
+            int slot = hash(idHigh, idLow) & mask;
+            for (int probes = 0; probes < capacity; probes++) {
+                int row = rows[slot];
+                if (row == ABSENT) {
+                    return ABSENT;
+                }
+                if (keys[slot * 2] == idHigh && keys[slot * 2 + 1] == idLow) {
+                    return row;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return ABSENT;
+        }
+
+        private static int[] emptyRows(int capacity) {
+            int[] rows = new int[capacity];
+            Arrays.fill(rows, ABSENT);
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.bank.store.columnar;
+
+import org.bank.store.TransactionKey;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * 列式引擎的时间序索引键，排序规则与 {@link TransactionKey} 相同（updatedAt 倒序、id 升序），
+ * 但只由基本类型组成并带上行号，索引中不再引用时间和 UUID 对象。行号不参与比较。
+ */
+final class RowKey implements Comparable<RowKey> {
+
+    // updatedAt 为空时的秒数，排在最后
+    static final long NULL_SECOND = Long.MIN_VALUE;
+
+    final long second;
+    final int nano;
+    final long idHigh;
+    final long idLow;
+    final int row;
+
+    RowKey(long second, int nano, long idHigh, long idLow, int row) {
+        this.second = second;
+        this.nano = nano;
+        this.idHigh = idHigh;
+        this.idLow = idLow;
+        this.row = row;
+    }
+
+    /**
+     * 游标对应的键，行号为 -1
+     */
+    static RowKey of(TransactionKey key) {
+        LocalDateTime time = key.updatedAt();
+        return new RowKey(second(time), nano(time),
+                key.id().getMostSignificantBits(), key.id().getLeastSignificantBits(), -1);
+    }
+
+    static long second(LocalDateTime time) {
+        return time == null ? NULL_SECOND : time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    static int nano(LocalDateTime time) {
+        return time == null ? 0 : time.getNano();
+    }
+
+    /**
+     * 与给定时间比较，语义同 updatedAt.compareTo(time)
+     */
+    static int compareTime(long second, int nano, long otherSecond, int otherNano) {
+        int c = Long.compare(second, otherSecond);
+        return c != 0 ? c : Integer.compare(nano, otherNano);
+    }
+
+    @Override
+    public int compareTo(RowKey o) {
+        int c = compareTime(o.second, o.nano, second, nano);
+        if (c != 0) {
+            return c;
+        }
+        c = Long.compare(idHigh, o.idHigh);
+        return c != 0 ? c : Long.compare(idLow, o.idLow);
+    }
+}
@@ -0,0 +1,84 @@
+package org.bank.store.filter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 支持并发置位的分块位图。每块 65536 位，整块为空时不分配，稀疏分布时只占用有数据的块；
+ * 单个位的修改为原子操作，读取方拿到的是近似实时的视图，由调用方对结果复核。
+ */
+final class ConcurrentBitmap {
+
+    static final int CHUNK_SHIFT = 16;
+    static final int WORDS_PER_CHUNK = 1 << (CHUNK_SHIFT - 6);
+
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private volatile long[][] chunks = new long[0][];
+    private final ReentrantLock growLock = new ReentrantLock();
+
+    void set(int bit) {
+        long[] chunk = chunkForWrite(bit >>> CHUNK_SHIFT);
+        WORDS.getAndBitwiseOr(chunk, (bit >>> 6) & (WORDS_PER_CHUNK - 1), 1L << bit);
+    }
+
+    void clear(int bit) {
+        long[][] current = chunks;
+        int c = bit >>> CHUNK_SHIFT;
+        if (c < current.length && current[c] != null) {
+            WORDS.getAndBitwiseAnd(current[c], (bit >>> 6) & (WORDS_PER_CHUNK - 1), ~(1L << bit));
+        }
+    }
+
+    boolean get(int bit) {
+        long[][] current = chunks;
+        int c = bit >>> CHUNK_SHIFT;
+        if (c >= current.length || current[c] == null) {
+            return false;
+        }
+        long word = (long) WORDS.getOpaque(current[c], (bit >>> 6) & (WORDS_PER_CHUNK - 1));
+        return (word & (1L << bit)) != 0;
+    }
+
+    /**
+     * 把本位图按位或到 target 上，target 按字（64 位）寻址，只覆盖前 words 个字
+     */
+    void orInto(long[] target, int words) {
+        long[][] current = chunks;
+        for (int c = 0; c < current.length; c++) {
+            long[] chunk = current[c];
+            if (chunk == null) {
+                continue;
+            }
+            int base = c * WORDS_PER_CHUNK;
+            int end = Math.min(WORDS_PER_CHUNK, words - base);
+            for (int w = 0; w < end; w++) {
+                target[base + w] |= (long) WORDS.getOpaque(chunk, w);
+            }
+        }
+    }
+
+    private long[] chunkForWrite(int c) {
+        long[][] current = chunks;
+        if (c < current.length && current[c] != null) {
+            return current[c];
+        }
+        growLock.lock();
+        try {
+            current = chunks;
+            if (c >= current.length) {
+                long[][] grown = new long[Math.max(c + 1, current.length * 2)][];
+                System.arraycopy(current, 0, grown, 0, current.length);
+                current = grown;
+            }
+            if (current[c] == null) {
+                current[c] = new long[WORDS_PER_CHUNK];
+            }
+            chunks = current;
+            return current[c];
+        } finally {
+            growLock.unlock();
+        }
+    }
+}
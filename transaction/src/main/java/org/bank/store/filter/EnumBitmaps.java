@@ -0,0 +1,47 @@
+package org.bank.store.filter;
+
+import org.bank.model.Transaction;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * 某个枚举字段的位图索引：每个枚举值一张位图，位为行号
+ */
+final class EnumBitmaps<E extends Enum<E>> {
+
+    private final ConcurrentBitmap[] bitmaps;
+
+    private final Function<Transaction, E> field;
+
+    EnumBitmaps(Class<E> type, Function<Transaction, E> field) {
+        this.bitmaps = new ConcurrentBitmap[type.getEnumConstants().length];
+        for (int i = 0; i < bitmaps.length; i++) {
+            bitmaps[i] = new ConcurrentBitmap();
+        }
+        this.field = field;
+    }
+
+    void update(int row, Transaction previous, Transaction current) {
+        E from = previous == null ? null : field.apply(previous);
+        E to = current == null ? null : field.apply(current);
+        if (from == to) {
+            return;
+        }
+        if (from != null) {
+            bitmaps[from.ordinal()].clear(row);
+        }
+        if (to != null) {
+            bitmaps[to.ordinal()].set(row);
+        }
+    }
+
+    /**
+     * 取值为 values 中任意一个的行，按位或后写入 target 的前 words 个字（需为全零）
+     */
+    void or(Collection<E> values, long[] target, int words) {
+        for (E value : values) {
+            bitmaps[value.ordinal()].orInto(target, words);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package org.bank.store.filter;
+
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+import org.bank.model.Transaction;
+import org.bank.model.TransactionFilter;
+import org.bank.store.OrderedIndex;
+import org.bank.store.TransactionKey;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.stream.IntStream;
+
+/**
+ * 多条件筛选索引：枚举字段每个取值一张行号位图，另有按 createdAt 排序的有序索引。
+ * 查询时先用位图按位与/或得到候选行，候选数少于 updatedAt 时间范围内的条数时逐行取出复核并选出一页，
+ * 否则直接按时间顺序扫描该范围。位图与行表都在持有对应 id 的写锁时维护。
+ * 候选位图的缓冲区查询结束后归还复用，不为每次查询按行数分配。
+ */
+public final class FilterIndex {
+
+    private static final UUID MIN_ID = new UUID(Long.MIN_VALUE, Long.MIN_VALUE);
+
+    // 留存的候选位图缓冲区个数，并发查询多于此数时多出的缓冲区用完即丢弃
+    private static final int SCRATCH_BUFFERS = 16;
+
+    private final RowTable rows = new RowTable();
+
+    private final EnumBitmaps<TransactionType> types = new EnumBitmaps<>(TransactionType.class, Transaction::getType);
+    private final EnumBitmaps<TransactionStatus> statuses = new EnumBitmaps<>(TransactionStatus.class, Transaction::getStatus);
+    private final EnumBitmaps<Currency> currencies = new EnumBitmaps<>(Currency.class, Transaction::getCurrency);
+    private final EnumBitmaps<TransactionChannel> channels = new EnumBitmaps<>(TransactionChannel.class, Transaction::getChannel);
+
+    // 按 createdAt 倒序，键复用 TransactionKey，值为行号
+    private final OrderedIndex<TransactionKey, Integer> createdIndex = new OrderedIndex<>();
+
+    private final ArrayBlockingQueue<long[]> scratch = new ArrayBlockingQueue<>(SCRATCH_BUFFERS);
+
+    public record Result(List<Transaction> items, int total, boolean hasNext) {
+    }
+
+    /**
+     * 用旧值、新值更新索引，必须持有该 id 的写锁。新值沿用旧值的行号，新增时分配行号
+     */
+    public void update(Transaction previous, Transaction current) {
+        if (current == null && previous == null) {
+            return;
+        }
+        int row;
+        if (current != null) {
+            row = rows.assign(current.getId());
+            // 先发布行再改位图：读到新位的一方一定能取到对应的行
+            rows.set(row, current);
+        } else {
+            row = rows.rowOf(previous.getId());
+        }
+        types.update(row, previous, current);
+        statuses.update(row, previous, current);
+        currencies.update(row, previous, current);
+        channels.update(row, previous, current);
+        createdIndex.edit(editor -> {
+            if (previous != null && previous.getCreatedAt() != null) {
+                editor.remove(createdKey(previous));
+            }
+            if (current != null && current.getCreatedAt() != null) {
+                editor.put(createdKey(current), row);
+            }
+        });
+        if (current == null) {
+            rows.release(previous.getId());
+        }
+    }
+
+    /**
+     * 用行号 0..n-1 重建索引，用于启动时从快照恢复
+     */
+    public void load(Transaction[] sorted) {
+        rows.reset(sorted.length);
+        IntStream.range(0, sorted.length).parallel().forEach(i -> {
+            Transaction t = sorted[i];
+            rows.load(i, t);
+            types.update(i, null, t);
+            statuses.update(i, null, t);
+            currencies.update(i, null, t);
+            channels.update(i, null, t);
+        });
+        Integer[] byCreated = IntStream.range(0, sorted.length).filter(i -> sorted[i].getCreatedAt() != null)
+                .boxed().toArray(Integer[]::new);
+        Arrays.parallelSort(byCreated, Comparator.comparing(i -> createdKey(sorted[i])));
+        createdIndex.loadSorted(byCreated.length, i -> createdKey(sorted[byCreated[i]]), i -> byCreated[i]);
+    }
+
+    /**
+     * @param byUpdated 按 updatedAt 倒序的时间索引快照
+     * @param after     游标位置，非空时忽略 skip
+     */
+    public Result query(TransactionFilter filter, OrderedIndex.Snapshot<TransactionKey, Transaction> byUpdated,
+                        TransactionKey after, int skip, int size) {
+        int start = filter.getUpdatedTo() == null ? 0 : byUpdated.rank(lowerBound(filter.getUpdatedTo()));
+        int end = filter.getUpdatedFrom() == null
+                ? byUpdated.size() : byUpdated.rank(lowerBound(filter.getUpdatedFrom().minusNanos(1)));
+        int rangeSize = Math.max(0, end - start);
+
+        int words = (rows.capacity() + 63) >>> 6;
+        long[] result = borrow(words);
+        long[] operand = borrow(words);
+        try {
+            // 扫描需要统计整个范围内的命中数，带游标时也从范围起点开始
+            if (!candidates(filter, result, operand, words) || rangeSize <= cardinality(result, words)) {
+                return scan(filter, byUpdated.iterator(start), rangeSize, after, skip, size);
+            }
+            return select(filter, result, words, after, skip, size);
+        } finally {
+            scratch.offer(result);
+            scratch.offer(operand);
+        }
+    }
+
+    /**
+     * 按时间顺序扫描 updatedAt 范围，逐条判断
+     */
+    private static Result scan(TransactionFilter filter, Iterator<Transaction> it, int count,
+                               TransactionKey after, int skip, int size) {
+        List<Transaction> items = new ArrayList<>(Math.min(size, 64));
+        boolean hasNext = false;
+        int total = 0;
+        for (int i = 0; i < count && it.hasNext(); i++) {
+            Transaction t = it.next();
+            if (!filter.matches(t)) {
+                continue;
+            }
+            boolean inPage = after != null ? TransactionKey.of(t).compareTo(after) > 0 : total >= skip;
+            total++;
+            if (inPage) {
+                if (items.size() < size) {
+                    items.add(t);
+                } else {
+                    hasNext = true;
+                }
+            }
+        }
+        return new Result(items, total, hasNext);
+    }
+
+    /**
+     * 遍历候选行复核，用大小为 skip + size + 1 的堆选出排在最前的一页
+     */
+    private Result select(TransactionFilter filter, long[] candidates, int words, TransactionKey after, int skip, int size) {
+        int from = after != null ? 0 : skip;
+        int limit = from + size + 1;
+        PriorityQueue<Entry> top = new PriorityQueue<>(Math.min(limit, 1024), Comparator.reverseOrder());
+        int total = 0;
+        for (int w = 0; w < words; w++) {
+            long word = candidates[w];
+            while (word != 0) {
+                int row = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                Transaction t = rows.get(row);
+                if (t == null || !filter.matches(t)) {
+                    continue;
+                }
+                total++;
+                TransactionKey key = TransactionKey.of(t);
+                if (after != null && key.compareTo(after) <= 0) {
+                    continue;
+                }
+                if (top.size() < limit) {
+                    top.add(new Entry(key, t));
+                } else if (key.compareTo(top.peek().key()) < 0) {
+                    top.poll();
+                    top.add(new Entry(key, t));
+                }
+            }
+        }
+        List<Entry> sorted = new ArrayList<>(top);
+        sorted.sort(null);
+        List<Transaction> items = new ArrayList<>(size);
+        for (int i = from; i < sorted.size() && items.size() < size; i++) {
+            items.add(sorted.get(i).transaction());
+        }
+        return new Result(items, total, sorted.size() > from + size);
+    }
+
+    private record Entry(TransactionKey key, Transaction transaction) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry o) {
+            return key.compareTo(o.key);
+        }
+    }
+
+    /**
+     * 把枚举条件与 createdAt 范围对应的候选行位图写入 result，operand 为中间结果用的缓冲区
+     *
+     * @return 没有这类条件时为 false，此时 result 无意义
+     */
+    private boolean candidates(TransactionFilter filter, long[] result, long[] operand, int words) {
+        boolean any = and(false, result, operand, types, filter.getType(), words);
+        any = and(any, result, operand, statuses, filter.getStatus(), words);
+        any = and(any, result, operand, currencies, filter.getCurrency(), words);
+        any = and(any, result, operand, channels, filter.getChannel(), words);
+        if (filter.hasCreatedRange()) {
+            OrderedIndex.Snapshot<TransactionKey, Integer> snapshot = createdIndex.snapshot();
+            int start = filter.getCreatedTo() == null ? 0 : snapshot.rank(lowerBound(filter.getCreatedTo()));
+            int end = filter.getCreatedFrom() == null
+                    ? snapshot.size() : snapshot.rank(lowerBound(filter.getCreatedFrom().minusNanos(1)));
+            long[] created = any ? operand : result;
+            Arrays.fill(created, 0, words, 0L);
+            Iterator<Integer> it = snapshot.iterator(start);
+            for (int i = start; i < end && it.hasNext(); i++) {
+                int row = it.next();
+                if (row < words << 6) {
+                    created[row >>> 6] |= 1L << row;
+                }
+            }
+            any = and(any, result, created, words);
+        }
+        return any;
+    }
+
+    /**
+     * 第一个条件直接写入 result，之后的条件写入 operand 再与 result 按位与
+     */
+    private static <E extends Enum<E>> boolean and(boolean any, long[] result, long[] operand, EnumBitmaps<E> bitmaps,
+                                                   Collection<E> values, int words) {
+        if (values == null || values.isEmpty()) {
+            return any;
+        }
+        long[] selected = any ? operand : result;
+        Arrays.fill(selected, 0, words, 0L);
+        bitmaps.or(values, selected, words);
+        return and(any, result, selected, words);
+    }
+
+    private static boolean and(boolean any, long[] result, long[] other, int words) {
+        if (any) {
+            for (int i = 0; i < words; i++) {
+                result[i] &= other[i];
+            }
+        }
+        return true;
+    }
+
+    private long[] borrow(int words) {
+        long[] buffer = scratch.poll();
+        // 行数增长后旧缓冲区不够长时丢弃，按新长度多留一些余量
+        return buffer != null && buffer.length >= words ? buffer : new long[words + (words >>> 3)];
+    }
+
+    private static int cardinality(long[] bits, int words) {
+        int count = 0;
+        for (int i = 0; i < words; i++) {
+            count += Long.bitCount(bits[i]);
+        }
+        return count;
+    }
+
+    /**
+     * 倒序索引中时间等于 time 的第一个位置对应的键
+     */
+    private static TransactionKey lowerBound(LocalDateTime time) {
+        return new TransactionKey(time, MIN_ID);
+    }
+
+    private static TransactionKey createdKey(Transaction t) {
+        return new TransactionKey(t.getCreatedAt(), t.getId());
+    }
+}
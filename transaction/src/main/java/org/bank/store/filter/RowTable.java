@@ -0,0 +1,146 @@
+package org.bank.store.filter;
+
+import org.bank.model.Transaction;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 行号 -> 交易，以及 id -> 行号。行号在新增时分配、删除时回收复用，使位图保持紧凑。
+ * 同一行号的读写都在对应 id 的写锁内串行执行，回收复用期间的读取由调用方复核。
+ */
+final class RowTable {
+
+    private static final int CHUNK_SHIFT = ConcurrentBitmap.CHUNK_SHIFT;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    @SuppressWarnings("unchecked")
+    private volatile AtomicReferenceArray<Transaction>[] chunks = new AtomicReferenceArray[0];
+
+    private final ConcurrentHashMap<UUID, Integer> ids = new ConcurrentHashMap<>();
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final ReentrantLock freeLock = new ReentrantLock();
+    private final ReentrantLock growLock = new ReentrantLock();
+    private int[] free = new int[64];
+    private volatile int freeCount;
+
+    /**
+     * 该 id 已有的行号，没有时分配一个新行号
+     */
+    int assign(UUID id) {
+        Integer row = ids.get(id);
+        if (row != null) {
+            return row;
+        }
+        int allocated = allocate();
+        ids.put(id, allocated);
+        return allocated;
+    }
+
+    /**
+     * @return 该 id 的行号，不存在时为 -1
+     */
+    int rowOf(UUID id) {
+        Integer row = ids.get(id);
+        return row == null ? -1 : row;
+    }
+
+    /**
+     * 删除该 id 并回收其行号
+     */
+    void release(UUID id) {
+        Integer row = ids.remove(id);
+        if (row == null) {
+            return;
+        }
+        set(row, null);
+        freeLock.lock();
+        try {
+            if (freeCount == free.length) {
+                free = Arrays.copyOf(free, free.length * 2);
+            }
+            free[freeCount++] = row;
+        } finally {
+            freeLock.unlock();
+        }
+    }
+
+    Transaction get(int row) {
+        AtomicReferenceArray<Transaction>[] current = chunks;
+        int c = row >>> CHUNK_SHIFT;
+        return c < current.length ? current[c].get(row & (CHUNK_SIZE - 1)) : null;
+    }
+
+    void set(int row, Transaction transaction) {
+        chunk(row >>> CHUNK_SHIFT).set(row & (CHUNK_SIZE - 1), transaction);
+    }
+
+    /**
+     * 已分配过的最大行号 + 1
+     */
+    int capacity() {
+        return next.get();
+    }
+
+    /**
+     * 用连续行号 0..rows-1 重置，用于启动时从快照恢复，之后按行号调用 {@link #load}
+     */
+    void reset(int rows) {
+        freeLock.lock();
+        try {
+            ids.clear();
+            freeCount = 0;
+            next.set(rows);
+        } finally {
+            freeLock.unlock();
+        }
+    }
+
+    void load(int row, Transaction transaction) {
+        ids.put(transaction.getId(), row);
+        set(row, transaction);
+    }
+
+    private int allocate() {
+        if (freeCount > 0) {
+            freeLock.lock();
+            try {
+                if (freeCount > 0) {
+                    return free[--freeCount];
+                }
+            } finally {
+                freeLock.unlock();
+            }
+        }
+        return next.getAndIncrement();
+    }
+
+    @SuppressWarnings("unchecked")
+    private AtomicReferenceArray<Transaction> chunk(int c) {
+        AtomicReferenceArray<Transaction>[] current = chunks;
+        if (c < current.length) {
+            return current[c];
+        }
+        growLock.lock();
+        try {
+            current = chunks;
+            if (c >= current.length) {
+                AtomicReferenceArray<Transaction>[] grown = Arrays.copyOf(current, c + 1);
+                for (int i = current.length; i < grown.length; i++) {
+                    grown[i] = new AtomicReferenceArray<>(CHUNK_SIZE);
+                }
+                chunks = grown;
+                current = grown;
+            }
+            return current[c];
+        } finally {
+            growLock.unlock();
+        }
+    }
+}
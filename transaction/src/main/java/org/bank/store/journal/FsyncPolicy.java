@@ -0,0 +1,10 @@
+package org.bank.store.journal;
+
+/**
+ * 日志刷盘策略
+ */
+public enum FsyncPolicy {
+    ALWAYS,   // 每次写入在返回前都已 fsync，并发写入合并为一次 fsync（组提交）
+    INTERVAL, // 后台按固定间隔 fsync，宕机最多丢失一个间隔内的数据
+    OS        // 只写入页缓存，由操作系统决定何时落盘
+}
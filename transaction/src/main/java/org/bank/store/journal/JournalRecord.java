@@ -0,0 +1,24 @@
+package org.bank.store.journal;
+
+import org.bank.model.Transaction;
+
+import java.util.UUID;
+
+/**
+ * 日志中的一条变更：PUT 携带完整交易（新增与修改都是整行覆盖，重放幂等），DELETE 只携带 id
+ */
+public record JournalRecord(long seq, Op op, UUID id, Transaction transaction) {
+
+    public enum Op {
+        PUT,
+        DELETE
+    }
+
+    public static JournalRecord put(long seq, Transaction transaction) {
+        return new JournalRecord(seq, Op.PUT, transaction.getId(), transaction);
+    }
+
+    public static JournalRecord delete(long seq, UUID id) {
+        return new JournalRecord(seq, Op.DELETE, id, null);
+    }
+}
@@ -0,0 +1,525 @@
+package org.bank.store.journal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bank.model.Transaction;
+import org.bank.store.TransactionCodec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * 只追加的预写日志，按段文件滚动，文件名为段内第一条记录的序号。
+ * 记录格式：length(4) | crc32c(4) | seq(8) | op(1) | payload，crc 覆盖 seq 之后的内容。
+ * 写入方只把记录追加到内存缓冲区，由单独的刷盘线程批量写入文件并 fsync，
+ * 并发写入因此合并为一次 fsync（组提交）。
+ * 挂上 {@link Listener} 后每条记录按序号顺序交给它，未开启持久化时仍为其分配序号，只是不写文件。
+ * 写入失败后日志不再恢复，之后的追加全部抛出异常，已满足刷盘策略的序号停在失败之前。
+ */
+@Slf4j
+public class TransactionJournal implements Closeable {
+
+    private static final int HEADER_BYTES = 8;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int INITIAL_BUFFER_BYTES = 1 << 20;
+    private static final int MAX_BUFFER_BYTES = 16 << 20;
+
+    private final boolean enabled;
+    private final Path dir;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final long segmentBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasData = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+
+    // 以下字段由 lock 保护
+    private ByteBuffer active = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private ByteBuffer flushing = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private long lastSeq;     // 最后分配的序号
+    private long writtenSeq;  // 已写入文件的序号
+    private long durableSeq;  // 已满足刷盘策略的序号
+    private boolean closed;
+    // 刷盘线程在锁内写入，写入方在锁外也会读取
+    private volatile IOException failure;
+
+    // 以下字段只由刷盘线程访问
+    private FileChannel channel;
+    private long channelSize;
+
+    private final AtomicLong fsyncCount = new AtomicLong();
+    private Thread flusher;
+
+    // 在分配序号的锁内调用，交给它的顺序与序号一致
+    private volatile Listener listener;
+
+    /**
+     * 日志记录的接收方，例如主库向副本发送的复制日志。在日志锁内调用，不能阻塞
+     */
+    public interface Listener {
+
+        /**
+         * 开始接收前调用一次，lastSeq 及之前的记录不会交给接收方
+         */
+        void attached(long lastSeq);
+
+        /**
+         * @param frame 完整的一条记录，格式与段文件中相同，可用 {@link #decodeFrame} 解码
+         */
+        void appended(long seq, byte[] frame);
+
+        /**
+         * seq 及之前的记录已满足刷盘策略，未开启持久化时追加后立即调用
+         */
+        void durable(long seq);
+    }
+
+    public TransactionJournal(Path dir, FsyncPolicy fsyncPolicy, Duration fsyncInterval, long segmentBytes) {
+        this.enabled = true;
+        this.dir = dir;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+        this.segmentBytes = segmentBytes;
+    }
+
+    private TransactionJournal() {
+        this.enabled = false;
+        this.dir = null;
+        this.fsyncPolicy = FsyncPolicy.OS;
+        this.fsyncIntervalNanos = 0;
+        this.segmentBytes = 0;
+    }
+
+    /**
+     * 未开启持久化时使用的空实现，所有操作直接返回
+     */
+    public static TransactionJournal disabled() {
+        return new TransactionJournal();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 在 open 之后、开始接受写入之前挂上，之后的每条记录都交给 listener
+     */
+    public void attach(Listener listener) {
+        lock.lock();
+        try {
+            listener.attached(lastSeq);
+            this.listener = listener;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long open(Consumer<JournalRecord> replay) {
+        return open(0, replay);
+    }
+
+    /**
+     * 按序重放序号大于 afterSeq 的日志，截断最后一个段末尾未写完整的记录，然后开始接受写入
+     *
+     * @param afterSeq 已由快照覆盖的序号，之前的记录跳过
+     * @return 重放的记录数
+     */
+    public long open(long afterSeq, Consumer<JournalRecord> replay) {
+        if (!enabled) {
+            return 0;
+        }
+        long count = 0;
+        try {
+            Files.createDirectories(dir);
+            List<Path> segments = listSegments();
+            lastSeq = afterSeq;
+            for (int i = 0; i < segments.size(); i++) {
+                count += replaySegment(segments.get(i), i == segments.size() - 1, afterSeq, replay);
+            }
+            // 段文件可能已被压缩删除或为空，序号至少从最后一个段的起始序号继续
+            if (!segments.isEmpty()) {
+                lastSeq = Math.max(lastSeq, firstSeq(segments.get(segments.size() - 1)) - 1);
+            }
+            writtenSeq = durableSeq = lastSeq;
+            Path current = segments.isEmpty() ? segmentPath(lastSeq + 1) : segments.get(segments.size() - 1);
+            openSegment(current);
+            log.info("Journal opened: dir={}, segments={}, records={}, lastSeq={}", dir, segments.size(), count, lastSeq);
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to open journal " + dir, e);
+        }
+        flusher = Thread.ofPlatform().name("journal-flusher").daemon().start(this::flushLoop);
+        return count;
+    }
+
+    public long appendPut(Transaction transaction) {
+        return enabled || listener != null ? append(OP_PUT, TransactionCodec.encode(transaction)) : 0;
+    }
+
+    public long appendDelete(UUID id) {
+        if (!enabled && listener == null) {
+            return 0;
+        }
+        byte[] payload = ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+        return append(OP_DELETE, payload);
+    }
+
+    /**
+     * ALWAYS 策略下等待 seq 及之前的记录 fsync 完成，其他策略立即返回
+     *
+     * @throws UncheckedIOException 日志写入已失败
+     */
+    public void awaitDurable(long seq) {
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            awaitFlushed(seq);
+        } else {
+            checkFailure();
+        }
+    }
+
+    /**
+     * 不论刷盘策略，等待 seq 及之前的记录满足刷盘策略，INTERVAL 策略下最多等待一个刷盘间隔。
+     * 生成快照、向副本发送全量数据前调用，保证其中的行都已落盘
+     *
+     * @throws UncheckedIOException 日志写入已失败
+     */
+    public void awaitFlushed(long seq) {
+        if (!enabled || seq <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (durableSeq < seq && failure == null && !closed) {
+                flushed.awaitUninterruptibly();
+            }
+            checkFailure();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long lastSeq() {
+        lock.lock();
+        try {
+            return lastSeq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long fsyncCount() {
+        return fsyncCount.get();
+    }
+
+    /**
+     * 删除所有记录序号都不超过 seq 的段文件，当前写入的段始终保留
+     *
+     * @return 删除的段数
+     */
+    public int compactUpTo(long seq) {
+        if (!enabled) {
+            return 0;
+        }
+        try {
+            List<Path> segments = listSegments();
+            int deleted = 0;
+            for (int i = 0; i + 1 < segments.size(); i++) {
+                if (firstSeq(segments.get(i + 1)) - 1 > seq) {
+                    break;
+                }
+                Files.deleteIfExists(segments.get(i));
+                deleted++;
+            }
+            if (deleted > 0) {
+                log.info("Compacted journal up to seq {}: deleted {} segments", seq, deleted);
+            }
+            return deleted;
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to compact journal " + dir, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!enabled || flusher == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            closed = true;
+            hasData.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+            channel.force(false);
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("Failed to close journal", e);
+        }
+    }
+
+    private long append(byte op, byte[] payload) {
+        int bodyLength = Long.BYTES + 1 + payload.length;
+        lock.lock();
+        try {
+            if (!enabled) {
+                // 未开启持久化，只为接收方分配序号
+                long seq = ++lastSeq;
+                ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + bodyLength);
+                putFrame(frame, seq, op, payload);
+                listener.appended(seq, frame.array());
+                listener.durable(seq);
+                return seq;
+            }
+            // 刷盘跟不上时阻塞写入方，避免缓冲区无限增长
+            while (active.position() >= MAX_BUFFER_BYTES && failure == null && !closed) {
+                flushed.awaitUninterruptibly();
+            }
+            checkFailure();
+            if (closed) {
+                throw new IllegalStateException("journal closed");
+            }
+            long seq = ++lastSeq;
+            ensureCapacity(HEADER_BYTES + bodyLength);
+            int start = active.position();
+            putFrame(active, seq, op, payload);
+            Listener current = listener;
+            if (current != null) {
+                current.appended(seq, Arrays.copyOfRange(active.array(), start, active.position()));
+            }
+            hasData.signal();
+            return seq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void putFrame(ByteBuffer buf, long seq, byte op, byte[] payload) {
+        int start = buf.position();
+        int bodyLength = Long.BYTES + 1 + payload.length;
+        buf.putInt(bodyLength).putInt(0).putLong(seq).put(op).put(payload);
+        CRC32C crc = new CRC32C();
+        crc.update(buf.array(), start + HEADER_BYTES, bodyLength);
+        buf.putInt(start + 4, (int) crc.getValue());
+    }
+
+    /**
+     * 解码 {@link Listener} 收到的一条完整记录
+     *
+     * @throws IllegalArgumentException 长度或校验和不符
+     */
+    public static JournalRecord decodeFrame(byte[] frame) {
+        ByteBuffer buf = ByteBuffer.wrap(frame);
+        int bodyLength = buf.getInt();
+        int checksum = buf.getInt();
+        if (bodyLength <= Long.BYTES || bodyLength != buf.remaining()) {
+            throw new IllegalArgumentException("journal frame length mismatch: " + bodyLength);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(frame, HEADER_BYTES, bodyLength);
+        if ((int) crc.getValue() != checksum) {
+            throw new IllegalArgumentException("journal frame checksum mismatch");
+        }
+        long seq = buf.getLong();
+        return decode(seq, buf.get(), buf, frame.length);
+    }
+
+    /**
+     * 交易编码按记录截取，解码时能判断记录末尾是否带版本号
+     */
+    private static JournalRecord decode(long seq, byte op, ByteBuffer buf, int end) {
+        return op == OP_PUT
+                ? JournalRecord.put(seq, TransactionCodec.decode(buf.slice(buf.position(), end - buf.position())))
+                : JournalRecord.delete(seq, new UUID(buf.getLong(), buf.getLong()));
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (active.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(active.capacity() * 2, active.position() + bytes));
+            active.flip();
+            larger.put(active);
+            active = larger;
+        }
+    }
+
+    /**
+     * @throws UncheckedIOException 日志写入已失败，此后的写入都会被拒绝
+     */
+    public void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("journal write failed", failure);
+        }
+    }
+
+    private void flushLoop() {
+        long lastForce = System.nanoTime();
+        for (;;) {
+            ByteBuffer batch;
+            long batchSeq;
+            boolean closing;
+            lock.lock();
+            try {
+                while (active.position() == 0 && !closed) {
+                    if (fsyncPolicy == FsyncPolicy.INTERVAL && writtenSeq > durableSeq) {
+                        long waitNanos = fsyncIntervalNanos - (System.nanoTime() - lastForce);
+                        if (waitNanos <= 0) {
+                            break;
+                        }
+                        hasData.awaitNanos(waitNanos);
+                    } else {
+                        hasData.awaitUninterruptibly();
+                    }
+                }
+                batch = active;
+                active = flushing;
+                flushing = batch;
+                batchSeq = lastSeq;
+                closing = closed;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channelSize += channel.write(batch);
+                }
+                batch.clear();
+                boolean force = switch (fsyncPolicy) {
+                    case ALWAYS -> true;
+                    case INTERVAL -> closing || System.nanoTime() - lastForce >= fsyncIntervalNanos;
+                    case OS -> false;
+                };
+                if (channelSize >= segmentBytes) {
+                    channel.force(false);
+                    channel.close();
+                    openSegment(segmentPath(batchSeq + 1));
+                    force = true;
+                } else if (force) {
+                    channel.force(false);
+                }
+                if (force) {
+                    fsyncCount.incrementAndGet();
+                    lastForce = System.nanoTime();
+                }
+                lock.lock();
+                try {
+                    writtenSeq = batchSeq;
+                    if (force || fsyncPolicy == FsyncPolicy.OS) {
+                        durableSeq = batchSeq;
+                        Listener current = listener;
+                        if (current != null) {
+                            current.durable(batchSeq);
+                        }
+                    }
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            } catch (IOException e) {
+                log.error("Journal write failed, rejecting further writes", e);
+                lock.lock();
+                try {
+                    failure = e;
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+            if (closing) {
+                return;
+            }
+        }
+    }
+
+    private long replaySegment(Path segment, boolean last, long afterSeq, Consumer<JournalRecord> replay) throws IOException {
+        long count = 0;
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = ch.size();
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int validEnd = 0;
+            while (buf.remaining() >= HEADER_BYTES) {
+                int start = buf.position();
+                int bodyLength = buf.getInt();
+                int checksum = buf.getInt();
+                if (bodyLength <= Long.BYTES || bodyLength > buf.remaining()) {
+                    break;
+                }
+                CRC32C crc = new CRC32C();
+                crc.update(buf.slice(start + HEADER_BYTES, bodyLength));
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                long seq = buf.getLong();
+                if (seq > afterSeq) {
+                    JournalRecord record = decode(seq, buf.get(), buf, start + HEADER_BYTES + bodyLength);
+                    replay.accept(record);
+                    lastSeq = seq;
+                    count++;
+                }
+                buf.position(start + HEADER_BYTES + bodyLength);
+                validEnd = buf.position();
+            }
+            if (validEnd < size) {
+                if (!last) {
+                    throw new IllegalStateException("journal segment corrupted: " + segment + " at offset " + validEnd);
+                }
+                log.warn("Truncating torn journal tail: segment={}, offset={}, size={}", segment, validEnd, size);
+                ch.truncate(validEnd);
+            }
+        }
+        return count;
+    }
+
+    private void openSegment(Path segment) throws IOException {
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channelSize = channel.size();
+        channel.position(channelSize);
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long firstSeq(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private Path segmentPath(long firstSeq) {
+        return dir.resolve(String.format("%020d%s", firstSeq, SEGMENT_SUFFIX));
+    }
+}
@@ -0,0 +1,427 @@
+package org.bank.store.snapshot;
+
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+import org.bank.model.Transaction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * 列式二进制快照文件。每个字段单独成列连续存放，accountNumber/userName 做字典编码，
+ * 读取时按列内存映射，按块依次组装，块内按行并行。
+ * 布局：magic(8) | version(4) | seq(8) | rows(4) | 每列 offset(8) + length(8) | 各列数据
+ * 格式版本 2 在末尾增加交易版本号列，读取版本 1 的文件时交易版本号为 0。
+ */
+public final class ColumnarSnapshot {
+
+    private static final long MAGIC = 0x5458534E41503031L; // "TXSNAP01"
+    private static final int VERSION = 2;
+
+    private static final int ID_MSB = 0;
+    private static final int ID_LSB = 1;
+    private static final int TYPE = 2;
+    private static final int STATUS = 3;
+    private static final int CURRENCY = 4;
+    private static final int CHANNEL = 5;
+    private static final int AMOUNT_SCALE = 6;
+    private static final int AMOUNT_UNSCALED = 7;
+    private static final int CREATED_SEC = 8;
+    private static final int CREATED_NANO = 9;
+    private static final int UPDATED_SEC = 10;
+    private static final int UPDATED_NANO = 11;
+    private static final int ACCOUNT_DICT = 12;
+    private static final int ACCOUNT_CODE = 13;
+    private static final int USER_DICT = 14;
+    private static final int USER_CODE = 15;
+    private static final int DESC_LENGTH = 16;
+    private static final int DESC_BYTES = 17;
+    private static final int AMOUNT_OVERFLOW = 18;
+    private static final int TX_VERSION = 19;
+    private static final int COLUMNS = 20;
+    // 格式版本 1 没有 TX_VERSION 列
+    private static final int V1_COLUMNS = 19;
+
+    private static final int HEADER_BYTES = headerBytes(COLUMNS);
+    private static final int NULL_SCALE = Integer.MIN_VALUE;       // 金额为空
+    private static final int OVERFLOW_SCALE = Integer.MIN_VALUE + 1; // 金额超出 long 范围，存于溢出列
+    private static final int NULL_NANO = -1;
+    private static final int LOAD_CHUNK = 1 << 13;
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+    private static final Currency[] CURRENCIES = Currency.values();
+    private static final TransactionChannel[] CHANNELS = TransactionChannel.values();
+
+    private ColumnarSnapshot() {
+    }
+
+    public record Loaded(long seq, Transaction[] rows) {
+    }
+
+    /**
+     * 按 rows 的迭代顺序写入，每列单独遍历一遍，rows 必须是不会变化的快照
+     */
+    public static void write(Path file, long seq, int rowCount, Iterable<Transaction> rows) throws IOException {
+        Map<String, Integer> accounts = new LinkedHashMap<>();
+        Map<String, Integer> users = new LinkedHashMap<>();
+        int overflowCount = 0;
+        for (Transaction t : rows) {
+            if (t.getAccountNumber() != null) {
+                accounts.putIfAbsent(t.getAccountNumber(), accounts.size());
+            }
+            if (t.getUserName() != null) {
+                users.putIfAbsent(t.getUserName(), users.size());
+            }
+            if (t.getAmount() != null && t.getAmount().unscaledValue().bitLength() > 63) {
+                overflowCount++;
+            }
+        }
+
+        try (ColumnOutput out = new ColumnOutput(file)) {
+            long[] offsets = new long[COLUMNS];
+            long[] lengths = new long[COLUMNS];
+            out.skip(HEADER_BYTES);
+            for (int column = 0; column < COLUMNS; column++) {
+                offsets[column] = out.position();
+                writeColumn(out, column, rows, accounts, users, overflowCount);
+                lengths[column] = out.position() - offsets[column];
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putLong(MAGIC).putInt(VERSION).putLong(seq).putInt(rowCount);
+            for (int column = 0; column < COLUMNS; column++) {
+                header.putLong(offsets[column]).putLong(lengths[column]);
+            }
+            out.writeHeader(header.flip());
+        }
+    }
+
+    /**
+     * 读出全部行，内存需容纳全部交易
+     */
+    public static Loaded read(Path file) throws IOException {
+        try (Reader reader = open(file)) {
+            return new Loaded(reader.seq(), reader.readAll());
+        }
+    }
+
+    /**
+     * 打开快照文件按块读取，各列按需内存映射，同一时刻堆内只有一块行及两个字典
+     */
+    public static Reader open(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new Reader(file, ch);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 按 LOAD_CHUNK 行一块依次组装，块内按行并行
+     */
+    public static final class Reader implements SnapshotSource, Closeable {
+
+        private final FileChannel ch;
+        private final long seq;
+        private final int rowCount;
+        private final MappedByteBuffer[] columns = new MappedByteBuffer[COLUMNS];
+
+        private Reader(Path file, FileChannel ch) throws IOException {
+            this.ch = ch;
+            ByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(HEADER_BYTES, ch.size()));
+            int version = header.remaining() < headerBytes(V1_COLUMNS) || header.getLong() != MAGIC ? -1 : header.getInt();
+            if (version != VERSION && version != 1) {
+                throw new IOException("not a transaction snapshot: " + file);
+            }
+            int columnCount = version == 1 ? V1_COLUMNS : COLUMNS;
+            seq = header.getLong();
+            rowCount = header.getInt();
+            for (int column = 0; column < columnCount; column++) {
+                columns[column] = ch.map(FileChannel.MapMode.READ_ONLY, header.getLong(), header.getLong());
+            }
+        }
+
+        @Override
+        public long seq() {
+            return seq;
+        }
+
+        @Override
+        public int rowCount() {
+            return rowCount;
+        }
+
+        @Override
+        public void forEachChunk(Consumer<Transaction[]> action) {
+            String[] accounts = readDictionary(columns[ACCOUNT_DICT].duplicate());
+            String[] users = readDictionary(columns[USER_DICT].duplicate());
+            Map<Integer, BigDecimal> overflow = readOverflow(columns[AMOUNT_OVERFLOW].duplicate());
+            ByteBuffer descLengths = columns[DESC_LENGTH];
+            int descOffset = 0;
+            for (int start = 0; start < rowCount; start += LOAD_CHUNK) {
+                int size = Math.min(LOAD_CHUNK, rowCount - start);
+                int[] descOffsets = new int[size];
+                for (int i = 0; i < size; i++) {
+                    descOffsets[i] = descOffset;
+                    descOffset += Math.max(descLengths.getInt((start + i) * 4), 0);
+                }
+                Transaction[] rows = new Transaction[size];
+                int base = start;
+                IntStream.range(0, size).parallel().forEach(i ->
+                        rows[i] = readRow(columns, base + i, accounts, users, overflow, descOffsets[i]));
+                action.accept(rows);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            ch.close();
+        }
+    }
+
+    private static void writeColumn(ColumnOutput out, int column, Iterable<Transaction> rows,
+                                    Map<String, Integer> accounts, Map<String, Integer> users,
+                                    int overflowCount) throws IOException {
+        switch (column) {
+            case ACCOUNT_DICT -> writeDictionary(out, accounts);
+            case USER_DICT -> writeDictionary(out, users);
+            case AMOUNT_OVERFLOW -> {
+                out.putInt(overflowCount);
+                int row = 0;
+                for (Transaction t : rows) {
+                    if (t.getAmount() != null && t.getAmount().unscaledValue().bitLength() > 63) {
+                        byte[] unscaled = t.getAmount().unscaledValue().toByteArray();
+                        out.putInt(row).putInt(t.getAmount().scale()).putInt(unscaled.length).putBytes(unscaled);
+                    }
+                    row++;
+                }
+            }
+            default -> {
+                for (Transaction t : rows) {
+                    writeCell(out, column, t, accounts, users);
+                }
+            }
+        }
+    }
+
+    private static void writeCell(ColumnOutput out, int column, Transaction t,
+                                  Map<String, Integer> accounts, Map<String, Integer> users) throws IOException {
+        switch (column) {
+            case ID_MSB -> out.putLong(t.getId().getMostSignificantBits());
+            case ID_LSB -> out.putLong(t.getId().getLeastSignificantBits());
+            case TYPE -> out.putByte(ordinal(t.getType()));
+            case STATUS -> out.putByte(ordinal(t.getStatus()));
+            case CURRENCY -> out.putByte(ordinal(t.getCurrency()));
+            case CHANNEL -> out.putByte(ordinal(t.getChannel()));
+            case AMOUNT_SCALE -> out.putInt(t.getAmount() == null ? NULL_SCALE
+                    : t.getAmount().unscaledValue().bitLength() > 63 ? OVERFLOW_SCALE : t.getAmount().scale());
+            case AMOUNT_UNSCALED -> out.putLong(t.getAmount() == null || t.getAmount().unscaledValue().bitLength() > 63
+                    ? 0 : t.getAmount().unscaledValue().longValue());
+            case CREATED_SEC -> out.putLong(seconds(t.getCreatedAt()));
+            case CREATED_NANO -> out.putInt(nanos(t.getCreatedAt()));
+            case UPDATED_SEC -> out.putLong(seconds(t.getUpdatedAt()));
+            case UPDATED_NANO -> out.putInt(nanos(t.getUpdatedAt()));
+            case ACCOUNT_CODE -> out.putInt(code(accounts, t.getAccountNumber()));
+            case USER_CODE -> out.putInt(code(users, t.getUserName()));
+            case DESC_LENGTH -> out.putInt(t.getDescription() == null ? -1
+                    : t.getDescription().getBytes(StandardCharsets.UTF_8).length);
+            case TX_VERSION -> out.putLong(t.getVersion());
+            case DESC_BYTES -> {
+                if (t.getDescription() != null) {
+                    out.putBytes(t.getDescription().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            default -> throw new IllegalArgumentException("unknown column " + column);
+        }
+    }
+
+    private static Transaction readRow(MappedByteBuffer[] c, int i, String[] accounts, String[] users,
+                                       Map<Integer, BigDecimal> overflow, int descOffset) {
+        Transaction t = new Transaction();
+        t.setId(new UUID(c[ID_MSB].getLong(i * 8), c[ID_LSB].getLong(i * 8)));
+        t.setType(enumAt(TYPES, c[TYPE].get(i)));
+        t.setStatus(enumAt(STATUSES, c[STATUS].get(i)));
+        t.setCurrency(enumAt(CURRENCIES, c[CURRENCY].get(i)));
+        t.setChannel(enumAt(CHANNELS, c[CHANNEL].get(i)));
+        int scale = c[AMOUNT_SCALE].getInt(i * 4);
+        if (scale == OVERFLOW_SCALE) {
+            t.setAmount(overflow.get(i));
+        } else if (scale != NULL_SCALE) {
+            t.setAmount(BigDecimal.valueOf(c[AMOUNT_UNSCALED].getLong(i * 8), scale));
+        }
+        t.setCreatedAt(time(c[CREATED_SEC].getLong(i * 8), c[CREATED_NANO].getInt(i * 4)));
+        t.setUpdatedAt(time(c[UPDATED_SEC].getLong(i * 8), c[UPDATED_NANO].getInt(i * 4)));
+        if (c[TX_VERSION] != null) {
+            t.setVersion(c[TX_VERSION].getLong(i * 8));
+        }
+        int account = c[ACCOUNT_CODE].getInt(i * 4);
+        t.setAccountNumber(account < 0 ? null : accounts[account]);
+        int user = c[USER_CODE].getInt(i * 4);
+        t.setUserName(user < 0 ? null : users[user]);
+        int descLength = c[DESC_LENGTH].getInt(i * 4);
+        if (descLength >= 0) {
+            byte[] bytes = new byte[descLength];
+            c[DESC_BYTES].get(descOffset, bytes);
+            t.setDescription(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return t;
+    }
+
+    private static int headerBytes(int columns) {
+        return 8 + 4 + 8 + 4 + columns * 16;
+    }
+
+    private static void writeDictionary(ColumnOutput out, Map<String, Integer> dictionary) throws IOException {
+        out.putInt(dictionary.size());
+        for (String value : dictionary.keySet()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.putInt(bytes.length).putBytes(bytes);
+        }
+    }
+
+    private static String[] readDictionary(ByteBuffer buf) {
+        String[] values = new String[buf.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            byte[] bytes = new byte[buf.getInt()];
+            buf.get(bytes);
+            values[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+
+    private static Map<Integer, BigDecimal> readOverflow(ByteBuffer buf) {
+        int count = buf.getInt();
+        Map<Integer, BigDecimal> overflow = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            int row = buf.getInt();
+            int scale = buf.getInt();
+            byte[] unscaled = new byte[buf.getInt()];
+            buf.get(unscaled);
+            overflow.put(row, new BigDecimal(new BigInteger(unscaled), scale));
+        }
+        return overflow;
+    }
+
+    private static int code(Map<String, Integer> dictionary, String value) {
+        return value == null ? -1 : dictionary.get(value);
+    }
+
+    private static byte ordinal(Enum<?> e) {
+        return e == null ? -1 : (byte) e.ordinal();
+    }
+
+    private static <E> E enumAt(E[] values, byte ordinal) {
+        return ordinal < 0 ? null : values[ordinal];
+    }
+
+    private static long seconds(LocalDateTime time) {
+        return time == null ? 0 : time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static int nanos(LocalDateTime time) {
+        return time == null ? NULL_NANO : time.getNano();
+    }
+
+    private static LocalDateTime time(long seconds, int nanos) {
+        return nanos == NULL_NANO ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    /**
+     * 带 1MB 直接缓冲区的顺序写出，文件头最后回填
+     */
+    private static final class ColumnOutput implements Closeable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20);
+        private long flushed;
+
+        ColumnOutput(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        long position() {
+            return flushed + buf.position();
+        }
+
+        void skip(int bytes) throws IOException {
+            flush();
+            flushed += bytes;
+            channel.position(flushed);
+        }
+
+        ColumnOutput putLong(long v) throws IOException {
+            ensure(8);
+            buf.putLong(v);
+            return this;
+        }
+
+        ColumnOutput putInt(int v) throws IOException {
+            ensure(4);
+            buf.putInt(v);
+            return this;
+        }
+
+        ColumnOutput putByte(byte v) throws IOException {
+            ensure(1);
+            buf.put(v);
+            return this;
+        }
+
+        ColumnOutput putBytes(byte[] bytes) throws IOException {
+            for (int offset = 0; offset < bytes.length; ) {
+                ensure(1);
+                int n = Math.min(buf.remaining(), bytes.length - offset);
+                buf.put(bytes, offset, n);
+                offset += n;
+            }
+            return this;
+        }
+
+        void writeHeader(ByteBuffer header) throws IOException {
+            flush();
+            channel.write(header, 0);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buf.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) {
+                flushed += channel.write(buf);
+            }
+            buf.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            channel.force(true);
+            channel.close();
+        }
+    }
+}
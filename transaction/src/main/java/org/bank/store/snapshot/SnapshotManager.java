@@ -0,0 +1,96 @@
+package org.bank.store.snapshot;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bank.model.Transaction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * 快照目录管理：文件名为快照对应的日志序号，先写临时文件再原子改名，成功后删除更早的快照
+ */
+@Slf4j
+public class SnapshotManager {
+
+    private static final String SUFFIX = ".snap";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path dir;
+
+    public SnapshotManager(Path dir) {
+        this.dir = dir;
+    }
+
+    private SnapshotManager() {
+        this.dir = null;
+    }
+
+    /**
+     * 未开启快照时使用的空实现
+     */
+    public static SnapshotManager disabled() {
+        return new SnapshotManager();
+    }
+
+    public boolean isEnabled() {
+        return dir != null;
+    }
+
+    /**
+     * 打开最新的快照按块读取，由调用方关闭
+     */
+    public Optional<ColumnarSnapshot.Reader> openLatest() throws IOException {
+        if (!isEnabled() || !Files.isDirectory(dir)) {
+            return Optional.empty();
+        }
+        List<Path> snapshots = list();
+        if (snapshots.isEmpty()) {
+            return Optional.empty();
+        }
+        Path latest = snapshots.get(snapshots.size() - 1);
+        ColumnarSnapshot.Reader reader = ColumnarSnapshot.open(latest);
+        log.info("Opened snapshot {}: rows={}, seq={}", latest.getFileName(), reader.rowCount(), reader.seq());
+        return Optional.of(reader);
+    }
+
+    public void write(long seq, int rowCount, Iterable<Transaction> rows) throws IOException {
+        write(seq, rowCount, rows, () -> { });
+    }
+
+    /**
+     * @param beforeCommit 临时文件写完、改名之前调用，抛出异常时删除临时文件，快照不生效
+     */
+    public void write(long seq, int rowCount, Iterable<Transaction> rows, Runnable beforeCommit) throws IOException {
+        Files.createDirectories(dir);
+        String name = String.format("%020d", seq);
+        Path temp = dir.resolve(name + TEMP_SUFFIX);
+        Path target = dir.resolve(name + SUFFIX);
+        long start = System.currentTimeMillis();
+        ColumnarSnapshot.write(temp, seq, rowCount, rows);
+        try {
+            beforeCommit.run();
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (Path old : list()) {
+            if (!old.equals(target)) {
+                Files.deleteIfExists(old);
+            }
+        }
+        log.info("Wrote snapshot {}: rows={}, bytes={}, cost={} ms",
+                target.getFileName(), rowCount, Files.size(target), System.currentTimeMillis() - start);
+    }
+
+    private List<Path> list() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.bank.store.snapshot;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bank.common.config.BankProperties;
+import org.bank.store.TransactionStore;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 后台快照线程：按间隔检查日志增量，达到阈值时生成快照，停机前再生成一次以缩短下次启动的重放
+ */
+@Slf4j
+@Component
+public class SnapshotScheduler {
+
+    private final TransactionStore transactionStore;
+
+    private final BankProperties.Snapshot properties;
+
+    private final boolean enabled;
+
+    private ScheduledExecutorService executor;
+
+    public SnapshotScheduler(TransactionStore transactionStore, SnapshotManager snapshotManager,
+                             BankProperties bankProperties) {
+        this.transactionStore = transactionStore;
+        this.properties = bankProperties.getSnapshot();
+        this.enabled = snapshotManager.isEnabled();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::checkpointIfNeeded, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        if (transactionStore.journalSeq() > transactionStore.checkpointSeq()) {
+            checkpoint();
+        }
+    }
+
+    private void checkpointIfNeeded() {
+        if (transactionStore.journalSeq() - transactionStore.checkpointSeq() >= properties.getMinJournalRecords()) {
+            checkpoint();
+        }
+    }
+
+    private void checkpoint() {
+        try {
+            transactionStore.checkpoint();
+        } catch (RuntimeException e) {
+            // 快照失败不影响写入，日志仍完整保留，下个周期重试
+            log.error("Snapshot failed", e);
+        }
+    }
+}
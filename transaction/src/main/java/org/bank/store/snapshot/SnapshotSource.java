@@ -0,0 +1,62 @@
+package org.bank.store.snapshot;
+
+import org.bank.model.Transaction;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * 按 TransactionKey 排好序的全量数据，来自快照文件或主库，按块依次读出，读过的块不再保留，
+ * 加载时同一时刻只需容纳一块行
+ */
+public interface SnapshotSource {
+
+    /**
+     * @return 数据对应的日志序号
+     */
+    long seq();
+
+    int rowCount();
+
+    /**
+     * 按顺序把每块行交给 action，只能调用一次；action 返回后不再使用传入的数组
+     */
+    void forEachChunk(Consumer<Transaction[]> action) throws IOException;
+
+    /**
+     * 读出全部行，内存需容纳全部交易
+     */
+    default Transaction[] readAll() throws IOException {
+        Transaction[] rows = new Transaction[rowCount()];
+        int[] filled = {0};
+        forEachChunk(chunk -> {
+            System.arraycopy(chunk, 0, rows, filled[0], chunk.length);
+            filled[0] += chunk.length;
+        });
+        return rows;
+    }
+
+    static SnapshotSource of(long seq, Transaction[] rows) {
+        return new SnapshotSource() {
+            @Override
+            public long seq() {
+                return seq;
+            }
+
+            @Override
+            public int rowCount() {
+                return rows.length;
+            }
+
+            @Override
+            public void forEachChunk(Consumer<Transaction[]> action) {
+                action.accept(rows);
+            }
+
+            @Override
+            public Transaction[] readAll() {
+                return rows;
+            }
+        };
+    }
+}
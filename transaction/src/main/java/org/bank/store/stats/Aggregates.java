@@ -0,0 +1,185 @@
+package org.bank.store.stats;
+
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+import org.bank.model.StatsRow;
+import org.bank.model.Transaction;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 增量维护的统计：写入时按旧值减、新值加更新计数和金额，查询时只汇总计数器，不扫描交易。
+ * 全局按 币种×类型×状态×渠道 分格，每格用 LongAdder 分散并发写；
+ * 每个账号按 币种×类型×状态 分格，单账号写入并发低，用 AtomicLongArray。
+ * 金额统一换算为 4 位小数的 long 累加。
+ */
+public final class Aggregates {
+
+    public static final int SCALE = 4;
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+    private static final Currency[] CURRENCIES = Currency.values();
+    private static final TransactionChannel[] CHANNELS = TransactionChannel.values();
+
+    private static final int ACCOUNT_CELLS = CURRENCIES.length * TYPES.length * STATUSES.length;
+    private static final int GLOBAL_CELLS = ACCOUNT_CELLS * CHANNELS.length;
+
+    private final LongAdder[] counts = adders(GLOBAL_CELLS);
+    private final LongAdder[] amounts = adders(GLOBAL_CELLS);
+
+    private final Map<String, AccountCells> accounts = new ConcurrentHashMap<>();
+
+    /**
+     * 金额换算为 4 位小数的 long，超过 4 位小数的历史数据按银行家舍入
+     */
+    public static long toScaled(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromScaled(long scaled) {
+        return BigDecimal.valueOf(scaled, SCALE);
+    }
+
+    /**
+     * 用旧值、新值更新统计，必须持有该 id 的写锁
+     */
+    public void update(Transaction previous, Transaction current) {
+        if (previous != null) {
+            apply(previous, -1);
+        }
+        if (current != null) {
+            apply(current, 1);
+        }
+    }
+
+    /**
+     * @param groupBy       分组字段，为空时汇总为一行
+     * @param accountNumber 只统计该账号，为空时统计全部
+     * @throws IllegalArgumentException 按账号统计时不支持按渠道分组
+     */
+    public List<StatsRow> query(Set<Dimension> groupBy, String accountNumber) {
+        Map<StatsRow, long[]> groups = new LinkedHashMap<>();
+        if (accountNumber != null || groupBy.contains(Dimension.ACCOUNT_NUMBER)) {
+            if (groupBy.contains(Dimension.CHANNEL)) {
+                throw new IllegalArgumentException("按账号统计时不支持按渠道分组");
+            }
+            if (accountNumber != null) {
+                AccountCells cells = accounts.get(accountNumber);
+                if (cells != null) {
+                    cells.collect(accountNumber, groupBy, groups);
+                }
+            } else {
+                accounts.forEach((account, cells) -> cells.collect(account, groupBy, groups));
+            }
+        } else {
+            for (int cell = 0; cell < GLOBAL_CELLS; cell++) {
+                long count = counts[cell].sum();
+                if (count != 0) {
+                    int accountCell = cell / CHANNELS.length;
+                    add(groups, groupBy, null, accountCell, CHANNELS[cell % CHANNELS.length], count, amounts[cell].sum());
+                }
+            }
+        }
+        List<StatsRow> rows = new ArrayList<>(groups.size());
+        groups.forEach((key, value) -> {
+            key.setCount(value[0]);
+            key.setAmount(fromScaled(value[1]));
+            key.setNetAmount(fromScaled(value[2]));
+            rows.add(key);
+        });
+        rows.sort(ORDER);
+        return rows;
+    }
+
+    private void apply(Transaction t, int sign) {
+        if (t.getAmount() == null || t.getCurrency() == null || t.getType() == null
+                || t.getStatus() == null || t.getChannel() == null) {
+            return;
+        }
+        long amount = sign * toScaled(t.getAmount());
+        int accountCell = accountCell(t.getCurrency(), t.getType(), t.getStatus());
+        int cell = accountCell * CHANNELS.length + t.getChannel().ordinal();
+        counts[cell].add(sign);
+        amounts[cell].add(amount);
+        if (t.getAccountNumber() != null) {
+            accounts.computeIfAbsent(t.getAccountNumber(), k -> new AccountCells()).add(accountCell, sign, amount);
+        }
+    }
+
+    private static int accountCell(Currency currency, TransactionType type, TransactionStatus status) {
+        return (currency.ordinal() * TYPES.length + type.ordinal()) * STATUSES.length + status.ordinal();
+    }
+
+    /**
+     * 把一格的数据累加到所属分组，分组键为只保留分组字段的 StatsRow，值为 [条数, 金额, 净额]
+     */
+    private static void add(Map<StatsRow, long[]> groups, Set<Dimension> groupBy, String account,
+                            int accountCell, TransactionChannel channel, long count, long amount) {
+        TransactionStatus status = STATUSES[accountCell % STATUSES.length];
+        TransactionType type = TYPES[(accountCell / STATUSES.length) % TYPES.length];
+        Currency currency = CURRENCIES[accountCell / STATUSES.length / TYPES.length];
+        StatsRow key = new StatsRow(
+                groupBy.contains(Dimension.ACCOUNT_NUMBER) ? account : null,
+                groupBy.contains(Dimension.CURRENCY) ? currency : null,
+                groupBy.contains(Dimension.TYPE) ? type : null,
+                groupBy.contains(Dimension.STATUS) ? status : null,
+                groupBy.contains(Dimension.CHANNEL) ? channel : null,
+                0, null, null);
+        long[] value = groups.computeIfAbsent(key, k -> new long[3]);
+        value[0] += count;
+        value[1] += amount;
+        if (type == TransactionType.DEPOSIT) {
+            value[2] += amount;
+        } else if (type == TransactionType.WITHDRAWAL) {
+            value[2] -= amount;
+        }
+    }
+
+    private static final Comparator<StatsRow> ORDER = Comparator
+            .comparing(StatsRow::getAccountNumber, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(StatsRow::getCurrency, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(StatsRow::getType, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(StatsRow::getStatus, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(StatsRow::getChannel, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private static LongAdder[] adders(int n) {
+        LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static final class AccountCells {
+
+        private final AtomicLongArray counts = new AtomicLongArray(ACCOUNT_CELLS);
+        private final AtomicLongArray amounts = new AtomicLongArray(ACCOUNT_CELLS);
+
+        void add(int cell, int sign, long amount) {
+            counts.addAndGet(cell, sign);
+            amounts.addAndGet(cell, amount);
+        }
+
+        void collect(String account, Set<Dimension> groupBy, Map<StatsRow, long[]> groups) {
+            for (int cell = 0; cell < ACCOUNT_CELLS; cell++) {
+                long count = counts.get(cell);
+                if (count != 0) {
+                    Aggregates.add(groups, groupBy, account, cell, null, count, amounts.get(cell));
+                }
+            }
+        }
+    }
+}
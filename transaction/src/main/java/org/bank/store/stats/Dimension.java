@@ -0,0 +1,29 @@
+package org.bank.store.stats;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * 统计可按哪些字段分组
+ */
+public enum Dimension {
+    ACCOUNT_NUMBER("accountNumber"),
+    CURRENCY("currency"),
+    TYPE("type"),
+    STATUS("status"),
+    CHANNEL("channel");
+
+    private final String param;
+
+    Dimension(String param) {
+        this.param = param;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    public static Optional<Dimension> fromParam(String param) {
+        return Arrays.stream(values()).filter(d -> d.param.equalsIgnoreCase(param)).findFirst();
+    }
+}
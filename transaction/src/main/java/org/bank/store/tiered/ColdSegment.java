@@ -0,0 +1,490 @@
+package org.bank.store.tiered;
+
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+import org.bank.model.Transaction;
+import org.bank.model.TransactionFilter;
+import org.bank.store.TransactionCodec;
+import org.bank.store.TransactionKey;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 冷数据段：一批按 TransactionKey 排好序的交易，写入后不再修改，读取时整个文件内存映射，堆内只保留布隆过滤器和删除标记。
+ * 布局：magic(8) | version(4) | rows(4) | 每节 offset(8) + length(8) | 各节数据，各节为：
+ * <ul>
+ *     <li>RECORDS：按行顺序的 {@link TransactionCodec} 编码</li>
+ *     <li>OFFSETS：每行在 RECORDS 中的起始位置，int[rows + 1]</li>
+ *     <li>KEYS：每行 updatedAt 秒(8) + 纳秒(4) + id(16)，用于按键定位和归并，不必解码整行</li>
+ *     <li>FILTER：每行 type/status/currency/channel(各1，-1 表示空) + createdAt 秒(8) + 纳秒(4，-1 表示空)，用于多条件筛选</li>
+ *     <li>IDS：按 id 排序的 id(16) + 行号(4)，二分查找</li>
+ *     <li>ACCOUNTS / USERS：字段值目录与倒排行号，目录按字段值排序，每个值的行号按行顺序排列</li>
+ * </ul>
+ * 行被修改或删除时不改文件，只在堆内记下该行失效时的版本，获取视图时的版本之后失效的行对该视图仍可见。
+ */
+public final class ColdSegment {
+
+    private static final long MAGIC = 0x5458434F4C443031L; // "TXCOLD01"
+    private static final int VERSION = 1;
+
+    private static final int RECORDS = 0;
+    private static final int OFFSETS = 1;
+    private static final int KEYS = 2;
+    private static final int FILTER = 3;
+    private static final int IDS = 4;
+    private static final int ACCOUNTS = 5;
+    private static final int USERS = 6;
+    private static final int SECTIONS = 7;
+
+    private static final int HEADER_BYTES = 8 + 4 + 4 + SECTIONS * 16;
+    private static final int KEY_BYTES = 8 + 4 + 16;
+    private static final int FILTER_BYTES = 4 + 8 + 4;
+    private static final int ID_BYTES = 16 + 4;
+    private static final int NULL_NANO = -1;
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+    private static final Currency[] CURRENCIES = Currency.values();
+    private static final TransactionChannel[] CHANNELS = TransactionChannel.values();
+
+    private final Path file;
+    private final long seq;
+    private final ByteBuffer buf;
+    private final int rows;
+    private final int[] sections = new int[SECTIONS];
+    private final BloomFilter bloom;
+    private final long bytes;
+
+    // 行号 -> 失效时的版本，只在分层写锁内修改
+    private final Map<Integer, Long> dead = new ConcurrentHashMap<>();
+    private volatile int live;
+
+    private ColdSegment(Path file, long seq, MappedByteBuffer buf) throws IOException {
+        this.file = file;
+        this.seq = seq;
+        this.buf = buf;
+        this.bytes = buf.capacity();
+        if (buf.capacity() < HEADER_BYTES || buf.getLong(0) != MAGIC || buf.getInt(8) != VERSION) {
+            throw new IOException("not a cold segment: " + file);
+        }
+        this.rows = buf.getInt(12);
+        for (int i = 0; i < SECTIONS; i++) {
+            sections[i] = (int) buf.getLong(16 + i * 16);
+        }
+        this.live = rows;
+        this.bloom = new BloomFilter(rows);
+        for (int i = 0; i < rows; i++) {
+            int p = sections[IDS] + i * ID_BYTES;
+            bloom.add(new UUID(buf.getLong(p), buf.getLong(p + 8)));
+        }
+    }
+
+    /**
+     * 写入临时文件后改名，再映射打开
+     *
+     * @param sorted 按 TransactionKey 排好序的交易，updatedAt 不能为空
+     */
+    public static ColdSegment write(Path file, long seq, List<Transaction> sorted) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        int n = sorted.size();
+        try (Output out = new Output(temp)) {
+            long[] offsets = new long[SECTIONS];
+            long[] lengths = new long[SECTIONS];
+            out.skip(HEADER_BYTES);
+
+            int[] recordOffsets = new int[n + 1];
+            offsets[RECORDS] = out.position();
+            for (int i = 0; i < n; i++) {
+                recordOffsets[i] = (int) (out.position() - offsets[RECORDS]);
+                out.putBytes(TransactionCodec.encode(sorted.get(i)));
+            }
+            recordOffsets[n] = (int) (out.position() - offsets[RECORDS]);
+            lengths[RECORDS] = out.position() - offsets[RECORDS];
+
+            offsets[OFFSETS] = out.position();
+            for (int offset : recordOffsets) {
+                out.putInt(offset);
+            }
+
+            offsets[KEYS] = out.position();
+            for (Transaction t : sorted) {
+                out.putLong(t.getUpdatedAt().toEpochSecond(ZoneOffset.UTC)).putInt(t.getUpdatedAt().getNano())
+                        .putLong(t.getId().getMostSignificantBits()).putLong(t.getId().getLeastSignificantBits());
+            }
+
+            offsets[FILTER] = out.position();
+            for (Transaction t : sorted) {
+                out.putByte(ordinal(t.getType())).putByte(ordinal(t.getStatus()))
+                        .putByte(ordinal(t.getCurrency())).putByte(ordinal(t.getChannel()));
+                LocalDateTime created = t.getCreatedAt();
+                out.putLong(created == null ? 0 : created.toEpochSecond(ZoneOffset.UTC))
+                        .putInt(created == null ? NULL_NANO : created.getNano());
+            }
+
+            offsets[IDS] = out.position();
+            Integer[] byId = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                byId[i] = i;
+            }
+            Arrays.sort(byId, Comparator.comparing(i -> sorted.get(i).getId()));
+            for (int i : byId) {
+                UUID id = sorted.get(i).getId();
+                out.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).putInt(i);
+            }
+
+            offsets[ACCOUNTS] = out.position();
+            writeDirectory(out, sorted, Transaction::getAccountNumber);
+            offsets[USERS] = out.position();
+            writeDirectory(out, sorted, Transaction::getUserName);
+            long end = out.position();
+
+            for (int i = OFFSETS; i < SECTIONS; i++) {
+                lengths[i] = (i + 1 < SECTIONS ? offsets[i + 1] : end) - offsets[i];
+            }
+            if (end > Integer.MAX_VALUE) {
+                throw new IOException("cold segment too large: " + end + " bytes");
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putLong(MAGIC).putInt(VERSION).putInt(n);
+            for (int i = 0; i < SECTIONS; i++) {
+                header.putLong(offsets[i]).putLong(lengths[i]);
+            }
+            out.writeHeader(header.flip());
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(file, seq);
+    }
+
+    public static ColdSegment open(Path file, long seq) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new ColdSegment(file, seq, ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        }
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * 段的序号，越大越新
+     */
+    public long seq() {
+        return seq;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * 未失效的行数
+     */
+    public int live() {
+        return live;
+    }
+
+    public long bytes() {
+        return bytes;
+    }
+
+    /**
+     * 堆内占用：布隆过滤器与删除标记
+     */
+    public long heapBytes() {
+        return bloom.bytes() + dead.size() * 64L;
+    }
+
+    /**
+     * @return id 所在行号，不在本段时为 -1；不判断是否已失效
+     */
+    public int find(UUID id) {
+        if (!bloom.mightContain(id)) {
+            return -1;
+        }
+        int lo = 0;
+        int hi = rows - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int p = sections[IDS] + mid * ID_BYTES;
+            int c = Long.compare(buf.getLong(p), id.getMostSignificantBits());
+            if (c == 0) {
+                c = Long.compare(buf.getLong(p + 8), id.getLeastSignificantBits());
+            }
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return buf.getInt(p + 16);
+            }
+        }
+        return -1;
+    }
+
+    public Transaction row(int row) {
+        int base = sections[RECORDS];
+        int start = buf.getInt(sections[OFFSETS] + row * 4);
+        int end = buf.getInt(sections[OFFSETS] + (row + 1) * 4);
+        return TransactionCodec.decode(buf.slice(base + start, end - start));
+    }
+
+    public TransactionKey key(int row) {
+        int p = sections[KEYS] + row * KEY_BYTES;
+        return new TransactionKey(LocalDateTime.ofEpochSecond(buf.getLong(p), buf.getInt(p + 8), ZoneOffset.UTC),
+                new UUID(buf.getLong(p + 12), buf.getLong(p + 20)));
+    }
+
+    /**
+     * 第一个严格排在 key 之后的行号，行按键有序，二分查找
+     */
+    public int after(TransactionKey key) {
+        int lo = 0;
+        int hi = rows;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (key(mid).compareTo(key) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * 多条件筛选，只读取筛选节和键节，不解码整行
+     */
+    public boolean matches(int row, TransactionFilter filter) {
+        int p = sections[FILTER] + row * FILTER_BYTES;
+        if (!accepts(filter.getType(), TYPES, buf.get(p))
+                || !accepts(filter.getStatus(), STATUSES, buf.get(p + 1))
+                || !accepts(filter.getCurrency(), CURRENCIES, buf.get(p + 2))
+                || !accepts(filter.getChannel(), CHANNELS, buf.get(p + 3))) {
+            return false;
+        }
+        if (filter.hasCreatedRange()) {
+            int nano = buf.getInt(p + 12);
+            LocalDateTime created = nano == NULL_NANO
+                    ? null : LocalDateTime.ofEpochSecond(buf.getLong(p + 4), nano, ZoneOffset.UTC);
+            if (!within(created, filter.getCreatedFrom(), filter.getCreatedTo())) {
+                return false;
+            }
+        }
+        if (filter.getUpdatedFrom() != null || filter.getUpdatedTo() != null) {
+            return within(key(row).updatedAt(), filter.getUpdatedFrom(), filter.getUpdatedTo());
+        }
+        return true;
+    }
+
+    /**
+     * @return 该账号的行号，按行顺序排列
+     */
+    public int[] accountRows(String accountNumber) {
+        return postings(sections[ACCOUNTS], accountNumber);
+    }
+
+    public int[] userRows(String userName) {
+        return postings(sections[USERS], userName);
+    }
+
+    /**
+     * 该行在 version 时是否仍有效
+     */
+    public boolean visible(int row, long version) {
+        if (dead.isEmpty()) {
+            return true;
+        }
+        Long at = dead.get(row);
+        return at == null || at > version;
+    }
+
+    public boolean isDead(int row) {
+        return dead.containsKey(row);
+    }
+
+    /**
+     * 标记该行自 version 起失效，只在分层写锁内调用
+     */
+    public void kill(int row, long version) {
+        if (dead.putIfAbsent(row, version) == null) {
+            live--;
+        }
+    }
+
+    /**
+     * 目录布局：count(4) | total(4) | 倒排行号 int[total] | 目录项位置 int[count] | 目录项：长度(4) + UTF-8 + start(4) + n(4)
+     */
+    private static void writeDirectory(Output out, List<Transaction> sorted, Function<Transaction, String> field)
+            throws IOException {
+        TreeMap<String, List<Integer>> groups = new TreeMap<>();
+        int total = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            String value = field.apply(sorted.get(i));
+            if (value != null) {
+                groups.computeIfAbsent(value, k -> new ArrayList<>()).add(i);
+                total++;
+            }
+        }
+        long base = out.position();
+        out.putInt(groups.size()).putInt(total);
+        for (List<Integer> rows : groups.values()) {
+            for (int row : rows) {
+                out.putInt(row);
+            }
+        }
+        long entries = out.position() + 4L * groups.size();
+        int start = 0;
+        for (Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+            out.putInt((int) (entries - base));
+            entries += 4 + group.getKey().getBytes(StandardCharsets.UTF_8).length + 8;
+        }
+        for (Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+            byte[] value = group.getKey().getBytes(StandardCharsets.UTF_8);
+            out.putInt(value.length).putBytes(value).putInt(start).putInt(group.getValue().size());
+            start += group.getValue().size();
+        }
+    }
+
+    private int[] postings(int base, String value) {
+        if (value == null) {
+            return new int[0];
+        }
+        int count = buf.getInt(base);
+        int lo = 0;
+        int hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int entry = base + buf.getInt(base + 8 + buf.getInt(base + 4) * 4 + mid * 4);
+            int length = buf.getInt(entry);
+            byte[] bytes = new byte[length];
+            buf.get(entry + 4, bytes);
+            int c = new String(bytes, StandardCharsets.UTF_8).compareTo(value);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                int start = buf.getInt(entry + 4 + length);
+                int[] rows = new int[buf.getInt(entry + 8 + length)];
+                for (int i = 0; i < rows.length; i++) {
+                    rows[i] = buf.getInt(base + 8 + (start + i) * 4);
+                }
+                return rows;
+            }
+        }
+        return new int[0];
+    }
+
+    private static <E> boolean accepts(Collection<E> values, E[] all, byte ordinal) {
+        return values == null || values.isEmpty() || (ordinal >= 0 && values.contains(all[ordinal]));
+    }
+
+    private static boolean within(LocalDateTime time, LocalDateTime from, LocalDateTime to) {
+        if (from == null && to == null) {
+            return true;
+        }
+        return time != null && (from == null || !time.isBefore(from)) && (to == null || !time.isAfter(to));
+    }
+
+    private static byte ordinal(Enum<?> e) {
+        return e == null ? -1 : (byte) e.ordinal();
+    }
+
+    private static final class Output implements Closeable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+        private long flushed;
+
+        Output(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        long position() {
+            return flushed + buf.position();
+        }
+
+        void skip(int bytes) throws IOException {
+            flush();
+            flushed += bytes;
+            channel.position(flushed);
+        }
+
+        Output putLong(long v) throws IOException {
+            ensure(8);
+            buf.putLong(v);
+            return this;
+        }
+
+        Output putInt(int v) throws IOException {
+            ensure(4);
+            buf.putInt(v);
+            return this;
+        }
+
+        Output putByte(byte v) throws IOException {
+            ensure(1);
+            buf.put(v);
+            return this;
+        }
+
+        Output putBytes(byte[] bytes) throws IOException {
+            for (int offset = 0; offset < bytes.length; ) {
+                ensure(1);
+                int n = Math.min(buf.remaining(), bytes.length - offset);
+                buf.put(bytes, offset, n);
+                offset += n;
+            }
+            return this;
+        }
+
+        void writeHeader(ByteBuffer header) throws IOException {
+            flush();
+            channel.write(header, 0);
+            channel.force(false);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buf.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) {
+                flushed += channel.write(buf);
+            }
+            buf.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.bank.store.tiered;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bank.common.config.BankProperties;
+import org.bank.store.TieredTransactionStore;
+import org.bank.store.TransactionStore;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 后台分层线程：TIERED 引擎下按间隔把符合条件的堆内交易移入冷段
+ */
+@Slf4j
+@Component
+public class TieringScheduler {
+
+    private final TieredTransactionStore store;
+
+    private final BankProperties.Tier properties;
+
+    private ScheduledExecutorService executor;
+
+    public TieringScheduler(TransactionStore transactionStore, BankProperties bankProperties, MeterRegistry registry) {
+        this.store = transactionStore instanceof TieredTransactionStore tiered ? tiered : null;
+        this.properties = bankProperties.getTier();
+        if (store == null) {
+            return;
+        }
+        Gauge.builder("bank.tier.rows", store, TieredTransactionStore::hotSize)
+                .description("各层的交易条数")
+                .tag("tier", "hot")
+                .register(registry);
+        Gauge.builder("bank.tier.rows", store, TieredTransactionStore::coldSize)
+                .description("各层的交易条数")
+                .tag("tier", "cold")
+                .register(registry);
+        Gauge.builder("bank.tier.segments", store, TieredTransactionStore::segmentCount)
+                .description("冷段数")
+                .register(registry);
+        Gauge.builder("bank.tier.cold.bytes", store, TieredTransactionStore::coldBytes)
+                .description("冷段文件总大小")
+                .register(registry);
+        Gauge.builder("bank.tier.cold.heap.bytes", store, TieredTransactionStore::coldHeapBytes)
+                .description("冷段在堆内的占用（布隆过滤器和删除标记）")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (store == null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "tier-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::tier, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private void tier() {
+        try {
+            store.tier();
+        } catch (RuntimeException e) {
+            // 写冷段失败时交易仍在堆内，下个周期重试
+            log.error("Tiering failed", e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.bank.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PageCacheTest {
+
+    @Test
+    void testGet_missesAfterVersionChange() {
+        PageCache cache = new PageCache(1024, 1024);
+        cache.put("/transactions", page("\"a-1\"", 100));
+
+        assertNotNull(cache.get("/transactions", "\"a-1\""));
+        assertNull(cache.get("/transactions", "\"a-2\""));
+        // 过期的页在查找时移除
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.bytes());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void testPut_evictsLeastRecentlyUsedByBytes() {
+        PageCache cache = new PageCache(300, 200);
+        cache.put("a", page("\"v\"", 100));
+        cache.put("b", page("\"v\"", 100));
+        cache.put("c", page("\"v\"", 100));
+        assertNotNull(cache.get("a", "\"v\""));
+
+        cache.put("d", page("\"v\"", 100));
+        assertNull(cache.get("b", "\"v\""));
+        assertNotNull(cache.get("a", "\"v\""));
+        assertEquals(300, cache.bytes());
+
+        // 超过单页上限的不缓存
+        cache.put("e", page("\"v\"", 201));
+        assertNull(cache.get("e", "\"v\""));
+        assertEquals(300, cache.bytes());
+    }
+
+    private static PageCache.Page page(String etag, int bytes) {
+        return new PageCache.Page(etag, "application/json", Map.of(), new byte[bytes]);
+    }
+}
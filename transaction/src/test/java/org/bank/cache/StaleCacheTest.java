@@ -0,0 +1,59 @@
+package org.bank.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StaleCacheTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void testGet_returnsLastPageUntilTtl() {
+        AtomicLong now = new AtomicLong(SECOND);
+        StaleCache cache = new StaleCache(1024, 1024, 60 * SECOND, now::get);
+        cache.put("/transactions", page("\"a-1\"", 100));
+        now.addAndGet(10 * SECOND);
+        // 版本变化后仍返回，覆盖后按新页计算时长
+        cache.put("/transactions", page("\"a-2\"", 50));
+        now.addAndGet(30 * SECOND);
+
+        StaleCache.Stale stale = cache.get("/transactions");
+        assertEquals("\"a-2\"", stale.page().etag());
+        assertEquals(30 * SECOND, stale.ageNanos());
+        assertEquals(50, cache.bytes());
+
+        now.addAndGet(31 * SECOND);
+        assertNull(cache.get("/transactions"));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.bytes());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void testPut_evictsLeastRecentlyUsedByBytes() {
+        StaleCache cache = new StaleCache(300, 200, 60 * SECOND, () -> 0);
+        cache.put("a", page("\"v\"", 100));
+        cache.put("b", page("\"v\"", 100));
+        cache.put("c", page("\"v\"", 100));
+        assertNotNull(cache.get("a"));
+
+        cache.put("d", page("\"v\"", 100));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertEquals(300, cache.bytes());
+
+        // 超过单页上限的不保留
+        cache.put("e", page("\"v\"", 201));
+        assertNull(cache.get("e"));
+        assertEquals(300, cache.bytes());
+    }
+
+    private static PageCache.Page page(String etag, int bytes) {
+        return new PageCache.Page(etag, "application/json", Map.of(), new byte[bytes]);
+    }
+}
@@ -0,0 +1,10 @@
+package org.bank.controller;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * 用列式存储引擎重跑全部接口测试
+ */
+@TestPropertySource(properties = "bank.store.engine=COLUMNAR")
+public class ColumnarTransactionControllerTest extends TransactionControllerTest {
+}
@@ -0,0 +1,63 @@
+package org.bank.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * /actuator/prometheus 暴露业务指标，调用接口后计数随之变化
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+public class MetricsEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testPrometheusEndpoint() throws Exception {
+        String valid = """
+                {"userName":"张三","accountNumber":"62220202020000123","amount":100.00,"currency":"CNY",
+                "status":"SUCCESS","type":"DEPOSIT","channel":"COUNTER"}""";
+        mockMvc.perform(post("/transactions").contentType(MediaType.APPLICATION_JSON).content(valid))
+                .andExpect(jsonPath("$.code").value(0));
+        mockMvc.perform(post("/transactions").contentType(MediaType.APPLICATION_JSON)
+                        .content(valid.replace("100.00", "0.001")))
+                .andExpect(jsonPath("$.code").value(10002));
+        mockMvc.perform(get("/transactions?page=1&size=10"))
+                .andExpect(jsonPath("$.code").value(0));
+
+        String body = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(value(body, "bank_transaction_latency_seconds_count\\{op=\"create\",\\}") >= 2);
+        assertTrue(value(body, "bank_transaction_latency_seconds_count\\{op=\"get\",\\}") >= 1);
+        assertTrue(body.contains("bank_transaction_latency_seconds_bucket{op=\"update\",le=\"0.001\",}"));
+        assertTrue(value(body, "bank_transaction_errors_total\\{code=\"ILLEGAL_PARA\",\\}") >= 1);
+        assertTrue(value(body, "bank_store_size") >= 1);
+        assertTrue(value(body, "bank_ratelimiter_wait_seconds_count\\{name=\"transactionService\",\\}") >= 3);
+        assertTrue(body.contains("bank_index_edit_retries_total"));
+        assertTrue(body.contains("resilience4j_circuitbreaker_state"));
+    }
+
+    private static double value(String body, String metric) {
+        Matcher m = Pattern.compile("(?m)^" + metric + " (\\S+)$").matcher(body);
+        assertTrue(m.find(), metric + " 未暴露");
+        return Double.parseDouble(m.group(1));
+    }
+}
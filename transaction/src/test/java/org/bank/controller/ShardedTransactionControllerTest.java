@@ -0,0 +1,10 @@
+package org.bank.controller;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * 用分片存储引擎重跑全部接口测试
+ */
+@TestPropertySource(properties = {"bank.store.engine=SHARDED", "bank.store.shards=4"})
+public class ShardedTransactionControllerTest extends TransactionControllerTest {
+}
@@ -1,28 +1,56 @@
 package org.bank.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.bank.common.config.BankProperties;
 import org.bank.common.enums.Currency;
 import org.bank.common.enums.TransactionChannel;
 import org.bank.common.enums.TransactionStatus;
 import org.bank.common.enums.TransactionType;
+import org.bank.degrade.DeferredWrites;
+import org.bank.limit.AdaptiveLimiter;
+import org.bank.limit.Priority;
 import org.bank.model.Transaction;
+import org.bank.model.TransactionFilter;
+import org.bank.service.TransactionService;
+import org.bank.store.TransactionStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.ByteArrayInputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+@TestPropertySource(properties = {"bank.importer.reject-dir=target/import-rejects", "bank.rate-limit.enabled=true"})
 public class TransactionControllerTest {
 
     @Autowired
@@ -31,6 +59,21 @@ public class TransactionControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private AdaptiveLimiter adaptiveLimiter;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionStore transactionStore;
+
+    @Autowired
+    private BankProperties bankProperties;
+
     private Transaction sampleTransaction;
 
     @BeforeEach
@@ -56,6 +99,79 @@ public class TransactionControllerTest {
                 .andExpect(jsonPath("$.data.userName").value("张三"));
     }
 
+    @Test
+    void testCreateTransaction_idempotencyKeyReplaysFirstResponse() throws Exception {
+        sampleTransaction.setAccountNumber("62220202027" + System.nanoTime() % 1_000_000);
+        String body = objectMapper.writeValueAsString(sampleTransaction);
+        String key = UUID.randomUUID().toString();
+        MockHttpServletResponse first = mockMvc.perform(post("/transactions").header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(jsonPath("$.code").value(0))
+                .andExpect(header().doesNotExist("Idempotent-Replayed"))
+                .andReturn().getResponse();
+
+        mockMvc.perform(post("/transactions").header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(header().string(HttpHeaders.ETAG, first.getHeader(HttpHeaders.ETAG)))
+                .andExpect(content().string(first.getContentAsString()));
+
+        // 同一个键换了请求体
+        sampleTransaction.setAmount(new BigDecimal("200.00"));
+        mockMvc.perform(post("/transactions").header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(sampleTransaction)))
+                .andExpect(jsonPath("$.code").value(10002));
+
+        mockMvc.perform(get("/transactions").param("accountNumber", sampleTransaction.getAccountNumber()))
+                .andExpect(jsonPath("$.total").value(1));
+    }
+
+    @Test
+    void testCreateTransaction_concurrentDuplicatesCreateOnce() throws Exception {
+        sampleTransaction.setAccountNumber("62220202026" + System.nanoTime() % 1_000_000);
+        String body = objectMapper.writeValueAsString(sampleTransaction);
+        String key = UUID.randomUUID().toString();
+        List<CompletableFuture<String>> responses = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            responses.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return mockMvc.perform(post("/transactions").header("Idempotency-Key", key)
+                                    .contentType(MediaType.APPLICATION_JSON).content(body))
+                            .andReturn().getResponse().getContentAsString();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        String id = objectMapper.readTree(responses.get(0).get()).get("data").get("id").asText();
+        for (CompletableFuture<String> response : responses) {
+            assertEquals(id, objectMapper.readTree(response.get()).get("data").get("id").asText());
+        }
+        mockMvc.perform(get("/transactions").param("accountNumber", sampleTransaction.getAccountNumber()))
+                .andExpect(jsonPath("$.total").value(1));
+    }
+
+    @Test
+    void testCreateTransaction_idempotencyKeyFailureNotRetained() throws Exception {
+        String key = UUID.randomUUID().toString();
+        sampleTransaction.setAmount(new BigDecimal("0.001"));
+        mockMvc.perform(post("/transactions").header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(sampleTransaction)))
+                .andExpect(jsonPath("$.code").value(10002));
+
+        // 失败的响应不保留，修正后用同一个键重试会执行
+        sampleTransaction.setAmount(new BigDecimal("100.00"));
+        mockMvc.perform(post("/transactions").header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(sampleTransaction)))
+                .andExpect(jsonPath("$.code").value(0))
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+
+        mockMvc.perform(post("/transactions").header("Idempotency-Key", "x".repeat(129))
+                        .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(sampleTransaction)))
+                .andExpect(jsonPath("$.code").value(10002));
+    }
+
     @Test
     void testCreateTransaction_invalidAmount() throws Exception {
         sampleTransaction.setAmount(new BigDecimal("0.001")); // too small
@@ -75,6 +191,366 @@ public class TransactionControllerTest {
                 .andExpect(jsonPath("$.data").isArray());
     }
 
+    @Test
+    void testGetTransactions_newestFirstWithTotal() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            sampleTransaction.setDescription("分页" + i);
+            mockMvc.perform(post("/transactions")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(sampleTransaction)))
+                    .andExpect(status().isOk());
+            // 保证 updatedAt 不同，相同时间戳按 id 排序
+            Thread.sleep(2);
+        }
+
+        mockMvc.perform(get("/transactions?page=1&size=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(2))
+                .andExpect(jsonPath("$.data[0].description").value("分页2"))
+                .andExpect(jsonPath("$.total").isNumber())
+                .andExpect(jsonPath("$.hasNext").value(true));
+    }
+
+    @Test
+    void testGetTransactions_cursorWalk() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/transactions")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(sampleTransaction)))
+                    .andExpect(status().isOk());
+        }
+
+        String first = mockMvc.perform(get("/transactions?size=1"))
+                .andExpect(jsonPath("$.nextCursor").isString())
+                .andReturn().getResponse().getContentAsString();
+        String firstId = objectMapper.readTree(first).path("data").path(0).path("id").asText();
+        String cursor = objectMapper.readTree(first).path("nextCursor").asText();
+
+        String second = mockMvc.perform(get("/transactions").param("cursor", cursor).param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andReturn().getResponse().getContentAsString();
+        String secondId = objectMapper.readTree(second).path("data").path(0).path("id").asText();
+
+        assertNotEquals(firstId, secondId);
+    }
+
+    @Test
+    void testGetTransactions_conditionalGetFollowsWrites() throws Exception {
+        mockMvc.perform(post("/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sampleTransaction)))
+                .andExpect(jsonPath("$.code").value(0));
+        MockHttpServletResponse first = mockMvc.perform(get("/transactions").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse();
+        String etag = first.getHeader(HttpHeaders.ETAG);
+        assertEquals(1, first.getHeaders(HttpHeaders.ETAG).size());
+
+        // 未写入时版本不变：带 If-None-Match 返回 304，不带时返回与首次相同的内容
+        mockMvc.perform(get("/transactions").param("size", "5").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/transactions").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().bytes(first.getContentAsByteArray()));
+        mockMvc.perform(get("/transactions/search").param("size", "5").header(HttpHeaders.IF_NONE_MATCH, "W/" + etag))
+                .andExpect(status().isNotModified());
+
+        // 写入后旧的 ETag 失效，列表包含新交易
+        sampleTransaction.setDescription("新交易");
+        mockMvc.perform(post("/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sampleTransaction)))
+                .andExpect(jsonPath("$.code").value(0));
+        String changed = mockMvc.perform(get("/transactions").param("size", "5").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].description").value("新交易"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, changed);
+
+        // 业务异常不带 ETag，也不会被缓存
+        mockMvc.perform(get("/transactions").param("page", "0"))
+                .andExpect(jsonPath("$.code").value(10002))
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void testGetTransactions_invalidCursor() throws Exception {
+        mockMvc.perform(get("/transactions?cursor=not-a-cursor&size=10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(10002));
+    }
+
+    @Test
+    void testGetTransactions_byAccountFollowsUpdateAndDelete() throws Exception {
+        String account = "6222" + System.nanoTime();
+        sampleTransaction.setAccountNumber(account);
+        String[] ids = new String[3];
+        for (int i = 0; i < 3; i++) {
+            sampleTransaction.setDescription("账号" + i);
+            String created = mockMvc.perform(post("/transactions")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(sampleTransaction)))
+                    .andReturn().getResponse().getContentAsString();
+            ids[i] = objectMapper.readTree(created).path("data").path("id").asText();
+            Thread.sleep(2);
+        }
+
+        String first = mockMvc.perform(get("/transactions").param("accountNumber", account).param("size", "2"))
+                .andExpect(jsonPath("$.code").value(0))
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.data[0].id").value(ids[2]))
+                .andExpect(jsonPath("$.data[1].id").value(ids[1]))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andReturn().getResponse().getContentAsString();
+        String cursor = objectMapper.readTree(first).path("nextCursor").asText();
+        mockMvc.perform(get("/transactions").param("accountNumber", account).param("cursor", cursor).param("size", "2"))
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data[0].id").value(ids[0]))
+                .andExpect(jsonPath("$.hasNext").value(false));
+
+        // 改到其他账号后从原账号的列表中移除，删除后同样移除
+        sampleTransaction.setAccountNumber(account + "0");
+        mockMvc.perform(put("/transactions/" + ids[0])
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sampleTransaction)))
+                .andExpect(jsonPath("$.code").value(0));
+        mockMvc.perform(delete("/transactions/" + ids[1]))
+                .andExpect(jsonPath("$.code").value(0));
+        mockMvc.perform(get("/transactions").param("accountNumber", account))
+                .andExpect(jsonPath("$.total").value(1))
+                .andExpect(jsonPath("$.data[0].id").value(ids[2]));
+        mockMvc.perform(get("/transactions").param("accountNumber", account + "0"))
+                .andExpect(jsonPath("$.total").value(1))
+                .andExpect(jsonPath("$.data[0].id").value(ids[0]));
+    }
+
+    @Test
+    void testGetTransactions_byAccountAndUserRejected() throws Exception {
+        mockMvc.perform(get("/transactions").param("accountNumber", "1").param("userName", "张三"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(10002));
+    }
+
+    @Test
+    void testSearchTransactions_byEnumsAndTimeRange() throws Exception {
+        LocalDateTime from = LocalDateTime.now().minusSeconds(1);
+        sampleTransaction.setCurrency(Currency.JPY);
+        sampleTransaction.setStatus(TransactionStatus.PENDING);
+        sampleTransaction.setType(TransactionType.TRANSFER);
+        sampleTransaction.setChannel(TransactionChannel.ATM);
+        String created = mockMvc.perform(post("/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sampleTransaction)))
+                .andReturn().getResponse().getContentAsString();
+        String id = objectMapper.readTree(created).path("data").path("id").asText();
+        sampleTransaction.setStatus(TransactionStatus.SUCCESS);
+        mockMvc.perform(post("/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sampleTransaction)))
+                .andExpect(jsonPath("$.code").value(0));
+
+        mockMvc.perform(get("/transactions/search")
+                        .param("type", "TRANSFER")
+                        .param("status", "PENDING", "FAILED")
+                        .param("currency", "JPY")
+                        .param("channel", "ATM")
+                        .param("updatedFrom", from.toString()))
+                .andExpect(jsonPath("$.code").value(0))
+                .andExpect(jsonPath("$.total").value(1))
+                .andExpect(jsonPath("$.data[0].id").value(id))
+                .andExpect(jsonPath("$.data[0].rowId").doesNotExist());
+    }
+
+    @Test
+    void testSearchTransactions_invalidRange() throws Exception {
+        mockMvc.perform(get("/transactions/search")
+                        .param("createdFrom", "2024-02-01T00:00:00")
+                        .param("createdTo", "2024-01-01T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(10002));
+    }
+
+    @Test
+    void testExportTransactions_ndjsonByAccountAndTimeRange() throws Exception {
+        String account = "6222" + System.nanoTime();
+        sampleTransaction.setAccountNumber(account);
+        String[] ids = new String[3];
+        LocalDateTime[] times = new LocalDateTime[3];
+        for (int i = 0; i < 3; i++) {
+            String created = mockMvc.perform(post("/transactions")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(sampleTransaction)))
+                    .andReturn().getResponse().getContentAsString();
+            JsonNode data = objectMapper.readTree(created).path("data");
+            ids[i] = data.path("id").asText();
+            times[i] = LocalDateTime.parse(data.path("updatedAt").asText());
+            Thread.sleep(2);
+        }
+
+        String body = mockMvc.perform(get("/transactions/export").param("accountNumber", account))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        List<String> lines = body.lines().toList();
+        assertEquals(3, lines.size());
+        assertEquals(ids[2], objectMapper.readTree(lines.get(0)).path("id").asText());
+        assertEquals(ids[0], objectMapper.readTree(lines.get(2)).path("id").asText());
+
+        // 时间范围两端都包含
+        body = mockMvc.perform(get("/transactions/export").param("accountNumber", account)
+                        .param("updatedFrom", times[0].plusNanos(1).toString())
+                        .param("updatedTo", times[1].toString()))
+                .andReturn().getResponse().getContentAsString();
+        lines = body.lines().toList();
+        assertEquals(1, lines.size());
+        assertEquals(ids[1], objectMapper.readTree(lines.get(0)).path("id").asText());
+    }
+
+    @Test
+    void testExportTransactions_holdsPermitUntilWritten() {
+        String account = "6222" + System.nanoTime();
+        sampleTransaction.setAccountNumber(account);
+        transactionService.createTransaction(sampleTransaction);
+        int idle = adaptiveLimiter.inFlight();
+
+        // 写出期间仍占用并发许可，返回后才释放
+        List<Integer> inFlight = new ArrayList<>();
+        transactionService.exportTransactions(new TransactionFilter(), account, it -> {
+            it.forEachRemaining(t -> inFlight.add(adaptiveLimiter.inFlight()));
+        });
+        assertEquals(List.of(idle + 1), inFlight);
+        assertEquals(idle, adaptiveLimiter.inFlight());
+    }
+
+    @Test
+    void testExportTransactions_csvGzip() throws Exception {
+        String account = "6222" + System.nanoTime();
+        sampleTransaction.setAccountNumber(account);
+        sampleTransaction.setDescription("含逗号,和\"引号\"");
+        mockMvc.perform(post("/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sampleTransaction)))
+                .andExpect(jsonPath("$.code").value(0));
+
+        byte[] zipped = mockMvc.perform(get("/transactions/export").param("format", "csv").param("accountNumber", account)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andReturn().getResponse().getContentAsByteArray();
+        String csv;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(zipped))) {
+            csv = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        List<String> lines = csv.lines().toList();
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).startsWith("id,type,status,amount"));
+        assertTrue(lines.get(1).contains(",100.00,CNY," + account + ",张三,COUNTER,"));
+        assertTrue(lines.get(1).endsWith(",\"含逗号,和\"\"引号\"\"\""));
+    }
+
+    @Test
+    void testExportTransactions_invalidParams() throws Exception {
+        mockMvc.perform(get("/transactions/export").param("format", "xml"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(10002));
+        mockMvc.perform(get("/transactions/export")
+                        .param("createdFrom", "2025-01-02T00:00:00")
+                        .param("createdTo", "2025-01-01T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(10002));
+    }
+
+    @Test
+    void testImportTransactions_csvRoundTripWithRejects() throws Exception {
+        String account = "6222" + System.nanoTime();
+        String csv = """
+                accountNumber,userName,amount,currency,type,status,channel,description
+                %1$s,张三,10.50,CNY,DEPOSIT,SUCCESS,ATM,"多行
+                说明,含逗号"
+                %1$s,李四,0,CNY,DEPOSIT,SUCCESS,ATM,金额为0
+                %1$s,王五,1.00,XXX,DEPOSIT,SUCCESS,ATM,币种错误
+
+                %1$s,赵六,2.00,USD,WITHDRAWAL,SUCCESS,MOBILE_APP,
+                """.formatted(account);
+
+        mockMvc.perform(post("/transactions/import").param("format", "csv")
+                        .contentType("text/csv")
+                        .content(csv.getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andExpect(jsonPath("$.data.total").value(4))
+                .andExpect(jsonPath("$.data.imported").value(2))
+                .andExpect(jsonPath("$.data.rejected").value(2))
+                .andExpect(jsonPath("$.data.rejectFile").isString())
+                .andExpect(jsonPath("$.data.rejects[?(@.index == 4)].code").value(10002))
+                .andExpect(jsonPath("$.data.rejects[?(@.index == 5)].msg").value("currency 格式错误: XXX"));
+
+        // 导出后再导入同样的 CSV，按 id 覆盖，条数不变
+        String exported = mockMvc.perform(get("/transactions/export").param("format", "csv").param("accountNumber", account))
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(exported.contains("\"多行\n说明,含逗号\""));
+        mockMvc.perform(post("/transactions/import").param("format", "csv")
+                        .contentType("text/csv")
+                        .content(exported.getBytes(StandardCharsets.UTF_8)))
+                .andExpect(jsonPath("$.data.imported").value(2))
+                .andExpect(jsonPath("$.data.rejected").value(0));
+        mockMvc.perform(get("/transactions").param("accountNumber", account))
+                .andExpect(jsonPath("$.total").value(2));
+    }
+
+    @Test
+    void testGetStats_byAccountWithVerify() throws Exception {
+        String account = "6222" + System.nanoTime();
+        sampleTransaction.setAccountNumber(account);
+        sampleTransaction.setType(TransactionType.DEPOSIT);
+        sampleTransaction.setAmount(new BigDecimal("100.00"));
+        mockMvc.perform(post("/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sampleTransaction)))
+                .andExpect(jsonPath("$.code").value(0));
+        sampleTransaction.setType(TransactionType.WITHDRAWAL);
+        sampleTransaction.setAmount(new BigDecimal("40.5"));
+        mockMvc.perform(post("/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sampleTransaction)))
+                .andExpect(jsonPath("$.code").value(0));
+
+        mockMvc.perform(get("/transactions/stats")
+                        .param("accountNumber", account)
+                        .param("groupBy", "currency")
+                        .param("verify", "true"))
+                .andExpect(jsonPath("$.code").value(0))
+                .andExpect(jsonPath("$.data.verified").value(true))
+                .andExpect(jsonPath("$.data.groups.length()").value(1))
+                .andExpect(jsonPath("$.data.groups[0].currency").value("CNY"))
+                .andExpect(jsonPath("$.data.groups[0].count").value(2))
+                .andExpect(jsonPath("$.data.groups[0].netAmount").value(59.5));
+    }
+
+    @Test
+    void testGetStats_unknownDimension() throws Exception {
+        mockMvc.perform(get("/transactions/stats").param("groupBy", "description"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(10002));
+    }
+
+    @Test
+    void testCreateTransaction_tooManyDecimals() throws Exception {
+        sampleTransaction.setAmount(new BigDecimal("1.00001"));
+        mockMvc.perform(post("/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sampleTransaction)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(10002));
+    }
+
     @Test
     void testUpdateTransaction_success() throws Exception {
         // First create one
@@ -96,6 +572,142 @@ public class TransactionControllerTest {
                 .andExpect(jsonPath("$.data.userName").value("李四"));
     }
 
+    @Test
+    void testUpdateTransaction_ifMatchKeepsCreatedAt() throws Exception {
+        String response = mockMvc.perform(post("/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sampleTransaction)))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andReturn().getResponse().getContentAsString();
+        JsonNode created = objectMapper.readTree(response).path("data");
+        String id = created.path("id").asText();
+
+        // 请求体不带 createdAt，整体替换后仍保留创建时间
+        sampleTransaction.setAmount(new BigDecimal("200.00"));
+        mockMvc.perform(put("/transactions/" + id)
+                        .header(HttpHeaders.IF_MATCH, "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sampleTransaction)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""))
+                .andExpect(jsonPath("$.data.version").value(2))
+                .andExpect(jsonPath("$.data.createdAt").value(created.path("createdAt").asText()));
+
+        // 旧版本号再次提交按冲突返回，数据不变
+        sampleTransaction.setAmount(new BigDecimal("300.00"));
+        mockMvc.perform(put("/transactions/" + id)
+                        .header(HttpHeaders.IF_MATCH, "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sampleTransaction)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.code").value(10003));
+        mockMvc.perform(get("/transactions/" + id))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""))
+                .andExpect(jsonPath("$.data.amount").value(200.00));
+    }
+
+    @Test
+    void testCreateTransaction_existingIdRejected() throws Exception {
+        String response = mockMvc.perform(post("/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sampleTransaction)))
+                .andReturn().getResponse().getContentAsString();
+        JsonNode created = objectMapper.readTree(response).path("data");
+
+        // 带已存在 id 的新增不覆盖原交易，请求中的版本号也不生效
+        ObjectNode again = (ObjectNode) created.deepCopy();
+        again.put("amount", 999.00);
+        again.put("version", 1);
+        mockMvc.perform(post("/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(again)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.code").value(10003));
+        mockMvc.perform(post("/transactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(again))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].code").value(10003));
+
+        mockMvc.perform(get("/transactions/" + created.path("id").asText()))
+                .andExpect(jsonPath("$.data.version").value(1))
+                .andExpect(jsonPath("$.data.amount").value(100.00))
+                .andExpect(jsonPath("$.data.createdAt").value(created.path("createdAt").asText()));
+    }
+
+    @Test
+    void testUpdateTransactions_batchComparesVersionPerItem() throws Exception {
+        List<JsonNode> created = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String response = mockMvc.perform(post("/transactions")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(sampleTransaction)))
+                    .andReturn().getResponse().getContentAsString();
+            created.add(objectMapper.readTree(response).path("data"));
+        }
+
+        // 第一条版本一致，第二条版本过期，第三条不带版本号
+        List<ObjectNode> items = new ArrayList<>();
+        for (JsonNode node : created) {
+            ObjectNode item = (ObjectNode) node.deepCopy();
+            item.remove("createdAt");
+            item.put("amount", 500.00);
+            items.add(item);
+        }
+        items.get(1).put("version", 7);
+        items.get(2).remove("version");
+        mockMvc.perform(put("/transactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(items)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].code").value(0))
+                .andExpect(jsonPath("$.data[1].code").value(10003))
+                .andExpect(jsonPath("$.data[2].code").value(0));
+
+        mockMvc.perform(get("/transactions/" + created.get(0).path("id").asText()))
+                .andExpect(jsonPath("$.data.version").value(2))
+                .andExpect(jsonPath("$.data.amount").value(500.00))
+                .andExpect(jsonPath("$.data.createdAt").value(created.get(0).path("createdAt").asText()));
+        mockMvc.perform(get("/transactions/" + created.get(1).path("id").asText()))
+                .andExpect(jsonPath("$.data.version").value(1))
+                .andExpect(jsonPath("$.data.amount").value(100.00));
+    }
+
+    @Test
+    void testPatchTransaction_statusOnly() throws Exception {
+        String response = mockMvc.perform(post("/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sampleTransaction)))
+                .andReturn().getResponse().getContentAsString();
+        String id = objectMapper.readTree(response).path("data").path("id").asText();
+
+        mockMvc.perform(patch("/transactions/" + id)
+                        .header(HttpHeaders.IF_MATCH, "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"FAILED\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""))
+                .andExpect(jsonPath("$.data.status").value("FAILED"))
+                .andExpect(jsonPath("$.data.userName").value("张三"))
+                .andExpect(jsonPath("$.data.amount").value(100.00));
+
+        mockMvc.perform(patch("/transactions/" + id)
+                        .header(HttpHeaders.IF_MATCH, "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"SUCCESS\"}"))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.code").value(10003));
+        mockMvc.perform(patch("/transactions/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\":0}"))
+                .andExpect(jsonPath("$.code").value(10002));
+        mockMvc.perform(patch("/transactions/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(jsonPath("$.code").value(10002));
+    }
+
     @Test
     void testUpdateTransaction_notFound() throws Exception {
         UUID fakeId = UUID.randomUUID();
@@ -123,6 +735,26 @@ public class TransactionControllerTest {
                 .andExpect(jsonPath("$.data").value(true));
     }
 
+    @Test
+    void testDeleteTransaction_ifMatch() throws Exception {
+        String response = mockMvc.perform(post("/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sampleTransaction)))
+                .andReturn().getResponse().getContentAsString();
+        String id = objectMapper.readTree(response).path("data").path("id").asText();
+
+        mockMvc.perform(delete("/transactions/" + id).header(HttpHeaders.IF_MATCH, "\"2\""))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.code").value(10003));
+        mockMvc.perform(delete("/transactions/" + id).header(HttpHeaders.IF_MATCH, "abc"))
+                .andExpect(jsonPath("$.code").value(10002));
+        mockMvc.perform(delete("/transactions/" + id).header(HttpHeaders.IF_MATCH, "\"1\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data").value(true));
+        mockMvc.perform(get("/transactions/" + id))
+                .andExpect(jsonPath("$.code").value(10001));
+    }
+
     @Test
     void testDeleteTransaction_invalidId() throws Exception {
         UUID fakeId = UUID.randomUUID();
@@ -199,4 +831,234 @@ public class TransactionControllerTest {
                 .andExpect(jsonPath("$.code").value(500));
     }
 
-}
\ No newline at end of file
+    @Test
+    void testCreateTransactions_batchPartialFailure() throws Exception {
+        Transaction invalid = new Transaction();
+        invalid.setUserName("王五");
+
+        String body = objectMapper.writeValueAsString(List.of(sampleTransaction, invalid));
+        mockMvc.perform(post("/transactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andExpect(jsonPath("$.data[0].code").value(0))
+                .andExpect(jsonPath("$.data[0].id").isString())
+                .andExpect(jsonPath("$.data[1].index").value(1))
+                .andExpect(jsonPath("$.data[1].code").value(10002));
+    }
+
+    @Test
+    void testCreateTransactions_ndjsonThenBatchDelete() throws Exception {
+        String line = objectMapper.writeValueAsString(sampleTransaction);
+        String response = mockMvc.perform(post("/transactions/batch")
+                        .contentType("application/x-ndjson")
+                        .content(line + "\n" + line + "\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(2))
+                .andReturn().getResponse().getContentAsString();
+
+        String id = objectMapper.readTree(response).path("data").path(0).path("id").asText();
+        mockMvc.perform(delete("/transactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"" + id + "\", \"" + UUID.randomUUID() + "\"]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].code").value(0))
+                .andExpect(jsonPath("$.data[1].code").value(10001));
+    }
+
+    @Test
+    void testCreateTransactions_ndjsonOverMaxSizeRejected() throws Exception {
+        int maxSize = bankProperties.getBatch().getMaxSize();
+        int sizeBefore = transactionStore.size();
+        bankProperties.getBatch().setMaxSize(2);
+        try {
+            String line = objectMapper.writeValueAsString(sampleTransaction);
+            mockMvc.perform(post("/transactions/batch")
+                            .contentType("application/x-ndjson")
+                            .content(line + "\n" + line + "\n" + line + "\n"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.code").value(10002));
+        } finally {
+            bankProperties.getBatch().setMaxSize(maxSize);
+        }
+        assertEquals(sizeBefore, transactionStore.size());
+    }
+
+    @Test
+    void testCreateTransactions_emptyBatch() throws Exception {
+        mockMvc.perform(post("/transactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(10002));
+    }
+
+    @Test
+    void testLimiter_readsShedBeforeCounterWrites() throws Exception {
+        // 占满读请求可用的并发份额
+        List<Long> held = new ArrayList<>();
+        for (long start; (start = adaptiveLimiter.acquire(Priority.READ)) >= 0; ) {
+            held.add(start);
+        }
+        try {
+            mockMvc.perform(get("/transactions/" + UUID.randomUUID()))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.code").value(99999));
+            mockMvc.perform(post("/transactions")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(sampleTransaction)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.code").value(0));
+        } finally {
+            held.forEach(start -> adaptiveLimiter.release(start, false));
+        }
+        mockMvc.perform(get("/transactions/" + UUID.randomUUID()))
+                .andExpect(jsonPath("$.code").value(10001));
+    }
+
+    @Test
+    void testCreateTransaction_accountRateLimitedPerChannel() throws Exception {
+        // ATM 渠道每个账号桶容量 20
+        sampleTransaction.setChannel(TransactionChannel.ATM);
+        sampleTransaction.setAccountNumber("62220202028" + System.nanoTime() % 1_000_000);
+        String body = objectMapper.writeValueAsString(sampleTransaction);
+        int limited = 0;
+        for (int i = 0; i < 30; i++) {
+            MockHttpServletResponse response = mockMvc.perform(post("/transactions")
+                    .contentType(MediaType.APPLICATION_JSON).content(body)).andReturn().getResponse();
+            if (response.getStatus() == 429) {
+                assertEquals(10004, objectMapper.readTree(response.getContentAsString()).path("code").asInt());
+                limited++;
+            }
+        }
+        assertTrue(limited > 0);
+
+        // 其他账号不受影响
+        sampleTransaction.setAccountNumber("62220202029" + System.nanoTime() % 1_000_000);
+        mockMvc.perform(post("/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sampleTransaction)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0));
+    }
+
+    @Test
+    void testCreateTransactions_batchItemsCountAgainstAccountLimit() throws Exception {
+        // ATM 渠道每个账号桶容量 20，批量中的每条都计入，超出的按条返回 RATE_LIMITED
+        sampleTransaction.setChannel(TransactionChannel.ATM);
+        sampleTransaction.setAccountNumber("62220202032" + System.nanoTime() % 1_000_000);
+        String body = objectMapper.writeValueAsString(Collections.nCopies(25, sampleTransaction));
+        JsonNode data = objectMapper.readTree(mockMvc.perform(post("/transactions/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(0))
+                .andReturn().getResponse().getContentAsString()).path("data");
+        int limited = 0;
+        for (JsonNode item : data) {
+            if (item.path("code").asInt() == 10004) {
+                limited++;
+            }
+        }
+        assertEquals(0, data.path(0).path("code").asInt());
+        assertTrue(limited > 0);
+    }
+
+    @Test
+    void testGetTransactions_staleWhileCircuitOpen() throws Exception {
+        sampleTransaction.setAccountNumber("62220202031" + System.nanoTime() % 1_000_000);
+        mockMvc.perform(post("/transactions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sampleTransaction)))
+                .andExpect(jsonPath("$.code").value(0));
+        String body = mockMvc.perform(get("/transactions").param("accountNumber", sampleTransaction.getAccountNumber()))
+                .andExpect(jsonPath("$.total").value(1))
+                .andExpect(jsonPath("$.stale").doesNotExist())
+                .andReturn().getResponse().getContentAsString();
+
+        CircuitBreaker breaker = circuitBreakerRegistry.circuitBreaker("transactionService");
+        breaker.transitionToForcedOpenState();
+        try {
+            mockMvc.perform(post("/transactions")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(sampleTransaction)))
+                    .andExpect(jsonPath("$.code").value(99999));
+            // 绕过熔断写入，列表版本变化，列表页缓存不再命中
+            Transaction written = objectMapper.readValue(objectMapper.writeValueAsString(sampleTransaction), Transaction.class);
+            written.setId(UUID.randomUUID());
+            written.setCreatedAt(LocalDateTime.now());
+            written.setUpdatedAt(LocalDateTime.now());
+            transactionStore.put(written);
+
+            MockHttpServletResponse stale = mockMvc.perform(get("/transactions")
+                            .param("accountNumber", sampleTransaction.getAccountNumber()))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.code").value(0))
+                    .andExpect(jsonPath("$.stale").value(true))
+                    .andExpect(jsonPath("$.total").value(1))
+                    .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                    .andExpect(header().exists(HttpHeaders.AGE))
+                    .andReturn().getResponse();
+            JsonNode expected = objectMapper.readTree(body);
+            ((ObjectNode) expected).put("stale", true);
+            assertEquals(expected, objectMapper.readTree(stale.getContentAsString()));
+
+            // 没有成功过的请求仍然降级
+            mockMvc.perform(get("/transactions").param("accountNumber", sampleTransaction.getAccountNumber() + "0"))
+                    .andExpect(jsonPath("$.code").value(99999));
+        } finally {
+            breaker.transitionToClosedState();
+        }
+        mockMvc.perform(get("/transactions").param("accountNumber", sampleTransaction.getAccountNumber()))
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.stale").doesNotExist())
+                .andExpect(jsonPath("$.total").value(2));
+    }
+
+    @Test
+    void testCreateTransaction_queuedWhileCircuitOpen() throws Exception {
+        CircuitBreaker breaker = circuitBreakerRegistry.circuitBreaker("transactionService");
+        Object service = AopTestUtils.getUltimateTargetObject(transactionService);
+        Object original = ReflectionTestUtils.getField(service, "deferredWrites");
+        DeferredWrites writes = new DeferredWrites(10, breaker, transactionStore::put);
+        ReflectionTestUtils.setField(service, "deferredWrites", writes);
+        sampleTransaction.setAccountNumber("62220202032" + System.nanoTime() % 1_000_000);
+        String body = objectMapper.writeValueAsString(sampleTransaction);
+        String key = UUID.randomUUID().toString();
+        breaker.transitionToForcedOpenState();
+        try {
+            String id = objectMapper.readTree(mockMvc.perform(post("/transactions").header("Idempotency-Key", key)
+                                    .contentType(MediaType.APPLICATION_JSON).content(body))
+                            .andExpect(status().isAccepted())
+                            .andExpect(jsonPath("$.code").value(10005))
+                            .andReturn().getResponse().getContentAsString())
+                    .get("data").get("id").asText();
+            // 重试返回同一排队结果，不重复排队
+            mockMvc.perform(post("/transactions").header("Idempotency-Key", key)
+                            .contentType(MediaType.APPLICATION_JSON).content(body))
+                    .andExpect(status().isAccepted())
+                    .andExpect(jsonPath("$.data.id").value(id));
+            // 校验不通过的不排队
+            sampleTransaction.setAmount(new BigDecimal("0.001"));
+            mockMvc.perform(post("/transactions")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(sampleTransaction)))
+                    .andExpect(jsonPath("$.code").value(10002));
+            assertEquals(1, writes.size());
+
+            breaker.transitionToClosedState();
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            while (writes.size() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            mockMvc.perform(get("/transactions/" + id))
+                    .andExpect(jsonPath("$.code").value(0))
+                    .andExpect(jsonPath("$.data.accountNumber").value(sampleTransaction.getAccountNumber()));
+        } finally {
+            breaker.transitionToClosedState();
+            ReflectionTestUtils.setField(service, "deferredWrites", original);
+            writes.close();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package org.bank.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 变更流：通过真实端口订阅，再经接口写入，检查收到的事件
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class TransactionStreamTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void testNdjson_createdUpdatedDeletedForAccount() throws Exception {
+        String account = "62220202029" + System.nanoTime() % 1_000_000;
+        try (Stream stream = open("/transactions/stream?format=ndjson&accountNumber=" + account, null)) {
+            assertEquals("application/x-ndjson", stream.contentType);
+            create("62220202020000001");
+            JsonNode created = create(account);
+            String id = created.get("id").asText();
+            update(id, account, "FAILED");
+            restTemplate.delete("/transactions/" + id);
+
+            JsonNode event = objectMapper.readTree(stream.next());
+            assertEquals("CREATED", event.get("type").asText());
+            assertEquals(id, event.get("id").asText());
+            assertEquals(1, event.get("version").asLong());
+            assertEquals(account, event.get("transaction").get("accountNumber").asText());
+
+            JsonNode updated = objectMapper.readTree(stream.next());
+            assertEquals("UPDATED", updated.get("type").asText());
+            assertEquals(2, updated.get("version").asLong());
+            assertEquals("FAILED", updated.get("transaction").get("status").asText());
+            assertTrue(updated.get("seq").asLong() > event.get("seq").asLong());
+
+            JsonNode deleted = objectMapper.readTree(stream.next());
+            assertEquals("DELETED", deleted.get("type").asText());
+            assertEquals(id, deleted.get("id").asText());
+        }
+    }
+
+    @Test
+    void testSse_eventTypeFilterAndResume() throws Exception {
+        String account = "62220202028" + System.nanoTime() % 1_000_000;
+        long seq;
+        String id;
+        try (Stream stream = open("/transactions/stream?events=UPDATED&accountNumber=" + account, null)) {
+            assertEquals("text/event-stream", stream.contentType);
+            id = create(account).get("id").asText();
+            update(id, account, "FAILED");
+
+            String idLine = stream.next();
+            assertTrue(idLine.startsWith("id: "), idLine);
+            seq = Long.parseLong(idLine.substring(4));
+            assertEquals("event: updated", stream.next());
+            JsonNode data = objectMapper.readTree(stream.next().substring("data: ".length()));
+            assertEquals(id, data.get("id").asText());
+            assertEquals("UPDATED", data.get("type").asText());
+        }
+
+        // 以上一个事件的序号续传，收到之后的删除事件
+        restTemplate.delete("/transactions/" + id);
+        try (Stream stream = open("/transactions/stream?accountNumber=" + account, String.valueOf(seq))) {
+            String idLine = stream.next();
+            assertTrue(Long.parseLong(idLine.substring(4)) > seq);
+            assertEquals("event: deleted", stream.next());
+        }
+    }
+
+    @Test
+    void testResume_expiredSeqGetsResync() throws Exception {
+        try (Stream stream = open("/transactions/stream?format=ndjson&fromSeq=1", null)) {
+            JsonNode event = objectMapper.readTree(stream.next());
+            assertEquals("RESYNC", event.get("type").asText());
+            assertTrue(event.get("seq").asLong() > 1);
+            assertNull(event.get("transaction"));
+        }
+    }
+
+    @Test
+    void testStream_invalidParams() {
+        JsonNode format = restTemplate.getForObject("/transactions/stream?format=xml", JsonNode.class);
+        assertEquals(10002, format.get("code").asInt());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Last-Event-ID", "abc");
+        JsonNode lastEventId = restTemplate.exchange("/transactions/stream", HttpMethod.GET, new HttpEntity<>(headers),
+                JsonNode.class).getBody();
+        assertEquals(10002, lastEventId.get("code").asInt());
+    }
+
+    private Stream open(String path, String lastEventId) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId);
+        }
+        HttpResponse<InputStream> response = client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        assertEquals(200, response.statusCode());
+        return new Stream(response);
+    }
+
+    private JsonNode create(String account) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        JsonNode response = restTemplate.postForObject("/transactions", new HttpEntity<>(body(account, "SUCCESS"), headers),
+                JsonNode.class);
+        assertEquals(0, response.get("code").asInt());
+        return response.get("data");
+    }
+
+    private void update(String id, String account, String status) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        restTemplate.put("/transactions/" + id, new HttpEntity<>(body(account, status), headers));
+    }
+
+    private static String body(String account, String status) {
+        return """
+                {"userName":"张三","accountNumber":"%s","amount":100.00,"currency":"CNY",
+                "status":"%s","type":"DEPOSIT","channel":"COUNTER"}""".formatted(account, status);
+    }
+
+    /**
+     * 后台线程逐行读取响应，跳过心跳和空行
+     */
+    private static final class Stream implements AutoCloseable {
+
+        private final String contentType;
+        private final InputStream in;
+        private final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+
+        Stream(HttpResponse<InputStream> response) {
+            this.contentType = response.headers().firstValue(HttpHeaders.CONTENT_TYPE).orElse("").split(";")[0];
+            this.in = response.body();
+            Thread reader = new Thread(() -> {
+                try (BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = r.readLine()) != null) {
+                        if (!line.isEmpty() && !line.startsWith(":")) {
+                            lines.add(line);
+                        }
+                    }
+                } catch (Exception e) {
+                    // 关闭连接时结束
+                }
+            });
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        String next() throws InterruptedException {
+            String line = lines.poll(10, TimeUnit.SECONDS);
+            assertNotNull(line, "no event within 10s");
+            return line;
+        }
+
+        @Override
+        public void close() throws Exception {
+            in.close();
+        }
+    }
+}
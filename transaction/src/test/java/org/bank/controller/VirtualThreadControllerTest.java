@@ -0,0 +1,52 @@
+package org.bank.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * 虚拟线程模式：Tomcat 请求在虚拟线程上执行，接口行为不变
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.threads.virtual.enabled=true")
+public class VirtualThreadControllerTest {
+
+    @Autowired
+    private ServletWebServerApplicationContext context;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    void testTomcatUsesVirtualThreads() {
+        TomcatWebServer server = (TomcatWebServer) context.getWebServer();
+        assertInstanceOf(VirtualThreadExecutor.class,
+                server.getTomcat().getConnector().getProtocolHandler().getExecutor());
+    }
+
+    @Test
+    void testCreateAndList() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        String body = """
+                {"userName":"张三","accountNumber":"62220202020000123","amount":100.00,"currency":"CNY",
+                "status":"SUCCESS","type":"DEPOSIT","channel":"COUNTER"}""";
+        JsonNode created = restTemplate.postForObject("/transactions", new HttpEntity<>(body, headers), JsonNode.class);
+        assertEquals(0, created.get("code").asInt());
+
+        JsonNode page = restTemplate.getForObject("/transactions?page=1&size=10", JsonNode.class);
+        assertEquals(0, page.get("code").asInt());
+        assertEquals(created.get("data").get("id").asText(), page.get("data").get(0).get("id").asText());
+    }
+}
@@ -0,0 +1,91 @@
+package org.bank.degrade;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import org.bank.model.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeferredWritesTest {
+
+    @Test
+    void testOffer_replaysInOrderOnceHalfOpen() throws Exception {
+        CircuitBreaker breaker = CircuitBreaker.of("test", CircuitBreakerConfig.custom()
+                .permittedNumberOfCallsInHalfOpenState(2)
+                .build());
+        breaker.transitionToOpenState();
+        List<UUID> written = new CopyOnWriteArrayList<>();
+        try (DeferredWrites writes = new DeferredWrites(5, breaker, t -> written.add(t.getId()))) {
+            List<Transaction> transactions = IntStream.range(0, 6).mapToObj(i -> transaction()).toList();
+            for (int i = 0; i < 5; i++) {
+                assertTrue(writes.offer(transactions.get(i)));
+            }
+            // 队列已满
+            assertFalse(writes.offer(transactions.get(5)));
+            assertEquals(1, writes.rejected());
+            assertTrue(written.isEmpty());
+
+            // 半开时先写入 2 条试探，成功后熔断关闭，继续写入剩余的
+            breaker.transitionToHalfOpenState();
+            await(() -> written.size() == 5);
+            assertEquals(transactions.subList(0, 5).stream().map(Transaction::getId).toList(), written);
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+            assertEquals(0, writes.size());
+            assertEquals(5, writes.replayed());
+        }
+    }
+
+    @Test
+    void testDrain_failedWriteStaysAtHead() throws Exception {
+        CircuitBreaker breaker = CircuitBreaker.ofDefaults("test");
+        breaker.transitionToForcedOpenState();
+        AtomicBoolean failing = new AtomicBoolean(true);
+        List<UUID> written = new CopyOnWriteArrayList<>();
+        try (DeferredWrites writes = new DeferredWrites(5, breaker, t -> {
+            if (failing.getAndSet(false)) {
+                throw new IllegalStateException("store unavailable");
+            }
+            written.add(t.getId());
+        })) {
+            Transaction first = transaction();
+            Transaction second = transaction();
+            writes.offer(first);
+            writes.offer(second);
+
+            breaker.transitionToClosedState();
+            // 首次写入失败后稍后重试，顺序不变
+            await(() -> written.size() == 2);
+            assertEquals(List.of(first.getId(), second.getId()), written);
+        }
+    }
+
+    @Test
+    void testOffer_disabledWithZeroCapacity() throws Exception {
+        try (DeferredWrites writes = new DeferredWrites(0, CircuitBreaker.ofDefaults("test"), t -> fail())) {
+            assertFalse(writes.enabled());
+            assertFalse(writes.offer(transaction()));
+        }
+    }
+
+    private static Transaction transaction() {
+        Transaction transaction = new Transaction();
+        transaction.setId(UUID.randomUUID());
+        return transaction;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.bank.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyCacheTest {
+
+    @Test
+    void testGet_expiresAfterTtl() {
+        AtomicLong now = new AtomicLong();
+        IdempotencyCache cache = new IdempotencyCache(1 << 20, 100, now::get);
+        cache.put("k", response(10));
+
+        now.set(99);
+        assertNotNull(cache.get("k"));
+        now.set(100);
+        assertNull(cache.get("k"));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.bytes());
+    }
+
+    @Test
+    void testPut_evictsOldestByBytes() {
+        long entry = response(100).bytes("a");
+        IdempotencyCache cache = new IdempotencyCache(entry * 3, Long.MAX_VALUE / 2, () -> 0);
+        cache.put("a", response(100));
+        cache.put("b", response(100));
+        cache.put("c", response(100));
+        cache.put("d", response(100));
+
+        assertNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+        assertNotNull(cache.get("d"));
+        assertEquals(entry * 3, cache.bytes());
+    }
+
+    @Test
+    void testBegin_duplicateWaitsForFirst() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(1 << 20, Long.MAX_VALUE / 2);
+        CompletableFuture<IdempotencyCache.Response> first = new CompletableFuture<>();
+        assertNull(cache.begin("k", first));
+
+        CompletableFuture<IdempotencyCache.Response> running = cache.begin("k", new CompletableFuture<>());
+        assertSame(first, running);
+        assertFalse(running.isDone());
+        assertEquals(1, cache.inFlight());
+
+        IdempotencyCache.Response response = response(10);
+        cache.complete("k", first, response, true, null);
+        assertSame(response, running.get());
+        assertEquals(0, cache.inFlight());
+
+        // 完成后到达的请求直接命中
+        assertSame(response, cache.get("k"));
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.joins());
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    void testComplete_failedResponseNotRetained() {
+        IdempotencyCache cache = new IdempotencyCache(1 << 20, Long.MAX_VALUE / 2);
+        CompletableFuture<IdempotencyCache.Response> first = new CompletableFuture<>();
+        cache.begin("k", first);
+        CompletableFuture<IdempotencyCache.Response> running = cache.begin("k", new CompletableFuture<>());
+
+        cache.complete("k", first, null, false, new IllegalStateException("boom"));
+        assertTrue(running.isCompletedExceptionally());
+        assertNull(cache.get("k"));
+        // 之后的请求重新执行
+        assertNull(cache.begin("k", new CompletableFuture<>()));
+    }
+
+    private static IdempotencyCache.Response response(int bytes) {
+        return new IdempotencyCache.Response("f", 200, "application/json", Map.of(), new byte[bytes]);
+    }
+}
@@ -0,0 +1,96 @@
+package org.bank.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyFilterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testKey_scopedByClient() throws Exception {
+        IdempotencyFilter filter = filter(Duration.ofSeconds(5));
+        AtomicInteger executions = new AtomicInteger();
+        FilterChain chain = (request, response) -> {
+            HttpServletResponse http = (HttpServletResponse) response;
+            http.setHeader(HttpHeaders.ETAG, "\"1\"");
+            http.getOutputStream().write(("created-" + executions.incrementAndGet()).getBytes(StandardCharsets.UTF_8));
+        };
+
+        // 不同调用方用了相同的键，各自执行；同一调用方重试时重放
+        MockHttpServletResponse a = perform(filter, request("client-a"), chain);
+        MockHttpServletResponse b = perform(filter, request("client-b"), chain);
+        MockHttpServletResponse retry = perform(filter, request("client-a"), chain);
+
+        assertEquals("created-1", a.getContentAsString());
+        assertEquals("created-2", b.getContentAsString());
+        assertNull(b.getHeader(IdempotencyFilter.REPLAYED));
+        assertEquals("created-1", retry.getContentAsString());
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED));
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void testRetry_waitsForFirstRequestWithTimeout() throws Exception {
+        IdempotencyFilter filter = filter(Duration.ofMillis(50));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain stuck = (request, response) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        CompletableFuture<MockHttpServletResponse> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return perform(filter, request("client-a"), stuck);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        started.await();
+        try {
+            MockHttpServletResponse retry = perform(filter, request("client-a"), (request, response) -> fail());
+            assertEquals(HttpServletResponse.SC_CONFLICT, retry.getStatus());
+            assertEquals(99999, objectMapper.readTree(retry.getContentAsByteArray()).get("code").asInt());
+        } finally {
+            release.countDown();
+        }
+        first.get();
+    }
+
+    private IdempotencyFilter filter(Duration waitTimeout) {
+        return new IdempotencyFilter(new IdempotencyCache(1 << 20, Duration.ofHours(1).toNanos()), 128, waitTimeout,
+                "X-Client-Id", objectMapper);
+    }
+
+    private static MockHttpServletRequest request(String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/transactions");
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY, "same-key");
+        request.addHeader("X-Client-Id", client);
+        request.setContent("{}".getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private static MockHttpServletResponse perform(IdempotencyFilter filter, MockHttpServletRequest request,
+                                                   FilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
@@ -0,0 +1,99 @@
+package org.bank.importer;
+
+import org.bank.export.ExportFormat;
+import org.bank.model.ImportResult;
+import org.bank.store.TransactionStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 导入 100 万条生成数据，其中每 1000 条有一条金额为 0、每 10 万条有一条 JSON 损坏。
+ * 每个账号有 50 条，超出 ATM 渠道的账号桶容量；开启限流验证导入不按账号限流
+ */
+@SpringBootTest(properties = "bank.rate-limit.enabled=true")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class TransactionImporterTest {
+
+    private static final int ROWS = 1_000_000;
+
+    @TempDir
+    Path dir;
+
+    @Autowired
+    private TransactionImporter transactionImporter;
+
+    @Autowired
+    private TransactionStore transactionStore;
+
+    @Test
+    void testImport_millionRowsWithRejects() throws IOException {
+        Path input = dir.resolve("history.ndjson");
+        LocalDateTime base = LocalDateTime.now().minusDays(30);
+        int invalid = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(input, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < ROWS; i++) {
+                if (i % 100_000 == 1) {
+                    writer.write("{\"userName\":\"损坏\",\n");
+                    invalid++;
+                    continue;
+                }
+                if (i % 1000 == 0) {
+                    invalid++;
+                }
+                String time = base.plusSeconds(i).toString();
+                writer.write("{\"userName\":\"用户" + (i % 5000) + "\",\"accountNumber\":\"6222" + (1_000_000 + i % 20_000)
+                        + "\",\"amount\":" + (i % 1000 == 0 ? "0" : (i % 9999 + 1) + ".25")
+                        + ",\"currency\":\"CNY\",\"status\":\"SUCCESS\",\"type\":\"DEPOSIT\",\"channel\":\"ATM\""
+                        + ",\"createdAt\":\"" + time + "\",\"updatedAt\":\"" + time + "\"}\n");
+            }
+        }
+
+        int before = transactionStore.size();
+        Path rejectFile = dir.resolve("rejects.tsv");
+        ImportResult result;
+        try (InputStream in = Files.newInputStream(input)) {
+            result = transactionImporter.importFrom(in, ExportFormat.NDJSON, rejectFile);
+        }
+
+        assertEquals(ROWS, result.getTotal());
+        assertEquals(ROWS - invalid, result.getImported());
+        assertEquals(invalid, result.getRejected());
+        assertEquals(before + ROWS - invalid, transactionStore.size());
+        assertTrue(result.getRowsPerSecond() > 0);
+
+        List<String> rejects = Files.readAllLines(rejectFile);
+        assertEquals(invalid + 1, rejects.size());
+        assertTrue(rejects.contains("1\t10002\t交易金额必须大于或等于 0.01\t" + firstLine(input)));
+        assertTrue(rejects.stream().anyMatch(line -> line.startsWith("2\t10002\tJSON 格式错误")));
+        assertEquals(100, result.getRejects().size());
+    }
+
+    @Test
+    void testImport_emptyInput() throws IOException {
+        ImportResult result = transactionImporter.importFrom(InputStream.nullInputStream(), ExportFormat.CSV, dir.resolve("none.tsv"));
+        assertEquals(0, result.getTotal());
+        assertNull(result.getRejectFile());
+    }
+
+    private static String firstLine(Path file) throws IOException {
+        try (var lines = Files.lines(file)) {
+            return lines.findFirst().orElseThrow();
+        }
+    }
+}
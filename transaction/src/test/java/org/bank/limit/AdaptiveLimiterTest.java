@@ -0,0 +1,173 @@
+package org.bank.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveLimiterTest {
+
+    private static final long MS = 1_000_000;
+
+    @Test
+    void testAcquire_lowerPriorityRejectedFirst() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(options(10, 0.8, 0.5), () -> 0);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.acquire(Priority.READ) >= 0);
+        }
+        assertEquals(-1, limiter.acquire(Priority.READ));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.acquire(Priority.WRITE) >= 0);
+        }
+        assertEquals(-1, limiter.acquire(Priority.WRITE));
+        assertTrue(limiter.acquire(Priority.CRITICAL) >= 0);
+        assertTrue(limiter.acquire(Priority.CRITICAL) >= 0);
+        assertEquals(-1, limiter.acquire(Priority.CRITICAL));
+        assertEquals(10, limiter.inFlight());
+        assertEquals(1, limiter.rejected(Priority.READ));
+        assertEquals(5, limiter.accepted(Priority.READ));
+    }
+
+    @Test
+    void testRelease_shrinksOnQueueingAndGrowsWhenSaturated() {
+        AtomicLong now = new AtomicLong();
+        AdaptiveLimiter limiter = new AdaptiveLimiter(options(100, 1, 1), now::get);
+
+        // 第一个窗口只记录无排队耗时 1ms
+        window(limiter, now, 1 * MS, 60);
+        assertEquals(100, limiter.limit());
+
+        // 最小耗时涨到 4ms，超过 2 倍，按 2/4 收缩
+        window(limiter, now, 4 * MS, 60);
+        assertEquals(50, limiter.limit());
+
+        // 耗时恢复且并发用到一半以上，增加 √50
+        window(limiter, now, 1 * MS, 30);
+        assertEquals(57, limiter.limit());
+
+        // 并发不到一半时不增加
+        window(limiter, now, 1 * MS, 10);
+        assertEquals(57, limiter.limit());
+
+        // 有降级时乘以 0.9
+        long start = limiter.acquire(Priority.CRITICAL);
+        now.addAndGet(100 * MS);
+        limiter.release(start, true);
+        assertEquals(51, limiter.limit());
+    }
+
+    /**
+     * 4 个工作线程、每个请求 2ms 的服务被 64 个客户端持续压测：不限制时请求在服务内排队，
+     * 限制后超出的请求立即被拒绝，被接受请求的 p99 耗时大幅下降，且拒绝集中在 READ。
+     * 只统计开始压测 500ms 之后的请求，排除上限从初始值收缩期间的排队
+     */
+    @Test
+    void testOverload_limiterCutsTailLatency() throws Exception {
+        long unlimited = p99(run(null, 64, Duration.ofMillis(2000)).latencies);
+
+        AdaptiveLimiter limiter = new AdaptiveLimiter(new AdaptiveLimiter.Options(
+                100, 1, 100, 2.0, Duration.ofMillis(20), 1.0, 0.5));
+        // 低负载下先学到无排队耗时
+        run(limiter, 1, Duration.ofMillis(300));
+        Result limited = run(limiter, 64, Duration.ofMillis(2000));
+        long p99 = p99(limited.latencies);
+
+        assertTrue(p99 * 2 < unlimited, "p99 unlimited=" + unlimited / 1000 + "us, limited=" + p99 / 1000 + "us");
+        assertTrue(limiter.rejected(Priority.READ) > 0);
+        assertTrue(limiter.rejected(Priority.READ) > limiter.rejected(Priority.CRITICAL),
+                "read rejected=" + limiter.rejected(Priority.READ) + ", critical rejected=" + limiter.rejected(Priority.CRITICAL));
+        assertTrue(limiter.limit() < 32, "limit " + limiter.limit());
+    }
+
+    private record Result(List<Long> latencies, long rejected) {
+    }
+
+    /**
+     * 闭环客户端，一半按 CRITICAL、一半按 READ 获取许可，被拒绝时等待 1ms 再发
+     */
+    private static Result run(AdaptiveLimiter limiter, int clients, Duration duration) throws InterruptedException {
+        Semaphore workers = new Semaphore(4, true);
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        LongAdder rejected = new LongAdder();
+        long measureFrom = System.nanoTime() + Math.min(500, duration.toMillis() / 4) * 1_000_000;
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            Priority priority = c % 2 == 0 ? Priority.CRITICAL : Priority.READ;
+            threads.add(Thread.ofPlatform().start(() -> {
+                while (System.nanoTime() < deadline) {
+                    long begin = System.nanoTime();
+                    long start = limiter == null ? begin : limiter.acquire(priority);
+                    if (start < 0) {
+                        rejected.increment();
+                        sleep(1);
+                        continue;
+                    }
+                    try {
+                        workers.acquireUninterruptibly();
+                        try {
+                            sleep(2);
+                        } finally {
+                            workers.release();
+                        }
+                    } finally {
+                        if (limiter != null) {
+                            limiter.release(start, false);
+                        }
+                    }
+                    if (begin >= measureFrom) {
+                        latencies.add(System.nanoTime() - begin);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return new Result(new ArrayList<>(latencies), rejected.sum());
+    }
+
+    private static long p99(List<Long> latencies) {
+        assertFalse(latencies.isEmpty());
+        Collections.sort(latencies);
+        return latencies.get((int) Math.min(latencies.size() - 1, Math.ceil(latencies.size() * 0.99) - 1));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 一个窗口：concurrent 个请求同时执行，各耗时 rtt；最后一个请求在窗口结束时完成，触发调整
+     */
+    private static void window(AdaptiveLimiter limiter, AtomicLong now, long rtt, int concurrent) {
+        long[] starts = new long[concurrent];
+        for (int i = 0; i < concurrent; i++) {
+            starts[i] = limiter.acquire(Priority.CRITICAL);
+            assertTrue(starts[i] >= 0);
+        }
+        now.addAndGet(rtt);
+        for (int i = 0; i < concurrent - 1; i++) {
+            limiter.release(starts[i], false);
+        }
+        now.addAndGet(100 * MS);
+        limiter.release(starts[concurrent - 1], false);
+    }
+
+    private static AdaptiveLimiter.Options options(int limit, double writeShare, double readShare) {
+        return new AdaptiveLimiter.Options(limit, 1, 1000, 2.0, Duration.ofMillis(100), writeShare, readShare);
+    }
+}
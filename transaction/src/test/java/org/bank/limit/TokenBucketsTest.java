@@ -0,0 +1,96 @@
+package org.bank.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketsTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void testTryAcquire_burstThenRefillsLazily() {
+        AtomicLong now = new AtomicLong(SECOND);
+        TokenBuckets buckets = new TokenBuckets(10, 5, now::get);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(buckets.tryAcquire("a"));
+        }
+        assertFalse(buckets.tryAcquire("a"));
+        // 其他键不受影响
+        assertTrue(buckets.tryAcquire("b"));
+
+        now.addAndGet(SECOND / 10);
+        assertTrue(buckets.tryAcquire("a"));
+        assertFalse(buckets.tryAcquire("a"));
+
+        // 空闲很久也只补满到桶容量
+        now.addAndGet(60 * SECOND);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(buckets.tryAcquire("a"));
+        }
+        assertFalse(buckets.tryAcquire("a"));
+    }
+
+    @Test
+    void testEvictIdle_removesOnlyFullBuckets() {
+        AtomicLong now = new AtomicLong(SECOND);
+        TokenBuckets buckets = new TokenBuckets(1, 2, now::get);
+        for (int i = 0; i < 1000; i++) {
+            buckets.tryAcquire("k" + i);
+        }
+        buckets.tryAcquire("busy");
+        buckets.tryAcquire("busy");
+        assertEquals(1001, buckets.size());
+
+        now.addAndGet(SECOND);
+        // 补满的桶删除后与新桶等价，busy 还差一个令牌
+        assertEquals(1000, buckets.evictIdle());
+        assertEquals(1, buckets.size());
+        assertTrue(buckets.tryAcquire("busy"));
+        assertFalse(buckets.tryAcquire("busy"));
+    }
+
+    @Test
+    void testRefund_returnsOneToken() {
+        AtomicLong now = new AtomicLong(SECOND);
+        TokenBuckets buckets = new TokenBuckets(1, 2, now::get);
+        assertTrue(buckets.tryAcquire("a"));
+        assertTrue(buckets.tryAcquire("a"));
+        assertFalse(buckets.tryAcquire("a"));
+
+        buckets.refund("a");
+        assertTrue(buckets.tryAcquire("a"));
+        assertFalse(buckets.tryAcquire("a"));
+        // 不存在的键不需要退还
+        buckets.refund("absent");
+        assertEquals(1, buckets.size());
+    }
+
+    @Test
+    void testTryAcquire_concurrentGrantsExactlyBurst() throws InterruptedException {
+        // 时间不前进，只有初始的 burst 个令牌
+        TokenBuckets buckets = new TokenBuckets(1, 1000, () -> SECOND);
+        LongAdder granted = new LongAdder();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    if (buckets.tryAcquire("hot")) {
+                        granted.increment();
+                    }
+                    // 同时清理，失效的桶不能多发令牌
+                    buckets.evictIdle();
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1000, granted.sum());
+    }
+}
@@ -0,0 +1,238 @@
+package org.bank.replication;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bank.common.config.BankProperties;
+import org.bank.common.enums.CodeEnum;
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+import org.bank.feed.ChangeFeed;
+import org.bank.model.Transaction;
+import org.bank.store.StorageEngine;
+import org.bank.store.TransactionStore;
+import org.bank.store.journal.FsyncPolicy;
+import org.bank.store.journal.TransactionJournal;
+import org.bank.store.snapshot.SnapshotManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplicationTest {
+
+    @ParameterizedTest
+    @EnumSource(StorageEngine.class)
+    void testReplica_loadsSnapshotThenAppliesStream(StorageEngine engine) throws Exception {
+        TransactionJournal journal = TransactionJournal.disabled();
+        TransactionStore primaryStore = StorageEngine.HEAP.create(journal, SnapshotManager.disabled());
+        ReplicationServer server = new ReplicationServer(primaryStore, journal,
+                properties(ReplicationRole.PRIMARY, 0), new SimpleMeterRegistry());
+        server.start();
+        List<Transaction> existing = IntStream.range(0, 50).mapToObj(i -> sample("existing-" + i)).toList();
+        primaryStore.putAll(existing);
+
+        TransactionStore replicaStore = engine.create(TransactionJournal.disabled(), SnapshotManager.disabled());
+        ReplicaClient replica = replica(replicaStore, server.port());
+        try {
+            replica.start();
+            await(() -> replica.isSynced() && replica.appliedSeq() == server.head());
+            assertEquals(primaryStore.size(), replicaStore.size());
+
+            // 全量之后的新增、修改、删除按序应用
+            primaryStore.put(sample("added"));
+            primaryStore.replace(copyOf(existing.get(0), "updated"));
+            primaryStore.remove(existing.get(1).getId());
+            await(() -> replica.appliedSeq() == server.head());
+
+            assertEquals(rows(primaryStore), rows(replicaStore));
+            assertEquals(2, replicaStore.get(existing.get(0).getId()).getVersion());
+            assertNull(replicaStore.get(existing.get(1).getId()));
+            assertEquals(0, replica.lagRecords());
+            assertEquals(1, server.replicaCount());
+        } finally {
+            replica.stop();
+            server.stop();
+        }
+    }
+
+    @Test
+    void testReplica_resyncsAfterPrimaryRestart() throws Exception {
+        int port = freePort();
+        TransactionJournal journal = TransactionJournal.disabled();
+        TransactionStore primaryStore = StorageEngine.HEAP.create(journal, SnapshotManager.disabled());
+        Transaction kept = sample("kept");
+        Transaction dropped = sample("dropped");
+        primaryStore.putAll(List.of(kept, dropped));
+        ReplicationServer server = new ReplicationServer(primaryStore, journal,
+                properties(ReplicationRole.PRIMARY, port), new SimpleMeterRegistry());
+        server.start();
+
+        TransactionStore replicaStore = StorageEngine.HEAP.create(TransactionJournal.disabled(), SnapshotManager.disabled());
+        ReplicaClient replica = replica(replicaStore, port);
+        try {
+            replica.start();
+            await(() -> replica.isSynced() && replicaStore.size() == 2);
+            server.stop();
+
+            // 重启后的主库标识不同，副本重连后按新的全量数据覆盖，删除已不存在的交易
+            TransactionJournal restartedJournal = TransactionJournal.disabled();
+            TransactionStore restartedStore = StorageEngine.HEAP.create(restartedJournal, SnapshotManager.disabled());
+            Transaction added = sample("added");
+            restartedStore.putAll(List.of(copyOf(kept, "kept-updated"), added));
+            server = new ReplicationServer(restartedStore, restartedJournal,
+                    properties(ReplicationRole.PRIMARY, port), new SimpleMeterRegistry());
+            server.start();
+            await(() -> replicaStore.get(added.getId()) != null && replicaStore.get(dropped.getId()) == null);
+
+            assertEquals(rows(restartedStore), rows(replicaStore));
+            assertEquals("kept-updated", replicaStore.get(kept.getId()).getDescription());
+        } finally {
+            replica.stop();
+            server.stop();
+        }
+    }
+
+    @Test
+    void testLog_resumesOnlyWithinBacklog() {
+        ReplicationLog log = new ReplicationLog(4);
+        TransactionJournal journal = TransactionJournal.disabled();
+        journal.attach(log);
+        for (int i = 0; i < 6; i++) {
+            journal.appendPut(sample("t" + i));
+        }
+
+        assertEquals(6, log.head());
+        assertTrue(log.canResume(2));
+        assertTrue(log.canResume(6));
+        assertFalse(log.canResume(1));
+        assertFalse(log.canResume(7));
+        assertNull(log.frame(2));
+        assertEquals("t2", TransactionJournal.decodeFrame(log.frame(3)).transaction().getDescription());
+    }
+
+    @Test
+    void testLog_sendsOnlyDurableRecords(@TempDir Path dir) throws Exception {
+        ReplicationLog log = new ReplicationLog(16);
+        TransactionJournal journal = new TransactionJournal(dir, FsyncPolicy.ALWAYS, Duration.ZERO, 1 << 20);
+        journal.open(record -> { });
+        journal.attach(log);
+        journal.awaitDurable(journal.appendPut(sample("durable")));
+        assertEquals(1, log.durable());
+
+        // 刷盘失败的记录已进入数组，但不会发送给副本
+        ((FileChannel) ReflectionTestUtils.getField(journal, "channel")).close();
+        long seq = journal.appendPut(sample("lost"));
+        assertThrows(UncheckedIOException.class, () -> journal.awaitDurable(seq));
+        assertEquals(2, log.head());
+        assertEquals(1, log.durable());
+        assertEquals(1, log.await(1, TimeUnit.MILLISECONDS.toNanos(20)));
+        journal.close();
+    }
+
+    @Test
+    void testFilter_rejectsWritesAndReadsBeforeSync() throws Exception {
+        BankProperties properties = properties(ReplicationRole.REPLICA, freePort());
+        ReplicaClient replica = new ReplicaClient(
+                StorageEngine.HEAP.create(TransactionJournal.disabled(), SnapshotManager.disabled()),
+                TransactionJournal.disabled(), feed(properties), properties, new SimpleMeterRegistry());
+        ObjectMapper objectMapper = new ObjectMapper();
+        ReplicaFilter filter = new ReplicaFilter(replica, objectMapper);
+
+        MockHttpServletResponse write = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/transactions"), write, new MockFilterChain());
+        assertEquals(ReplicaFilter.SC_MISDIRECTED_REQUEST, write.getStatus());
+        assertEquals(CodeEnum.READ_ONLY_REPLICA.getCode(),
+                objectMapper.readTree(write.getContentAsByteArray()).get("code").asInt());
+
+        MockHttpServletResponse read = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/transactions"), read, new MockFilterChain());
+        assertEquals(503, read.getStatus());
+    }
+
+    private static ReplicaClient replica(TransactionStore store, int port) {
+        BankProperties properties = properties(ReplicationRole.REPLICA, port);
+        return new ReplicaClient(store, TransactionJournal.disabled(), feed(properties), properties,
+                new SimpleMeterRegistry());
+    }
+
+    private static BankProperties properties(ReplicationRole role, int port) {
+        BankProperties properties = new BankProperties();
+        BankProperties.Replication replication = properties.getReplication();
+        replication.setRole(role);
+        replication.setPort(port);
+        replication.setPrimaryPort(port);
+        replication.setHeartbeat(Duration.ofMillis(100));
+        replication.setReconnectDelay(Duration.ofMillis(50));
+        return properties;
+    }
+
+    private static ChangeFeed feed(BankProperties properties) {
+        return new ChangeFeed(new ObjectMapper(), properties, new SimpleMeterRegistry());
+    }
+
+    private static List<String> rows(TransactionStore store) {
+        return store.snapshot().range(0, store.size()).stream()
+                .map(t -> t.getId() + "/" + t.getVersion() + "/" + t.getDescription())
+                .toList();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    private static Transaction copyOf(Transaction source, String description) {
+        Transaction t = sample(description);
+        t.setId(source.getId());
+        t.setCreatedAt(source.getCreatedAt());
+        t.setUpdatedAt(source.getUpdatedAt().plusSeconds(1));
+        return t;
+    }
+
+    private static Transaction sample(String description) {
+        Transaction t = new Transaction();
+        t.setId(UUID.randomUUID());
+        t.setUserName("张三");
+        t.setAccountNumber("62220202020000123");
+        t.setAmount(new BigDecimal("100.00"));
+        t.setCurrency(Currency.CNY);
+        t.setStatus(TransactionStatus.SUCCESS);
+        t.setType(TransactionType.DEPOSIT);
+        t.setChannel(TransactionChannel.COUNTER);
+        t.setCreatedAt(LocalDateTime.now().minusMinutes(1));
+        t.setUpdatedAt(LocalDateTime.now().minusMinutes(1));
+        t.setDescription(description);
+        return t;
+    }
+}
@@ -0,0 +1,76 @@
+package org.bank.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderedIndexTest {
+
+    @Test
+    void testRandomOperations_matchTreeMap() {
+        OrderedIndex<Integer, String> index = new OrderedIndex<>();
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                index.remove(key);
+                expected.remove(key);
+            } else {
+                index.put(key, "v" + i);
+                expected.put(key, "v" + i);
+            }
+        }
+
+        OrderedIndex.Snapshot<Integer, String> snapshot = index.snapshot();
+        List<String> all = new ArrayList<>(expected.values());
+        assertEquals(expected.size(), snapshot.size());
+        assertEquals(all, snapshot.range(0, Integer.MAX_VALUE));
+        assertEquals(all.subList(100, 110), snapshot.range(100, 10));
+        assertTrue(snapshot.range(expected.size(), 10).isEmpty());
+
+        Integer pivot = expected.keySet().stream().skip(500).findFirst().orElseThrow();
+        assertEquals(500, snapshot.rank(pivot));
+        assertEquals(all.subList(501, 521), snapshot.after(pivot, 20));
+        assertEquals(expected.get(pivot), snapshot.get(pivot));
+    }
+
+    @Test
+    void testSnapshot_isolatedFromLaterWrites() {
+        OrderedIndex<Integer, String> index = new OrderedIndex<>();
+        index.put(1, "a");
+        OrderedIndex.Snapshot<Integer, String> snapshot = index.snapshot();
+        index.put(2, "b");
+        index.remove(1);
+
+        assertEquals(List.of("a"), snapshot.range(0, 10));
+        assertEquals(List.of("b"), index.snapshot().range(0, 10));
+    }
+
+    @Test
+    void testConcurrentWriters_noLostUpdates() throws InterruptedException {
+        OrderedIndex<Integer, Integer> index = new OrderedIndex<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            int base = t * 10_000;
+            executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    index.put(base + i, i);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(80_000, index.size());
+    }
+}
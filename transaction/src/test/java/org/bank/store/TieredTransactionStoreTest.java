@@ -0,0 +1,360 @@
+package org.bank.store;
+
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+import org.bank.model.Transaction;
+import org.bank.model.TransactionFilter;
+import org.bank.store.filter.FilterIndex;
+import org.bank.store.journal.FsyncPolicy;
+import org.bank.store.journal.TransactionJournal;
+import org.bank.store.snapshot.SnapshotManager;
+import org.bank.store.stats.Dimension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TieredTransactionStoreTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.now();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testTier_viewsMatchHeapAcrossTiers() {
+        TieredTransactionStore tiered = tiered(TransactionJournal.disabled(), SnapshotManager.disabled(), 100);
+        TransactionStore heap = StorageEngine.HEAP.create(TransactionJournal.disabled(), SnapshotManager.disabled());
+        List<Transaction> transactions = samples(400);
+        tiered.putAll(transactions);
+        heap.putAll(transactions);
+
+        assertTrue(tiered.tier() > 0);
+        assertTrue(tiered.hotSize() <= 100);
+        assertTrue(tiered.segmentCount() > 1);
+        assertEquals(400, tiered.size());
+        // 近期的 PENDING 交易不超出上限时留在堆内
+        assertEquals(TransactionStatus.PENDING, tiered.snapshot().range(0, 1).get(0).getStatus());
+
+        assertViewsEqual(heap.snapshot(), tiered.snapshot());
+        assertViewsEqual(heap.snapshotByAccount("acc1"), tiered.snapshotByAccount("acc1"));
+        assertViewsEqual(heap.snapshotByUser("user2"), tiered.snapshotByUser("user2"));
+        for (Transaction t : transactions) {
+            assertEquals(t, tiered.get(t.getId()));
+        }
+        assertNull(tiered.get(UUID.randomUUID()));
+
+        TransactionFilter settledDeposits = new TransactionFilter();
+        settledDeposits.setType(Set.of(TransactionType.DEPOSIT));
+        settledDeposits.setStatus(Set.of(TransactionStatus.SUCCESS));
+        TransactionFilter range = new TransactionFilter();
+        range.setUpdatedFrom(NOW.minusDays(10).minusSeconds(300));
+        range.setUpdatedTo(NOW.minusDays(10).minusSeconds(100));
+        for (TransactionFilter filter : List.of(settledDeposits, range, new TransactionFilter())) {
+            assertQueryEqual(heap, tiered, filter);
+        }
+    }
+
+    @Test
+    void testWrite_promotesColdRowAndKeepsEarlierViews() {
+        TieredTransactionStore store = tiered(TransactionJournal.disabled(), SnapshotManager.disabled(), 100);
+        List<Transaction> transactions = samples(300);
+        store.putAll(transactions);
+        store.tier();
+        Transaction cold = transactions.get(299);
+        Transaction removed = transactions.get(298);
+        int hot = store.hotSize();
+        TransactionView before = store.snapshot();
+        List<Transaction> rowsBefore = before.range(0, 300);
+
+        Transaction updated = copyOf(cold, "after");
+        assertEquals(1, store.replace(updated, 1).getVersion());
+        assertEquals(2, store.get(cold.getId()).getVersion());
+        assertEquals("after", store.get(cold.getId()).getDescription());
+        // 版本不一致时不做修改
+        assertEquals(2, store.remove(cold.getId(), 1).getVersion());
+        assertEquals(1, store.remove(removed.getId(), 1).getVersion());
+        assertNull(store.get(removed.getId()));
+
+        assertEquals(299, store.size());
+        assertEquals(hot + 1, store.hotSize());
+        assertEquals("after", store.snapshot().range(0, 1).get(0).getDescription());
+        // 修改前获取的视图不变
+        assertEquals(300, before.size());
+        assertEquals(rowsBefore, before.range(0, 300));
+
+        // 冷段中的行全部调回后删除该段
+        int segments = store.segmentCount();
+        store.removeAll(transactions.stream().skip(100).map(Transaction::getId).toList());
+        assertTrue(store.segmentCount() < segments);
+        assertEquals(100, store.size());
+    }
+
+    @Test
+    void testRecover_loadsOldRowsIntoSegments() {
+        TransactionJournal journal = journal();
+        TieredTransactionStore store = tiered(journal, snapshots(), 100);
+        store.recover();
+        List<Transaction> transactions = samples(300);
+        store.putAll(transactions);
+        store.tier();
+        store.checkpoint();
+        // 快照之后修改冷段中的行，只存在于日志尾部
+        store.replace(copyOf(transactions.get(299), "after"), 1);
+        store.remove(transactions.get(298).getId(), 1);
+        TransactionView expected = store.snapshot();
+        journal.close();
+
+        TieredTransactionStore recovered = tiered(journal(), snapshots(), 100);
+        recovered.recover();
+
+        assertEquals(299, recovered.size());
+        assertTrue(recovered.coldSize() > 0);
+        assertEquals("after", recovered.get(transactions.get(299).getId()).getDescription());
+        assertNull(recovered.get(transactions.get(298).getId()));
+        assertViewsEqual(expected, recovered.snapshot());
+        // 冷段中的行也计入统计
+        Set<Dimension> groupBy = Set.of(Dimension.STATUS, Dimension.CURRENCY);
+        assertEquals(store.stats(groupBy, null), recovered.stats(groupBy, null));
+        assertEquals(recovered.recomputeStats(groupBy, null), recovered.stats(groupBy, null));
+    }
+
+    /**
+     * 在堆上限远小于全部交易所需内存的子进程中写入并读取，交易分层后不发生 OutOfMemoryError
+     */
+    @Test
+    void testSmallHeap_rowsBeyondHeapStayReadable() throws Exception {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-Xmx48m", "-cp", System.getProperty("java.class.path"),
+                SmallHeap.class.getName(), dir.resolve("tier").toString())
+                .redirectErrorStream(true)
+                .redirectOutput(dir.resolve("child.log").toFile())
+                .start();
+        assertTrue(process.waitFor(5, TimeUnit.MINUTES), "child did not finish");
+        assertEquals(0, process.exitValue(), () -> read(dir.resolve("child.log").toFile()));
+    }
+
+    static class SmallHeap {
+
+        public static void main(String[] args) {
+            TieredTransactionStore store = new TieredTransactionStore(TransactionJournal.disabled(),
+                    SnapshotManager.disabled(),
+                    new TieredTransactionStore.Options(Path.of(args[0]), Duration.ofDays(3), 20_000, 16_384));
+            int rows = 300_000;
+            UUID first = null;
+            List<Transaction> batch = new ArrayList<>();
+            for (int i = 0; i < rows; i++) {
+                Transaction t = sample(i, "description " + "x".repeat(200));
+                first = first == null ? t.getId() : first;
+                batch.add(t);
+                if (batch.size() == 1000) {
+                    store.putAll(batch);
+                    batch = new ArrayList<>();
+                }
+                if (i % 20_000 == 0) {
+                    store.tier();
+                }
+            }
+            store.putAll(batch);
+            store.tier();
+            check(store.size() == rows, "size " + store.size());
+            check(store.hotSize() <= 20_000, "hot " + store.hotSize());
+            check(store.get(first) != null, "first row missing");
+            check(store.snapshotByAccount("acc3").size() == rows / 7 + (3 < rows % 7 ? 1 : 0), "account view");
+            Transaction updated = copyOf(store.get(first), "after");
+            check(store.replace(updated, 1).getVersion() == 1, "replace");
+            check("after".equals(store.snapshot().range(0, 1).get(0).getDescription()), "latest");
+            int count = 0;
+            for (Transaction ignored : store.snapshot()) {
+                count++;
+            }
+            check(count == rows, "iterated " + count);
+        }
+
+        private static void check(boolean condition, String message) {
+            if (!condition) {
+                System.out.println(message);
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * 快照中的交易远超子进程的堆上限，恢复时按块读取并直接写入冷段，不发生 OutOfMemoryError
+     */
+    @Test
+    void testSmallHeap_recoverSnapshotBeyondHeap() throws Exception {
+        int rows = SmallHeapRecover.ROWS;
+        new SnapshotManager(dir.resolve("snapshot")).write(rows, rows,
+                () -> IntStream.range(0, rows).mapToObj(SmallHeapRecover::row).iterator());
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-Xmx48m", "-cp", System.getProperty("java.class.path"),
+                SmallHeapRecover.class.getName(), dir.toString())
+                .redirectErrorStream(true)
+                .redirectOutput(dir.resolve("child.log").toFile())
+                .start();
+        assertTrue(process.waitFor(5, TimeUnit.MINUTES), "child did not finish");
+        assertEquals(0, process.exitValue(), () -> read(dir.resolve("child.log").toFile()));
+    }
+
+    static class SmallHeapRecover {
+
+        static final int ROWS = 300_000;
+
+        /**
+         * 按 TransactionKey 的顺序生成，更新时间逐条递减，前 30000 条为近期的 PENDING 交易
+         */
+        static Transaction row(int i) {
+            Transaction t = sample(i, "description " + "x".repeat(200));
+            t.setId(new UUID(0, i));
+            t.setUpdatedAt(NOW.minusSeconds(i));
+            if (i < 30_000) {
+                t.setStatus(TransactionStatus.PENDING);
+            }
+            return t;
+        }
+
+        public static void main(String[] args) {
+            Path root = Path.of(args[0]);
+            TransactionJournal journal = new TransactionJournal(root.resolve("journal"), FsyncPolicy.ALWAYS,
+                    Duration.ZERO, 1 << 20);
+            TieredTransactionStore store = new TieredTransactionStore(journal,
+                    new SnapshotManager(root.resolve("snapshot")),
+                    new TieredTransactionStore.Options(root.resolve("tier"), Duration.ofDays(3), 20_000, 16_384));
+            store.recover();
+            SmallHeap.check(store.size() == ROWS, "size " + store.size());
+            SmallHeap.check(store.hotSize() <= 20_000, "hot " + store.hotSize());
+            SmallHeap.check(store.coldSize() >= ROWS - 20_000, "cold " + store.coldSize());
+            SmallHeap.check(store.get(new UUID(0, 0)) != null, "first row missing");
+            Transaction last = store.get(new UUID(0, ROWS - 1));
+            SmallHeap.check(last != null && last.getDescription().endsWith("x"), "last row missing");
+            SmallHeap.check(store.snapshotByAccount("acc3").size() == ROWS / 7 + (3 < ROWS % 7 ? 1 : 0), "account view");
+            int count = 0;
+            for (Transaction ignored : store.snapshot()) {
+                count++;
+            }
+            SmallHeap.check(count == ROWS, "iterated " + count);
+            // 恢复后照常写入
+            Transaction updated = copyOf(last, "after");
+            SmallHeap.check(store.replace(updated, last.getVersion()).getVersion() == last.getVersion(), "replace");
+            SmallHeap.check("after".equals(store.snapshot().range(0, 1).get(0).getDescription()), "latest");
+            journal.close();
+        }
+    }
+
+    private static void assertViewsEqual(TransactionView expected, TransactionView actual) {
+        assertEquals(expected.size(), actual.size());
+        List<Transaction> all = expected.range(0, expected.size());
+        assertEquals(all, actual.range(0, actual.size()));
+        for (int offset = 0; offset <= expected.size(); offset += 37) {
+            assertEquals(expected.range(offset, 5), actual.range(offset, 5), "offset " + offset);
+        }
+        for (int i = 0; i < all.size(); i += 41) {
+            List<Transaction> tail = new ArrayList<>();
+            actual.iteratorAfter(TransactionKey.of(all.get(i))).forEachRemaining(tail::add);
+            assertEquals(all.subList(i + 1, all.size()), tail, "after " + i);
+        }
+    }
+
+    private static void assertQueryEqual(TransactionStore expected, TransactionStore actual, TransactionFilter filter) {
+        for (int skip : new int[]{0, 13, 150}) {
+            FilterIndex.Result e = expected.query(filter, null, skip, 20);
+            FilterIndex.Result a = actual.query(filter, null, skip, 20);
+            assertEquals(e.items(), a.items());
+            assertEquals(e.total(), a.total());
+            assertEquals(e.hasNext(), a.hasNext());
+        }
+        // 游标翻页遍历全部结果
+        List<Transaction> pages = new ArrayList<>();
+        TransactionKey after = null;
+        FilterIndex.Result page;
+        do {
+            page = actual.query(filter, after, 0, 23);
+            pages.addAll(page.items());
+            if (!page.items().isEmpty()) {
+                after = TransactionKey.of(page.items().get(page.items().size() - 1));
+            }
+        } while (page.hasNext());
+        assertEquals(expected.query(filter, null, 0, 1000).items(), pages);
+    }
+
+    private TieredTransactionStore tiered(TransactionJournal journal, SnapshotManager snapshots, int hotMaxRows) {
+        return (TieredTransactionStore) StorageEngine.TIERED.create(journal, snapshots, StorageEngine.DEFAULT_SHARDS,
+                new TieredTransactionStore.Options(dir.resolve("tier"), Duration.ofDays(3), hotMaxRows, 64));
+    }
+
+    private TransactionJournal journal() {
+        return new TransactionJournal(dir.resolve("journal"), FsyncPolicy.ALWAYS, Duration.ZERO, 1 << 20);
+    }
+
+    private SnapshotManager snapshots() {
+        return new SnapshotManager(dir.resolve("snapshot"));
+    }
+
+    /**
+     * 前 50 条为近期的 PENDING 交易，其余为 10 天前已结算的交易，更新时间逐条递减
+     */
+    private static List<Transaction> samples(int n) {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Transaction t = sample(i, "t" + i);
+            if (i < 50) {
+                t.setStatus(TransactionStatus.PENDING);
+                t.setUpdatedAt(NOW.minusSeconds(i));
+            }
+            transactions.add(t);
+        }
+        return transactions;
+    }
+
+    private static Transaction sample(int i, String description) {
+        Transaction t = new Transaction();
+        t.setId(UUID.randomUUID());
+        t.setUserName("user" + i % 5);
+        t.setAccountNumber("acc" + i % 7);
+        t.setAmount(new BigDecimal(i + ".25"));
+        t.setCurrency(Currency.values()[i % Currency.values().length]);
+        t.setStatus(i % 3 == 0 ? TransactionStatus.FAILED : TransactionStatus.SUCCESS);
+        t.setType(TransactionType.values()[i % TransactionType.values().length]);
+        t.setChannel(TransactionChannel.values()[i % TransactionChannel.values().length]);
+        t.setCreatedAt(NOW.minusDays(11).plusSeconds(i));
+        // 每 3 条更新时间相同，按 id 排序
+        t.setUpdatedAt(NOW.minusDays(10).minusSeconds(i / 3));
+        t.setDescription(description);
+        return t;
+    }
+
+    private static Transaction copyOf(Transaction source, String description) {
+        Transaction t = sample(0, description);
+        t.setId(source.getId());
+        t.setUserName(source.getUserName());
+        t.setAccountNumber(source.getAccountNumber());
+        t.setCreatedAt(source.getCreatedAt());
+        t.setUpdatedAt(NOW.plusSeconds(1));
+        return t;
+    }
+
+    private static String read(File file) {
+        try {
+            return Files.readString(file.toPath());
+        } catch (IOException e) {
+            return e.toString();
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package org.bank.store;
+
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+import org.bank.model.Transaction;
+import org.bank.model.TransactionFilter;
+import org.bank.store.filter.FilterIndex;
+import org.bank.store.journal.FsyncPolicy;
+import org.bank.store.journal.TransactionJournal;
+import org.bank.store.snapshot.SnapshotManager;
+import org.bank.store.stats.Dimension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest
+    @EnumSource(StorageEngine.class)
+    void testRecover_replaysJournalIntoStoreAndIndex(StorageEngine engine) {
+        TransactionJournal journal = journal();
+        TransactionStore store = engine.create(journal, SnapshotManager.disabled());
+        store.recover();
+
+        Transaction kept = sample("kept");
+        Transaction updated = sample("before");
+        Transaction deleted = sample("deleted");
+        store.putAll(List.of(kept, updated, deleted));
+        Transaction replacement = copyOf(updated, "after");
+        store.replace(replacement);
+        store.remove(deleted.getId());
+        journal.close();
+
+        TransactionStore recovered = engine.create(journal(), SnapshotManager.disabled());
+        recovered.recover();
+
+        assertEquals(2, recovered.size());
+        assertEquals("after", recovered.get(updated.getId()).getDescription());
+        assertNull(recovered.get(deleted.getId()));
+        assertEquals(List.of("after", "kept"),
+                recovered.snapshot().range(0, 10).stream().map(Transaction::getDescription).toList());
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageEngine.class)
+    void testCheckpoint_restoresFromSnapshotAndJournalTail(StorageEngine engine) throws IOException {
+        // ALWAYS：写入返回时已落盘，统计段文件数不受后台刷盘时机影响
+        TransactionJournal journal = new TransactionJournal(dir.resolve("journal"), FsyncPolicy.ALWAYS, Duration.ZERO, 4096);
+        TransactionStore store = engine.create(journal, snapshots());
+        store.recover();
+
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Transaction t = sample("t" + i);
+            t.setUpdatedAt(t.getUpdatedAt().plusNanos(i * 1000L));
+            transactions.add(t);
+        }
+        store.putAll(transactions);
+        long segmentsBefore = countSegments();
+        long seq = store.checkpoint();
+        assertEquals(500, seq);
+        assertTrue(countSegments() < segmentsBefore);
+
+        // 快照之后的写入只存在于日志尾部
+        store.remove(transactions.get(0).getId());
+        store.replace(copyOf(transactions.get(1), "after"));
+        store.put(sample("tail"));
+        journal.close();
+
+        TransactionStore recovered = engine.create(
+                new TransactionJournal(dir.resolve("journal"), FsyncPolicy.ALWAYS, Duration.ZERO, 4096), snapshots());
+        recovered.recover();
+
+        assertEquals(500, recovered.size());
+        assertEquals(500, recovered.checkpointSeq());
+        assertNull(recovered.get(transactions.get(0).getId()));
+        assertEquals("after", recovered.get(transactions.get(1).getId()).getDescription());
+        assertEquals(transactions.get(2), recovered.get(transactions.get(2).getId()));
+        assertEquals(store.snapshot().range(0, 1000), recovered.snapshot().range(0, 1000));
+        assertEquals(store.snapshotByUser("张三").range(0, 1000), recovered.snapshotByUser("张三").range(0, 1000));
+        assertEquals(500, recovered.snapshotByAccount("62220202020000123").size());
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageEngine.class)
+    void testReplaceAndRemove_compareVersion(StorageEngine engine) {
+        TransactionStore store = engine.create(journal(), SnapshotManager.disabled());
+        store.recover();
+        Transaction t = sample("v1");
+        store.put(t);
+        assertEquals(1, store.get(t.getId()).getVersion());
+
+        Transaction v2 = copyOf(t, "v2");
+        assertEquals(1, store.replace(v2, 1).getVersion());
+        assertEquals(2, store.get(t.getId()).getVersion());
+
+        // 版本不一致时返回当前值，不做修改
+        Transaction stale = copyOf(t, "stale");
+        assertEquals(2, store.replace(stale, 1).getVersion());
+        assertEquals("v2", store.get(t.getId()).getDescription());
+        assertEquals(2, store.remove(t.getId(), 1).getVersion());
+        assertNotNull(store.get(t.getId()));
+
+        assertNull(store.replace(sample("absent"), 1));
+        assertEquals(2, store.remove(t.getId(), 2).getVersion());
+        assertNull(store.get(t.getId()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageEngine.class)
+    void testPutAbsent_keepsExistingRow(StorageEngine engine) {
+        TransactionStore store = engine.create(journal(), SnapshotManager.disabled());
+        store.recover();
+        Transaction t = sample("original");
+        assertNull(store.put(t, TransactionStore.ABSENT_VERSION));
+
+        // id 已存在时返回当前值，不覆盖也不改版本
+        assertEquals(1, store.put(copyOf(t, "single"), TransactionStore.ABSENT_VERSION).getVersion());
+        Transaction added = sample("added");
+        Transaction[] existing = store.putAll(List.of(copyOf(t, "batch"), added), TransactionStore.ABSENT_VERSION);
+        assertEquals("original", existing[0].getDescription());
+        assertNull(existing[1]);
+
+        assertEquals("original", store.get(t.getId()).getDescription());
+        assertEquals(1, store.get(t.getId()).getVersion());
+        assertEquals(List.of("added", "original"),
+                store.snapshot().range(0, 10).stream().map(Transaction::getDescription).sorted().toList());
+        assertEquals(2, store.query(new TransactionFilter(), null, 0, 10).total());
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageEngine.class)
+    void testReplaceAll_comparesVersionPerItem(StorageEngine engine) {
+        TransactionStore store = engine.create(journal(), SnapshotManager.disabled());
+        store.recover();
+        Transaction a = sample("a");
+        Transaction b = sample("b");
+        store.putAll(List.of(a, b));
+        store.replace(copyOf(b, "b2"));
+
+        // b 的期望版本已过期，只有 a 写入；不存在的 id 返回 null
+        Transaction[] previous = store.replaceAll(
+                List.of(copyOf(a, "a2"), copyOf(b, "stale"), sample("absent")), new long[]{1, 1, 1});
+        assertEquals(1, previous[0].getVersion());
+        assertEquals(2, previous[1].getVersion());
+        assertNull(previous[2]);
+        assertEquals("a2", store.get(a.getId()).getDescription());
+        assertEquals(2, store.get(a.getId()).getVersion());
+        assertEquals("b2", store.get(b.getId()).getDescription());
+        assertEquals(List.of("a2", "b2"),
+                store.snapshot().range(0, 10).stream().map(Transaction::getDescription).sorted().toList());
+        assertEquals(2, store.query(new TransactionFilter(), null, 0, 10).total());
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageEngine.class)
+    void testFailedAppend_leavesStoreUnchanged(StorageEngine engine) {
+        TransactionJournal journal = journal();
+        TransactionStore store = engine.create(journal, SnapshotManager.disabled());
+        store.recover();
+        Transaction kept = sample("kept");
+        Transaction other = sample("other");
+        store.putAll(List.of(kept, other));
+        journal.close();
+
+        // 日志已关闭，追加失败的写入不能在主表、索引或统计中留下痕迹
+        assertThrows(IllegalStateException.class, () -> store.put(sample("added")));
+        assertThrows(IllegalStateException.class, () -> store.replace(copyOf(kept, "updated")));
+        assertThrows(IllegalStateException.class, () -> store.remove(other.getId()));
+        assertThrows(IllegalStateException.class, () -> store.putAll(List.of(sample("a"), sample("b"))));
+        assertThrows(IllegalStateException.class, () -> store.removeAll(List.of(kept.getId())));
+
+        assertEquals(2, store.size());
+        assertEquals("kept", store.get(kept.getId()).getDescription());
+        assertEquals(1, store.get(kept.getId()).getVersion());
+        assertNotNull(store.get(other.getId()));
+        assertEquals(2, store.snapshot().size());
+        assertEquals(2, store.snapshotByAccount("62220202020000123").size());
+        assertEquals(List.of("kept", "other"),
+                store.snapshot().range(0, 10).stream().map(Transaction::getDescription).sorted().toList());
+        FilterIndex.Result all = store.query(new TransactionFilter(), null, 0, 10);
+        assertEquals(2, all.total());
+        assertEquals(store.snapshot().range(0, 10), all.items());
+        assertEquals(store.recomputeStats(EnumSet.of(Dimension.CURRENCY), null),
+                store.stats(EnumSet.of(Dimension.CURRENCY), null));
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageEngine.class)
+    void testFailedFsync_fencesStoreAndSnapshot(StorageEngine engine) throws IOException {
+        TransactionJournal journal = new TransactionJournal(dir.resolve("journal"), FsyncPolicy.ALWAYS, Duration.ZERO, 1 << 20);
+        TransactionStore store = engine.create(journal, snapshots());
+        store.recover();
+        Transaction durable = sample("durable");
+        store.put(durable);
+        assertEquals(1, store.checkpoint());
+
+        // 关闭刷盘线程的文件通道，下一次写文件失败
+        ((FileChannel) ReflectionTestUtils.getField(journal, "channel")).close();
+        Transaction lost = sample("lost");
+        assertThrows(UncheckedIOException.class, () -> store.put(lost));
+
+        // 此后拒绝所有写入，快照不生效，未落盘的行不会在重启后出现
+        assertThrows(UncheckedIOException.class, () -> store.put(sample("after")));
+        assertThrows(UncheckedIOException.class, () -> store.remove(durable.getId()));
+        assertThrows(UncheckedIOException.class, store::checkpoint);
+        assertThrows(UncheckedIOException.class, store::capture);
+        assertEquals(1, store.checkpointSeq());
+        journal.close();
+
+        TransactionStore recovered = engine.create(
+                new TransactionJournal(dir.resolve("journal"), FsyncPolicy.ALWAYS, Duration.ZERO, 1 << 20), snapshots());
+        recovered.recover();
+        assertEquals(durable, recovered.get(durable.getId()));
+        assertNull(recovered.get(lost.getId()));
+        assertEquals(1, recovered.size());
+    }
+
+    @Test
+    void testSharded_mergedViewMatchesSingleStoreAtEveryOffset() {
+        TransactionStore heap = StorageEngine.HEAP.create(TransactionJournal.disabled(), SnapshotManager.disabled());
+        TransactionStore sharded = StorageEngine.SHARDED.create(TransactionJournal.disabled(), SnapshotManager.disabled(), 4);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Transaction t = sample("t" + i);
+            // 每 3 条更新时间相同，按 id 排序
+            t.setUpdatedAt(t.getUpdatedAt().plusNanos(i / 3 * 1000L));
+            transactions.add(t);
+        }
+        heap.putAll(transactions);
+        sharded.putAll(transactions);
+
+        TransactionView expected = heap.snapshot();
+        TransactionView actual = sharded.snapshot();
+        assertEquals(expected.size(), actual.size());
+        for (int offset = 0; offset <= 300; offset++) {
+            assertEquals(expected.range(offset, 7), actual.range(offset, 7), "offset " + offset);
+        }
+        TransactionKey after = TransactionKey.of(expected.range(150, 1).get(0));
+        List<Transaction> tail = new ArrayList<>();
+        sharded.snapshotByUser("张三").iteratorAfter(after).forEachRemaining(tail::add);
+        assertEquals(expected.range(151, 300), tail);
+    }
+
+    @Test
+    void testSharded_queryAndRepeatedOffsetsMatchSingleStoreAfterWrites() {
+        TransactionStore heap = StorageEngine.HEAP.create(TransactionJournal.disabled(), SnapshotManager.disabled());
+        TransactionStore sharded = StorageEngine.SHARDED.create(TransactionJournal.disabled(), SnapshotManager.disabled(), 4);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            Transaction t = sample("t" + i);
+            t.setUpdatedAt(t.getUpdatedAt().plusNanos(i * 1000L));
+            t.setType(i % 3 == 0 ? TransactionType.WITHDRAWAL : TransactionType.DEPOSIT);
+            transactions.add(t);
+        }
+        heap.putAll(transactions);
+        sharded.putAll(transactions);
+
+        TransactionFilter deposits = new TransactionFilter();
+        deposits.setType(EnumSet.of(TransactionType.DEPOSIT));
+        TransactionFilter recent = new TransactionFilter();
+        recent.setUpdatedFrom(transactions.get(200).getUpdatedAt());
+        for (int round = 0; round < 3; round++) {
+            for (int offset = 0; offset <= 600; offset += 13) {
+                assertEquals(heap.snapshot().range(offset, 7), sharded.snapshot().range(offset, 7), "offset " + offset);
+                for (TransactionFilter filter : List.of(deposits, recent)) {
+                    FilterIndex.Result expected = heap.query(filter, null, offset, 7);
+                    FilterIndex.Result actual = sharded.query(filter, null, offset, 7);
+                    assertEquals(expected.items(), actual.items(), "skip " + offset);
+                    assertEquals(expected.total(), actual.total());
+                    assertEquals(expected.hasNext(), actual.hasNext(), "skip " + offset);
+                }
+            }
+            // 同一偏移量再次查询时沿用记下的分界键，写入让分界前的条数增减后结果仍与单个存储一致
+            for (int i = 0; i < 20; i++) {
+                Transaction moved = copyOf(transactions.get(i * 29), "moved");
+                moved.setUpdatedAt(moved.getUpdatedAt().plusSeconds(round * 60 + 60));
+                heap.replace(moved);
+                sharded.replace(moved);
+            }
+            Transaction removed = transactions.get(round * 101 + 1);
+            heap.remove(removed.getId());
+            sharded.remove(removed.getId());
+        }
+    }
+
+    private SnapshotManager snapshots() {
+        return new SnapshotManager(dir.resolve("snapshot"));
+    }
+
+    private long countSegments() throws IOException {
+        try (var files = Files.list(dir.resolve("journal"))) {
+            return files.count();
+        }
+    }
+
+    private TransactionJournal journal() {
+        return new TransactionJournal(dir, FsyncPolicy.INTERVAL, Duration.ofMillis(5), 1 << 20);
+    }
+
+    private static Transaction copyOf(Transaction source, String description) {
+        Transaction t = sample(description);
+        t.setId(source.getId());
+        t.setCreatedAt(source.getCreatedAt());
+        t.setUpdatedAt(source.getUpdatedAt().plusSeconds(1));
+        return t;
+    }
+
+    private static Transaction sample(String description) {
+        Transaction t = new Transaction();
+        t.setId(UUID.randomUUID());
+        t.setUserName("张三");
+        t.setAccountNumber("62220202020000123");
+        t.setAmount(new BigDecimal("100.00"));
+        t.setCurrency(Currency.CNY);
+        t.setStatus(TransactionStatus.SUCCESS);
+        t.setType(TransactionType.DEPOSIT);
+        t.setChannel(TransactionChannel.COUNTER);
+        t.setCreatedAt(LocalDateTime.now().minusMinutes(1));
+        t.setUpdatedAt(LocalDateTime.now().minusMinutes(1));
+        t.setDescription(description);
+        return t;
+    }
+}
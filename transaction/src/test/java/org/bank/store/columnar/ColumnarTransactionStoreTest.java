@@ -0,0 +1,188 @@
+package org.bank.store.columnar;
+
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+import org.bank.model.Transaction;
+import org.bank.store.TransactionKey;
+import org.bank.store.TransactionView;
+import org.bank.store.journal.TransactionJournal;
+import org.bank.store.snapshot.SnapshotManager;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarTransactionStoreTest {
+
+    @Test
+    void testRoundTrip_preservesScaleNanosNullsAndWideAmounts() {
+        ColumnarTransactionStore store = new ColumnarTransactionStore(TransactionJournal.disabled(), SnapshotManager.disabled());
+        Transaction plain = sample("100.50");
+        plain.setUpdatedAt(LocalDateTime.of(2024, 5, 1, 12, 0, 0, 123_456_789));
+        Transaction wide = sample("0.123456");
+        Transaction nulls = sample("1");
+        nulls.setDescription(null);
+        nulls.setChannel(null);
+        nulls.setCreatedAt(null);
+        for (Transaction t : List.of(plain, wide, nulls)) {
+            store.put(t);
+            assertEquals(t, store.get(t.getId()));
+        }
+        assertEquals("100.50", store.get(plain.getId()).getAmount().toPlainString());
+
+        // 删除后行号被新交易复用，旧 id 查不到
+        store.remove(wide.getId());
+        Transaction reused = sample("7");
+        store.put(reused);
+        assertNull(store.get(wide.getId()));
+        assertEquals(reused, store.get(reused.getId()));
+        assertEquals(List.of(reused, nulls, plain), store.snapshot().range(0, 10));
+    }
+
+    @Test
+    void testConcurrentReplace_readersNeverSeeTornRows() throws Exception {
+        ColumnarTransactionStore store = new ColumnarTransactionStore(TransactionJournal.disabled(), SnapshotManager.disabled());
+        Transaction a = sample("1.00");
+        a.setDescription("a");
+        a.setType(TransactionType.DEPOSIT);
+        Transaction b = copy(a);
+        b.setAmount(new BigDecimal("2.00"));
+        b.setDescription("b");
+        b.setType(TransactionType.WITHDRAWAL);
+        b.setAccountNumber("6222000000000000002");
+        store.put(copy(a));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Transaction> torn = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; running.get(); i++) {
+                // 写入会给传入的对象分配版本号，每次传入副本，a、b 保持不变供读线程比较
+                store.replace(copy(i % 2 == 0 ? b : a));
+            }
+        });
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            readers.add(new Thread(() -> {
+                for (int i = 0; i < 200_000; i++) {
+                    Transaction t = store.get(a.getId());
+                    t.setVersion(0);
+                    if (!a.equals(t) && !b.equals(t)) {
+                        torn.set(t);
+                        return;
+                    }
+                }
+            }));
+        }
+        writer.start();
+        readers.forEach(Thread::start);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        running.set(false);
+        writer.join();
+        assertNull(torn.get());
+    }
+
+    @Test
+    void testRowIdMap_matchesHashMap() {
+        RowIdMap ids = new RowIdMap();
+        Map<UUID, Integer> expected = new HashMap<>();
+        List<UUID> keys = new ArrayList<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 200_000; i++) {
+            if (random.nextInt(3) > 0 || keys.isEmpty()) {
+                UUID id = new UUID(random.nextLong(), random.nextLong());
+                keys.add(id);
+                expected.put(id, i);
+                put(ids, id, i);
+            } else {
+                UUID id = keys.remove(random.nextInt(keys.size()));
+                expected.remove(id);
+                RowIdMap.Stripe stripe = ids.stripe(id.getMostSignificantBits(), id.getLeastSignificantBits());
+                stripe.lock();
+                try {
+                    stripe.remove(id.getMostSignificantBits(), id.getLeastSignificantBits());
+                } finally {
+                    stripe.unlock();
+                }
+            }
+        }
+        assertEquals(expected.size(), ids.size());
+        expected.forEach((id, row) ->
+                assertEquals(row, ids.get(id.getMostSignificantBits(), id.getLeastSignificantBits())));
+        assertEquals(RowIdMap.ABSENT, ids.get(1, 2));
+    }
+
+    @Test
+    void testCheckpointView_iteratorAfterMatchesSnapshot() {
+        ColumnarTransactionStore store = new ColumnarTransactionStore(TransactionJournal.disabled(), SnapshotManager.disabled());
+        List<Transaction> transactions = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.now();
+        for (int i = 0; i < 200; i++) {
+            Transaction t = sample("1.00");
+            // 每 4 条更新时间相同，按 id 排序
+            t.setUpdatedAt(base.minusNanos(i / 4 * 1000L));
+            transactions.add(t);
+        }
+        store.putAll(transactions);
+
+        TransactionView expected = store.snapshot();
+        TransactionView view = store.checkpointView();
+        assertEquals(expected.range(0, 200), view.range(0, 200));
+        for (int offset = 0; offset < 200; offset += 7) {
+            TransactionKey after = TransactionKey.of(expected.range(offset, 1).get(0));
+            List<Transaction> tail = new ArrayList<>();
+            view.iteratorAfter(after).forEachRemaining(tail::add);
+            assertEquals(expected.range(offset + 1, 200), tail, "offset " + offset);
+        }
+    }
+
+    private static void put(RowIdMap ids, UUID id, int row) {
+        RowIdMap.Stripe stripe = ids.stripe(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        stripe.lock();
+        try {
+            stripe.put(id.getMostSignificantBits(), id.getLeastSignificantBits(), row);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    private static Transaction copy(Transaction source) {
+        Transaction t = sample(source.getAmount().toPlainString());
+        t.setId(source.getId());
+        t.setCreatedAt(source.getCreatedAt());
+        t.setUpdatedAt(source.getUpdatedAt());
+        t.setType(source.getType());
+        t.setAccountNumber(source.getAccountNumber());
+        t.setDescription(source.getDescription());
+        return t;
+    }
+
+    private static Transaction sample(String amount) {
+        Transaction t = new Transaction();
+        t.setId(UUID.randomUUID());
+        t.setUserName("张三");
+        t.setAccountNumber("62220202020000123");
+        t.setAmount(new BigDecimal(amount));
+        t.setCurrency(Currency.CNY);
+        t.setStatus(TransactionStatus.SUCCESS);
+        t.setType(TransactionType.DEPOSIT);
+        t.setChannel(TransactionChannel.COUNTER);
+        t.setCreatedAt(LocalDateTime.now().minusMinutes(1));
+        t.setUpdatedAt(LocalDateTime.now());
+        t.setDescription("测试交易");
+        return t;
+    }
+}
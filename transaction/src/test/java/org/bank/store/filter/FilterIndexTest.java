@@ -0,0 +1,126 @@
+package org.bank.store.filter;
+
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+import org.bank.model.Transaction;
+import org.bank.model.TransactionFilter;
+import org.bank.store.TransactionKey;
+import org.bank.store.StorageEngine;
+import org.bank.store.TransactionStore;
+import org.bank.store.journal.TransactionJournal;
+import org.bank.store.snapshot.SnapshotManager;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilterIndexTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @ParameterizedTest
+    @EnumSource(StorageEngine.class)
+    void testRandomWrites_queriesMatchFullScan(StorageEngine engine) {
+        TransactionStore store = engine.create(TransactionJournal.disabled(), SnapshotManager.disabled());
+        Map<UUID, Transaction> expected = new HashMap<>();
+        List<UUID> ids = new ArrayList<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 20_000; i++) {
+            int op = random.nextInt(10);
+            if (op < 6 || ids.isEmpty()) {
+                Transaction t = sample(random, UUID.randomUUID());
+                store.put(t);
+                expected.put(t.getId(), t);
+                ids.add(t.getId());
+            } else if (op < 8) {
+                UUID id = ids.get(random.nextInt(ids.size()));
+                Transaction t = sample(random, id);
+                if (store.replace(t) != null) {
+                    expected.put(id, t);
+                }
+            } else {
+                UUID id = ids.remove(random.nextInt(ids.size()));
+                store.remove(id);
+                expected.remove(id);
+            }
+        }
+
+        TransactionFilter pendingTransfers = new TransactionFilter();
+        pendingTransfers.setType(Set.of(TransactionType.TRANSFER));
+        pendingTransfers.setStatus(Set.of(TransactionStatus.PENDING));
+        pendingTransfers.setCurrency(Set.of(Currency.USD, Currency.EUR));
+        assertMatches(store, expected, pendingTransfers);
+
+        TransactionFilter lastHour = new TransactionFilter();
+        lastHour.setChannel(Set.of(TransactionChannel.MOBILE_APP));
+        lastHour.setUpdatedFrom(BASE.plusMinutes(1000));
+        lastHour.setUpdatedTo(BASE.plusMinutes(1060));
+        assertMatches(store, expected, lastHour);
+
+        TransactionFilter created = new TransactionFilter();
+        created.setStatus(Set.of(TransactionStatus.FAILED));
+        created.setCreatedFrom(BASE.minusDays(3));
+        created.setCreatedTo(BASE.minusDays(1));
+        assertMatches(store, expected, created);
+
+        assertMatches(store, expected, new TransactionFilter());
+    }
+
+    /**
+     * 游标翻页和按页翻页拼出的完整结果都应与全表扫描一致
+     */
+    private static void assertMatches(TransactionStore store, Map<UUID, Transaction> expected, TransactionFilter filter) {
+        List<Transaction> all = expected.values().stream()
+                .filter(filter::matches)
+                .sorted(Comparator.comparing(TransactionKey::of))
+                .toList();
+
+        List<Transaction> byCursor = new ArrayList<>();
+        TransactionKey after = null;
+        FilterIndex.Result page;
+        do {
+            page = store.query(filter, after, 0, 97);
+            assertEquals(all.size(), page.total());
+            byCursor.addAll(page.items());
+            after = page.items().isEmpty() ? null : TransactionKey.of(page.items().get(page.items().size() - 1));
+        } while (page.hasNext());
+        assertEquals(all, byCursor);
+
+        int skip = all.size() / 2;
+        FilterIndex.Result middle = store.query(filter, null, skip, 10);
+        assertEquals(all.subList(skip, Math.min(all.size(), skip + 10)), middle.items());
+    }
+
+    private static Transaction sample(Random random, UUID id) {
+        Transaction t = new Transaction();
+        t.setId(id);
+        t.setUserName("张三");
+        t.setAccountNumber("62220202020000123");
+        t.setAmount(new BigDecimal("100.00"));
+        t.setType(pick(random, TransactionType.values()));
+        t.setStatus(pick(random, TransactionStatus.values()));
+        t.setCurrency(pick(random, Currency.values()));
+        t.setChannel(pick(random, TransactionChannel.values()));
+        t.setCreatedAt(BASE.minusMinutes(random.nextInt(10_000)));
+        t.setUpdatedAt(BASE.plusMinutes(random.nextInt(10_000)));
+        return t;
+    }
+
+    private static <E> E pick(Random random, E[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
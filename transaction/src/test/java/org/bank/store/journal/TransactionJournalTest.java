@@ -0,0 +1,123 @@
+package org.bank.store.journal;
+
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+import org.bank.model.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testReplay_restoresRecordsInOrder() {
+        Transaction first = sample("first");
+        Transaction second = sample("second");
+
+        TransactionJournal journal = open(FsyncPolicy.ALWAYS);
+        journal.open(record -> fail("journal should be empty"));
+        journal.awaitDurable(journal.appendPut(first));
+        journal.awaitDurable(journal.appendPut(second));
+        journal.awaitDurable(journal.appendDelete(first.getId()));
+        journal.close();
+
+        List<JournalRecord> records = new ArrayList<>();
+        TransactionJournal reopened = open(FsyncPolicy.ALWAYS);
+        reopened.open(records::add);
+        reopened.close();
+
+        assertEquals(3, records.size());
+        assertEquals(List.of(1L, 2L, 3L), records.stream().map(JournalRecord::seq).toList());
+        assertEquals(second, records.get(1).transaction());
+        assertEquals(JournalRecord.Op.DELETE, records.get(2).op());
+        assertEquals(first.getId(), records.get(2).id());
+    }
+
+    @Test
+    void testReplay_truncatesTornTail() throws IOException {
+        TransactionJournal journal = open(FsyncPolicy.ALWAYS);
+        journal.open(record -> { });
+        journal.awaitDurable(journal.appendPut(sample("kept")));
+        journal.awaitDurable(journal.appendPut(sample("torn")));
+        journal.close();
+
+        Path segment;
+        try (var files = Files.list(dir)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ch.truncate(ch.size() - 3);
+        }
+
+        List<JournalRecord> records = new ArrayList<>();
+        TransactionJournal reopened = open(FsyncPolicy.ALWAYS);
+        reopened.open(records::add);
+        long seq = reopened.appendPut(sample("after"));
+        reopened.close();
+
+        assertEquals(1, records.size());
+        assertEquals("kept", records.get(0).transaction().getDescription());
+        assertEquals(2, seq);
+    }
+
+    @Test
+    void testGroupCommit_fewerFsyncsThanWrites() throws InterruptedException {
+        TransactionJournal journal = open(FsyncPolicy.ALWAYS);
+        journal.open(record -> { });
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        for (int i = 0; i < 32; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < 100; j++) {
+                    journal.awaitDurable(journal.appendPut(sample("concurrent")));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        journal.close();
+
+        assertEquals(3200, journal.lastSeq());
+        assertTrue(journal.fsyncCount() < 3200, "fsyncs: " + journal.fsyncCount());
+    }
+
+    private TransactionJournal open(FsyncPolicy policy) {
+        return new TransactionJournal(dir, policy, Duration.ofMillis(5), 1 << 20);
+    }
+
+    private static Transaction sample(String description) {
+        Transaction t = new Transaction();
+        t.setId(UUID.randomUUID());
+        t.setUserName("张三");
+        t.setAccountNumber("62220202020000123");
+        t.setAmount(new BigDecimal("100.00"));
+        t.setCurrency(Currency.CNY);
+        t.setStatus(TransactionStatus.SUCCESS);
+        t.setType(TransactionType.DEPOSIT);
+        t.setChannel(TransactionChannel.COUNTER);
+        t.setCreatedAt(LocalDateTime.now());
+        t.setUpdatedAt(LocalDateTime.now());
+        t.setDescription(description);
+        return t;
+    }
+}
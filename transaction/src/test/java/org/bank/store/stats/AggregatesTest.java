@@ -0,0 +1,117 @@
+package org.bank.store.stats;
+
+import org.bank.common.enums.Currency;
+import org.bank.common.enums.TransactionChannel;
+import org.bank.common.enums.TransactionStatus;
+import org.bank.common.enums.TransactionType;
+import org.bank.model.StatsRow;
+import org.bank.model.Transaction;
+import org.bank.store.StorageEngine;
+import org.bank.store.TransactionStore;
+import org.bank.store.journal.TransactionJournal;
+import org.bank.store.snapshot.SnapshotManager;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AggregatesTest {
+
+    @ParameterizedTest
+    @EnumSource(StorageEngine.class)
+    void testRandomWrites_matchFullRecompute(StorageEngine engine) {
+        TransactionStore store = engine.create(TransactionJournal.disabled(), SnapshotManager.disabled());
+        List<UUID> ids = new ArrayList<>();
+        Random random = new Random(11);
+
+        for (int i = 0; i < 20_000; i++) {
+            int op = random.nextInt(10);
+            if (op < 6 || ids.isEmpty()) {
+                Transaction t = sample(random, UUID.randomUUID());
+                store.put(t);
+                ids.add(t.getId());
+            } else if (op < 8) {
+                store.replace(sample(random, ids.get(random.nextInt(ids.size()))));
+            } else {
+                store.remove(ids.remove(random.nextInt(ids.size())));
+            }
+        }
+        List<List<Transaction>> batches = List.of(
+                List.of(sample(random, UUID.randomUUID()), sample(random, ids.get(0))),
+                List.of(sample(random, ids.get(1)), sample(random, ids.get(2))));
+        store.putAll(batches.get(0));
+        store.replaceAll(batches.get(1));
+        store.removeAll(List.of(ids.get(3), ids.get(4)));
+
+        for (Set<Dimension> groupBy : List.of(
+                EnumSet.noneOf(Dimension.class),
+                EnumSet.of(Dimension.CURRENCY),
+                EnumSet.of(Dimension.CURRENCY, Dimension.TYPE, Dimension.STATUS, Dimension.CHANNEL),
+                EnumSet.of(Dimension.ACCOUNT_NUMBER, Dimension.CURRENCY),
+                EnumSet.of(Dimension.STATUS))) {
+            assertEquals(store.recomputeStats(groupBy, null), store.stats(groupBy, null), groupBy.toString());
+        }
+        assertEquals(store.recomputeStats(EnumSet.of(Dimension.TYPE), "6222000007"),
+                store.stats(EnumSet.of(Dimension.TYPE), "6222000007"));
+        assertThrows(IllegalArgumentException.class,
+                () -> store.stats(EnumSet.of(Dimension.ACCOUNT_NUMBER, Dimension.CHANNEL), null));
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageEngine.class)
+    void testNetAmount_depositMinusWithdrawal(StorageEngine engine) {
+        TransactionStore store = engine.create(TransactionJournal.disabled(), SnapshotManager.disabled());
+        Transaction deposit = transaction("acc", TransactionType.DEPOSIT, "100.50");
+        store.put(deposit);
+        store.put(transaction("acc", TransactionType.WITHDRAWAL, "30.25"));
+        store.put(transaction("acc", TransactionType.PAYMENT, "5"));
+
+        Transaction corrected = transaction("acc", TransactionType.DEPOSIT, "200.0001");
+        corrected.setId(deposit.getId());
+        store.replace(corrected);
+
+        List<StatsRow> rows = store.stats(EnumSet.of(Dimension.ACCOUNT_NUMBER), null);
+        assertEquals(1, rows.size());
+        assertEquals(3, rows.get(0).getCount());
+        assertEquals(new BigDecimal("235.2501"), rows.get(0).getAmount());
+        assertEquals(new BigDecimal("169.7501"), rows.get(0).getNetAmount());
+    }
+
+    private static Transaction transaction(String account, TransactionType type, String amount) {
+        Transaction t = sample(new Random(1), UUID.randomUUID());
+        t.setAccountNumber(account);
+        t.setType(type);
+        t.setStatus(TransactionStatus.SUCCESS);
+        t.setCurrency(Currency.CNY);
+        t.setAmount(new BigDecimal(amount));
+        return t;
+    }
+
+    private static Transaction sample(Random random, UUID id) {
+        Transaction t = new Transaction();
+        t.setId(id);
+        t.setUserName("张三");
+        t.setAccountNumber("62220000" + String.format("%02d", random.nextInt(20)));
+        t.setAmount(BigDecimal.valueOf(random.nextLong(1, 100_000_000), random.nextInt(5)));
+        t.setType(pick(random, TransactionType.values()));
+        t.setStatus(pick(random, TransactionStatus.values()));
+        t.setCurrency(pick(random, Currency.values()));
+        t.setChannel(pick(random, TransactionChannel.values()));
+        t.setCreatedAt(LocalDateTime.now());
+        t.setUpdatedAt(LocalDateTime.now());
+        return t;
+    }
+
+    private static <E> E pick(Random random, E[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}